@@ -24,6 +24,7 @@ import java.io.NotSerializableException;
 import java.util.*;
 import java.util.concurrent.atomic.*;
 import java.util.concurrent.locks.*;
+import java.util.function.Consumer;
 
 import org.jppf.JPPFException;
 import org.jppf.client.balancer.ClientTaskBundle;
@@ -308,6 +309,21 @@ abstract class BaseJPPFClientConnection implements JPPFClientConnection {
    * @throws Exception if an error is raised while reading the results from the server.
    */
   public List<Task<?>> receiveTasks(final TaskBundle bundle, final ObjectSerializer ser, final ClassLoader cl) throws Exception {
+    return receiveTasks(bundle, ser, cl, null);
+  }
+
+  /**
+   * Receive results of tasks execution. When the driver coalesced the results of several node dispatches into the message,
+   * the results of each dispatch but the last are passed to the specified consumer as soon as they are deserialized.
+   * @param bundle the job header.
+   * @param ser the serializer to use.
+   * @param cl the class loader to use for deserializing the tasks.
+   * @param batchConsumer receives the batches of results as they are deserialized, may be {@code null}.
+   * @return the results which were not passed to the consumer.
+   * @throws Exception if an error is raised while reading the results from the server.
+   * @since 6.2
+   */
+  public List<Task<?>> receiveTasks(final TaskBundle bundle, final ObjectSerializer ser, final ClassLoader cl, final Consumer<List<Task<?>>> batchConsumer) throws Exception {
     final ClassLoader ctxCl = Thread.currentThread().getContextClassLoader();
     try {
       final ClassLoader loader = (cl == null) ? getClass().getClassLoader() : cl;
@@ -315,28 +331,32 @@ abstract class BaseJPPFClientConnection implements JPPFClientConnection {
       final SocketWrapper socketClient = taskServerConnection.getSocketClient();
       final int count = bundle.getTaskCount();
       final int[] positions = bundle.getParameter(BundleParameter.TASK_POSITIONS);
-      final List<Task<?>> taskList = new ArrayList<>(count);
+      final int[] batchSizes = (batchConsumer == null) ? null : bundle.getParameter(BundleParameter.RESULTS_BATCH_SIZES);
+      List<Task<?>> taskList = new ArrayList<>((batchSizes == null) ? count : batchSizes[0]);
       if (debugEnabled) log.debug("{} : received bundle {},  positions={}", toDebugString(), bundle, StringUtils.buildString(positions));
+      // if an exception prevented the node from executing the tasks
+      final Throwable t = bundle.getParameter(BundleParameter.NODE_EXCEPTION_PARAM);
+      if ((t != null) && debugEnabled) log.debug(toDebugString() + " : server returned exception parameter in the header for job '" + bundle.getName() + "' : " + t);
+      final Exception e = (t == null) ? null : ((t instanceof Exception) ? (Exception) t : new JPPFException(t));
       if (SEQUENTIAL_DESERIALIZATION) lock.lock();
       try {
+        int batch = 0, batchEnd = (batchSizes == null) ? count : batchSizes[0];
         for (int i = 0; i < count; i++) {
           final Task<?> task = (Task<?>) IOHelper.unwrappedData(socketClient, ser);
           if (task != null) {
             if ((positions != null) && (i < positions.length)) task.setPosition(positions[i]);
+            if (e != null) task.setThrowable(e);
             taskList.add(task);
           }
+          if ((i + 1 == batchEnd) && (i + 1 < count) && (batch + 1 < batchSizes.length)) {
+            if (!taskList.isEmpty()) batchConsumer.accept(taskList);
+            batchEnd += batchSizes[++batch];
+            taskList = new ArrayList<>(batchSizes[batch]);
+          }
         }
       } finally {
         if (SEQUENTIAL_DESERIALIZATION) lock.unlock();
       }
-
-      // if an exception prevented the node from executing the tasks
-      final Throwable t = bundle.getParameter(BundleParameter.NODE_EXCEPTION_PARAM);
-      if (t != null) {
-        if (debugEnabled) log.debug(toDebugString() + " : server returned exception parameter in the header for job '" + bundle.getName() + "' : " + t);
-        final Exception e = (t instanceof Exception) ? (Exception) t : new JPPFException(t);
-        taskList.forEach(task -> task.setThrowable(e));
-      }
       return taskList;
     } finally {
       Thread.currentThread().setContextClassLoader(ctxCl);
@@ -215,14 +215,15 @@ public class ChannelWrapperRemoteAsync extends AbstractChannelWrapperRemote {
           }
           synchronized(response) {
             clientBundle = response.clientBundle;
-            final List<Task<?>> tasks = connection.receiveTasks(bundle, response.ser, response.cl);
-            if (thisDebugEnabled) thisLog.debug("received {} tasks for {}", tasks.size(), clientBundle);
+            // the results of the batches coalesced by the driver are handed to the job as soon as each batch is deserialized
+            final List<Task<?>> tasks = connection.receiveTasks(bundle, response.ser, response.cl, response::handleResults);
+            if (thisDebugEnabled) thisLog.debug("received {} tasks for {}", bundle.getTaskCount(), clientBundle);
             response.handleResults(tasks);
             if (response.currentCount < response.taskCount) {
               responseMap.put(bundleId, response);
             } else {
               complete = true;
-              BundlerHelper.updateBundler(bundler, tasks.size(), response.elapsed);
+              BundlerHelper.updateBundler(bundler, bundle.getTaskCount(), response.elapsed);
               getLoadBalancerPersistenceManager().storeBundler(channelID, bundler, bundlerAlgorithm);
             }
           }
@@ -176,12 +176,10 @@ public class ClientJob extends AbstractClientJob {
           for (final Task<?> task: list) dispatchedTasks.add(task.getPosition());
         }
       } else {
-        final Set<Integer> availablePos = taskGraph.getAvailableNodes();
-        final int effectiveNbTasks = Math.min(nbTasks, availablePos.size());
-        final Iterator<Integer> it = availablePos.iterator();
+        final int effectiveNbTasks = Math.min(nbTasks, taskGraph.getAvailableNodeCount());
         list = new ArrayList<>(effectiveNbTasks);
         for (int i=0; i<effectiveNbTasks; i++) {
-          final int pos = it.next();
+          final int pos = taskGraph.getAvailableNodeAt(i);
           if (!dispatchedTasks.contains(pos)) {
             dispatchedTasks.add(pos);
             list.add(tasks.get(pos));
@@ -569,7 +567,7 @@ public class ClientJob extends AbstractClientJob {
   public boolean hasAvvailableGraphNode() {
     synchronized (tasks) {
       if (taskGraph == null) return false;
-      return taskGraph.getAvailableNodes().size() - dispatchedTasks.size() > 0;
+      return taskGraph.getAvailableNodeCount() - dispatchedTasks.size() > 0;
     }
   }
 
@@ -578,7 +576,7 @@ public class ClientJob extends AbstractClientJob {
    */
   public int getAvailableGraphNodeCount() {
     synchronized (tasks) {
-      return (taskGraph != null) ? taskGraph.getAvailableNodes().size() - dispatchedTasks.size() : -1;
+      return (taskGraph != null) ? taskGraph.getAvailableNodeCount() - dispatchedTasks.size() : -1;
     }
   }
 }
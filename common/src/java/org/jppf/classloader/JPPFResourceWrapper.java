@@ -23,7 +23,7 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.jppf.utils.TraversalList;
+import org.jppf.utils.*;
 
 /**
  * Instances of this class encapsulate the necessary information used by the network classloader,
@@ -49,6 +49,10 @@ public class JPPFResourceWrapper implements Serializable {
    * Constant for an empty <code>JPPFResourceWrapper</code> array.
    */
   public static final JPPFResourceWrapper[] EMPTY_RESOURCE_WRAPPER_ARRAY = new JPPFResourceWrapper[0];
+  /**
+   * The algorithm used to compute the hash of resource definitions.
+   */
+  public static final String DEFINITION_HASH_ALGORITHM = "SHA-256";
 
   /**
    * Enumeration of the possible states for this resource wrapper.
@@ -384,6 +388,15 @@ public class JPPFResourceWrapper implements Serializable {
     return 31 + (dynamic ? 1 : 0) + (uuidPath == null ? 0 : uuidPath.hashCode()) + (int) id + (name == null ? 0 : name.hashCode());
   }
 
+  /**
+   * Compute the hash of a resource definition with the {@link #DEFINITION_HASH_ALGORITHM}.
+   * @param definition the definition to hash.
+   * @return the hash as a string of hexadecimal digits, or {@code null} if the definition is {@code null}.
+   */
+  public static String computeDefinitionHash(final byte[] definition) {
+    return CryptoUtils.computeHash(definition, DEFINITION_HASH_ALGORITHM);
+  }
+
   /**
    * Determine whether this resource has any of the specified data.
    * @param ids the ids of the data to check.
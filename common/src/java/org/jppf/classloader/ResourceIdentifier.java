@@ -81,4 +81,12 @@ public enum ResourceIdentifier
    * Whether lookups of resource in the file system are allowed.
    */
   FILE_LOOKUP_ALLOWED,
+  /**
+   * Hash of the definition of a single resource that the node holds in its persistent cache.
+   */
+  KNOWN_HASH,
+  /**
+   * Flag indicating that the definition was not sent because its hash matches {@link #KNOWN_HASH}.
+   */
+  HASH_MATCH,
 }
@@ -63,6 +63,10 @@ public class NodeTaskWrapper implements Runnable {
    * Indicator that task was started.
    */
   private boolean started;
+  /**
+   * Whether the task was released before it started, so that it can be executed by another node.
+   */
+  private boolean released;
   /**
    * The task to execute within a try/catch block.
    */
@@ -146,6 +150,17 @@ public class NodeTaskWrapper implements Runnable {
     }
   }
 
+  /**
+   * Release this task if it has not started yet, in which case it will never be executed by this node.
+   * @return {@code true} if the task was released, {@code false} if it already started or was cancelled.
+   */
+  public synchronized boolean release() {
+    if (started || cancelled || timeout) return false;
+    released = true;
+    cancelled = true;
+    return true;
+  }
+
   /**
    * Set timeout indicator and cancel task when it implements {@code Future} interface.
    */
@@ -172,7 +187,10 @@ public class NodeTaskWrapper implements Runnable {
   @Override
   public void run() {
     if (traceEnabled) log.trace("running {}", this);
-    started = true;
+    synchronized(this) {
+      if (released) return;
+      started = true;
+    }
     final long id = Thread.currentThread().getId();
     final long startTime = System.nanoTime();
     ClassLoader oldCl = null;
@@ -268,6 +286,7 @@ public class NodeTaskWrapper implements Runnable {
     sb.append(", callOnCancel=").append(callOnCancel);
     sb.append(", timeout=").append(timeout);
     sb.append(", started=").append(started);
+    sb.append(", released=").append(released);
     if (jobEntry != null) sb.append(", jobEntry=").append(jobEntry);
     sb.append(']');
     return sb.toString();
@@ -333,4 +352,11 @@ public class NodeTaskWrapper implements Runnable {
   public boolean hasStarted() {
     return started;
   }
+
+  /**
+   * @return whether the task was released before it started.
+   */
+  public synchronized boolean isReleased() {
+    return released;
+  }
 }
@@ -108,29 +108,12 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     final TaskBundle bundle = bundleWithTasks.getBundle();
     if ((taskList == null) || taskList.isEmpty()) return;
     if (debugEnabled) log.debug("executing {} tasks of bundle {}", taskList.size(), bundle);
-    final JobProcessingEntry jobEntry = setup(bundleWithTasks);
-    jobEntry.executionManager = this;
-    final String bundleKey = bundle.getUuid() + bundle.getBundleId();
-    synchronized(jobEntries) {
-      final JobPendingEntry pendingEntry = pendingEntries.remove(bundleKey);
-      if (pendingEntry != null) {
-        pendingBundleIds.removeValue(bundle.getUuid(), bundle.getBundleId());
-        jobEntry.jobCancelled.set(pendingEntry.jobCancelled.get());
-      }
-      jobEntries.put(bundleKey, jobEntry);
-      jobBundleIds.putValue(bundle.getUuid(), bundle.getBundleId());
-    }
+    final JobProcessingEntry jobEntry = setup(bundleWithTasks, taskList.get(0).getDataProvider());
+    register(jobEntry);
     synchronized(jobEntry) {
       if (!jobEntry.jobCancelled.get()) {
         if (debugEnabled) log.debug("wrapping up to {} executable tasks of bundle {}", taskList.size(), bundle);
-        for (final Task<?> task : taskList) {
-          if (!(task instanceof JPPFExceptionResult)) {
-            if (task instanceof AbstractTask) ((AbstractTask<?>) task).setExecutionDispatcher(taskNotificationDispatcher);
-            final NodeTaskWrapper taskWrapper = new NodeTaskWrapper(jobEntry, task, jobEntry.getClassLoader(), timeoutHandler);
-            jobEntry.taskWrapperList.add(taskWrapper);
-            jobEntry.submittedCount++;
-          }
-        }
+        for (final Task<?> task : taskList) wrapTask(jobEntry, task);
         if (!jobEntry.taskWrapperList.isEmpty()) {
           if (debugEnabled) log.debug("submitting {} executable tasks of bundle {}", jobEntry.taskWrapperList.size(), bundle);
           for (final NodeTaskWrapper taskWrapper: jobEntry.taskWrapperList) getExecutor().submit(taskWrapper, taskWrapper);
@@ -146,6 +129,79 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     }
   }
 
+  @Override
+  public JobProcessingEntry startStreaming(final TaskBundle bundle, final DataProvider dataProvider) {
+    if (debugEnabled) log.debug("start streaming the tasks of bundle {}", bundle);
+    final JobProcessingEntry jobEntry = setup(new BundleWithTasks(bundle, new ArrayList<Task<?>>()), dataProvider);
+    jobEntry.allTasksSubmitted = false;
+    register(jobEntry);
+    return jobEntry;
+  }
+
+  @Override
+  public void submitStreamedTask(final JobProcessingEntry jobEntry, final Task<?> task) {
+    synchronized(jobEntry) {
+      if (jobEntry.jobCancelled.get()) return;
+      final NodeTaskWrapper taskWrapper = wrapTask(jobEntry, task);
+      if (taskWrapper != null) getExecutor().submit(taskWrapper, taskWrapper);
+    }
+  }
+
+  @Override
+  public void endStreaming(final JobProcessingEntry jobEntry, final List<Task<?>> taskList, final Throwable error) {
+    final boolean endJob;
+    synchronized(jobEntry) {
+      if (debugEnabled) log.debug("end of streaming for {} submitted tasks, error = {}, bundle = {}", jobEntry.submittedCount, error, jobEntry.bundle);
+      jobEntry.taskList = taskList;
+      jobEntry.allTasksSubmitted = true;
+      // the result count is only updated while holding the lock, so no other thread can end the job concurrently
+      endJob = jobEntry.resultCount.get() >= jobEntry.submittedCount;
+      if (error != null) {
+        jobEntry.aborted = true;
+        jobEntry.t = error;
+        jobEntry.jobCancelled.set(true);
+        if (!endJob) {
+          for (final NodeTaskWrapper taskWrapper: jobEntry.taskWrapperList) cancelTask(taskWrapper, false);
+        }
+      }
+    }
+    if (endJob) jobEnded(jobEntry);
+  }
+
+  /**
+   * Register the specified job entry as being processed.
+   * @param jobEntry the job entry to register.
+   */
+  private void register(final JobProcessingEntry jobEntry) {
+    final TaskBundle bundle = jobEntry.bundle;
+    jobEntry.executionManager = this;
+    final String bundleKey = bundle.getUuid() + bundle.getBundleId();
+    synchronized(jobEntries) {
+      final JobPendingEntry pendingEntry = pendingEntries.remove(bundleKey);
+      if (pendingEntry != null) {
+        pendingBundleIds.removeValue(bundle.getUuid(), bundle.getBundleId());
+        jobEntry.jobCancelled.set(pendingEntry.jobCancelled.get());
+      }
+      jobEntries.put(bundleKey, jobEntry);
+      jobBundleIds.putValue(bundle.getUuid(), bundle.getBundleId());
+    }
+  }
+
+  /**
+   * Wrap the specified task for execution and add it to the tasks of the specified job entry. This method must be called while holding the lock on the job entry.
+   * @param jobEntry the job entry to which the task belongs.
+   * @param task the task to wrap.
+   * @return the wrapper for the task, or {@code null} if the task is not executable.
+   */
+  private NodeTaskWrapper wrapTask(final JobProcessingEntry jobEntry, final Task<?> task) {
+    if (task instanceof JPPFExceptionResult) return null;
+    if (task instanceof AbstractTask) ((AbstractTask<?>) task).setExecutionDispatcher(taskNotificationDispatcher);
+    final NodeTaskWrapper taskWrapper = new NodeTaskWrapper(jobEntry, task, jobEntry.getClassLoader(), timeoutHandler);
+    jobEntry.taskWrapperList.add(taskWrapper);
+    jobEntry.submittedCount++;
+    return taskWrapper;
+  }
+
   @Override
   public void cancelAllTasks(final boolean callOnCancel, final boolean requeue) {
     if (debugEnabled) log.debug("cancelling all tasks with: callOnCancel={}, requeue={}", callOnCancel, requeue);
@@ -194,6 +250,48 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     }
   }
 
+  @Override
+  public int[] releaseUnstartedTasks(final String jobUuid) {
+    final List<JobProcessingEntry> entries = new ArrayList<>();
+    synchronized(jobEntries) {
+      final Collection<Long> bundleIds = jobBundleIds.getValues(jobUuid);
+      if (bundleIds != null) {
+        for (final Long bundleId: bundleIds) {
+          final JobProcessingEntry jobEntry = jobEntries.get(jobUuid + bundleId);
+          if (jobEntry != null) entries.add(jobEntry);
+        }
+      }
+    }
+    final List<NodeTaskWrapper> released = new ArrayList<>();
+    for (final JobProcessingEntry jobEntry: entries) {
+      synchronized(jobEntry) {
+        if (jobEntry.jobCancelled.get() || !jobEntry.allTasksSubmitted || (jobEntry.taskWrapperList == null)) continue;
+        final int start = released.size();
+        for (final NodeTaskWrapper taskWrapper: jobEntry.taskWrapperList) {
+          if (taskWrapper.release()) released.add(taskWrapper);
+        }
+        if (released.size() > start) {
+          final int[] previous = jobEntry.bundle.getParameter(BundleParameter.RELEASED_TASK_POSITIONS, null);
+          final int offset = (previous == null) ? 0 : previous.length;
+          final int[] positions = (previous == null) ? new int[released.size() - start] : Arrays.copyOf(previous, offset + released.size() - start);
+          for (int i=start; i<released.size(); i++) positions[offset + i - start] = released.get(i).getTask().getPosition();
+          jobEntry.bundle.setParameter(BundleParameter.RELEASED_TASK_POSITIONS, positions);
+        }
+      }
+    }
+    if (debugEnabled) log.debug("released {} unstarted tasks of {} bundles for jobUuid={}", released.size(), entries.size(), jobUuid);
+    final int[] result = new int[released.size()];
+    for (int i=0; i<result.length; i++) {
+      final NodeTaskWrapper taskWrapper = released.get(i);
+      result[i] = taskWrapper.getTask().getPosition();
+      final Future<?> future = taskWrapper.getFuture();
+      if (future != null) future.cancel(false);
+      taskWrapper.cancelTimeoutAction();
+      taskWrapper.taskEnded();
+    }
+    return result;
+  }
+
   /**
    * Cancel the execution of the tasks with the specified id.
    * @param taskWrapper the index of the task to cancel.
@@ -221,10 +319,11 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
 
   /**
    * Prepare this execution manager for executing the tasks of a bundle.
-   * @param bundleWithTasks the bundle and associated tasks.
+   * @param bundleWithTasks the bundle and associated tasks. The list of tasks is empty when the tasks are streamed.
+   * @param dataProvider the data provider shared by the tasks of the bundle.
    * @return an instance of {@link JobProcessingEntry}.
    */
-  protected abstract JobProcessingEntry setup(final BundleWithTasks bundleWithTasks);
+  protected abstract JobProcessingEntry setup(final BundleWithTasks bundleWithTasks, final DataProvider dataProvider);
 
   /**
    * Cleanup method invoked when all tasks for the current bundle have completed.
@@ -241,18 +340,23 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
       boolean endJob = false;
       final JobProcessingEntry jobEntry = taskWrapper.getJobEntry();
       final ExecutionInfo info = taskWrapper.getExecutionInfo();
-      final long cpuTime = (info == null) ? 0L : (info.cpuTime / 1_000_000L);
+      final long cpuTimeNanos = (info == null) ? 0L : info.cpuTime;
+      final long cpuTime = cpuTimeNanos / 1_000_000L;
       final Task<?> task = taskWrapper.getTask();
 
+      final boolean released = taskWrapper.isReleased();
       jobEntry.accumulatedElapsed.addAndGet(elapsedTime);
-      final int n = jobEntry.resultCount.incrementAndGet();
+      // notified before the result count is updated, so the listeners always see a task before the completion of its bundle
+      if (!jobEntry.aborted && !released) fireTaskExecuted(jobEntry.bundle, task);
       synchronized(jobEntry) {
+        final int n = jobEntry.resultCount.incrementAndGet();
+        if (!released) jobEntry.addTaskTimes(elapsedTime, cpuTimeNanos);
         bundle = jobEntry.bundle;
         final int submittedCount = jobEntry.submittedCount;
         if (traceEnabled) log.trace("sending task ended notification for {}, bundle={}", taskWrapper, bundle);
-        taskNotificationDispatcher.fireTaskEnded(task, bundle.getUuid(), bundle.getName(), cpuTime, elapsedTime / 1_000_000L, task.getThrowable() != null);
+        if (!released) taskNotificationDispatcher.fireTaskEnded(task, bundle.getUuid(), bundle.getName(), cpuTime, elapsedTime / 1_000_000L, task.getThrowable() != null);
         if (traceEnabled) log.trace("resultCount={} for {}", n, taskWrapper);
-        if (n >= submittedCount) endJob = true;
+        if (jobEntry.allTasksSubmitted && (n >= submittedCount)) endJob = true;
       }
       if (endJob) jobEnded(jobEntry);
     } catch (final RuntimeException e) {
@@ -268,6 +372,7 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     TaskBundle bundle = null;
     List<Task<?>> taskList = null;
     Throwable t = null;
+    final boolean aborted = jobEntry.aborted;
     synchronized(jobEntry) {
       bundle = jobEntry.bundle;
       taskList = jobEntry.taskList;
@@ -279,6 +384,10 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
       jobEntries.remove(bundle.getUuid() + bundle.getBundleId());
       jobBundleIds.removeValue(bundle.getUuid(), bundle.getBundleId());
     }
+    if (aborted) {
+      if (debugEnabled) log.debug("streaming of {} was aborted, not notifying the listeners", bundle);
+      return;
+    }
     fireJobFinished(bundle, taskList, t);
   }
 
@@ -373,6 +482,17 @@ public abstract class AbstractAsyncExecutionManager implements AsyncExecutionMan
     }
   }
 
+  /**
+   * Called when the execution of a task has finished.
+   * @param bundle the TaskBundle which holds information on the job.
+   * @param task the task that was executed.
+   */
+  protected void fireTaskExecuted(final TaskBundle bundle, final Task<?> task) {
+    for (final ExecutionManagerListener listener: listeners) {
+      if (listener != null) listener.taskExecuted(bundle, task);
+    }
+  }
+
   @Override
   public void addPendingJobEntry(final TaskBundle bundle) {
     if (debugEnabled) log.debug("adding pending entry for {}", bundle);
@@ -18,6 +18,7 @@
 
 package org.jppf.execute.async;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 import org.jppf.execute.*;
@@ -51,6 +52,14 @@ public interface AsyncExecutionManager {
    */
   void cancelJob(String jobUuid, boolean callOnCancel, boolean requeue);
 
+  /**
+   * Release the tasks of the specified job that have not started yet. The released tasks are not executed by this execution manager,
+   * and their positions are sent back to the server along with the results of the other tasks, so that they can be dispatched to other nodes.
+   * @param jobUuid the uuid of the job whose tasks are released.
+   * @return the positions of the released tasks, possibly empty.
+   */
+  int[] releaseUnstartedTasks(String jobUuid);
+
   /**
    * Shutdown this execution manager.
    */
@@ -139,4 +148,28 @@ public interface AsyncExecutionManager {
    * @param bundle the bundle to process.
    */
   void addPendingJobEntry(TaskBundle bundle);
+
+  /**
+   * Start the execution of a bundle whose tasks are submitted one at a time, as soon as they are deserialized.
+   * @param bundle the bundle to execute.
+   * @param dataProvider the data provider shared by the tasks of the bundle.
+   * @return an entry to use with {@link #submitStreamedTask(JobProcessingEntry, Task)} and {@link #endStreaming(JobProcessingEntry, List, Throwable)}.
+   */
+  JobProcessingEntry startStreaming(TaskBundle bundle, DataProvider dataProvider);
+
+  /**
+   * Submit a single task of a streamed bundle for execution.
+   * @param jobEntry the entry returned by {@link #startStreaming(TaskBundle, DataProvider)}.
+   * @param task the task to execute.
+   */
+  void submitStreamedTask(JobProcessingEntry jobEntry, Task<?> task);
+
+  /**
+   * Notify that all the tasks of a streamed bundle have been submitted.
+   * @param jobEntry the entry returned by {@link #startStreaming(TaskBundle, DataProvider)}.
+   * @param taskList all the tasks of the bundle, in the order in which they were received.
+   * @param error if not {@code null}, the error which prevented the bundle from being fully received.
+   * In this case the tasks are cancelled and the completion of the bundle is not notified to the listeners.
+   */
+  void endStreaming(JobProcessingEntry jobEntry, List<Task<?>> taskList, Throwable error);
 }
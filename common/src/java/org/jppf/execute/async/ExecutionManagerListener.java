@@ -34,4 +34,12 @@ public interface ExecutionManagerListener {
    * @param t a {@link Throwable} that prevented or interrupted the job processing.
    */
   void bundleExecuted(final TaskBundle bundle, final List<Task<?>> tasks, final Throwable t);
+
+  /**
+   * Called when the execution of a single task has finished, before the completion of its bundle is notified.
+   * @param bundle the TaskBundle which holds information on the job.
+   * @param task the task that was executed.
+   */
+  default void taskExecuted(final TaskBundle bundle, final Task<?> task) {
+  }
 }
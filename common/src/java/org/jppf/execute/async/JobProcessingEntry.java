@@ -18,7 +18,7 @@
 
 package org.jppf.execute.async;
 
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import org.jppf.execute.NodeTaskWrapper;
@@ -55,6 +55,18 @@ public class JobProcessingEntry extends JobPendingEntry {
    * The total accumulated elapsed time of the tasks in the current bundle.
    */
   public final AtomicLong accumulatedElapsed = new AtomicLong(0L);
+  /**
+   * The elapsed times in nanoseconds of the executed tasks, in order of completion. Only accessed while synchronized on this entry.
+   */
+  private long[] taskElapsedTimes = new long[8];
+  /**
+   * The cpu times in nanoseconds of the executed tasks, in the same order as {@link #taskElapsedTimes}.
+   */
+  private long[] taskCpuTimes = new long[8];
+  /**
+   * The number of executed tasks whose times were recorded.
+   */
+  private int executedCount;
   /**
    * The execution mabager that processes the job.
    */
@@ -71,6 +83,42 @@ public class JobProcessingEntry extends JobPendingEntry {
    * A {@link Throwable} that prevented or interrupted the job processing.
    */
   public Throwable t;
+  /**
+   * Whether all the tasks of the bundle have been submitted. This is only {@code false} while the tasks of a streamed bundle are being deserialized.
+   */
+  public boolean allTasksSubmitted = true;
+  /**
+   * Whether the processing of a streamed bundle was aborted, in which case the listeners are not notified of its completion.
+   */
+  public volatile boolean aborted;
+
+  /**
+   * Record the times of an executed task. This method must be called while synchronized on this entry.
+   * @param elapsed the elapsed time of the task in nanoseconds.
+   * @param cpuTime the cpu time of the task in nanoseconds.
+   */
+  public void addTaskTimes(final long elapsed, final long cpuTime) {
+    if (executedCount == taskElapsedTimes.length) {
+      taskElapsedTimes = Arrays.copyOf(taskElapsedTimes, 2 * executedCount);
+      taskCpuTimes = Arrays.copyOf(taskCpuTimes, 2 * executedCount);
+    }
+    taskElapsedTimes[executedCount] = elapsed;
+    taskCpuTimes[executedCount++] = cpuTime;
+  }
+
+  /**
+   * @return the elapsed times in nanoseconds of the executed tasks.
+   */
+  public synchronized long[] getTaskElapsedTimes() {
+    return Arrays.copyOf(taskElapsedTimes, executedCount);
+  }
+
+  /**
+   * @return the cpu times in nanoseconds of the executed tasks, in the same order as {@link #getTaskElapsedTimes()}.
+   */
+  public synchronized long[] getTaskCpuTimes() {
+    return Arrays.copyOf(taskCpuTimes, executedCount);
+  }
 
   /**
    * @return the class loader fot htis task bundle.
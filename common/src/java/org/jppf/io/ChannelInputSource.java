@@ -62,13 +62,19 @@ public class ChannelInputSource implements InputSource {
    * We read the data by small chunks of max {@link IO#TEMP_BUFFER_SIZE} bytes wrapped in a direct ByteBuffer, to work around the fact that Sun NIO implementation of SocketChannelImpl.read() attempts
    * to allocate a direct buffer of the requested data size (i.e. <code>data</code>.remaining() in our case), <i>if the destination ByteBuffer is not direct</i>.<br/>
    * This implementation can result in a &quot;OutOfMemoryError: Direct buffer space&quot; when the size of the data to read is too large.<br/>
-   * See <a href="http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4879883">Sun Bug ID: 4879883</a> for details.
+   * See <a href="http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4879883">Sun Bug ID: 4879883</a> for details.<br/>
+   * When <code>data</code> is a direct buffer, the data is read directly into it, without intermediate copy.
    * @param data the buffer into which to write.
    * @return the number of bytes actually read, or -1 if end of stream was reached.
    * @throws Exception if an IO error occurs.
    */
   @Override
   public int read(final ByteBuffer data) throws Exception {
+    if (data.isDirect()) {
+      final int n = channel.read(data);
+      if (n < 0) throw new EOFException();
+      return n;
+    }
     final ByteBuffer tmpBuffer = DirectBufferPool.provideBuffer();
     try {
       final int remaining = data.remaining();
@@ -0,0 +1,302 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.io;
+
+import java.io.*;
+import java.util.*;
+
+import org.slf4j.*;
+
+/**
+ * Data location made of a sequence of chunks, each of which is a data location whose size fits in an {@code int}.
+ * This allows handling data whose total size exceeds {@link Integer#MAX_VALUE}, without ever materializing it in a single array or file.
+ * <p>On the wire, a chunked data location is sent as the {@link #CHUNKED_MARKER} in place of the data size,
+ * followed by each chunk prefixed with its size, followed by a zero-size terminator.
+ * @author Laurent Cohen
+ */
+public class ChunkedDataLocation extends AbstractDataLocation {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(ChunkedDataLocation.class);
+  /**
+   * Determines whether trace-level logging is enabled.
+   */
+  private static boolean traceEnabled = log.isTraceEnabled();
+  /**
+   * Value sent instead of the data size, to indicate that the data follows in length-prefixed chunks.
+   */
+  public static final int CHUNKED_MARKER = Integer.MIN_VALUE;
+  /**
+   * The chunks of data.
+   */
+  private final List<DataLocation> chunks;
+  /**
+   * The total size of the data.
+   */
+  private long longSize;
+  /**
+   * Index of the chunk currently being transferred.
+   */
+  private int currentIndex;
+  /**
+   * The number of bytes transferred for the current chunk.
+   */
+  private long currentCount;
+
+  /**
+   * Initialize this data location without any chunk.
+   */
+  public ChunkedDataLocation() {
+    this.chunks = new ArrayList<>();
+    this.size = 0;
+  }
+
+  /**
+   * Initialize this data location with the specified chunks.
+   * @param chunks the chunks of data.
+   */
+  public ChunkedDataLocation(final List<DataLocation> chunks) {
+    this.chunks = new ArrayList<>(chunks.size());
+    for (final DataLocation chunk: chunks) addChunk(chunk);
+  }
+
+  /**
+   * Add a chunk at the end of this data location. Empty chunks are ignored, since a zero length terminates a sequence of chunks on the wire.
+   * @param chunk the chunk to add.
+   */
+  public void addChunk(final DataLocation chunk) {
+    if ((chunk == null) || (chunk.getSize() <= 0)) return;
+    chunks.add(chunk);
+    longSize += chunk.getSize();
+    size = (longSize > Integer.MAX_VALUE) ? UNKNOWN_SIZE : (int) longSize;
+  }
+
+  /**
+   * Get the chunks of data.
+   * @return a list of {@link DataLocation} objects.
+   */
+  public List<DataLocation> getChunks() {
+    return chunks;
+  }
+
+  /**
+   * Get the size of the data referenced by this data location.
+   * @return the data size as an int, or {@link #UNKNOWN_SIZE} if it exceeds {@link Integer#MAX_VALUE}.
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public long getLongSize() {
+    return longSize;
+  }
+
+  /**
+   * Get the single chunk of this data location if there is only one, or this data location otherwise.
+   * @return a {@link DataLocation} which has the same content as this chunked data location.
+   */
+  public DataLocation simplify() {
+    return (chunks.size() == 1) ? chunks.get(0) : this;
+  }
+
+  /**
+   * Transfer the content of this data location from the specified input source, one chunk after the other.
+   * @param source the input source to transfer from.
+   * @param blocking if true, the method will block until the entire content has been transferred.
+   * @return the number of bytes actually transferred, capped to {@link Integer#MAX_VALUE} in blocking mode.
+   * @throws Exception if an IO error occurs.
+   */
+  @Override
+  public int transferFrom(final InputSource source, final boolean blocking) throws Exception {
+    return transfer(source, null, blocking);
+  }
+
+  /**
+   * Transfer the content of this data location to the specified output destination, one chunk after the other.
+   * @param dest the output destination to transfer to.
+   * @param blocking if true, the method will block until the entire content has been transferred.
+   * @return the number of bytes actually transferred, capped to {@link Integer#MAX_VALUE} in blocking mode.
+   * @throws Exception if an IO error occurs.
+   */
+  @Override
+  public int transferTo(final OutputDestination dest, final boolean blocking) throws Exception {
+    return transfer(null, dest, blocking);
+  }
+
+  /**
+   * Transfer the content of this data location from the specified input source or to the specified output destination.
+   * @param source the input source to transfer from, or {@code null} when transferring to {@code dest}.
+   * @param dest the output destination to transfer to, or {@code null} when transferring from {@code source}.
+   * @param blocking if true, the method will block until the entire content has been transferred.
+   * @return the number of bytes actually transferred.
+   * @throws Exception if an IO error occurs.
+   */
+  private int transfer(final InputSource source, final OutputDestination dest, final boolean blocking) throws Exception {
+    if (!transferring) {
+      transferring = true;
+      currentIndex = 0;
+      currentCount = 0L;
+    }
+    try {
+      if (blocking) {
+        long total = 0L;
+        for (; currentIndex<chunks.size(); currentIndex++) {
+          final DataLocation chunk = chunks.get(currentIndex);
+          if (chunk.getSize() <= 0) continue;
+          if (transferChunk(chunk, source, dest, true) < 0) throw new EOFException("end of stream reached after " + total + " bytes, expected " + longSize);
+          total += chunk.getSize();
+        }
+        transferring = false;
+        return (int) Math.min(total, Integer.MAX_VALUE);
+      }
+      while ((currentIndex < chunks.size()) && (currentCount >= chunks.get(currentIndex).getSize())) {
+        currentIndex++;
+        currentCount = 0L;
+      }
+      if (currentIndex >= chunks.size()) {
+        transferring = false;
+        return 0;
+      }
+      final DataLocation chunk = chunks.get(currentIndex);
+      final int n = transferChunk(chunk, source, dest, false);
+      if (n < 0) {
+        transferring = false;
+        return -1;
+      }
+      currentCount += n;
+      if ((currentCount >= chunk.getSize()) && (currentIndex >= chunks.size() - 1)) transferring = false;
+      return n;
+    } catch (final Exception e) {
+      transferring = false;
+      throw e;
+    }
+  }
+
+  /**
+   * Transfer the content of the specified chunk from the specified input source or to the specified output destination.
+   * @param chunk the chunk to transfer.
+   * @param source the input source to transfer from, or {@code null} when transferring to {@code dest}.
+   * @param dest the output destination to transfer to, or {@code null} when transferring from {@code source}.
+   * @param blocking if true, the method will block until the entire chunk has been transferred.
+   * @return the number of bytes actually transferred.
+   * @throws Exception if an IO error occurs.
+   */
+  private static int transferChunk(final DataLocation chunk, final InputSource source, final OutputDestination dest, final boolean blocking) throws Exception {
+    return (source != null) ? chunk.transferFrom(source, blocking) : chunk.transferTo(dest, blocking);
+  }
+
+  @Override
+  public InputStream getInputStream() throws Exception {
+    final Iterator<DataLocation> it = chunks.iterator();
+    return new SequenceInputStream(new Enumeration<InputStream>() {
+      @Override
+      public boolean hasMoreElements() {
+        return it.hasNext();
+      }
+
+      @Override
+      public InputStream nextElement() {
+        try {
+          return it.next().getInputStream();
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Get an output stream which writes over the existing chunks, one after the other.
+   * @return an {@code OutputStream} instance.
+   * @throws Exception if an I/O error occurs.
+   */
+  @Override
+  public OutputStream getOutputStream() throws Exception {
+    return new OutputStream() {
+      private int index = -1;
+      private OutputStream current;
+      private long remaining;
+
+      @Override
+      public void write(final int b) throws IOException {
+        ensureRemaining();
+        current.write(b);
+        remaining--;
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+        int pos = off;
+        final int end = off + len;
+        while (pos < end) {
+          ensureRemaining();
+          final int n = (int) Math.min(end - pos, remaining);
+          current.write(b, pos, n);
+          pos += n;
+          remaining -= n;
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (current != null) current.close();
+        current = null;
+      }
+
+      /**
+       * Move to the next chunk if the current one is full.
+       * @throws IOException if the capacity of this data location is exceeded.
+       */
+      private void ensureRemaining() throws IOException {
+        while ((current == null) || (remaining <= 0L)) {
+          if (index >= chunks.size() - 1) throw new EOFException("capacity of " + longSize + " bytes exceeded");
+          close();
+          final DataLocation chunk = chunks.get(++index);
+          try {
+            current = chunk.getOutputStream();
+          } catch (final IOException e) {
+            throw e;
+          } catch (final Exception e) {
+            throw new IOException(e);
+          }
+          remaining = chunk.getSize();
+        }
+      }
+    };
+  }
+
+  @Override
+  public DataLocation copy() {
+    if (traceEnabled) log.trace("copying " + this);
+    final List<DataLocation> copies = new ArrayList<>(chunks.size());
+    for (final DataLocation chunk: chunks) copies.add(chunk.copy());
+    return new ChunkedDataLocation(copies);
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("size=").append(longSize)
+      .append(", chunks=").append(chunks.size())
+      .append(']').toString();
+  }
+}
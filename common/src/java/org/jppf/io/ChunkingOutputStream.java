@@ -0,0 +1,139 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.io;
+
+import java.io.*;
+
+import org.jppf.utils.streams.MultipleBuffersOutputStream;
+
+/**
+ * An output stream which writes its data into the chunks of a {@link ChunkedDataLocation}, starting a new chunk whenever the current one reaches the chunk size.
+ * The chunks are stored either in memory or in temporary files.
+ * @author Laurent Cohen
+ */
+public class ChunkingOutputStream extends OutputStream {
+  /**
+   * The data location to which the chunks are added.
+   */
+  private final ChunkedDataLocation location;
+  /**
+   * The maximum size of each chunk.
+   */
+  private final int chunkSize;
+  /**
+   * Whether the chunks are stored in temporary files rather than in memory.
+   */
+  private final boolean toFile;
+  /**
+   * The stream to which the current chunk is written.
+   */
+  private OutputStream current;
+  /**
+   * The file for the current chunk, if {@code toFile} is {@code true}.
+   */
+  private File currentFile;
+  /**
+   * The number of bytes written to the current chunk.
+   */
+  private int currentCount;
+
+  /**
+   * Initialize this output stream.
+   * @param location the data location to which the chunks are added.
+   * @param chunkSize the maximum size of each chunk.
+   * @param toFile whether the chunks are stored in temporary files rather than in memory.
+   */
+  public ChunkingOutputStream(final ChunkedDataLocation location, final int chunkSize, final boolean toFile) {
+    this.location = location;
+    this.chunkSize = chunkSize;
+    this.toFile = toFile;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    ensureRemaining();
+    current.write(b);
+    currentCount++;
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    int pos = off;
+    final int end = off + len;
+    while (pos < end) {
+      ensureRemaining();
+      final int n = Math.min(end - pos, chunkSize - currentCount);
+      current.write(b, pos, n);
+      pos += n;
+      currentCount += n;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (current != null) current.flush();
+  }
+
+  /**
+   * Add the last chunk to the data location.
+   * @throws IOException if any I/O error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    endChunk();
+  }
+
+  /**
+   * Start a new chunk if there is none or if the current one is full.
+   * @throws IOException if any I/O error occurs.
+   */
+  private void ensureRemaining() throws IOException {
+    if ((current != null) && (currentCount < chunkSize)) return;
+    endChunk();
+    if (toFile) {
+      try {
+        currentFile = IOHelper.createTempFile(-1);
+      } catch (final IOException e) {
+        throw e;
+      } catch (final Exception e) {
+        throw new IOException(e);
+      }
+      current = new BufferedOutputStream(new FileOutputStream(currentFile));
+    } else current = new MultipleBuffersOutputStream();
+  }
+
+  /**
+   * Add the current chunk, if any, to the data location.
+   * @throws IOException if any I/O error occurs.
+   */
+  private void endChunk() throws IOException {
+    if (current == null) return;
+    current.close();
+    if (currentCount > 0) {
+      if (toFile) location.addChunk(new FileDataLocation(currentFile, currentCount));
+      else {
+        final MultipleBuffersOutputStream mbos = (MultipleBuffersOutputStream) current;
+        location.addChunk(new MultipleBuffersLocation(mbos.toBufferList(), mbos.size()));
+      }
+    } else if (toFile) currentFile.delete();
+    current = null;
+    currentFile = null;
+    currentCount = 0;
+  }
+}
@@ -32,9 +32,16 @@ public interface DataLocation {
   int UNKNOWN_SIZE = -1;
   /**
    * Get the size of the data referenced by this data location.
-   * @return the data size as an int.
+   * @return the data size as an int, or {@link #UNKNOWN_SIZE} if it exceeds {@link Integer#MAX_VALUE}.
    */
   int getSize();
+  /**
+   * Get the size of the data referenced by this data location, which may exceed {@link Integer#MAX_VALUE}.
+   * @return the data size as a long.
+   */
+  default long getLongSize() {
+    return getSize();
+  }
   /**
    * Transfer the content of this data location from the specified input source.
    * @param source - the input source to transfer to.
@@ -69,4 +76,10 @@ public interface DataLocation {
    * @return a new DataLocation instance pointing to the same data.
    */
   DataLocation copy();
+  /**
+   * Release the resources held by this data location, such as pooled buffers.
+   * This data location must no longer be used afterwards. This implementation does nothing.
+   */
+  default void release() {
+  }
 }
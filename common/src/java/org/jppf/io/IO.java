@@ -82,4 +82,8 @@ public interface IO extends Closeable {
    * Whether to check for low memory and trigger disk offloading.
    */
   boolean CHECK_LOW_MEMORY = JPPFConfiguration.get(JPPFProperties.CHECK_LOW_MEMORY);
+  /**
+   * Maximum size of each chunk of serialized data. Defaults to 1 GB.
+   */
+  int DATA_CHUNK_SIZE = JPPFConfiguration.get(JPPFProperties.DATA_CHUNK_SIZE);
 }
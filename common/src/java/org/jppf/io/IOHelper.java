@@ -26,7 +26,6 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.jppf.comm.socket.SocketWrapper;
 import org.jppf.serialization.ObjectSerializer;
 import org.jppf.utils.*;
-import org.jppf.utils.streams.*;
 import org.slf4j.*;
 
 
@@ -74,13 +73,16 @@ public final class IOHelper {
   /**
    * Create a data location object based on a comparison of the available heap memory
    * and the data location object size.
+   * When the data does not fit in the heap, it is stored off-heap if the {@link OffHeapMemoryPool off-heap budget} allows it, otherwise in a temporary file.
    * @param size the requested size of the data location to create.
    * @return a <code>DataLocation</code> object whose content may be stored in memory
    * or on another medium, depending on the available memory.
    * @throws Exception if an IO error occurs.
    */
   public static DataLocation createDataLocationMemorySensitive(final int size) throws Exception {
-    if (!IO.CHECK_LOW_MEMORY || fitsInMemory(size)) {
+    final OffHeapMemoryPool offHeapPool = OffHeapMemoryPool.getInstance();
+    // when off-heap storage is available, it is used instead of forcing a garbage collection
+    if (!IO.CHECK_LOW_MEMORY || fitsInMemory(size, IO.GC_ON_DISK_OVERFLOW && !offHeapPool.isEnabled())) {
       try {
         final DataLocation dl = new MultipleBuffersLocation(size);
         return dl;
@@ -90,6 +92,13 @@ public final class IOHelper {
         footprint.addAndGet(-size);
       }
     }
+    if (offHeapPool.isEnabled()) {
+      final DataLocation dl = OffHeapDataLocation.create(offHeapPool, size);
+      if (dl != null) {
+        if (traceEnabled) log.trace("off-heap storage of {} bytes, total used = {}", nf.format(size), nf.format(offHeapPool.getUsedSize()));
+        return dl;
+      }
+    }
     final File file = createTempFile(size);
     return new FileDataLocation(file, size);
   }
@@ -102,7 +111,23 @@ public final class IOHelper {
    * @throws Exception if an error occurs while reading the data.
    */
   public static DataLocation readData(final InputSource source) throws Exception {
-    return readData(source, source.readInt());
+    final int size = source.readInt();
+    return (size == ChunkedDataLocation.CHUNKED_MARKER) ? readChunkedData(source) : readData(source, size);
+  }
+
+  /**
+   * Read data sent as a sequence of length-prefixed chunks, terminated by a zero-length chunk.
+   * Each chunk may be stored in memory or on another medium depending on its size and the available memory.
+   * @param source the input source from which to read the data.
+   * @return a {@link ChunkedDataLocation} containing the data.
+   * @throws Exception if an error occurs while reading the data.
+   */
+  private static DataLocation readChunkedData(final InputSource source) throws Exception {
+    final ChunkedDataLocation dl = new ChunkedDataLocation();
+    int size;
+    while ((size = source.readInt()) > 0) dl.addChunk(readData(source, size));
+    if (traceEnabled) log.trace("read chunked data {}", dl);
+    return dl;
   }
 
   /**
@@ -128,8 +153,14 @@ public final class IOHelper {
    * @throws Exception if any error occurs.
    */
   public static void writeData(final DataLocation data, final OutputDestination destination) throws Exception {
-    destination.writeInt(data.getSize());
-    data.transferTo(destination, true);
+    if (data instanceof ChunkedDataLocation) {
+      destination.writeInt(ChunkedDataLocation.CHUNKED_MARKER);
+      for (final DataLocation chunk: ((ChunkedDataLocation) data).getChunks()) writeData(chunk, destination);
+      destination.writeInt(0);
+    } else {
+      destination.writeInt(data.getSize());
+      data.transferTo(destination, true);
+    }
   }
 
   /**
@@ -151,11 +182,21 @@ public final class IOHelper {
    * @return true if the data would fit in memory, false otherwise.
    */
   public static boolean fitsInMemory(final int size) {
+    return fitsInMemory(size, IO.GC_ON_DISK_OVERFLOW);
+  }
+
+  /**
+   * Determines whether the data of the specified size would fit in memory.
+   * @param size the data size to check.
+   * @param gcAllowed whether to trigger a garbage collection if the data does not fit in memory, then check again.
+   * @return true if the data would fit in memory, false otherwise.
+   */
+  private static boolean fitsInMemory(final int size, final boolean gcAllowed) {
     final long unavailable = (long) Math.max(IO.FREE_MEM_TO_SIZE_RATIO * size, IO.LOW_MEMORY_THRESHOLD);
     boolean success = true;
     final long fp = footprint.get();
     if (fp > SystemUtils.maxFreeHeap() - unavailable) {
-      if (IO.GC_ON_DISK_OVERFLOW) {
+      if (gcAllowed) {
         if (debugEnabled) log.debug("triggering GC to avoid disk overflow, requested size={}", size);
         System.gc();
         success = fp < SystemUtils.maxFreeHeap() - unavailable;
@@ -178,7 +219,7 @@ public final class IOHelper {
     final DataLocation dl = IOHelper.readData(sis);
     if (dl == null) return null;
     final Object o = unwrappedData(dl, ser);
-    if (traceEnabled) log.trace("unwrapping from network connection, serialized size=" + dl.getSize() + " : object=" + o);
+    if (traceEnabled) log.trace("unwrapping from network connection, serialized size=" + dl.getLongSize() + " : object=" + o);
     return o;
   }
 
@@ -215,10 +256,8 @@ public final class IOHelper {
    */
   public static void sendData(final SocketWrapper socketWrapper, final Object o, final ObjectSerializer ser) throws Exception {
     final DataLocation dl = serializeData(o, ser);
-    if (traceEnabled) log.trace("sending object with serialized size=" + dl.getSize() + " : " + o);
-    socketWrapper.writeInt(dl.getSize());
-    final OutputDestination od = new SocketWrapperOutputDestination(socketWrapper);
-    dl.transferTo(od, true);
+    if (traceEnabled) log.trace("sending object with serialized size=" + dl.getLongSize() + " : " + o);
+    writeData(dl, new SocketWrapperOutputDestination(socketWrapper));
   }
 
   /**
@@ -261,35 +300,45 @@ public final class IOHelper {
 
   /**
    * Serialize an object to a buffer in memory.
+   * If the serialized data exceeds the {@link IO#DATA_CHUNK_SIZE chunk size}, it is split into multiple in-memory chunks.
    * @param o the object to serialize.
    * @param ser the object serializer.
-   * @return an instance of {@link MultipleBuffersOutputStream}.
+   * @return an instance of {@link MultipleBuffersLocation}, or a {@link ChunkedDataLocation} of such instances.
    * @throws Exception if any error occurs.
    */
   public static DataLocation serializeDataToMemory(final Object o, final ObjectSerializer ser) throws Exception {
     if (traceEnabled) log.trace("serializing object to memory " + o);
-    final MultipleBuffersOutputStream mbos = new MultipleBuffersOutputStream();
-    //NotifyingOutputStream nos = new NotifyingOutputStream(mbos, new OverflowDetectorCallback());
-    //ser.serialize(o, nos);
-    ser.serialize(o, mbos);
-    return new MultipleBuffersLocation(mbos.toBufferList(), mbos.size());
+    return serializeDataToChunks(o, ser, false);
   }
 
   /**
-   * Serialize an object and send it to the server.
+   * Serialize an object to a temporary file.
+   * If the serialized data exceeds the {@link IO#DATA_CHUNK_SIZE chunk size}, it is split into multiple temporary files.
    * @param o the object to serialize.
    * @param ser the object serializer.
-   * @return an instance of {@link FileDataLocation}.
+   * @return an instance of {@link FileDataLocation}, or a {@link ChunkedDataLocation} of such instances.
    * @throws Exception if any error occurs.
    */
   public static DataLocation serializeDataToFile(final Object o, final ObjectSerializer ser) throws Exception {
     if (traceEnabled) log.trace("serializing object to file " + o);
-    final File file = IOHelper.createTempFile(-1);
-    final OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
-    final NotifyingOutputStream nos = new NotifyingOutputStream(os, new OverflowDetectorCallback());
-    ser.serialize(o, nos);
-    final DataLocation dl = new FileDataLocation(file);
-    return dl;
+    return serializeDataToChunks(o, ser, true);
+  }
+
+  /**
+   * Serialize an object into chunks whose size does not exceed {@link IO#DATA_CHUNK_SIZE}.
+   * @param o the object to serialize.
+   * @param ser the object serializer.
+   * @param toFile whether the chunks are stored in temporary files rather than in memory.
+   * @return the single chunk if the serialized data fits in one chunk, otherwise a {@link ChunkedDataLocation}.
+   * @throws Exception if any error occurs.
+   */
+  private static DataLocation serializeDataToChunks(final Object o, final ObjectSerializer ser, final boolean toFile) throws Exception {
+    final ChunkedDataLocation dl = new ChunkedDataLocation();
+    try (final ChunkingOutputStream os = new ChunkingOutputStream(dl, IO.DATA_CHUNK_SIZE, toFile)) {
+      ser.serialize(o, os);
+    }
+    if (debugEnabled && (dl.getChunks().size() > 1)) log.debug("serialized object into {}", dl);
+    return dl.simplify();
   }
 
   /**
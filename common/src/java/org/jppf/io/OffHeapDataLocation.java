@@ -0,0 +1,332 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.*;
+
+import org.slf4j.*;
+
+/**
+ * Data location backed by direct buffers acquired from an {@link OffHeapMemoryPool}.
+ * <p>The data is transferred from and to the input sources and output destinations without intermediate copy, whenever they support direct buffers.
+ * Copies share the same buffers, which are given back to the pool when the last copy is released or garbage-collected.
+ * When the output destination is a gathering channel, all the buffers are written with a single call.
+ * @author Laurent Cohen
+ */
+public class OffHeapDataLocation extends AbstractDataLocation {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(OffHeapDataLocation.class);
+  /**
+   * Determines whether trace-level logging is enabled.
+   */
+  private static boolean traceEnabled = log.isTraceEnabled();
+  /**
+   * The buffers which hold the data.
+   */
+  private final ByteBuffer[] segments;
+  /**
+   * The pool from which the buffers were acquired.
+   */
+  private final OffHeapMemoryPool pool;
+  /**
+   * Count of instances of this class which refer to the same buffers.
+   */
+  private final AtomicLong copyCount;
+  /**
+   * Whether this instance was released.
+   */
+  private final AtomicBoolean released = new AtomicBoolean(false);
+  /**
+   * The current count of bytes read from/written to the buffers.
+   */
+  private int count;
+  /**
+   * Index of the buffer currently being transferred.
+   */
+  private int currentIndex;
+  /**
+   * View of the buffer currently being transferred.
+   */
+  private ByteBuffer current;
+  /**
+   * Views of all the buffers for the current transfer.
+   */
+  private ByteBuffer[] views;
+
+  /**
+   * Initialize this data location with the specified buffers.
+   * @param pool the pool from which the buffers were acquired.
+   * @param segments the buffers which hold the data.
+   * @param size the size of the data.
+   */
+  public OffHeapDataLocation(final OffHeapMemoryPool pool, final ByteBuffer[] segments, final int size) {
+    this(pool, segments, size, new AtomicLong(1L));
+  }
+
+  /**
+   * Copy constructor.
+   * @param pool the pool from which the buffers were acquired.
+   * @param segments the buffers which hold the data.
+   * @param size the size of the data.
+   * @param copyCount count of instances which refer to the same buffers, including this one.
+   */
+  private OffHeapDataLocation(final OffHeapMemoryPool pool, final ByteBuffer[] segments, final int size, final AtomicLong copyCount) {
+    this.pool = pool;
+    this.segments = segments;
+    this.size = size;
+    this.copyCount = copyCount;
+  }
+
+  /**
+   * Create a data location with the specified size, backed by buffers from the specified pool.
+   * @param pool the pool from which to acquire the buffers.
+   * @param size the size of the data.
+   * @return a new {@link OffHeapDataLocation}, or {@code null} if the pool could not provide enough buffers.
+   */
+  public static OffHeapDataLocation create(final OffHeapMemoryPool pool, final int size) {
+    final ByteBuffer[] segments = pool.acquire(size);
+    return (segments == null) ? null : new OffHeapDataLocation(pool, segments, size);
+  }
+
+  @Override
+  public int transferFrom(final InputSource source, final boolean blocking) throws Exception {
+    if (!transferring) startTransfer();
+    try {
+      final int n = blocking ? blockingTransferFrom(source) : nonBlockingTransferFrom(source);
+      if ((n < 0) || (count >= size)) transferring = false;
+      return n;
+    } catch (final Exception e) {
+      transferring = false;
+      throw e;
+    }
+  }
+
+  /**
+   * Perform a blocking transfer to this data location from the specified input source.
+   * @param source the input source to transfer from.
+   * @return the number of bytes actually transferred.
+   * @throws Exception if an IO error occurs.
+   */
+  private int blockingTransferFrom(final InputSource source) throws Exception {
+    while (count < size) {
+      if (!current.hasRemaining()) current = views[++currentIndex];
+      final int n = source.read(current);
+      if (n < 0) throw new EOFException();
+      count += n;
+    }
+    return count;
+  }
+
+  /**
+   * Perform a non-blocking transfer to this data location from the specified input source.
+   * @param source the input source to transfer from.
+   * @return the number of bytes actually transferred.
+   * @throws Exception if an IO error occurs.
+   */
+  private int nonBlockingTransferFrom(final InputSource source) throws Exception {
+    if (!current.hasRemaining()) current = views[++currentIndex];
+    final int n = source.read(current);
+    if (n > 0) count += n;
+    return n;
+  }
+
+  @Override
+  public int transferTo(final OutputDestination dest, final boolean blocking) throws Exception {
+    if (!transferring) startTransfer();
+    try {
+      final int n = blocking ? blockingTransferTo(dest) : nonBlockingTransferTo(dest);
+      if ((n < 0) || (count >= size)) transferring = false;
+      return n;
+    } catch (final Exception e) {
+      transferring = false;
+      throw e;
+    }
+  }
+
+  /**
+   * Perform a blocking transfer from this data location to the specified output destination.
+   * @param dest the output destination to transfer to.
+   * @return the number of bytes actually transferred.
+   * @throws Exception if an IO error occurs.
+   */
+  private int blockingTransferTo(final OutputDestination dest) throws Exception {
+    while (count < size) {
+      final int n = nonBlockingTransferTo(dest);
+      if (n < 0) throw new EOFException();
+    }
+    return count;
+  }
+
+  /**
+   * Perform a non-blocking transfer from this data location to the specified output destination, with a gathering write of the remaining buffers.
+   * @param dest the output destination to transfer to.
+   * @return the number of bytes actually transferred.
+   * @throws Exception if an IO error occurs.
+   */
+  private int nonBlockingTransferTo(final OutputDestination dest) throws Exception {
+    final int n = (int) dest.write(views, currentIndex, views.length - currentIndex);
+    if (n > 0) count += n;
+    while ((currentIndex < views.length - 1) && !views[currentIndex].hasRemaining()) currentIndex++;
+    return n;
+  }
+
+  /**
+   * Reset the state of this data location at the start of a transfer.
+   */
+  private void startTransfer() {
+    transferring = true;
+    count = 0;
+    currentIndex = 0;
+    views = new ByteBuffer[segments.length];
+    for (int i=0; i<segments.length; i++) views[i] = view(i);
+    current = views[0];
+  }
+
+  /**
+   * Get a view of the buffer at the specified index, whose limit is set to the end of the data it holds.
+   * The view has its own position and limit, so that multiple copies of this data location can be transferred concurrently.
+   * @param index the index of the buffer.
+   * @return a new {@link ByteBuffer} which shares its content with the buffer at the specified index.
+   */
+  private ByteBuffer view(final int index) {
+    final ByteBuffer buffer = segments[index].duplicate();
+    buffer.clear();
+    final long remaining = size - (long) index * buffer.capacity();
+    if (remaining < buffer.capacity()) buffer.limit((int) remaining);
+    return buffer;
+  }
+
+  @Override
+  public InputStream getInputStream() throws Exception {
+    return new InputStream() {
+      private int index = 0;
+      private ByteBuffer buffer = view(0);
+
+      @Override
+      public int read() throws IOException {
+        if (!ensureRemaining()) return -1;
+        return buffer.get() & 0xff;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) return 0;
+        if (!ensureRemaining()) return -1;
+        final int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+      }
+
+      /**
+       * Move to the next buffer if the current one has been entirely read.
+       * @return {@code true} if there is data left to read, {@code false} otherwise.
+       */
+      private boolean ensureRemaining() {
+        while (!buffer.hasRemaining()) {
+          if (index >= segments.length - 1) return false;
+          buffer = view(++index);
+        }
+        return true;
+      }
+    };
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws Exception {
+    return new OutputStream() {
+      private int index = 0;
+      private ByteBuffer buffer = view(0);
+
+      @Override
+      public void write(final int b) throws IOException {
+        ensureRemaining();
+        buffer.put((byte) b);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+        int pos = off;
+        final int end = off + len;
+        while (pos < end) {
+          ensureRemaining();
+          final int n = Math.min(end - pos, buffer.remaining());
+          buffer.put(b, pos, n);
+          pos += n;
+        }
+      }
+
+      /**
+       * Move to the next buffer if the current one is full.
+       * @throws IOException if the capacity of this data location is exceeded.
+       */
+      private void ensureRemaining() throws IOException {
+        while (!buffer.hasRemaining()) {
+          if (index >= segments.length - 1) throw new EOFException("capacity of " + size + " bytes exceeded");
+          buffer = view(++index);
+        }
+      }
+    };
+  }
+
+  @Override
+  public DataLocation copy() {
+    if (traceEnabled) log.trace("copying " + this);
+    long n;
+    do {
+      n = copyCount.get();
+      // the buffers may already be reused by another data location
+      if (n <= 0L) throw new IllegalStateException("cannot copy " + this + " : its buffers were given back to the pool");
+    } while (!copyCount.compareAndSet(n, n + 1L));
+    return new OffHeapDataLocation(pool, segments, size, copyCount);
+  }
+
+  /**
+   * Release this copy of the data location, and give back the buffers to the pool if it is the last copy.
+   * Calling this method more than once has no effect.
+   */
+  @Override
+  public void release() {
+    if (released.compareAndSet(false, true) && (copyCount.decrementAndGet() <= 0)) pool.release(segments);
+  }
+
+  /**
+   * Release this data location when it is garbage-collected without having been explicitly released.
+   * @throws Throwable if an error occurs.
+   */
+  @Override
+  protected void finalize() throws Throwable {
+    try {
+      release();
+    } finally {
+      super.finalize();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("size=").append(size)
+      .append(", segments=").append(segments.length)
+      .append(']').toString();
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * A pool of fixed-size direct buffers, used as off-heap storage for the data that does not fit in the heap.
+ * The total size of the buffers in use is bounded by a configurable budget, and released buffers are reused rather than freed.
+ * @author Laurent Cohen
+ */
+public final class OffHeapMemoryPool {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(OffHeapMemoryPool.class);
+  /**
+   * Determines whether the debug level is enabled in the logging configuration, without the cost of a method call.
+   */
+  private static boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The pool configured with the global JPPF configuration.
+   */
+  private static final OffHeapMemoryPool INSTANCE =
+    new OffHeapMemoryPool(JPPFConfiguration.get(JPPFProperties.OFFHEAP_MAX_SIZE) * 1024L * 1024L, JPPFConfiguration.get(JPPFProperties.OFFHEAP_SEGMENT_SIZE));
+  /**
+   * The maximum number of bytes in use.
+   */
+  private final long maxSize;
+  /**
+   * The size of each buffer.
+   */
+  private final int segmentSize;
+  /**
+   * The buffers available for reuse.
+   */
+  private final Queue<ByteBuffer> available = new ConcurrentLinkedQueue<>();
+  /**
+   * The number of bytes currently in use.
+   */
+  private final AtomicLong usedSize = new AtomicLong(0L);
+  /**
+   * The number of bytes allocated since the creation of this pool.
+   */
+  private final AtomicLong allocatedSize = new AtomicLong(0L);
+
+  /**
+   * Initialize this pool.
+   * @param maxSize the maximum number of bytes in use, 0 disables the off-heap storage.
+   * @param segmentSize the size of each buffer.
+   */
+  public OffHeapMemoryPool(final long maxSize, final int segmentSize) {
+    this.maxSize = maxSize;
+    this.segmentSize = segmentSize;
+    if (debugEnabled && (maxSize > 0L)) log.debug("off-heap storage enabled with maxSize={}, segmentSize={}", maxSize, segmentSize);
+  }
+
+  /**
+   * Get the pool configured with the global JPPF configuration.
+   * @return an {@link OffHeapMemoryPool} instance.
+   */
+  public static OffHeapMemoryPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Acquire enough buffers to store the specified number of bytes.
+   * @param size the number of bytes to store.
+   * @return an array of buffers whose total capacity is at least {@code size}, or {@code null} if this would exceed the budget of this pool.
+   */
+  public ByteBuffer[] acquire(final int size) {
+    if ((size <= 0) || (maxSize <= 0L)) return null;
+    final int nbSegments = (int) ((size + (long) segmentSize - 1L) / segmentSize);
+    final long bytes = (long) nbSegments * segmentSize;
+    long used;
+    do {
+      used = usedSize.get();
+      if (used + bytes > maxSize) return null;
+    } while (!usedSize.compareAndSet(used, used + bytes));
+    final ByteBuffer[] segments = new ByteBuffer[nbSegments];
+    int count = 0;
+    try {
+      for (; count<nbSegments; count++) {
+        ByteBuffer buffer = available.poll();
+        if (buffer == null) {
+          buffer = ByteBuffer.allocateDirect(segmentSize);
+          allocatedSize.addAndGet(segmentSize);
+        }
+        segments[count] = buffer;
+      }
+    } catch (final OutOfMemoryError e) {
+      if (debugEnabled) log.debug("could not allocate {} direct buffers of {} bytes", nbSegments, segmentSize, e);
+      for (int i=0; i<count; i++) available.offer(segments[i]);
+      usedSize.addAndGet(-bytes);
+      return null;
+    }
+    return segments;
+  }
+
+  /**
+   * Give back the specified buffers to this pool.
+   * @param segments the buffers to release.
+   */
+  public void release(final ByteBuffer[] segments) {
+    for (final ByteBuffer buffer: segments) {
+      buffer.clear();
+      available.offer(buffer);
+    }
+    usedSize.addAndGet(-(long) segments.length * segmentSize);
+  }
+
+  /**
+   * Determine whether the off-heap storage is enabled.
+   * @return {@code true} if off-heap storage is enabled, {@code false} otherwise.
+   */
+  public boolean isEnabled() {
+    return maxSize > 0L;
+  }
+
+  /**
+   * Get the maximum number of bytes in use.
+   * @return the maximum size in bytes.
+   */
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the size of each buffer.
+   * @return the buffer size in bytes.
+   */
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  /**
+   * Get the number of bytes currently in use.
+   * @return the used size in bytes.
+   */
+  public long getUsedSize() {
+    return usedSize.get();
+  }
+
+  /**
+   * Get the number of bytes allocated since the creation of this pool, which is also the size of the direct memory it holds.
+   * @return the allocated size in bytes.
+   */
+  public long getAllocatedSize() {
+    return allocatedSize.get();
+  }
+}
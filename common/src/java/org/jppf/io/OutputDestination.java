@@ -44,6 +44,28 @@ public interface OutputDestination extends IO
    */
   int write(ByteBuffer data) throws Exception;
 
+  /**
+   * Write data to this output destination from a sequence of byte buffers.
+   * This implementation writes the buffers one after the other, and stops at the first one that is not fully written.
+   * @param data the buffers containing the data to write.
+   * @param offset the index of the first buffer to write.
+   * @param length the number of buffers to write.
+   * @return the number of bytes actually written, or -1 if end of stream was reached.
+   * @throws Exception if an IO error occurs.
+   */
+  default long write(final ByteBuffer[] data, final int offset, final int length) throws Exception {
+    long count = 0L;
+    for (int i=offset; i<offset + length; i++) {
+      final ByteBuffer buffer = data[i];
+      if (!buffer.hasRemaining()) continue;
+      final int n = write(buffer);
+      if (n < 0) return (count > 0L) ? count : -1L;
+      count += n;
+      if (buffer.hasRemaining()) break;
+    }
+    return count;
+  }
+
   /**
    * Write an int value to this output destination.
    * @param value the value to write.
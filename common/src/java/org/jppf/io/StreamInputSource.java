@@ -68,6 +68,7 @@ public class StreamInputSource implements InputSource {
     try {
       while (buffer.remaining() > 0) {
         final int n = read(bytes, 0, Math.min(buffer.remaining(), bytes.length));
+        if ((n < 0) && (buffer.position() == pos)) return -1;
         if (n <= 0) break;
         buffer.put(bytes, 0, n);
       }
@@ -62,6 +62,14 @@ public class JobInformation implements Serializable {
    * The maximum number of nodes this job can run on.
    */
   private int maxNodes = Integer.MAX_VALUE;
+  /**
+   * The number of speculative copies of tasks dispatched for the job.
+   */
+  private int speculativeCopies;
+  /**
+   * The number of speculative copies whose result was received before that of the original task.
+   */
+  private int speculativeWins;
 
   /**
    * Initialize this object.
@@ -209,6 +217,42 @@ public class JobInformation implements Serializable {
     this.maxNodes = maxNodes;
   }
 
+  /**
+   * Get the number of speculative copies of tasks dispatched for the job.
+   * @return the number of speculative copies as an int value.
+   * @since 6.2
+   */
+  public int getSpeculativeCopies() {
+    return speculativeCopies;
+  }
+
+  /**
+   * Set the number of speculative copies of tasks dispatched for the job.
+   * @param speculativeCopies the number of speculative copies as an int value.
+   * @exclude
+   */
+  public void setSpeculativeCopies(final int speculativeCopies) {
+    this.speculativeCopies = speculativeCopies;
+  }
+
+  /**
+   * Get the number of speculative copies of tasks whose result was received before that of the original task.
+   * @return the number of winning speculative copies as an int value.
+   * @since 6.2
+   */
+  public int getSpeculativeWins() {
+    return speculativeWins;
+  }
+
+  /**
+   * Set the number of speculative copies of tasks whose result was received before that of the original task.
+   * @param speculativeWins the number of winning speculative copies as an int value.
+   * @exclude
+   */
+  public void setSpeculativeWins(final int speculativeWins) {
+    this.speculativeWins = speculativeWins;
+  }
+
   /**
    * Get the pending state of the job.
    * A job is pending if its scheduled execution date/time has not yet been reached.
@@ -259,6 +303,8 @@ public class JobInformation implements Serializable {
     sb.append(", suspended=").append(suspended);
     sb.append(", pending=").append(pending);
     sb.append(", maxNodes=").append(maxNodes);
+    sb.append(", speculativeCopies=").append(speculativeCopies);
+    sb.append(", speculativeWins=").append(speculativeWins);
     sb.append(']');
     return sb.toString();
   }
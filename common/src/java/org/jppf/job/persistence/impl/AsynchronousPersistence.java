@@ -48,7 +48,7 @@ import org.slf4j.*;
  * jppf.job.persistence = ${pkg}.AsynchronousPersistence 4 ${pkg}.DefaultDatabasePersistence JPPF_TEST JobDS</pre>
  * @author Laurent Cohen
  */
-public class AsynchronousPersistence implements JobPersistence {
+public class AsynchronousPersistence implements JobPersistence, AutoCloseable {
   /**
    * Logger for this class.
    */
@@ -185,6 +185,17 @@ public class AsynchronousPersistence implements JobPersistence {
     });
   }
 
+  /**
+   * Wait for the pending asynchronous operations to complete, then close the wrapped persistence if it is {@link AutoCloseable}.
+   * @throws Exception if any error occurs.
+   */
+  @Override
+  public void close() throws Exception {
+    executor.shutdown();
+    executor.awaitTermination(10_000L, TimeUnit.MILLISECONDS);
+    if (delegate instanceof AutoCloseable) ((AutoCloseable) delegate).close();
+  }
+
   /**
    * @param max the maximum thread pool size.
    * @return an {@link ExecutorService}.
@@ -51,7 +51,7 @@ import org.slf4j.*;
  * jppf.job.persistence = ${pkg}.CacheablePersistence 10000 ${pkg}.DefaultDatabasePersistence JPPF_TEST JobDS</pre>
  * @author Laurent Cohen
  */
-public class CacheablePersistence implements JobPersistence {
+public class CacheablePersistence implements JobPersistence, AutoCloseable {
   /**
    * Logger for this class.
    */
@@ -182,4 +182,13 @@ public class CacheablePersistence implements JobPersistence {
     }
     return delegate.isJobPersisted(jobUuid);
   }
+
+  /**
+   * Close the wrapped persistence if it is {@link AutoCloseable}.
+   * @throws Exception if any error occurs.
+   */
+  @Override
+  public void close() throws Exception {
+    if (delegate instanceof AutoCloseable) ((AutoCloseable) delegate).close();
+  }
 }
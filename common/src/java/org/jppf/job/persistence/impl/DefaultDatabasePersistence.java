@@ -26,6 +26,7 @@ import org.jppf.job.persistence.*;
 import org.jppf.persistence.AbstractDatabasePersistence;
 import org.jppf.utils.*;
 import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.streams.StreamUtils;
 import org.slf4j.*;
 
 /**
@@ -87,6 +88,11 @@ import org.slf4j.*;
  * jppf.datasource.jobs.maximumPoolSize = 10
  * jppf.datasource.jobs.connectionTimeout = 30000
  * jppf.datasource.jobs.idleTimeout = 600000</pre>
+ *
+ * <p>When multiple objects are stored or loaded at once, for instance all the tasks of a job, they are by default processed in bulk:
+ * the objects to store are written with JDBC batches of inserts and updates of at most {@code jppf.job.persistence.db.batch.size} statements,
+ * and the objects to load are read with one range query per job and type of object, fetching {@code jppf.job.persistence.db.fetch.size} rows
+ * per round trip. Bulk mode can be disabled with {@code jppf.job.persistence.db.bulk.enabled = false}.
  * @author Laurent Cohen
  */
 public class DefaultDatabasePersistence extends AbstractDatabasePersistence<PersistenceInfo> implements JobPersistence {
@@ -110,6 +116,18 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
    * Whether to wrap input streams into buffered input streams.
    */
   private final boolean bufferStreams = JPPFConfiguration.getProperties().getBoolean("jppf.job.persistence.bufferStreams", true);
+  /**
+   * Whether to store and load multiple objects with JDBC batches and range queries.
+   */
+  private final boolean bulk = JPPFConfiguration.get(JPPFProperties.JOB_PERSISTENCE_DB_BULK);
+  /**
+   * Maximum number of statements in a JDBC batch.
+   */
+  private final int batchSize = JPPFConfiguration.get(JPPFProperties.JOB_PERSISTENCE_DB_BATCH_SIZE);
+  /**
+   * Number of rows fetched in each round trip by the range queries.
+   */
+  private final int fetchSize = JPPFConfiguration.get(JPPFProperties.JOB_PERSISTENCE_DB_FETCH_SIZE);
 
   /**
    * Intialize this persistence with the {@linkplain #DEFAULT_TABLE default table name}.
@@ -141,7 +159,18 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
       connection.setAutoCommit(false);
       try {
         connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
-        for (PersistenceInfo info: infos) storeElement(connection, info, null);
+        if (bulk && (infos.size() > 1)) {
+          try {
+            storeBulk(connection, infos);
+          } catch (final SQLException e) {
+            // most likely another driver inserted some of the same rows concurrently
+            if (debugEnabled) log.debug("bulk store failed, storing one element at a time instead: {}", ExceptionUtils.getMessage(e));
+            connection.rollback();
+            for (PersistenceInfo info: infos) storeElement(connection, info, null);
+          }
+        } else {
+          for (PersistenceInfo info: infos) storeElement(connection, info, null);
+        }
         connection.commit();
         if (debugEnabled) log.debug("commit done");
       } catch(final Exception e) {
@@ -165,6 +194,11 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
       final boolean autocommit = connection.getAutoCommit();
       connection.setAutoCommit(false);
       try {
+        if (bulk && (infos.size() > 1)) {
+          final List<InputStream> result = loadBulk(connection, infos);
+          connection.commit();
+          return result;
+        }
         final List<InputStream> result = new ArrayList<>(infos.size());
         for (PersistenceInfo info: infos) {
           try (PreparedStatement ps = prepareLoadStatement(connection, info)) {
@@ -314,6 +348,118 @@ public class DefaultDatabasePersistence extends AbstractDatabasePersistence<Pers
     }
   }
 
+  /**
+   * Store the specified elements with one query per job and type of object, to lock the existing rows, then with batches of inserts and updates.
+   * @param connection the JDBC connection to use.
+   * @param infos the elements to store.
+   * @throws Exception if any error occurs.
+   */
+  private void storeBulk(final Connection connection, final Collection<PersistenceInfo> infos) throws Exception {
+    final Map<Pair<String, PersistenceObjectType>, List<PersistenceInfo>> groups = groupByJobAndType(infos);
+    try (final PreparedStatement insert = connection.prepareStatement(getSQL("store.insert.sql"));
+      final PreparedStatement update = connection.prepareStatement(getSQL("store.update.sql"))) {
+      int nbInserts = 0, nbUpdates = 0;
+      for (final Map.Entry<Pair<String, PersistenceObjectType>, List<PersistenceInfo>> entry: groups.entrySet()) {
+        final Set<Integer> existing = lockPositions(connection, entry.getKey().first(), entry.getKey().second());
+        for (final PersistenceInfo info: entry.getValue()) {
+          if (existing.contains(info.getPosition())) {
+            update.setBlob(1, getInputStream(info.getInputStream()));
+            update.setString(2, info.getJobUuid());
+            update.setString(3, info.getType().name());
+            update.setInt(4, info.getPosition());
+            update.addBatch();
+            if ((++nbUpdates % batchSize) == 0) update.executeBatch();
+          } else {
+            insert.setString(1, info.getJobUuid());
+            insert.setString(2, info.getType().name());
+            insert.setInt(3, info.getPosition());
+            insert.setBlob(4, getInputStream(info.getInputStream()));
+            insert.addBatch();
+            if ((++nbInserts % batchSize) == 0) insert.executeBatch();
+          }
+        }
+      }
+      if ((nbInserts % batchSize) != 0) insert.executeBatch();
+      if ((nbUpdates % batchSize) != 0) update.executeBatch();
+      if (debugEnabled) log.debug("stored {} elements with {} inserts and {} updates", infos.size(), nbInserts, nbUpdates);
+    }
+  }
+
+  /**
+   * Lock the existing rows for the specified job and type of object.
+   * @param connection the JDBC connection to use.
+   * @param uuid the job uuid.
+   * @param type the type of object.
+   * @return the positions of the existing rows.
+   * @throws Exception if any error occurs.
+   */
+  private Set<Integer> lockPositions(final Connection connection, final String uuid, final PersistenceObjectType type) throws Exception {
+    try (final PreparedStatement ps = connection.prepareStatement(getSQL("store.select.positions.for.update"))) {
+      ps.setString(1, uuid);
+      ps.setString(2, type.name());
+      try (ResultSet rs = ps.executeQuery()) {
+        final Set<Integer> positions = new HashSet<>();
+        while (rs.next()) positions.add(rs.getInt(1));
+        return positions;
+      }
+    }
+  }
+
+  /**
+   * Load the specified elements with one range query per run of contiguous positions, for each job and type of object.
+   * The rows are read through a cursor, with the configured fetch size, and the rows between two runs are never transferred.
+   * @param connection the JDBC connection to use.
+   * @param infos the elements to load.
+   * @return the streams of the elements that were found, in the same order as the requested elements.
+   * @throws Exception if any error occurs.
+   */
+  private List<InputStream> loadBulk(final Connection connection, final Collection<PersistenceInfo> infos) throws Exception {
+    final Map<PersistenceInfoKey, byte[]> found = new HashMap<>(2 * infos.size());
+    int nbQueries = 0;
+    try (final PreparedStatement ps = connection.prepareStatement(getSQL("load.range.sql"))) {
+      if (fetchSize > 0) ps.setFetchSize(fetchSize);
+      for (final Map.Entry<Pair<String, PersistenceObjectType>, List<PersistenceInfo>> entry: groupByJobAndType(infos).entrySet()) {
+        final String uuid = entry.getKey().first();
+        final PersistenceObjectType type = entry.getKey().second();
+        final int[] positions = entry.getValue().stream().mapToInt(PersistenceInfo::getPosition).distinct().sorted().toArray();
+        for (int i=0; i<positions.length; i++) {
+          final int start = positions[i];
+          while ((i + 1 < positions.length) && (positions[i + 1] == positions[i] + 1)) i++;
+          ps.setString(1, uuid);
+          ps.setString(2, type.name());
+          ps.setInt(3, start);
+          ps.setInt(4, positions[i]);
+          nbQueries++;
+          try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              try (final InputStream is = rs.getBinaryStream(2)) {
+                found.put(new PersistenceInfoKey(uuid, type, rs.getInt(1)), StreamUtils.getInputStreamAsByte(is));
+              }
+            }
+          }
+        }
+      }
+    }
+    final List<InputStream> result = new ArrayList<>(infos.size());
+    for (final PersistenceInfo info: infos) {
+      final byte[] bytes = found.get(new PersistenceInfoKey(info));
+      if (bytes != null) result.add(new ByteArrayInputStream(bytes));
+    }
+    if (debugEnabled) log.debug("loaded {} elements out of {} requested with {} queries", result.size(), infos.size(), nbQueries);
+    return result;
+  }
+
+  /**
+   * Group the specified elements by job uuid and type of object, preserving their order.
+   * @param infos the elements to group.
+   * @return a mapping of (job uuid, type) pairs to the corresponding elements.
+   */
+  private static Map<Pair<String, PersistenceObjectType>, List<PersistenceInfo>> groupByJobAndType(final Collection<PersistenceInfo> infos) {
+    final Map<Pair<String, PersistenceObjectType>, List<PersistenceInfo>> groups = new LinkedHashMap<>();
+    for (final PersistenceInfo info: infos) groups.computeIfAbsent(new Pair<>(info.getJobUuid(), info.getType()), key -> new ArrayList<>()).add(info);
+    return groups;
+  }
+
   /**
    * Create a prepared statement which will insert or update an object n the database.
    * @param connection the JDBC connection with which to create an dexecute the statement.
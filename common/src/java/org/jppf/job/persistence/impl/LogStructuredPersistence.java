@@ -0,0 +1,1055 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jppf.job.persistence.impl;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.zip.CRC32;
+
+import org.jppf.job.persistence.*;
+import org.jppf.persistence.AbstractFilePersistence;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.streams.StreamUtils;
+import org.slf4j.*;
+
+/**
+ * A file-based persistent store for jobs which appends the job elements to a log made of segment files, rather than writing each element to its own file.
+ * <p>The root directory of the store contains files named <code>segment-<i>n</i>.log</code>. Each store operation appends one record per job element
+ * to the current segment, and a new segment is started once the current one reaches the size defined by {@code jppf.job.persistence.log.segment.size}.
+ * Deleting a job appends a deletion record. An in-memory index maps the uuid, type and position of each job element to the location of its latest record.
+ * <p>When {@code jppf.job.persistence.log.sync.enabled = true}, which is the default, a store operation returns once its records are forced to disk.
+ * Concurrent store operations are committed as a group: the thread which forces the segment to disk commits the records appended by all the others.
+ * <p>A segment whose ratio of obsolete records, either overwritten or belonging to deleted jobs, reaches {@code jppf.job.persistence.log.compaction.threshold}
+ * is compacted in the background: its live records are copied to the current segment, then the segment file is deleted.
+ * <p>At startup, the index is rebuilt by scanning the memory-mapped segment files. An incomplete or corrupted record, for instance after the driver was killed
+ * in the middle of a write, is discarded along with the remainder of its segment.
+ * <p>This persistence is configured as follows:
+ * <pre class="jppf_pre">
+ * pkg = org.jppf.job.persistence.impl
+ * <span style="color: green"># log-structured persistence with a root directory 'persistence_log' (the default)</span>
+ * jppf.job.persistence = ${pkg}.LogStructuredPersistence persistence_log</pre>
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public class LogStructuredPersistence extends AbstractFilePersistence<PersistenceInfo, JobPersistenceException> implements JobPersistence, AutoCloseable {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(LogStructuredPersistence.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The default root path if none is specified.
+   */
+  private static final String DEFAULT_ROOT = "persistence_log";
+  /**
+   * Prefix for the segment file names.
+   */
+  private static final String SEGMENT_PREFIX = "segment-";
+  /**
+   * Extension of the segment file names.
+   */
+  private static final String SEGMENT_EXTENSION = ".log";
+  /**
+   * Written at the start of each segment file, spells "JPLG".
+   */
+  private static final int SEGMENT_MAGIC = 0x4A504C47;
+  /**
+   * Size of the segment file header.
+   */
+  private static final int SEGMENT_HEADER_SIZE = 4;
+  /**
+   * Size of a record header: length of the record body followed by its CRC-32 checksum.
+   */
+  private static final int RECORD_HEADER_SIZE = 8;
+  /**
+   * Minimum size of a record body: type of record, sequence number and length of the job uuid.
+   */
+  private static final int MIN_BODY_SIZE = 11;
+  /**
+   * Type of record holding a job element.
+   */
+  private static final byte STORE_RECORD = 1;
+  /**
+   * Type of record marking the deletion of a job.
+   */
+  private static final byte DELETE_RECORD = 2;
+  /**
+   * The types of persisted objects, indexed by ordinal.
+   */
+  private static final PersistenceObjectType[] TYPES = PersistenceObjectType.values();
+  /**
+   * The size above which a new segment is started.
+   */
+  private final long segmentSize = JPPFConfiguration.get(JPPFProperties.JOB_PERSISTENCE_LOG_SEGMENT_SIZE);
+  /**
+   * Whether store operations wait until their records are forced to disk.
+   */
+  private final boolean sync = JPPFConfiguration.get(JPPFProperties.JOB_PERSISTENCE_LOG_SYNC);
+  /**
+   * The ratio of obsolete data above which a segment is compacted.
+   */
+  private final double compactionThreshold = JPPFConfiguration.get(JPPFProperties.JOB_PERSISTENCE_LOG_COMPACTION_THRESHOLD);
+  /**
+   * Guards the index, the segments and appends to the current segment.
+   */
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  /**
+   * The existing segments, sorted by id.
+   */
+  private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+  /**
+   * The segment to which records are appended.
+   */
+  private Segment current;
+  /**
+   * Mapping of job uuids to the location of their elements.
+   */
+  private final Map<String, JobEntry> index = new HashMap<>();
+  /**
+   * Mapping of the uuids of deleted jobs to the deletion records which must be kept, for as long as older records of the jobs remain in the log.
+   */
+  private final Map<String, Tombstone> deletedJobs = new HashMap<>();
+  /**
+   * Generates the sequence numbers of the records. A record supersedes those with the same key and a lower sequence number.
+   */
+  private final AtomicLong sequence = new AtomicLong(0L);
+  /**
+   * The number of append operations so far.
+   */
+  private long appendCount;
+  /**
+   * The number of append operations forced to disk so far, guarded by {@link #syncLock}.
+   */
+  private long syncedCount;
+  /**
+   * Held by the thread which forces the current segment to disk.
+   */
+  private final Object syncLock = new Object();
+  /**
+   * Performs the compaction of the segments.
+   */
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(new JPPFThreadFactory("LogPersistenceCompaction"));
+  /**
+   * Whether a compaction is scheduled or in progress.
+   */
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+
+  /**
+   * Initialize this persistence with the root path {@link #DEFAULT_ROOT} under the current user directory.
+   * @throws JobPersistenceException if the existing segments could not be read.
+   */
+  public LogStructuredPersistence() throws JobPersistenceException {
+    this(DEFAULT_ROOT);
+  }
+
+  /**
+   * Initialize this persistence with the specified path as root directory, and recover the content of the existing segments.
+   * @param paths the root directory for this persistence.
+   * @throws JobPersistenceException if the existing segments could not be read.
+   */
+  public LogStructuredPersistence(final String... paths) throws JobPersistenceException {
+    super(paths.length > 0 ? paths : new String[] { DEFAULT_ROOT });
+    try {
+      recover();
+    } catch (final IOException e) {
+      throw new JobPersistenceException(e);
+    }
+    scheduleCompaction();
+  }
+
+  @Override
+  public void store(final Collection<PersistenceInfo> infos) throws JobPersistenceException {
+    if ((infos == null) || infos.isEmpty()) return;
+    if (debugEnabled) log.debug("storing {}", infos);
+    try {
+      final Record[] records = new Record[infos.size()];
+      int i = 0;
+      for (final PersistenceInfo info: infos) records[i++] = encodeStore(sequence.incrementAndGet(), info);
+      final long count;
+      lock.writeLock().lock();
+      try {
+        count = appendAndApply(records);
+      } finally {
+        lock.writeLock().unlock();
+      }
+      commit(count, false);
+    } catch (final Exception e) {
+      throw new JobPersistenceException(e);
+    }
+  }
+
+  @Override
+  public List<InputStream> load(final Collection<PersistenceInfo> infos) throws JobPersistenceException {
+    if ((infos == null) || infos.isEmpty()) return null;
+    if (debugEnabled) log.debug("loading {}", infos);
+    final List<InputStream> result = new ArrayList<>(infos.size());
+    lock.readLock().lock();
+    try {
+      for (final PersistenceInfo info: infos) {
+        final Location location = getLocation(info.getJobUuid(), info.getType(), info.getPosition());
+        if (location == null) {
+          if (debugEnabled) log.debug("no persisted element for {}", info);
+          continue;
+        }
+        final ByteBuffer data = ByteBuffer.allocate(location.length - location.dataOffset);
+        readFully(location.segment.channel(), data, location.offset + location.dataOffset);
+        result.add(new ByteArrayInputStream(data.array()));
+      }
+      return result;
+    } catch (final Exception e) {
+      throw new JobPersistenceException(e);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<String> getPersistedJobUuids() throws JobPersistenceException {
+    lock.readLock().lock();
+    try {
+      final List<String> result = new ArrayList<>(index.keySet());
+      if (debugEnabled) log.debug("uuids of persisted jobs: {}", result);
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int[] getTaskPositions(final String jobUuid) throws JobPersistenceException {
+    return getPositions(jobUuid, PersistenceObjectType.TASK);
+  }
+
+  @Override
+  public int[] getTaskResultPositions(final String jobUuid) throws JobPersistenceException {
+    return getPositions(jobUuid, PersistenceObjectType.TASK_RESULT);
+  }
+
+  @Override
+  public void deleteJob(final String jobUuid) throws JobPersistenceException {
+    if (debugEnabled) log.debug("deleting job with uuid = {}", jobUuid);
+    try {
+      final Record record = encodeDelete(sequence.incrementAndGet(), jobUuid);
+      final long count;
+      lock.writeLock().lock();
+      try {
+        if (!index.containsKey(jobUuid)) return;
+        count = appendAndApply(record);
+      } finally {
+        lock.writeLock().unlock();
+      }
+      commit(count, false);
+      scheduleCompaction();
+    } catch (final Exception e) {
+      throw new JobPersistenceException(e);
+    }
+  }
+
+  @Override
+  public boolean isJobPersisted(final String jobUuid) throws JobPersistenceException {
+    lock.readLock().lock();
+    try {
+      return getLocation(jobUuid, PersistenceObjectType.JOB_HEADER, -1) != null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Stop the background compaction and close the segment files. This persistence can no longer be used afterwards.
+   * <p>In the driver, this method is called when the driver shuts down.
+   */
+  @Override
+  public void close() {
+    compactor.shutdown();
+    try {
+      compactor.awaitTermination(10_000L, TimeUnit.MILLISECONDS);
+    } catch (@SuppressWarnings("unused") final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    lock.writeLock().lock();
+    try {
+      for (final Segment segment: segments.values()) segment.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Get the positions of the job elements of the specified type.
+   * @param jobUuid the uuid of the job.
+   * @param type the type of the elements, either {@link PersistenceObjectType#TASK} or {@link PersistenceObjectType#TASK_RESULT}.
+   * @return the positions in ascending order.
+   */
+  private int[] getPositions(final String jobUuid, final PersistenceObjectType type) {
+    lock.readLock().lock();
+    try {
+      final JobEntry job = index.get(jobUuid);
+      final SortedMap<Integer, Location> elements = (job == null) ? null : job.elements.get(type);
+      if (elements == null) return new int[0];
+      final int[] positions = new int[elements.size()];
+      int i = 0;
+      for (final int position: elements.keySet()) positions[i++] = position;
+      return positions;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get the location of the latest record of a job element. Must be called while holding the lock.
+   * @param jobUuid the uuid of the job.
+   * @param type the type of the element.
+   * @param position the position of the element.
+   * @return the location, or {@code null} if the element is not persisted.
+   */
+  private Location getLocation(final String jobUuid, final PersistenceObjectType type, final int position) {
+    final JobEntry job = index.get(jobUuid);
+    if (job == null) return null;
+    final SortedMap<Integer, Location> elements = job.elements.get(type);
+    return (elements == null) ? null : elements.get(position);
+  }
+
+  /**
+   * Append the specified records to the current segment and update the index accordingly. Must be called while holding the write lock.
+   * @param records the records to append.
+   * @return the append count to pass on to {@link #commit(long, boolean)}.
+   * @throws IOException if any I/O error occurs.
+   */
+  private long appendAndApply(final Record...records) throws IOException {
+    long total = 0L;
+    for (final Record record: records) total += record.length;
+    if ((current.size > SEGMENT_HEADER_SIZE) && (current.size + total > segmentSize)) roll();
+    final ByteBuffer[] buffers = new ByteBuffer[records.length];
+    for (int i=0; i<records.length; i++) buffers[i] = records[i].buffer;
+    final FileChannel channel = current.channel();
+    channel.position(current.size);
+    long written = 0L;
+    while (written < total) written += channel.write(buffers);
+    for (final Record record: records) {
+      apply(record, current, current.size);
+      current.size += record.length;
+    }
+    return ++appendCount;
+  }
+
+  /**
+   * Force the current segment to disk, unless another thread already did it after the specified append.
+   * @param count the append count returned by {@link #appendAndApply(Record...)}.
+   * @param force whether to force the segment even if {@link #sync} is {@code false}.
+   * @throws IOException if any I/O error occurs.
+   */
+  private void commit(final long count, final boolean force) throws IOException {
+    if (!sync && !force) return;
+    synchronized(syncLock) {
+      if (syncedCount >= count) return;
+      final Segment segment;
+      final long target;
+      lock.readLock().lock();
+      try {
+        segment = current;
+        target = appendCount;
+      } finally {
+        lock.readLock().unlock();
+      }
+      try {
+        segment.channel().force(false);
+      } catch (final ClosedChannelException e) {
+        // the segment was forced when it was rolled over, then compacted, otherwise it was not synced
+        if (!segment.closed) throw e;
+      }
+      syncedCount = target;
+    }
+  }
+
+  /**
+   * Force the current segment to disk and start a new one. Must be called while holding the write lock.
+   * @throws IOException if any I/O error occurs.
+   */
+  private void roll() throws IOException {
+    current.channel().force(false);
+    current = createSegment(current.id + 1L);
+    if (debugEnabled) log.debug("rolled over to {}", current);
+    scheduleCompaction();
+  }
+
+  /**
+   * Create a new, empty segment.
+   * @param id the id of the segment.
+   * @return the new segment.
+   * @throws IOException if any I/O error occurs.
+   */
+  private Segment createSegment(final long id) throws IOException {
+    final Path path = getSegmentPath(id);
+    final Segment segment = new Segment(id, path, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(0, SEGMENT_MAGIC);
+    while (header.hasRemaining()) segment.channel().write(header, header.position());
+    segment.size = SEGMENT_HEADER_SIZE;
+    segments.put(id, segment);
+    return segment;
+  }
+
+  /**
+   * @param id the id of a segment.
+   * @return the path of the segment file.
+   */
+  private Path getSegmentPath(final long id) {
+    return Paths.get(pathname(rootPath), String.format("%s%019d%s", SEGMENT_PREFIX, id, SEGMENT_EXTENSION));
+  }
+
+  /**
+   * Update the index with the specified record. Must be called while holding the write lock, or from the constructor.
+   * @param record the record to apply.
+   * @param segment the segment the record is in.
+   * @param offset the offset of the record in the segment.
+   */
+  private void apply(final Record record, final Segment segment, final long offset) {
+    final Location location = new Location(segment, offset, record.length, record.dataOffset, record.seq);
+    if (record.op == DELETE_RECORD) applyDelete(record.uuid, location);
+    else applyStore(record, location);
+  }
+
+  /**
+   * Update the index with a record holding a job element.
+   * @param record the record to apply.
+   * @param location the location of the record.
+   */
+  private void applyStore(final Record record, final Location location) {
+    final Tombstone tombstone = deletedJobs.get(record.uuid);
+    if ((tombstone != null) && (tombstone.location.seq > location.seq)) {
+      // the job was deleted after this element was stored
+      tombstone.spans(location.segment.id, location.segment.id);
+      return;
+    }
+    JobEntry job = index.get(record.uuid);
+    if (job == null) index.put(record.uuid, job = new JobEntry());
+    job.spans(location.segment.id, location.segment.id);
+    SortedMap<Integer, Location> elements = job.elements.get(record.type);
+    if (elements == null) job.elements.put(record.type, elements = new TreeMap<>());
+    final Location old = elements.get(record.position);
+    if ((old != null) && (old.seq > location.seq)) return;
+    elements.put(record.position, location);
+    if (old != null) old.segment.liveBytes -= old.length;
+    location.segment.liveBytes += location.length;
+  }
+
+  /**
+   * Update the index with a record marking the deletion of a job.
+   * @param uuid the uuid of the deleted job.
+   * @param location the location of the record.
+   */
+  private void applyDelete(final String uuid, final Location location) {
+    final Tombstone previous = deletedJobs.get(uuid);
+    if ((previous != null) && (previous.location.seq > location.seq)) {
+      previous.spans(location.segment.id, location.segment.id);
+      return;
+    }
+    final Tombstone tombstone = new Tombstone(location);
+    if (previous != null) {
+      tombstone.spans(previous.minSegment, previous.maxSegment);
+      tombstone.spans(previous.location.segment.id, previous.location.segment.id);
+      previous.location.segment.liveBytes -= previous.location.length;
+    }
+    final JobEntry job = index.get(uuid);
+    if (job != null) {
+      tombstone.spans(job.minSegment, job.maxSegment);
+      boolean empty = true;
+      for (final SortedMap<Integer, Location> elements: job.elements.values()) {
+        for (final Iterator<Location> it = elements.values().iterator(); it.hasNext();) {
+          final Location element = it.next();
+          if (element.seq < location.seq) {
+            element.segment.liveBytes -= element.length;
+            it.remove();
+          }
+        }
+        if (!elements.isEmpty()) empty = false;
+      }
+      if (empty) index.remove(uuid);
+    }
+    location.segment.liveBytes += location.length;
+    deletedJobs.put(uuid, tombstone);
+  }
+
+  /**
+   * Submit a compaction task, unless one is already scheduled.
+   */
+  private void scheduleCompaction() {
+    if (!compactionScheduled.compareAndSet(false, true)) return;
+    try {
+      compactor.execute(this::compact);
+    } catch (@SuppressWarnings("unused") final RejectedExecutionException e) {
+      compactionScheduled.set(false);
+    }
+  }
+
+  /**
+   * Compact all the eligible segments.
+   */
+  private void compact() {
+    try {
+      Segment segment;
+      while ((segment = nextCompactionCandidate()) != null) compact(segment);
+    } catch (final Exception e) {
+      log.error("error compacting the job persistence log in {}", rootPath, e);
+    } finally {
+      compactionScheduled.set(false);
+    }
+  }
+
+  /**
+   * @return the oldest segment whose ratio of obsolete data reaches the compaction threshold, or {@code null} if there is none.
+   */
+  private Segment nextCompactionCandidate() {
+    lock.readLock().lock();
+    try {
+      for (final Segment segment: segments.values()) {
+        if ((segment == current) || segment.closed) continue;
+        final long used = segment.size - SEGMENT_HEADER_SIZE;
+        final long obsolete = used - segment.liveBytes;
+        if ((used <= 0L) || ((obsolete > 0L) && (obsolete >= compactionThreshold * used))) return segment;
+      }
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Copy the live records of the specified segment to the current segment, then delete it.
+   * @param segment the segment to compact.
+   * @throws IOException if any I/O error occurs.
+   */
+  private void compact(final Segment segment) throws IOException {
+    final List<Location> locations = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (final JobEntry job: index.values()) {
+        for (final SortedMap<Integer, Location> elements: job.elements.values()) {
+          for (final Location location: elements.values()) {
+            if (location.segment == segment) locations.add(location);
+          }
+        }
+      }
+      for (final Tombstone tombstone: deletedJobs.values()) {
+        if (tombstone.location.segment == segment) locations.add(tombstone.location);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (debugEnabled) log.debug("compacting {} with {} live records", segment, locations.size());
+    // only this thread removes segments, and no record is appended to a segment other than the current one, so the records can be read without locking
+    final CRC32 crc = new CRC32();
+    final List<Record> records = new ArrayList<>(locations.size());
+    for (final Location location: locations) {
+      final ByteBuffer buffer = ByteBuffer.allocate(location.length);
+      readFully(segment.channel(), buffer, location.offset);
+      final Record record = readRecord(buffer, 0, crc);
+      if (record == null) throw new IOException(String.format("corrupted record at offset %d of %s", location.offset, segment));
+      buffer.rewind();
+      record.buffer = buffer;
+      records.add(record);
+    }
+    long count = -1L;
+    lock.writeLock().lock();
+    try {
+      final List<Record> live = new ArrayList<>(records.size());
+      for (int i=0; i<records.size(); i++) {
+        final Record record = records.get(i);
+        final Location location = locations.get(i);
+        if (record.op == STORE_RECORD) {
+          if (getLocation(record.uuid, record.type, record.position) == location) live.add(record);
+        } else {
+          final Tombstone tombstone = deletedJobs.get(record.uuid);
+          if ((tombstone == null) || (tombstone.location != location)) continue;
+          if (coversOtherSegments(tombstone, segment)) live.add(record);
+          else deletedJobs.remove(record.uuid);
+        }
+      }
+      if (!live.isEmpty()) count = appendAndApply(live.toArray(new Record[live.size()]));
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // the copies must be on disk before the segment is deleted
+    if (count >= 0L) commit(count, true);
+    lock.writeLock().lock();
+    try {
+      segments.remove(segment.id);
+      segment.close();
+      Files.deleteIfExists(segment.path);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Determine whether a deletion record must be kept because segments other than the one being compacted may hold older records of the job.
+   * @param tombstone the deletion record.
+   * @param compacted the segment being compacted.
+   * @return {@code true} if the deletion record must be kept, {@code false} otherwise.
+   */
+  private boolean coversOtherSegments(final Tombstone tombstone, final Segment compacted) {
+    if (tombstone.minSegment > tombstone.maxSegment) return false;
+    final NavigableMap<Long, Segment> range = segments.subMap(tombstone.minSegment, true, tombstone.maxSegment, true);
+    return range.size() > (range.containsKey(compacted.id) ? 1 : 0);
+  }
+
+  /**
+   * Open the existing segments and rebuild the index from their records.
+   * @throws IOException if any I/O error occurs.
+   */
+  private void recover() throws IOException {
+    final List<Long> ids = new ArrayList<>();
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(rootPath, SEGMENT_PREFIX + "*" + SEGMENT_EXTENSION)) {
+      for (final Path path: ds) {
+        final String name = pathname(path.getFileName());
+        try {
+          ids.add(Long.valueOf(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length())));
+        } catch (@SuppressWarnings("unused") final NumberFormatException e) {
+          log.warn("ignoring file {} which is not a job persistence log segment", path);
+        }
+      }
+    }
+    Collections.sort(ids);
+    long maxSeq = 0L;
+    for (final long id: ids) maxSeq = Math.max(maxSeq, recoverSegment(id));
+    sequence.set(maxSeq);
+    final Segment last = segments.isEmpty() ? null : segments.lastEntry().getValue();
+    current = ((last == null) || (last.size >= segmentSize)) ? createSegment((last == null) ? 0L : last.id + 1L) : last;
+    if (debugEnabled) log.debug("recovered {} segments with {} jobs from {}", ids.size(), index.size(), rootPath);
+  }
+
+  /**
+   * Read all the records of a segment file through a memory mapping, and truncate the file after the last valid record.
+   * @param id the id of the segment.
+   * @return the highest sequence number found in the segment.
+   * @throws IOException if any I/O error occurs.
+   */
+  private long recoverSegment(final long id) throws IOException {
+    final Path path = getSegmentPath(id);
+    final Segment segment = new Segment(id, path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    final FileChannel channel = segment.channel();
+    final long fileSize = channel.size();
+    long maxSeq = 0L;
+    if (fileSize < SEGMENT_HEADER_SIZE) {
+      final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(0, SEGMENT_MAGIC);
+      while (header.hasRemaining()) channel.write(header, header.position());
+      segment.size = SEGMENT_HEADER_SIZE;
+    } else {
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, fileSize);
+      int pos = SEGMENT_HEADER_SIZE;
+      try {
+        if (buffer.getInt(0) != SEGMENT_MAGIC) {
+          segment.close();
+          throw new IOException(path + " is not a job persistence log segment");
+        }
+        final CRC32 crc = new CRC32();
+        Record record;
+        while ((record = readRecord(buffer, pos, crc)) != null) {
+          apply(record, segment, pos);
+          maxSeq = Math.max(maxSeq, record.seq);
+          pos += record.length;
+        }
+      } finally {
+        // some platforms, such as Windows, do not allow resizing a file while a mapping of it exists
+        unmap(buffer);
+      }
+      segment.size = pos;
+      if (pos < fileSize) {
+        log.warn("discarding {} bytes of incomplete or corrupted data at the end of {}", fileSize - pos, path);
+        try {
+          channel.truncate(pos);
+        } catch (final IOException e) {
+          log.warn("could not truncate {}, the discarded data will be overwritten or ignored: {}", path, e.toString());
+        }
+      }
+    }
+    segments.put(id, segment);
+    return maxSeq;
+  }
+
+  /**
+   * Release the memory mapping of the specified buffer, which must not be used afterwards.
+   * If the mapping cannot be released explicitly, it is released when the buffer is garbage collected.
+   * @param buffer the buffer to unmap.
+   */
+  private static void unmap(final MappedByteBuffer buffer) {
+    try {
+      try {
+        // Java 9 and later
+        final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        final Field field = unsafeClass.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        invokeCleaner.invoke(field.get(null), buffer);
+      } catch (@SuppressWarnings("unused") final NoSuchMethodException e) {
+        // Java 8
+        final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        final Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (final Exception e) {
+      if (debugEnabled) log.debug("could not unmap a segment buffer: {}", e.toString());
+    }
+  }
+
+  /**
+   * Read and check the record at the specified position.
+   * @param buffer the buffer to read from.
+   * @param pos the position of the record in the buffer.
+   * @param crc used to compute the checksum of the record.
+   * @return the record, without its content, or {@code null} if the record is incomplete or corrupted.
+   */
+  private static Record readRecord(final ByteBuffer buffer, final int pos, final CRC32 crc) {
+    final int limit = buffer.limit();
+    if (limit - pos < RECORD_HEADER_SIZE) return null;
+    final int bodyLength = buffer.getInt(pos);
+    if ((bodyLength < MIN_BODY_SIZE) || (bodyLength > limit - pos - RECORD_HEADER_SIZE)) return null;
+    final int end = pos + RECORD_HEADER_SIZE + bodyLength;
+    final ByteBuffer body = buffer.duplicate();
+    body.limit(end);
+    body.position(pos + RECORD_HEADER_SIZE);
+    crc.reset();
+    crc.update(body);
+    if ((int) crc.getValue() != buffer.getInt(pos + 4)) return null;
+    int p = pos + RECORD_HEADER_SIZE;
+    final byte op = buffer.get(p++);
+    final long seq = buffer.getLong(p);
+    p += 8;
+    final int uuidLength = buffer.getShort(p) & 0xFFFF;
+    p += 2;
+    if (p + uuidLength > end) return null;
+    final byte[] uuid = new byte[uuidLength];
+    for (int i=0; i<uuidLength; i++) uuid[i] = buffer.get(p++);
+    if (op == DELETE_RECORD) return new Record(op, seq, new String(uuid, StandardCharsets.UTF_8), null, -1, end - pos, end - pos);
+    if ((op != STORE_RECORD) || (p + 5 > end)) return null;
+    final int type = buffer.get(p++);
+    if ((type < 0) || (type >= TYPES.length)) return null;
+    final int position = buffer.getInt(p);
+    p += 4;
+    return new Record(op, seq, new String(uuid, StandardCharsets.UTF_8), TYPES[type], position, end - pos, p - pos);
+  }
+
+  /**
+   * Create a record holding a job element.
+   * @param seq the sequence number of the record.
+   * @param info the job element.
+   * @return the record, with its content.
+   * @throws Exception if the job element could not be read.
+   */
+  private static Record encodeStore(final long seq, final PersistenceInfo info) throws Exception {
+    final byte[] data = StreamUtils.getInputStreamAsByte(info.getInputStream());
+    final byte[] uuid = info.getJobUuid().getBytes(StandardCharsets.UTF_8);
+    final int dataOffset = RECORD_HEADER_SIZE + MIN_BODY_SIZE + uuid.length + 5;
+    final ByteBuffer buffer = ByteBuffer.allocate(dataOffset + data.length);
+    buffer.position(RECORD_HEADER_SIZE);
+    buffer.put(STORE_RECORD).putLong(seq).putShort((short) uuid.length).put(uuid).put((byte) info.getType().ordinal()).putInt(info.getPosition()).put(data);
+    final Record record = new Record(STORE_RECORD, seq, info.getJobUuid(), info.getType(), info.getPosition(), buffer.capacity(), dataOffset);
+    record.buffer = seal(buffer);
+    return record;
+  }
+
+  /**
+   * Create a record marking the deletion of a job.
+   * @param seq the sequence number of the record.
+   * @param jobUuid the uuid of the deleted job.
+   * @return the record, with its content.
+   */
+  private static Record encodeDelete(final long seq, final String jobUuid) {
+    final byte[] uuid = jobUuid.getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + MIN_BODY_SIZE + uuid.length);
+    buffer.position(RECORD_HEADER_SIZE);
+    buffer.put(DELETE_RECORD).putLong(seq).putShort((short) uuid.length).put(uuid);
+    final Record record = new Record(DELETE_RECORD, seq, jobUuid, null, -1, buffer.capacity(), buffer.capacity());
+    record.buffer = seal(buffer);
+    return record;
+  }
+
+  /**
+   * Write the length and checksum of a record body into the record header.
+   * @param buffer the record, whose body is written.
+   * @return the buffer, ready to be written.
+   */
+  private static ByteBuffer seal(final ByteBuffer buffer) {
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.array(), RECORD_HEADER_SIZE, buffer.capacity() - RECORD_HEADER_SIZE);
+    buffer.putInt(0, buffer.capacity() - RECORD_HEADER_SIZE).putInt(4, (int) crc.getValue());
+    buffer.rewind();
+    return buffer;
+  }
+
+  /**
+   * Fill the specified buffer with data read from a file channel.
+   * @param channel the channel to read from.
+   * @param buffer the buffer to fill.
+   * @param position the file position to start reading at.
+   * @throws IOException if any I/O error occurs.
+   */
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      final int n = channel.read(buffer, pos);
+      if (n < 0) throw new EOFException("unexpected end of file at position " + pos);
+      pos += n;
+    }
+  }
+
+  /** @exclude */
+  @Override
+  protected JobPersistenceException convertException(final Exception e) {
+    return (e instanceof JobPersistenceException) ? (JobPersistenceException) e : new JobPersistenceException(e);
+  }
+
+  /**
+   * A segment file of the log.
+   */
+  private static final class Segment {
+    /**
+     * The segment id, which gives the order of the segments.
+     */
+    final long id;
+    /**
+     * The path of the segment file.
+     */
+    final Path path;
+    /**
+     * The channel used to read and write the file.
+     */
+    private FileChannel channel;
+    /**
+     * The size of the valid data in the file.
+     */
+    long size;
+    /**
+     * The total size of the records that are not obsolete.
+     */
+    long liveBytes;
+    /**
+     * Whether this segment was closed.
+     */
+    volatile boolean closed;
+
+    /**
+     * Initialize this segment.
+     * @param id the segment id.
+     * @param path the path of the segment file.
+     * @param channel the channel used to read and write the file.
+     */
+    Segment(final long id, final Path path, final FileChannel channel) {
+      this.id = id;
+      this.path = path;
+      this.channel = channel;
+    }
+
+    /**
+     * Get the channel of this segment. A channel closed because a thread was interrupted while using it is reopened.
+     * @return an open file channel.
+     * @throws IOException if this segment is closed or the file could not be reopened.
+     */
+    synchronized FileChannel channel() throws IOException {
+      if (!channel.isOpen()) {
+        if (closed) throw new ClosedChannelException();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }
+      return channel;
+    }
+
+    /**
+     * Close this segment.
+     */
+    synchronized void close() {
+      closed = true;
+      try {
+        channel.close();
+      } catch (final IOException e) {
+        log.warn("error closing {}", this, e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return new StringBuilder("Segment[id=").append(id).append(", size=").append(size).append(", liveBytes=").append(liveBytes).append(']').toString();
+    }
+  }
+
+  /**
+   * The location of a record in the log.
+   */
+  private static final class Location {
+    /**
+     * The segment the record is in.
+     */
+    final Segment segment;
+    /**
+     * The offset of the record in the segment.
+     */
+    final long offset;
+    /**
+     * The total size of the record, including its header.
+     */
+    final int length;
+    /**
+     * The offset of the job element data from the start of the record.
+     */
+    final int dataOffset;
+    /**
+     * The sequence number of the record.
+     */
+    final long seq;
+
+    /**
+     * Initialize this location.
+     * @param segment the segment the record is in.
+     * @param offset the offset of the record in the segment.
+     * @param length the total size of the record.
+     * @param dataOffset the offset of the job element data from the start of the record.
+     * @param seq the sequence number of the record.
+     */
+    Location(final Segment segment, final long offset, final int length, final int dataOffset, final long seq) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.dataOffset = dataOffset;
+      this.seq = seq;
+    }
+  }
+
+  /**
+   * A record as read from or written to the log.
+   */
+  private static final class Record {
+    /**
+     * The type of record, either {@link LogStructuredPersistence#STORE_RECORD STORE_RECORD} or {@link LogStructuredPersistence#DELETE_RECORD DELETE_RECORD}.
+     */
+    final byte op;
+    /**
+     * The sequence number of the record.
+     */
+    final long seq;
+    /**
+     * The job uuid.
+     */
+    final String uuid;
+    /**
+     * The type of job element, {@code null} for a deletion record.
+     */
+    final PersistenceObjectType type;
+    /**
+     * The position of the job element.
+     */
+    final int position;
+    /**
+     * The total size of the record, including its header.
+     */
+    final int length;
+    /**
+     * The offset of the job element data from the start of the record.
+     */
+    final int dataOffset;
+    /**
+     * The content of the record, when it is to be written.
+     */
+    ByteBuffer buffer;
+
+    /**
+     * Initialize this record.
+     * @param op the type of record.
+     * @param seq the sequence number of the record.
+     * @param uuid the job uuid.
+     * @param type the type of job element.
+     * @param position the position of the job element.
+     * @param length the total size of the record.
+     * @param dataOffset the offset of the job element data from the start of the record.
+     */
+    Record(final byte op, final long seq, final String uuid, final PersistenceObjectType type, final int position, final int length, final int dataOffset) {
+      this.op = op;
+      this.seq = seq;
+      this.uuid = uuid;
+      this.type = type;
+      this.position = position;
+      this.length = length;
+      this.dataOffset = dataOffset;
+    }
+  }
+
+  /**
+   * Base class for the index entries that track the range of segments which may hold records of a job.
+   */
+  private abstract static class SegmentRange {
+    /**
+     * The lowest id of the segments which may hold records of the job.
+     */
+    long minSegment = Long.MAX_VALUE;
+    /**
+     * The highest id of the segments which may hold records of the job.
+     */
+    long maxSegment = Long.MIN_VALUE;
+
+    /**
+     * Extend this range to include the specified range.
+     * @param min the lowest segment id of the range to include.
+     * @param max the highest segment id of the range to include.
+     */
+    void spans(final long min, final long max) {
+      if (min > max) return;
+      if (min < minSegment) minSegment = min;
+      if (max > maxSegment) maxSegment = max;
+    }
+  }
+
+  /**
+   * The index entry of a persisted job.
+   */
+  private static final class JobEntry extends SegmentRange {
+    /**
+     * Mapping of the job element types to the locations of the elements, by position.
+     */
+    final Map<PersistenceObjectType, SortedMap<Integer, Location>> elements = new EnumMap<>(PersistenceObjectType.class);
+  }
+
+  /**
+   * The deletion record of a job, along with the range of segments that may hold older records of the job.
+   */
+  private static final class Tombstone extends SegmentRange {
+    /**
+     * The location of the deletion record.
+     */
+    final Location location;
+
+    /**
+     * Initialize this tombstone.
+     * @param location the location of the deletion record.
+     */
+    Tombstone(final Location location) {
+      this.location = location;
+    }
+  }
+}
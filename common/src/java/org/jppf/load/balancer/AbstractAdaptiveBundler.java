@@ -74,6 +74,7 @@ public abstract class AbstractAdaptiveBundler<T extends LoadBalancingProfile> ex
     // if number of threads is not defined, we assume it is the number of available processors
     if (nbThreads <= 0) nbThreads = getChannelConfiguration().getRuntime().getInt("availableProcessors");
     if (nbThreads <= 0) nbThreads = 1;
+    this.nbThreads = nbThreads;
   }
 
   @Override
@@ -48,4 +48,13 @@ public class BundlerHelper {
   public static void updateBundler(final BundlerEx<?> bundler, final int nbTasks, final double totalTime, final double accumulatedElapsed, final double overheadTime) {
     bundler.feedback(nbTasks, totalTime, accumulatedElapsed, overheadTime);
   }
+
+  /**
+   * Provide feedback to a bundler with the detailed timings of a dispatch.
+   * @param bundler the load banlancer to update.
+   * @param timings the timings of the dispatch.
+   */
+  public static void updateBundler(final TimingAwareBundler<?> bundler, final DispatchTimings timings) {
+    bundler.feedback(timings);
+  }
 }
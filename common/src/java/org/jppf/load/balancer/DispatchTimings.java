@@ -0,0 +1,179 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.load.balancer;
+
+/**
+ * Breakdown of the time taken by a dispatch of tasks to a node, from the moment the tasks are sent until their results are received.
+ * <p>The round trip time is made of the transfer time, which includes the network latency and the transport of the tasks and results,
+ * the time the node spent deserializing the tasks, the time it spent executing them and the time it spent serializing the results.
+ * All times are expressed in nanoseconds.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public class DispatchTimings {
+  /**
+   * The number of tasks that were executed.
+   */
+  private final int nbTasks;
+  /**
+   * The total round trip time between the driver and the node.
+   */
+  private final double totalTime;
+  /**
+   * The time spent transferring the tasks and results between the driver and the node.
+   */
+  private final double transferTime;
+  /**
+   * The time the node spent deserializing the tasks after they were received.
+   */
+  private final double deserializationTime;
+  /**
+   * The time the node spent serializing the results, after the execution of the tasks.
+   */
+  private final double serializationTime;
+  /**
+   * The elapsed times of the executed tasks.
+   */
+  private final long[] taskElapsedTimes;
+  /**
+   * The cpu times of the executed tasks, or {@code null} if they are unknown.
+   */
+  private final long[] taskCpuTimes;
+
+  /**
+   * Initialize these timings.
+   * @param nbTasks the number of tasks that were executed.
+   * @param totalTime the total round trip time between the driver and the node.
+   * @param nodeTime the time between the start of the reading of the tasks by the node and the end of their execution.
+   * @param deserializationTime the time the node spent deserializing the tasks after they were received.
+   * @param serializationTime the time the node spent serializing the results.
+   * @param taskElapsedTimes the elapsed times of the executed tasks, may be {@code null}.
+   * @param taskCpuTimes the cpu times of the executed tasks, may be {@code null}.
+   */
+  public DispatchTimings(final int nbTasks, final double totalTime, final double nodeTime, final double deserializationTime, final double serializationTime,
+    final long[] taskElapsedTimes, final long[] taskCpuTimes) {
+    this.nbTasks = nbTasks;
+    this.totalTime = totalTime;
+    this.deserializationTime = Math.max(0d, deserializationTime);
+    this.serializationTime = Math.max(0d, serializationTime);
+    this.transferTime = Math.max(0d, totalTime - nodeTime - this.serializationTime);
+    this.taskElapsedTimes = (taskElapsedTimes == null) ? new long[0] : taskElapsedTimes;
+    this.taskCpuTimes = taskCpuTimes;
+  }
+
+  /**
+   * @return the number of tasks that were executed.
+   */
+  public int getNbTasks() {
+    return nbTasks;
+  }
+
+  /**
+   * @return the total round trip time between the driver and the node.
+   */
+  public double getTotalTime() {
+    return totalTime;
+  }
+
+  /**
+   * @return the time spent transferring the tasks and results between the driver and the node, including the network latency.
+   */
+  public double getTransferTime() {
+    return transferTime;
+  }
+
+  /**
+   * @return the time the node spent deserializing the tasks after they were received.
+   */
+  public double getDeserializationTime() {
+    return deserializationTime;
+  }
+
+  /**
+   * @return the time the node spent serializing the results, after the execution of the tasks.
+   */
+  public double getSerializationTime() {
+    return serializationTime;
+  }
+
+  /**
+   * @return the elapsed times of the executed tasks, in order of completion.
+   */
+  public long[] getTaskElapsedTimes() {
+    return taskElapsedTimes;
+  }
+
+  /**
+   * @return the cpu times of the executed tasks, in the same order as the elapsed times, or {@code null} if the node cannot measure them.
+   */
+  public long[] getTaskCpuTimes() {
+    return taskCpuTimes;
+  }
+
+  /**
+   * @return the sum of the elapsed times of the executed tasks.
+   */
+  public double getExecutionTime() {
+    double sum = 0d;
+    for (final long time: taskElapsedTimes) sum += time;
+    return sum;
+  }
+
+  /**
+   * @return the mean elapsed time of the executed tasks, or 0 if there is no task time.
+   */
+  public double getMeanTaskElapsedTime() {
+    return (taskElapsedTimes.length == 0) ? 0d : getExecutionTime() / taskElapsedTimes.length;
+  }
+
+  /**
+   * @return the mean of the squared elapsed times of the executed tasks, or 0 if there is no task time.
+   */
+  public double getMeanSquaredTaskElapsedTime() {
+    if (taskElapsedTimes.length == 0) return 0d;
+    double sum = 0d;
+    for (final long time: taskElapsedTimes) sum += (double) time * time;
+    return sum / taskElapsedTimes.length;
+  }
+
+  /**
+   * @return the ratio of the total cpu time over the total elapsed time of the executed tasks, or -1 if it is unknown.
+   */
+  public double getCpuRatio() {
+    if ((taskCpuTimes == null) || (taskCpuTimes.length == 0)) return -1d;
+    final double elapsed = getExecutionTime();
+    if (elapsed <= 0d) return -1d;
+    double cpu = 0d;
+    for (final long time: taskCpuTimes) cpu += time;
+    return Math.min(1d, cpu / elapsed);
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("nbTasks=").append(nbTasks)
+      .append(", totalTime=").append((long) totalTime)
+      .append(", transferTime=").append((long) transferTime)
+      .append(", deserializationTime=").append((long) deserializationTime)
+      .append(", executionTime=").append((long) getExecutionTime())
+      .append(", serializationTime=").append((long) serializationTime)
+      .append(']').toString();
+  }
+}
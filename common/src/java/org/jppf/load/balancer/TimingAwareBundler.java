@@ -0,0 +1,35 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.load.balancer;
+
+/**
+ * A bundler which receives, for each dispatch, the time spent in each phase of the round trip between driver and node,
+ * along with the times of the individual tasks, instead of a single time for the whole bundle.
+ * @param <T> the type of parameters profile used by this bundler.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public interface TimingAwareBundler<T extends LoadBalancingProfile> extends BundlerEx<T> {
+  /**
+   * Feedback the bundler with the detailed timings of a dispatch whose results were received.
+   * @param timings the timings of the dispatch.
+   */
+  void feedback(DispatchTimings timings);
+}
@@ -0,0 +1,331 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.load.balancer.impl;
+
+import java.io.Serializable;
+import java.util.concurrent.locks.*;
+
+import org.jppf.load.balancer.*;
+import org.jppf.load.balancer.persistence.PersistentState;
+import org.jppf.management.JPPFSystemInformation;
+import org.jppf.node.protocol.JPPFDistributedJob;
+import org.slf4j.*;
+
+/**
+ * Bundler which models separately the phases of a dispatch to a node, and computes the bundle size that keeps the node's pipeline full.
+ * <p>For each node, it maintains exponentially weighted averages of the per-task execution, deserialization and serialization times,
+ * of the variability of the task execution times and of their cpu usage, along with a linear model of the transfer time made of
+ * a fixed latency and a per-task cost. The bundle size is then the smallest size such that:
+ * <ul>
+ * <li>the execution of a bundle lasts longer, by a safety factor, than the transfer and deserialization of the next one, so the node never starves</li>
+ * <li>the fixed latency is at most a small fraction of the time of a dispatch</li>
+ * <li>the time the node's threads remain idle, while the last and possibly longest tasks of a bundle complete, is at most the same fraction
+ * of the time of a dispatch</li>
+ * </ul>
+ * The execution of the tasks is assumed to be spread over the node's processing threads, or over its processors
+ * when there are more threads than processors and the tasks are cpu-bound.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public class PipelineBundler extends AbstractAdaptiveBundler<PipelineProfile> implements TimingAwareBundler<PipelineProfile>, PersistentState {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(PipelineBundler.class);
+  /**
+   * Determines whether debugging level is set for logging.
+   */
+  private static boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The state of this bundler, encapsulated in a separate class for persistence.
+   */
+  private final PipelineState state = new PipelineState();
+  /**
+   * Lock used to synchronize access to the load-balancer state.
+   */
+  private final Lock lock = new ReentrantLock();
+  /**
+   * The number of processors of the node.
+   */
+  private int nbProcessors;
+
+  /**
+   * Creates a new instance with the specified parameters.
+   * @param profile the parameters of the algorithm, grouped as a performance analysis profile.
+   */
+  public PipelineBundler(final PipelineProfile profile) {
+    super(profile);
+    if (debugEnabled) log.debug("bundler #{}: pipeline algorithm, profile={}", bundlerNumber, profile);
+  }
+
+  @Override
+  public int getBundleSize() {
+    lock.lock();
+    try {
+      final int size = (state.bundleSize > 0) ? state.bundleSize : ((profile.getInitialSize() > 0) ? profile.getInitialSize() : nbThreads);
+      return Math.max(1, Math.min(size, maxSize()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void setChannelConfiguration(final JPPFSystemInformation nodeConfiguration) {
+    super.setChannelConfiguration(nodeConfiguration);
+    nbProcessors = nodeConfiguration.getRuntime().getInt("availableProcessors", 0);
+  }
+
+  @Override
+  public void feedback(final int size, final double totalTime) {
+    // without a breakdown of the time, it is all attributed to the execution of the tasks
+    feedback(new DispatchTimings(size, totalTime, totalTime, 0d, 0d, null, null));
+  }
+
+  @Override
+  public void feedback(final DispatchTimings timings) {
+    final int size = timings.getNbTasks();
+    if (size <= 0) return;
+    lock.lock();
+    try {
+      final double concurrency = getConcurrency();
+      double taskTime = timings.getMeanTaskElapsedTime();
+      double taskTimeSquared = timings.getMeanSquaredTaskElapsedTime();
+      if (taskTime <= 0d) {
+        final double nodeTime = timings.getTotalTime() - timings.getTransferTime() - timings.getDeserializationTime() - timings.getSerializationTime();
+        taskTime = Math.max(0d, nodeTime) * Math.min(concurrency, size) / size;
+        taskTimeSquared = taskTime * taskTime;
+      }
+      final double alpha = (state.samples == 0) ? 1d : profile.getSmoothing();
+      state.taskTime = average(state.taskTime, taskTime, alpha);
+      state.taskTimeSquared = average(state.taskTimeSquared, taskTimeSquared, alpha);
+      state.deserializationTime = average(state.deserializationTime, timings.getDeserializationTime() / size, alpha);
+      state.serializationTime = average(state.serializationTime, timings.getSerializationTime() / size, alpha);
+      final double cpuRatio = timings.getCpuRatio();
+      if (cpuRatio >= 0d) state.cpuRatio = (state.cpuRatio < 0d) ? cpuRatio : average(state.cpuRatio, cpuRatio, alpha);
+      state.addTransferSample(size, timings.getTransferTime(), alpha);
+      state.samples++;
+      state.bundleSize = computeBundleSize(concurrency);
+      if (debugEnabled) log.debug("bundler #{}: new bundle size={} from {}", bundlerNumber, state.bundleSize, timings);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Compute the bundle size from the current state. This method must be called while holding the lock.
+   * @param concurrency the number of tasks the node executes in parallel.
+   * @return the new bundle size.
+   */
+  private int computeBundleSize(final double concurrency) {
+    if (state.taskTime <= 0d) return getBundleSizeUnlocked();
+    // wall time per task in the node, for the execution and for bringing the tasks to the node
+    final double executionTime = state.taskTime / concurrency;
+    final double transferTime = state.getTransferPerTask() + state.deserializationTime + state.serializationTime;
+    final double latency = state.getLatency();
+    final double maxOverhead = profile.getMaxOverhead();
+    final double safety = profile.getSafetyFactor();
+    double size = latency / (maxOverhead * (executionTime + transferTime));
+    if (executionTime > safety * transferTime) size = Math.max(size, safety * latency / (executionTime - safety * transferTime));
+    // the last tasks of a bundle leave, on average, half a task time idle per thread, and more when the task times vary widely
+    final double variance = Math.max(0d, state.taskTimeSquared - state.taskTime * state.taskTime);
+    final double cv = Math.sqrt(variance) / state.taskTime;
+    size = Math.max(size, concurrency * (1d + cv) / (2d * maxOverhead));
+    final int threads = Math.max(1, nbThreads);
+    final double rounded = Math.ceil(Math.min(size, Integer.MAX_VALUE) / threads) * threads;
+    return (int) Math.max(1d, Math.min(rounded, maxSize()));
+  }
+
+  /**
+   * @return the current bundle size, without acquiring the lock.
+   */
+  private int getBundleSizeUnlocked() {
+    return (state.bundleSize > 0) ? state.bundleSize : Math.max(1, nbThreads);
+  }
+
+  /**
+   * Get the number of tasks the node executes in parallel: its number of processing threads, limited by its number of processors
+   * divided by the fraction of their elapsed time the tasks spend using the cpu.
+   * @return the estimated concurrency, at least 1.
+   */
+  private double getConcurrency() {
+    double concurrency = Math.max(1, nbThreads);
+    if ((nbProcessors > 0) && (state.cpuRatio > 0d)) concurrency = Math.min(concurrency, nbProcessors / state.cpuRatio);
+    return Math.max(1d, concurrency);
+  }
+
+  /**
+   * Compute an exponentially weighted moving average.
+   * @param average the current average.
+   * @param value the new value.
+   * @param alpha the weight of the new value.
+   * @return the new average.
+   */
+  private static double average(final double average, final double value, final double alpha) {
+    return average + alpha * (value - average);
+  }
+
+  @Override
+  public int maxSize() {
+    final JPPFDistributedJob job = getJob();
+    if (job == null) return super.maxSize();
+    return Math.max(1, (int) Math.round(job.getTaskCount() * profile.getMaxRelativeSize()));
+  }
+
+  @Override
+  public void setup() {
+  }
+
+  @Override
+  public Object getState() {
+    lock.lock();
+    try {
+      return state;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void setState(final Object persistedState) {
+    final PipelineState other = (PipelineState) persistedState;
+    lock.lock();
+    try {
+      state.copyFrom(other);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Lock getStateLock() {
+    return lock;
+  }
+
+  /**
+   * Holds the state of this bundler for persistence. All times are in nanoseconds.
+   */
+  private static class PipelineState implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The current bundle size, or 0 if it was not computed yet.
+     */
+    private int bundleSize;
+    /**
+     * The number of dispatches whose timings were received.
+     */
+    private long samples;
+    /**
+     * Average elapsed time of a task.
+     */
+    private double taskTime;
+    /**
+     * Average squared elapsed time of a task.
+     */
+    private double taskTimeSquared;
+    /**
+     * Average ratio of the cpu time over the elapsed time of the tasks, or a negative value if it is unknown.
+     */
+    private double cpuRatio = -1d;
+    /**
+     * Average deserialization time per task.
+     */
+    private double deserializationTime;
+    /**
+     * Average serialization time per task.
+     */
+    private double serializationTime;
+    /**
+     * Decayed sum of the weights of the transfer samples.
+     */
+    private double weight;
+    /**
+     * Decayed sum of the bundle sizes of the transfer samples.
+     */
+    private double sumSizes;
+    /**
+     * Decayed sum of the transfer times.
+     */
+    private double sumTimes;
+    /**
+     * Decayed sum of the squared bundle sizes.
+     */
+    private double sumSquaredSizes;
+    /**
+     * Decayed sum of the products of the bundle sizes by the transfer times.
+     */
+    private double sumProducts;
+
+    /**
+     * Add a sample to the linear regression of the transfer time over the bundle size, after decaying the previous samples.
+     * @param size the bundle size.
+     * @param time the transfer time.
+     * @param alpha the weight of the new sample relatively to the previous ones.
+     */
+    private void addTransferSample(final double size, final double time, final double alpha) {
+      final double decay = 1d - alpha;
+      weight = weight * decay + 1d;
+      sumSizes = sumSizes * decay + size;
+      sumTimes = sumTimes * decay + time;
+      sumSquaredSizes = sumSquaredSizes * decay + size * size;
+      sumProducts = sumProducts * decay + size * time;
+    }
+
+    /**
+     * @return the per-task transfer time, that is the slope of the regression. Until bundles of different sizes have been observed,
+     * half of the average transfer time is attributed to the tasks.
+     */
+    private double getTransferPerTask() {
+      if (weight <= 0d) return 0d;
+      final double denominator = weight * sumSquaredSizes - sumSizes * sumSizes;
+      if (denominator <= 1e-9d * weight * sumSquaredSizes) return sumTimes / (2d * sumSizes);
+      return Math.max(0d, (weight * sumProducts - sumSizes * sumTimes) / denominator);
+    }
+
+    /**
+     * @return the fixed latency of a dispatch, that is the intercept of the regression.
+     */
+    private double getLatency() {
+      if (weight <= 0d) return 0d;
+      return Math.max(0d, (sumTimes - getTransferPerTask() * sumSizes) / weight);
+    }
+
+    /**
+     * Copy the specified state into this one.
+     * @param other the state to copy.
+     */
+    private void copyFrom(final PipelineState other) {
+      bundleSize = other.bundleSize;
+      samples = other.samples;
+      taskTime = other.taskTime;
+      taskTimeSquared = other.taskTimeSquared;
+      cpuRatio = other.cpuRatio;
+      deserializationTime = other.deserializationTime;
+      serializationTime = other.serializationTime;
+      weight = other.weight;
+      sumSizes = other.sumSizes;
+      sumTimes = other.sumTimes;
+      sumSquaredSizes = other.sumSquaredSizes;
+      sumProducts = other.sumProducts;
+    }
+  }
+}
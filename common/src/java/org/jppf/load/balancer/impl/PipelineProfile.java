@@ -0,0 +1,118 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.load.balancer.impl;
+
+import org.jppf.load.balancer.AbstractLoadBalancingProfile;
+import org.jppf.utils.TypedProperties;
+
+/**
+ * Parameters profile for the "pipeline" algorithm.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public class PipelineProfile extends AbstractLoadBalancingProfile {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * The bundle size used until the first results are received, or 0 to use the number of processing threads of the node.
+   */
+  private final int initialSize;
+  /**
+   * Weight of the latest dispatch in the exponentially weighted averages of the timings.
+   */
+  private final double smoothing;
+  /**
+   * The maximum fraction of the time of a dispatch that may be lost to the fixed latency and to the idle threads at the end of the execution.
+   */
+  private final double maxOverhead;
+  /**
+   * Factor by which the execution time of a dispatch should exceed the time needed to bring the next dispatch to the node.
+   */
+  private final double safetyFactor;
+  /**
+   * The maximum bundle size, expressed as a fraction in the range ]0.0, 1.0], of the current job size.
+   */
+  private final double maxRelativeSize;
+
+  /**
+   * Initialize this profile with values read from the specified configuration.
+   * @param config contains a mapping of the profile parameters to their value.
+   */
+  public PipelineProfile(final TypedProperties config) {
+    final int intValue = config.getInt("initialSize", 0);
+    initialSize = (intValue < 0) ? 0 : intValue;
+    double doubleValue = config.getDouble("smoothing", 0.3d);
+    smoothing = ((doubleValue <= 0d) || (doubleValue > 1d)) ? 0.3d : doubleValue;
+    doubleValue = config.getDouble("maxOverhead", 0.1d);
+    maxOverhead = ((doubleValue <= 0d) || (doubleValue >= 1d)) ? 0.1d : doubleValue;
+    doubleValue = config.getDouble("safetyFactor", 1.5d);
+    safetyFactor = (doubleValue < 1d) ? 1.5d : doubleValue;
+    doubleValue = config.getDouble("maxRelativeSize", 0.5d);
+    maxRelativeSize = ((doubleValue <= 0d) || (doubleValue > 1d)) ? 0.5d : doubleValue;
+  }
+
+  /**
+   * Get the bundle size used until the first results are received.
+   * @return the initial size, or 0 to use the number of processing threads of the node.
+   */
+  public int getInitialSize() {
+    return initialSize;
+  }
+
+  /**
+   * Get the weight of the latest dispatch in the exponentially weighted averages of the timings.
+   * @return the smoothing factor as a {@code double} value in the range ]0.0, 1.0].
+   */
+  public double getSmoothing() {
+    return smoothing;
+  }
+
+  /**
+   * Get the maximum fraction of the time of a dispatch that may be lost to the fixed latency and to the idle threads at the end of the execution.
+   * @return the max overhead as a {@code double} value in the range ]0.0, 1.0[.
+   */
+  public double getMaxOverhead() {
+    return maxOverhead;
+  }
+
+  /**
+   * Get the factor by which the execution time of a dispatch should exceed the time needed to bring the next dispatch to the node.
+   * @return the safety factor as a {@code double} value {@code >= 1}.
+   */
+  public double getSafetyFactor() {
+    return safetyFactor;
+  }
+
+  /**
+   * Get the maximum bundle size, expressed as a fraction in the range ]0.0, 1.0], of the current job size.
+   * @return the max relative size as a {@code double} value between 0 and 1.
+   */
+  public double getMaxRelativeSize() {
+    return maxRelativeSize;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[initialSize=%d, smoothing=%f, maxOverhead=%f, safetyFactor=%f, maxRelativeSize=%f]",
+      getClass().getSimpleName(), initialSize, smoothing, maxOverhead, safetyFactor, maxRelativeSize);
+  }
+}
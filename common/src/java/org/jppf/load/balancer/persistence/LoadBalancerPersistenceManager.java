@@ -23,7 +23,7 @@ import java.util.concurrent.locks.Lock;
 
 import org.jppf.load.balancer.Bundler;
 import org.jppf.load.balancer.spi.JPPFBundlerFactory;
-import org.jppf.utils.Pair;
+import org.jppf.utils.*;
 import org.slf4j.*;
 
 /**
@@ -114,6 +114,24 @@ public class LoadBalancerPersistenceManager implements LoadBalancerPersistenceMa
     }
   }
 
+  /**
+   * Compute the identifier of the load-balancer state kept for the jobs with the specified signature on the specified channel.
+   * @param channelId identifier of the channel.
+   * @param signature the signature of the jobs.
+   * @return the identifier of the state, or {@code null} if {@code channelId} is {@code null}.
+   * @since 6.2
+   */
+  public Pair<String, String> getJobChannelIdentifier(final Pair<String, String> channelId, final String signature) {
+    if (channelId == null) return null;
+    final String s = channelId.first() + "[job=" + signature + ']';
+    try {
+      return new Pair<>(s, CryptoUtils.computeHash(s, factory.getHashAlgorithm()));
+    } catch (final Exception e) {
+      log.error(e.getMessage(), e);
+      return null;
+    }
+  }
+
   @Override
   public List<String> listAllChannels() throws LoadBalancerPersistenceException {
     if (!isPersistenceEnabled()) return Collections.emptyList();
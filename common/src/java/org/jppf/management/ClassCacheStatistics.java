@@ -0,0 +1,158 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.management;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A snapshot of the statistics of the driver's cache of resources downloaded from the clients.
+ * @author Laurent Cohen
+ */
+public class ClassCacheStatistics implements Serializable {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * The total number of lookups.
+   */
+  private final long lookups;
+  /**
+   * The number of lookups which found an entry in the cache.
+   */
+  private final long hits;
+  /**
+   * The number of entries evicted to keep the cache within its size bound.
+   */
+  private final long evictions;
+  /**
+   * The current number of entries in the cache.
+   */
+  private final int entries;
+  /**
+   * The current size in bytes of the cached content.
+   */
+  private final long size;
+  /**
+   * The maximum size in bytes of the cached content.
+   */
+  private final long maxSize;
+  /**
+   * The size in bytes of the cached content for each client uuid.
+   */
+  private final Map<String, Long> sizePerUuid;
+
+  /**
+   * Initialize this snapshot with the specified values.
+   * @param lookups the total number of lookups.
+   * @param hits the number of lookups which found an entry in the cache.
+   * @param evictions the number of entries evicted to keep the cache within its size bound.
+   * @param entries the current number of entries in the cache.
+   * @param size the current size in bytes of the cached content.
+   * @param maxSize the maximum size in bytes of the cached content.
+   * @param sizePerUuid the size in bytes of the cached content for each client uuid.
+   */
+  public ClassCacheStatistics(final long lookups, final long hits, final long evictions, final int entries, final long size, final long maxSize, final Map<String, Long> sizePerUuid) {
+    this.lookups = lookups;
+    this.hits = hits;
+    this.evictions = evictions;
+    this.entries = entries;
+    this.size = size;
+    this.maxSize = maxSize;
+    this.sizePerUuid = Collections.unmodifiableMap(new HashMap<>(sizePerUuid));
+  }
+
+  /**
+   * Get the total number of lookups.
+   * @return the number of lookups as a long.
+   */
+  public long getLookups() {
+    return lookups;
+  }
+
+  /**
+   * Get the number of lookups which found an entry in the cache.
+   * @return the number of hits as a long.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Get the number of lookups which did not find an entry in the cache.
+   * @return the number of misses as a long.
+   */
+  public long getMisses() {
+    return lookups - hits;
+  }
+
+  /**
+   * Get the number of entries evicted to keep the cache within its size bound.
+   * @return the number of evictions as a long.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Get the current number of entries in the cache.
+   * @return the number of entries as an int.
+   */
+  public int getEntries() {
+    return entries;
+  }
+
+  /**
+   * Get the current size in bytes of the cached content.
+   * @return the size in bytes as a long.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Get the maximum size in bytes of the cached content.
+   * @return the maximum size in bytes as a long.
+   */
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the size in bytes of the cached content for each client uuid.
+   * @return an unmodifiable mapping of client uuids to a size in bytes.
+   */
+  public Map<String, Long> getSizePerUuid() {
+    return sizePerUuid;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append('[')
+      .append("lookups=").append(lookups)
+      .append(", hits=").append(hits)
+      .append(", evictions=").append(evictions)
+      .append(", entries=").append(entries)
+      .append(", size=").append(size)
+      .append(", maxSize=").append(maxSize)
+      .append(", sizePerUuid=").append(sizePerUuid)
+      .append(']').toString();
+  }
+}
@@ -215,6 +215,16 @@ public class JMXDriverConnectionWrapper extends JMXConnectionWrapper implements
     invoke(MBEAN_NAME, "resetStatistics");
   }
 
+  @Override
+  public ClassCacheStatistics classCacheStatistics() throws Exception {
+    return (ClassCacheStatistics) invoke(MBEAN_NAME, "classCacheStatistics");
+  }
+
+  @Override
+  public void resetClassCacheStatistics() throws Exception {
+    invoke(MBEAN_NAME, "resetClassCacheStatistics");
+  }
+
   @Override
   public JPPFSystemInformation systemInformation() throws Exception {
     return (JPPFSystemInformation) invoke(MBEAN_NAME, "systemInformation");
@@ -219,6 +219,11 @@ public class JMXNodeConnectionWrapper extends JMXConnectionWrapper implements JP
     invoke(JPPFNodeAdminMBean.MBEAN_NAME, "cancelJob", new Object[] { jobUuid, requeue }, new String[] { "java.lang.String", "java.lang.Boolean" });
   }
 
+  @Override
+  public int[] releaseUnstartedTasks(final String jobUuid) throws Exception {
+    return (int[]) invoke(JPPFNodeAdminMBean.MBEAN_NAME, "releaseUnstartedTasks", new Object[] { jobUuid }, new String[] { "java.lang.String" });
+  }
+
   @Override
   public DelegationModel getDelegationModel() throws Exception {
     return (DelegationModel) getAttribute(JPPFNodeAdminMBean.MBEAN_NAME, "DelegationModel");
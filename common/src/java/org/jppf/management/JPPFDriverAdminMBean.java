@@ -223,4 +223,21 @@ public interface JPPFDriverAdminMBean extends JPPFAdminMBean {
    */
   @MBeanDescription("whether the driver's connection information is broadcast via UDP multicast")
   boolean getBroadcasting() throws Exception;
+
+  /**
+   * Get a snapshot of the statistics of the cache of resources downloaded from the clients.
+   * @return a {@link ClassCacheStatistics} instance.
+   * @throws Exception if any error occurs.
+   * @since 6.2
+   */
+  @MBeanDescription("get the statistics of the driver's class cache")
+  ClassCacheStatistics classCacheStatistics() throws Exception;
+
+  /**
+   * Reset the lookup, hit and eviction counters of the cache of resources downloaded from the clients.
+   * @throws Exception if any error occurs.
+   * @since 6.2
+   */
+  @MBeanDescription("reset the statistics of the driver's class cache")
+  void resetClassCacheStatistics() throws Exception;
 }
@@ -153,6 +153,17 @@ public interface JPPFNodeAdminMBean extends JPPFAdminMBean {
   @MBeanDescription("ancel the job with the specified uuid")
   void cancelJob(@MBeanParamName("jobUuid") String jobUuid, @MBeanParamName("requeue") Boolean requeue) throws Exception;
 
+  /**
+   * Release the tasks of the specified job which have not started executing yet, so they can be dispatched to other nodes.
+   * The released tasks are sent back to the server along with the results of the tasks that already started.
+   * @param jobUuid the uuid of the job whose tasks are released.
+   * @return the positions of the released tasks, possibly empty.
+   * @throws Exception if any error occurs.
+   * @since 6.2
+   */
+  @MBeanDescription("release the tasks of the specified job which have not started yet, so they can be dispatched to other nodes")
+  int[] releaseUnstartedTasks(@MBeanParamName("jobUuid") String jobUuid) throws Exception;
+
   /**
    * Get the current class loader delegation model for the node.
    * @return either {@link DelegationModel#PARENT_FIRST PARENT_FIRST} or {@link DelegationModel#URL_FIRST LOCAL_FIRST}.
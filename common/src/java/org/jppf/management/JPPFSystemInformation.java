@@ -67,6 +67,10 @@ public class JPPFSystemInformation implements PropertiesCollection<String> {
    * The JPPF configuration.
    */
   private transient TypedProperties jppfConfig;
+  /**
+   * Number of in-place modifications of the properties signalled via {@link #incrementModificationCount()}.
+   */
+  private transient volatile long modificationCount;
 
   /**
    * Initialize this system information object with the specified uuid.
@@ -107,6 +111,23 @@ public class JPPFSystemInformation implements PropertiesCollection<String> {
     populate();
   }
 
+  /**
+   * Signal that the properties of this object were modified in place, so that the values computed from them and cached elsewhere can be detected as stale.
+   * @exclude
+   */
+  public synchronized void incrementModificationCount() {
+    modificationCount++;
+  }
+
+  /**
+   * Get the number of in-place modifications of the properties signalled so far.
+   * @return the modification count.
+   * @exclude
+   */
+  public long getModificationCount() {
+    return modificationCount;
+  }
+
   /**
    * Get the map holding the system properties.
    * @return a {@code TypedProperties} instance.
@@ -150,6 +150,17 @@ public class JPPFNodeAdminMBeanForwarder extends AbstractMBeanForwarder {
     return invoke(selector, "cancelJob", new Object[] { jobUuid, requeue }, new String[] { String.class.getName(), Boolean.class.getName() });
   }
 
+  /**
+   * Invoke the {@code releaseUnstartedTasks} operation for all selected nodes (release the tasks of the specified job which have not started yet, so they can be dispatched to other nodes).
+   * @param selector a {@link NodeSelector} instance.
+   * @param jobUuid a {@link String} instance.
+   * @return a mapping of node uuids to objects that wrap either a [@link int[]} or an exeption.
+   * @throws Exception if any error occurs.
+   */
+  public ResultsMap<String, int[]> releaseUnstartedTasks(final NodeSelector selector, final String jobUuid) throws Exception {
+    return invoke(selector, "releaseUnstartedTasks", new Object[] { jobUuid }, new String[] { String.class.getName() });
+  }
+
   /**
    * Invoke the {@code cancelPendingAction} operation for all selected nodes (cancel a previous deferred shutdown or restart request, if any).
    * @param selector a {@link NodeSelector} instance.
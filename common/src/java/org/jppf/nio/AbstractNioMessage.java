@@ -42,6 +42,14 @@ public abstract class AbstractNioMessage extends AbstractNioMessageBase {
    * The number of objects to read or write.
    */
   protected int nbObjects = -1;
+  /**
+   * The chunked data location currently being read or written, if any.
+   */
+  protected ChunkedDataLocation chunkedLocation;
+  /**
+   * Index of the chunk currently being written, or -1 if the chunked marker has not yet been written.
+   */
+  protected int chunkIndex = -1;
 
   /**
    * Initialize this nio message.
@@ -86,73 +94,158 @@ public abstract class AbstractNioMessage extends AbstractNioMessageBase {
    * @throws Exception if an IO error occurs.
    */
   protected boolean readNextObject() throws Exception {
+    if ((chunkedLocation == null) && (currentLength < 0)) {
+      if (!readLength()) return false;
+      if (currentLength == ChunkedDataLocation.CHUNKED_MARKER) {
+        chunkedLocation = new ChunkedDataLocation();
+        currentLength = -1;
+      }
+    }
+    final DataLocation location;
+    if (chunkedLocation != null) {
+      if (!readChunks()) return false;
+      location = chunkedLocation;
+      chunkedLocation = null;
+    } else {
+      if ((currentLength > 0) && !readCurrentObject()) return false;
+      location = (currentObject == null) ? null : currentObject.getData();
+    }
+    locations.add(location);
+    currentObject = null;
+    currentLength = -1;
+    position++;
+    return true;
+  }
+
+  /**
+   * Read the chunks of a chunked object, up to and including the zero-length terminator.
+   * @return true if all the chunks have been completely read from the channel, false otherwise.
+   * @throws Exception if an IO error occurs.
+   */
+  private boolean readChunks() throws Exception {
+    while (true) {
+      if (currentLength < 0) {
+        if (!readLength()) return false;
+        if (currentLength == 0) return true;
+      }
+      if (!readCurrentObject()) return false;
+      chunkedLocation.addChunk(currentObject.getData());
+      currentObject = null;
+      currentLength = -1;
+    }
+  }
+
+  /**
+   * Read the length of the next object or chunk into {@link #currentLength}.
+   * @return true if the length has been completely read from the channel, false otherwise.
+   * @throws Exception if an IO error occurs.
+   */
+  private boolean readLength() throws Exception {
     if (resetCurrentLength) {
       resetCurrentLength = false;
       lengthBuf.reset();
       if (currentLengthObject == null) currentLengthObject = ssl ? new SSLNioObject(lengthBuf, sslHandler) : new PlainNioObject(channel.getSocketChannel(), lengthBuf);
       else currentLengthObject.reset();
     }
-    if (currentLength < 0) {
-      try {
-        if (!currentLengthObject.read()) return false;
-      } catch(final Exception e) {
-        updateCounts(currentLengthObject.getChannelCount(), READ);
-        throw e;
-      }
+    try {
+      if (!currentLengthObject.read()) return false;
+    } catch(final Exception e) {
       updateCounts(currentLengthObject.getChannelCount(), READ);
-      try (InputStream is = currentLengthObject.getData().getInputStream()) {
-        currentLength = SerializationUtils.readInt(is);
-      }
-      count += 4;
+      throw e;
     }
-    if (currentLength > 0) {
-      if (currentObject == null) {
-        final DataLocation location = IOHelper.createDataLocationMemorySensitive(currentLength);
-        currentObject = ssl ? new SSLNioObject(location, sslHandler) : new PlainNioObject(channel.getSocketChannel(), location);
-      }
-      try {
-        if (!currentObject.read()) return false;
-      } catch(final Exception e) {
-        updateCounts(currentObject.getChannelCount(), READ);
-        throw e;
-      }
+    updateCounts(currentLengthObject.getChannelCount(), READ);
+    try (InputStream is = currentLengthObject.getData().getInputStream()) {
+      currentLength = SerializationUtils.readInt(is);
     }
-    count += currentLength;
-    if (currentObject != null) updateCounts(currentObject.getChannelCount(), READ);
-    locations.add(currentObject == null ? null : currentObject.getData());
-    currentObject = null;
-    currentLength = -1;
+    count += 4;
     resetCurrentLength = true;
-    position++;
     return true;
   }
 
+  /**
+   * Read the data of the current object or chunk, whose length is {@link #currentLength}.
+   * @return true if the data has been completely read from the channel, false otherwise.
+   * @throws Exception if an IO error occurs.
+   */
+  private boolean readCurrentObject() throws Exception {
+    if (currentObject == null) {
+      final DataLocation location = createDataLocation(currentLength);
+      currentObject = ssl ? new SSLNioObject(location, sslHandler) : new PlainNioObject(channel.getSocketChannel(), location);
+    }
+    try {
+      if (!currentObject.read()) return false;
+    } catch(final Exception e) {
+      updateCounts(currentObject.getChannelCount(), READ);
+      throw e;
+    }
+    count += currentLength;
+    updateCounts(currentObject.getChannelCount(), READ);
+    return true;
+  }
+
+  /**
+   * Create the data location into which the current object or chunk is read.
+   * This implementation delegates to {@link IOHelper#createDataLocationMemorySensitive(int)}.
+   * @param size the size of the data to read.
+   * @return a {@link DataLocation} with the specified size.
+   * @throws Exception if any error occurs.
+   */
+  protected DataLocation createDataLocation(final int size) throws Exception {
+    return IOHelper.createDataLocationMemorySensitive(size);
+  }
+
   /**
    * Write the next object to the specified channel.
    * @return true if the object has been completely written the channel, false otherwise.
    * @throws Exception if an IO error occurs.
    */
   protected boolean writeNextObject() throws Exception {
-    if (resetCurrentLength) {
-      resetCurrentLength = false;
+    if (currentDataLocation == null) {
       currentDataLocation = locations.get(position);
-      SerializationUtils.writeInt(currentDataLocation.getSize(), lengthBuf.reset().getBuffer(0).buffer, 0);
-      if (currentLengthObject == null) currentLengthObject = ssl ? new SSLNioObject(lengthBuf, sslHandler) : new PlainNioObject(channel.getSocketChannel(), lengthBuf);
-      else currentLengthObject.reset();
+      if (currentDataLocation instanceof ChunkedDataLocation) chunkedLocation = (ChunkedDataLocation) currentDataLocation;
     }
+    if (chunkedLocation != null) {
+      if (!writeChunks()) return false;
+      chunkedLocation = null;
+    } else if (!writeLocation(currentDataLocation)) return false;
+    position++;
+    currentDataLocation = null;
+    return true;
+  }
+
+  /**
+   * Write the chunks of a chunked object, preceded by the {@link ChunkedDataLocation#CHUNKED_MARKER chunked marker} and followed by a zero-length terminator.
+   * @return true if all the chunks have been completely written to the channel, false otherwise.
+   * @throws Exception if an IO error occurs.
+   */
+  private boolean writeChunks() throws Exception {
+    if (chunkIndex < 0) {
+      if (!writeLength(ChunkedDataLocation.CHUNKED_MARKER)) return false;
+      chunkIndex = 0;
+    }
+    final List<DataLocation> chunks = chunkedLocation.getChunks();
+    while (chunkIndex < chunks.size()) {
+      if (!writeLocation(chunks.get(chunkIndex))) return false;
+      chunkIndex++;
+    }
+    if (!writeLength(0)) return false;
+    chunkIndex = -1;
+    return true;
+  }
+
+  /**
+   * Write the specified data location, preceded by its length.
+   * @param location the data location to write.
+   * @return true if the length and data have been completely written to the channel, false otherwise.
+   * @throws Exception if an IO error occurs.
+   */
+  private boolean writeLocation(final DataLocation location) throws Exception {
     if (currentLength < 0) {
-      try {
-        if (!currentLengthObject.write()) return false;
-      } catch(final Exception e) {
-        updateCounts(currentLengthObject.getChannelCount(), WRITE);
-        throw e;
-      }
-      currentLength = currentDataLocation.getSize();
-      count += 4;
-      updateCounts(currentLengthObject.getChannelCount(), WRITE);
+      if (!writeLength(location.getSize())) return false;
+      currentLength = location.getSize();
     }
     if (currentObject == null) {
-      final DataLocation loc = currentDataLocation.copy();
+      final DataLocation loc = location.copy();
       currentObject = ssl ? new SSLNioObject(loc, sslHandler) : new PlainNioObject(channel.getSocketChannel(), loc);
     }
     try {
@@ -162,12 +255,35 @@ public abstract class AbstractNioMessage extends AbstractNioMessageBase {
       throw e;
     }
     count += currentLength;
-    if (currentObject != null) updateCounts(currentObject.getChannelCount(), WRITE);
-    position++;
+    updateCounts(currentObject.getChannelCount(), WRITE);
+    currentObject.getData().release();
     currentObject = null;
     currentLength = -1;
+    return true;
+  }
+
+  /**
+   * Write the specified length of an object or chunk.
+   * @param length the length to write.
+   * @return true if the length has been completely written to the channel, false otherwise.
+   * @throws Exception if an IO error occurs.
+   */
+  private boolean writeLength(final int length) throws Exception {
+    if (resetCurrentLength) {
+      resetCurrentLength = false;
+      SerializationUtils.writeInt(length, lengthBuf.reset().getBuffer(0).buffer, 0);
+      if (currentLengthObject == null) currentLengthObject = ssl ? new SSLNioObject(lengthBuf, sslHandler) : new PlainNioObject(channel.getSocketChannel(), lengthBuf);
+      else currentLengthObject.reset();
+    }
+    try {
+      if (!currentLengthObject.write()) return false;
+    } catch(final Exception e) {
+      updateCounts(currentLengthObject.getChannelCount(), WRITE);
+      throw e;
+    }
+    count += 4;
+    updateCounts(currentLengthObject.getChannelCount(), WRITE);
     resetCurrentLength = true;
-    currentDataLocation = null;
     return true;
   }
 
@@ -29,7 +29,7 @@ public abstract class AbstractNioMessageBase implements NioMessage {
   /**
    * The current count of bytes sent or received.
    */
-  protected int count;
+  protected long count;
   /**
    * Temporary holder used as a local performance optimization for write operations.
    */
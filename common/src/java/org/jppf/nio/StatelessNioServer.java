@@ -21,9 +21,11 @@ package org.jppf.nio;
 import java.nio.channels.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jppf.utils.*;
 import org.jppf.utils.concurrent.GlobalExecutor;
+import org.jppf.utils.configuration.JPPFProperty;
 import org.slf4j.*;
 
 /**
@@ -36,6 +38,10 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
    * Logger for this class.
    */
   private static final Logger log = LoggerFactory.getLogger(StatelessNioServer.class);
+  /**
+   * Determines whether debug logging level is enabled.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
   /**
    * Determines whether trace logging level is enabled.
    */
@@ -52,6 +58,14 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
    * 
    */
   protected KeysetHandler<C> acceptHandler, readHandler, writeHandler;
+  /**
+   * The selectors of this server, each with its own thread. The first one is the selector of this server, run by this server's thread.
+   */
+  private final SelectorShard[] shards;
+  /**
+   * Used to assign new channels to the selectors in a round-robin fashion.
+   */
+  private final AtomicInteger shardSequence = new AtomicInteger(0);
 
   /**
    * @param identifier the channel identifier for channels handled by this server.
@@ -61,6 +75,7 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
    */
   public StatelessNioServer(final int identifier, final boolean useSSL, final TypedProperties configuration) throws Exception {
     super(identifier, useSSL, null, configuration);
+    shards = createShards();
   }
 
   /**
@@ -73,6 +88,34 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
    */
   protected StatelessNioServer(final String name, final int identifier, final boolean useSSL, final TypedProperties configuration) throws Exception {
     super(name, identifier, useSSL, null, configuration);
+    shards = createShards();
+  }
+
+  /**
+   * Create the selectors of this server.
+   * @return an array of selector shards with at least one element.
+   * @throws Exception if any error occurs.
+   */
+  private SelectorShard[] createShards() throws Exception {
+    final JPPFProperty<Integer> property = getSelectorThreadsProperty();
+    final int n = ((property == null) || (configuration == null)) ? 1 : Math.max(1, configuration.get(property));
+    final SelectorShard[] result = new SelectorShard[n];
+    result[0] = new SelectorShard(this, selector, sync);
+    for (int i=1; i<n; i++) {
+      final Selector sel = Selector.open();
+      result[i] = new SelectorShard(this, sel, new SelectorSynchronizerLock(sel));
+    }
+    if (debugEnabled && (n > 1)) log.debug("{} will use {} selector threads", getName(), n);
+    return result;
+  }
+
+  /**
+   * Get the configuration property that holds the number of selector threads for this server.
+   * This method is called from the constructor and must not rely on the state of subclasses.
+   * @return a {@link JPPFProperty}, or {@code null} if this server uses a single selector thread, which is the default.
+   */
+  protected JPPFProperty<Integer> getSelectorThreadsProperty() {
+    return null;
   }
 
   @Override
@@ -103,24 +146,38 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
 
   @Override
   public void run() {
+    for (int i=1; i<shards.length; i++) {
+      final Thread thread = new Thread(shards[i], getName() + "-selector-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    shards[0].run();
+  }
+
+  /**
+   * Run the selection loop of a selector until this server is stopped.
+   * @param sel the selector to run.
+   * @param selSync the synchronizer associated with the selector.
+   */
+  private void selectLoop(final Selector sel, final SelectorSynchronizer selSync) {
     try {
       final boolean hasTimeout = selectTimeout > 0L;
       int n = 0;
       while (!isStopped() && !externalStopCondition()) {
-        sync.waitForZeroAndSetToMinusOne();
+        selSync.waitForZeroAndSetToMinusOne();
         try {
-          n = hasTimeout ? selector.select(selectTimeout) : selector.select();
+          n = hasTimeout ? sel.select(selectTimeout) : sel.select();
         } finally {
-          sync.setToZeroIfNegative();
+          selSync.setToZeroIfNegative();
         }
         try {
-          if (n > 0) go(selector.selectedKeys());
+          if (n > 0) go(sel.selectedKeys());
         } catch (final RejectedExecutionException t) {
           log.error("error in selector loop for {} : ", getClass().getSimpleName(), t);
         }
       }
     } catch (final Throwable t) {
-      log.error("error in selector loop for {} : ", getClass().getSimpleName(), t);
+      if (!isStopped()) log.error("error in selector loop for {} : ", getClass().getSimpleName(), t);
     } finally {
       end();
     }
@@ -250,17 +307,18 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
     if (newOps != ops) {
       if (traceEnabled) log.trace(String.format("updating interestOps from %d to %d for %s", ops, newOps, key.attachment()));
       context.setInterestOps(newOps);
-      sync.wakeUpAndSetOrIncrement();
+      final SelectorSynchronizer keySync = getShard(key.selector()).sync;
+      keySync.wakeUpAndSetOrIncrement();
       try {
         key.interestOps(newOps);
       } finally {
-        sync.decrement();
+        keySync.decrement();
       }
     }
   }
 
   /**
-   * Register the specified channel with this server's selectior.
+   * Register the specified channel with one of this server's selectors. When there are multiple selectors, they are assigned in a round-robin fashion.
    * @param channelHandler the context associated with the channel.
    * @param channel the channel to register.
    * @throws Exception if any error occurs.
@@ -268,11 +326,73 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
   public void registerChannel(final NioChannelHandler channelHandler, final SocketChannel channel) throws Exception {
     final int ops = SelectionKey.OP_READ;
     channelHandler.setInterestOps(ops);
-    sync.wakeUpAndSetOrIncrement();
+    final SelectorShard shard = (shards.length == 1) ? shards[0] : shards[Math.floorMod(shardSequence.getAndIncrement(), shards.length)];
+    shard.sync.wakeUpAndSetOrIncrement();
     try {
-      channelHandler.setSelectionKey(channel.register(selector, ops, channelHandler));
+      channelHandler.setSelectionKey(channel.register(shard.selector, ops, channelHandler));
     } finally {
-      sync.decrement();
+      shard.sync.decrement();
+    }
+  }
+
+  /**
+   * Get the selection key of the specified channel, whichever selector of this server it is registered with.
+   * @param channel the channel to lookup.
+   * @return the channel's {@link SelectionKey}, or {@code null} if the channel is not registered with this server.
+   */
+  public SelectionKey keyFor(final SelectableChannel channel) {
+    for (final SelectorShard shard: shards) {
+      final SelectionKey key = channel.keyFor(shard.selector);
+      if (key != null) return key;
+    }
+    return null;
+  }
+
+  /**
+   * Get the number of selector threads of this server.
+   * @return the number of selectors, at least 1.
+   */
+  public int getNbSelectors() {
+    return shards.length;
+  }
+
+  /**
+   * Get the shard for the specified selector.
+   * @param sel the selector to lookup.
+   * @return the matching {@link SelectorShard}, or the shard of this server's selector if none matches.
+   */
+  private SelectorShard getShard(final Selector sel) {
+    if (shards.length > 1) {
+      for (final SelectorShard shard: shards) {
+        if (shard.selector == sel) return shard;
+      }
+    }
+    return shards[0];
+  }
+
+  @Override
+  public void removeAllConnections() {
+    super.removeAllConnections();
+    for (int i=1; i<shards.length; i++) {
+      final SelectorShard shard = shards[i];
+      shard.sync.wakeUpAndSetOrIncrement();
+      try {
+        if (shard.selector.isOpen()) {
+          for (final SelectionKey key: new HashSet<>(shard.selector.keys())) {
+            try {
+              final SelectableChannel channel = key.channel();
+              if ((channel != null) && channel.isOpen()) channel.close();
+            } catch (final Exception e) {
+              log.error("error closing {}", toString(key), e);
+            }
+          }
+          shard.selector.close();
+        }
+      } catch (final Exception e) {
+        log.error("error while removing all connections from {}", this, e);
+      } finally {
+        shard.sync.decrement();
+      }
     }
   }
 
@@ -319,13 +439,18 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
    */
   public Map<String, C> performContextAction(final ContextFilter<C> filter, final ContextAction<C> action) {
     Set<SelectionKey> keys = null;
-    sync.wakeUpAndSetOrIncrement();
-    try {
-      if ((selector != null) && selector.isOpen()) keys  = new HashSet<>(selector.keys());
-    } catch (final Exception e) {
-      log.error(e.getMessage(), e);
-    } finally {
-      sync.decrement();
+    for (final SelectorShard shard: shards) {
+      shard.sync.wakeUpAndSetOrIncrement();
+      try {
+        if ((shard.selector != null) && shard.selector.isOpen()) {
+          if (keys == null) keys = new HashSet<>(shard.selector.keys());
+          else keys.addAll(shard.selector.keys());
+        }
+      } catch (final Exception e) {
+        log.error(e.getMessage(), e);
+      } finally {
+        shard.sync.decrement();
+      }
     }
     if (keys == null) return Collections.emptyMap();
     final Map<String, C> channels = new HashMap<>(keys.size());
@@ -344,6 +469,41 @@ public abstract class StatelessNioServer<C extends AbstractNioContext> extends N
     return channels;
   }
 
+  /**
+   * A selector with its own selection loop, which handles a subset of the channels of this server.
+   */
+  private static final class SelectorShard implements Runnable {
+    /**
+     * The server which owns the selector.
+     */
+    private final StatelessNioServer<?> server;
+    /**
+     * The selector.
+     */
+    private final Selector selector;
+    /**
+     * Synchronizes the access to the selector.
+     */
+    private final SelectorSynchronizer sync;
+
+    /**
+     * Initialize with the specified selector.
+     * @param server the server which owns the selector.
+     * @param selector the selector.
+     * @param sync synchronizes the access to the selector.
+     */
+    private SelectorShard(final StatelessNioServer<?> server, final Selector selector, final SelectorSynchronizer sync) {
+      this.server = server;
+      this.selector = selector;
+      this.sync = sync;
+    }
+
+    @Override
+    public void run() {
+      server.selectLoop(selector, sync);
+    }
+  }
+
   /**
    * Interface for context filtering.
    * @param <C> the type of connection context.
@@ -0,0 +1,469 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.node.policy;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import org.jppf.utils.PropertiesCollection;
+
+/**
+ * A pre-compiled form of an execution policy, which evaluates faster than the original policy tree.
+ * <p>When a policy is compiled:
+ * <ul>
+ * <li>each distinct property name referenced by the policy is assigned a slot, and is looked up at most once per evaluation, regardless of how many rules refer to it.
+ * As with the original policy, a property is only looked up when a rule which needs it is actually evaluated</li>
+ * <li>numeric property values are parsed at most once per evaluation, and literal numeric operands are parsed at compile time</li>
+ * <li>regular expressions are compiled and case-insensitive string operands are lower-cased at compile time</li>
+ * <li>the evaluation works on primitive values and does not box intermediate objects</li>
+ * </ul>
+ * <p>The rules that cannot be compiled, such as scripted policies, custom policies, or rules whose operands are expressions that must be computed
+ * against the node properties, are evaluated by delegating to the original rule. A compiled policy therefore always yields the same result as
+ * the policy it was compiled from, including for policies parsed from XML with {@link PolicyParser}.
+ * <p>Instances of this class are immutable and can be evaluated concurrently from multiple threads.
+ * @author Laurent Cohen
+ * @since 6.3
+ */
+public final class CompiledPolicy {
+  /**
+   * The policy this compiled policy was built from.
+   */
+  private final ExecutionPolicy source;
+  /**
+   * The root of the compiled rules.
+   */
+  private final Rule root;
+  /**
+   * The distinct property names referenced by the policy, indexed by slot.
+   */
+  private final String[] names;
+
+  /**
+   * Initialize this compiled policy.
+   * @param source the policy this compiled policy was built from.
+   * @param root the root of the compiled rules.
+   * @param names the distinct property names referenced by the policy, indexed by slot.
+   */
+  private CompiledPolicy(final ExecutionPolicy source, final Rule root, final String[] names) {
+    this.source = source;
+    this.root = root;
+    this.names = names;
+  }
+
+  /**
+   * Compile the specified execution policy.
+   * @param policy the policy to compile.
+   * @return a new {@link CompiledPolicy} instance.
+   * @throws IllegalArgumentException if the policy is {@code null}.
+   */
+  public static CompiledPolicy compile(final ExecutionPolicy policy) {
+    if (policy == null) throw new IllegalArgumentException("policy cannot be null");
+    final Compiler compiler = new Compiler();
+    final Rule root = compiler.compile(policy);
+    final int n = compiler.slots.size();
+    return new CompiledPolicy(policy, root, compiler.slots.keySet().toArray(new String[n]));
+  }
+
+  /**
+   * Get the compiled form of the specified execution policy, compiling it the first time this method is called for this policy instance.
+   * @param policy the policy for which to get the compiled form.
+   * @return a {@link CompiledPolicy} instance.
+   * @throws IllegalArgumentException if the policy is {@code null}.
+   */
+  public static CompiledPolicy of(final ExecutionPolicy policy) {
+    if (policy == null) throw new IllegalArgumentException("policy cannot be null");
+    CompiledPolicy result = policy.compiled;
+    if (result == null) policy.compiled = result = compile(policy);
+    return result;
+  }
+
+  /**
+   * Determine whether this policy accepts the specified node.
+   * @param info the properties of the node to evaluate.
+   * @return {@code true} if the node is accepted, {@code false} otherwise.
+   */
+  public boolean evaluate(final PropertiesCollection<String> info) {
+    try {
+      return root.accepts(new Slots(info, names));
+    } catch (@SuppressWarnings("unused") final RuntimeException e) {
+      return source.evaluate(info);
+    }
+  }
+
+  /**
+   * Get the policy this compiled policy was built from.
+   * @return an {@link ExecutionPolicy} instance.
+   */
+  public ExecutionPolicy getSource() {
+    return source;
+  }
+
+  /**
+   * Get the maximum number of distinct properties looked up by each evaluation of this policy.
+   * @return the number of property slots.
+   */
+  public int getNbSlots() {
+    return names.length;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(getClass().getSimpleName()).append("[slots=").append(Arrays.asList(names)).append(']').toString();
+  }
+
+  /**
+   * Holds the property values of the node being evaluated, which are looked up and parsed on first use.
+   */
+  private static final class Slots {
+    /**
+     * State of a slot whose value was not looked up yet.
+     */
+    private static final byte UNRESOLVED = 0;
+    /**
+     * State of a slot whose string value was looked up.
+     */
+    private static final byte STRING = 1;
+    /**
+     * State of a slot whose value was parsed as a valid number.
+     */
+    private static final byte NUMBER = 2;
+    /**
+     * State of a slot whose value is not a valid number.
+     */
+    private static final byte NAN = 3;
+    /**
+     * The properties of the node.
+     */
+    final PropertiesCollection<String> info;
+    /**
+     * The names of the properties.
+     */
+    private final String[] names;
+    /**
+     * The string values of the properties.
+     */
+    private final String[] strings;
+    /**
+     * The numeric values of the properties.
+     */
+    private final double[] numbers;
+    /**
+     * The state of each slot.
+     */
+    private final byte[] states;
+
+    /**
+     * Initialize these slots.
+     * @param info the properties of the node.
+     * @param names the names of the properties.
+     */
+    Slots(final PropertiesCollection<String> info, final String[] names) {
+      this.info = info;
+      this.names = names;
+      this.strings = new String[names.length];
+      this.numbers = new double[names.length];
+      this.states = new byte[names.length];
+    }
+
+    /**
+     * Get the string value of the specified slot.
+     * @param slot the index of the slot.
+     * @return the value of the property, or {@code null} if the node does not have this property.
+     */
+    String string(final int slot) {
+      if (states[slot] == UNRESOLVED) {
+        strings[slot] = info.getProperty(names[slot]);
+        states[slot] = STRING;
+      }
+      return strings[slot];
+    }
+
+    /**
+     * Determine whether the value of the specified slot is a valid number.
+     * @param slot the index of the slot.
+     * @return {@code true} if the value can be parsed as a number, {@code false} otherwise.
+     */
+    boolean isNumber(final int slot) {
+      if (states[slot] < NUMBER) {
+        final String value = string(slot);
+        states[slot] = NAN;
+        if (value != null) {
+          try {
+            numbers[slot] = Double.parseDouble(value);
+            states[slot] = NUMBER;
+          } catch (@SuppressWarnings("unused") final NumberFormatException e) {
+          }
+        }
+      }
+      return states[slot] == NUMBER;
+    }
+
+    /**
+     * Get the numeric value of the specified slot. {@link #isNumber(int)} must have returned {@code true} before calling this method.
+     * @param slot the index of the slot.
+     * @return the numeric value of the property.
+     */
+    double number(final int slot) {
+      return numbers[slot];
+    }
+  }
+
+  /**
+   * A compiled rule.
+   */
+  @FunctionalInterface
+  private interface Rule {
+    /**
+     * Determine whether this rule accepts the node whose values are in the specified slots.
+     * @param slots the property values of the node.
+     * @return {@code true} if the node is accepted, {@code false} otherwise.
+     */
+    boolean accepts(Slots slots);
+  }
+
+  /**
+   * Transforms an execution policy tree into a tree of compiled rules.
+   */
+  private static final class Compiler {
+    /**
+     * The package of the built-in policies, only those can be compiled.
+     */
+    private static final String POLICY_PACKAGE = ExecutionPolicy.class.getPackage().getName();
+    /**
+     * Mapping of property names to their slot.
+     */
+    final Map<String, Integer> slots = new LinkedHashMap<>();
+
+    /**
+     * Compile the specified policy.
+     * @param policy the policy to compile.
+     * @return the corresponding compiled rule.
+     */
+    Rule compile(final ExecutionPolicy policy) {
+      Rule rule = null;
+      if (POLICY_PACKAGE.equals(policy.getClass().getPackage().getName())) {
+        if (policy instanceof LogicalRule) rule = compileLogical(policy);
+        else if (policy instanceof ExecutionPolicy.NotRule) {
+          final Rule child = compile(policy.children[0]);
+          rule = slots -> !child.accepts(slots);
+        } else if (policy instanceof AcceptAll) rule = slots -> true;
+        else if (policy instanceof RejectAll) rule = slots -> false;
+        else if (policy instanceof NoArgRule) rule = compileNoArg((NoArgRule) policy);
+        else if (policy instanceof LeftOperandRule) rule = compileLeftOperand((LeftOperandRule) policy);
+      }
+      if (rule == null) {
+        // fallback to the interpreted evaluation for this sub-tree
+        rule = slots -> policy.evaluate(slots.info);
+      }
+      return rule;
+    }
+
+    /**
+     * Compile a logical rule.
+     * @param policy the rule to compile.
+     * @return the corresponding compiled rule, or {@code null} if it cannot be compiled.
+     */
+    private Rule compileLogical(final ExecutionPolicy policy) {
+      if (!(policy instanceof ExecutionPolicy.AndRule) && !(policy instanceof ExecutionPolicy.OrRule) && !(policy instanceof ExecutionPolicy.XorRule)) return null;
+      final ExecutionPolicy[] children = policy.children;
+      if ((children == null) || (children.length <= 0)) return slots -> true;
+      final Rule[] rules = new Rule[children.length];
+      for (int i=0; i<rules.length; i++) rules[i] = compile(children[i]);
+      if (policy instanceof ExecutionPolicy.AndRule) {
+        return slots -> {
+          for (final Rule r: rules) {
+            if (!r.accepts(slots)) return false;
+          }
+          return true;
+        };
+      } else if (policy instanceof ExecutionPolicy.OrRule) {
+        return slots -> {
+          for (final Rule r: rules) {
+            if (r.accepts(slots)) return true;
+          }
+          return false;
+        };
+      }
+      return slots -> {
+        boolean b = rules[0].accepts(slots);
+        for (int i=1; i<rules.length; i++) b = (b != rules[i].accepts(slots));
+        return b;
+      };
+    }
+
+    /**
+     * Compile a rule which checks a boolean property.
+     * @param policy the rule to compile.
+     * @return the corresponding compiled rule.
+     */
+    private Rule compileNoArg(final NoArgRule policy) {
+      final int slot = slot(policy.propertyName);
+      final boolean defaultValue = policy.defaultValue;
+      return slots -> {
+        final String value = slots.string(slot);
+        return (value == null) ? defaultValue : Boolean.parseBoolean(value);
+      };
+    }
+
+    /**
+     * Compile a rule which compares the value of a property with one or more literal operands.
+     * @param policy the rule to compile.
+     * @return the corresponding compiled rule, or {@code null} if it cannot be compiled.
+     */
+    private Rule compileLeftOperand(final LeftOperandRule policy) {
+      if (!(policy.leftOperand instanceof PropertyNameExpression)) return null;
+      final String name = policy.leftOperand.getExpression();
+      final ValueType type = ((PropertyNameExpression) policy.leftOperand).getTargetValueType();
+      if (policy instanceof BinaryNumericRule) {
+        final BinaryNumericRule rule = (BinaryNumericRule) policy;
+        if ((type != ValueType.NUMERIC) || !rule.expression.isLiteral()) return null;
+        final int slot = slot(name);
+        final double operand = rule.expression.evaluate(null);
+        return slots -> slots.isNumber(slot) && rule.accepts(slots.number(slot), operand);
+      } else if (policy instanceof TrinaryNumericRule) {
+        final TrinaryNumericRule rule = (TrinaryNumericRule) policy;
+        if ((type != ValueType.NUMERIC) || !rule.a.isLiteral() || !rule.b.isLiteral()) return null;
+        final int slot = slot(name);
+        final double a = rule.a.evaluate(null);
+        final double b = rule.b.evaluate(null);
+        return slots -> slots.isNumber(slot) && rule.accepts(slots.number(slot), a, b);
+      } else if (policy instanceof Equal) return compileEqual((Equal) policy, name, type);
+      else if (policy instanceof Contains) {
+        final Contains rule = (Contains) policy;
+        if ((type != ValueType.STRING) || !rule.value.isLiteral()) return null;
+        final String value = rule.value.evaluate(null);
+        if (value == null) return slots -> false;
+        final int slot = slot(name);
+        final boolean ignoreCase = rule.ignoreCase;
+        final String operand = ignoreCase ? value.toLowerCase() : value;
+        return slots -> {
+          final String s = slots.string(slot);
+          if (s == null) return false;
+          return ignoreCase ? s.toLowerCase().contains(operand) : s.contains(operand);
+        };
+      } else if (policy instanceof RegExp) {
+        final RegExp rule = (RegExp) policy;
+        if (type != ValueType.STRING) return null;
+        if (rule.regExp == null) return slots -> false;
+        final Pattern pattern = Pattern.compile(rule.regExp);
+        final int slot = slot(name);
+        return slots -> {
+          final String s = slots.string(slot);
+          return (s != null) && pattern.matcher(s).matches();
+        };
+      } else if (policy instanceof OneOf) return compileOneOf((OneOf) policy, name, type);
+      return null;
+    }
+
+    /**
+     * Compile an {@link Equal} or {@link NotEqual} rule.
+     * @param rule the rule to compile.
+     * @param name the name of the property to compare.
+     * @param type the type of value the property is converted to.
+     * @return the corresponding compiled rule, or {@code null} if it cannot be compiled.
+     */
+    private Rule compileEqual(final Equal rule, final String name, final ValueType type) {
+      final boolean negate = rule instanceof NotEqual;
+      if (rule.numberValue != null) {
+        if ((type != ValueType.NUMERIC) || !rule.numberValue.isLiteral()) return null;
+        final int slot = slot(name);
+        final long operandBits = Double.doubleToLongBits(rule.numberValue.evaluate(null));
+        // an unparseable value raises an exception in the interpreted rule, which makes both Equal and NotEqual return false
+        return slots -> slots.isNumber(slot) && ((Double.doubleToLongBits(slots.number(slot)) == operandBits) != negate);
+      } else if (rule.stringValue != null) {
+        if ((type != ValueType.STRING) || !rule.stringValue.isLiteral()) return null;
+        final String operand = rule.stringValue.evaluate(null);
+        if (operand == null) return slots -> false;
+        final int slot = slot(name);
+        final boolean ignoreCase = rule.ignoreCase;
+        return slots -> (ignoreCase ? operand.equalsIgnoreCase(slots.string(slot)) : operand.equals(slots.string(slot))) != negate;
+      } else if (rule.booleanValue != null) {
+        if ((type != ValueType.BOOLEAN) || !rule.booleanValue.isLiteral()) return null;
+        final Boolean operand = rule.booleanValue.evaluate(null);
+        if (operand == null) return null;
+        final boolean value = operand;
+        final int slot = slot(name);
+        return slots -> (Boolean.parseBoolean(slots.string(slot)) == value) != negate;
+      }
+      return null;
+    }
+
+    /**
+     * Compile a {@link OneOf} rule.
+     * @param rule the rule to compile.
+     * @param name the name of the property to compare.
+     * @param type the type of value the property is converted to.
+     * @return the corresponding compiled rule, or {@code null} if it cannot be compiled.
+     */
+    private Rule compileOneOf(final OneOf rule, final String name, final ValueType type) {
+      if (rule.numbers != null) {
+        if (type != ValueType.NUMERIC) return null;
+        final long[] operandBits = new long[rule.numbers.size()];
+        int count = 0;
+        for (final Expression<Double> expr: rule.numbers) {
+          if (!expr.isLiteral()) return null;
+          operandBits[count++] = Double.doubleToLongBits(expr.evaluate(null));
+        }
+        final int slot = slot(name);
+        return slots -> {
+          if (!slots.isNumber(slot)) return false;
+          final long bits = Double.doubleToLongBits(slots.number(slot));
+          for (final long operand: operandBits) {
+            if (bits == operand) return true;
+          }
+          return false;
+        };
+      } else if (rule.strings != null) {
+        if (type != ValueType.STRING) return null;
+        final String[] operands = new String[rule.strings.size()];
+        int count = 0;
+        for (final Expression<String> expr: rule.strings) {
+          if (!expr.isLiteral()) return null;
+          operands[count++] = expr.evaluate(null);
+        }
+        final int slot = slot(name);
+        final boolean ignoreCase = rule.ignoreCase;
+        return slots -> {
+          final String s = slots.string(slot);
+          for (final String operand: operands) {
+            if (operand == null) {
+              if (s == null) return true;
+            } else if ((s != null) && (ignoreCase ? operand.equalsIgnoreCase(s) : operand.equals(s))) return true;
+          }
+          return false;
+        };
+      }
+      return slots -> false;
+    }
+
+    /**
+     * Get the slot for the specified property name, creating it if needed.
+     * @param name the name of the property.
+     * @return the index of the slot.
+     */
+    private int slot(final String name) {
+      Integer slot = slots.get(name);
+      if (slot == null) {
+        slot = slots.size();
+        slots.put(name, slot);
+      }
+      return slot;
+    }
+  }
+}
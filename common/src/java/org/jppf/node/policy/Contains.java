@@ -33,11 +33,11 @@ public class Contains extends LeftOperandRule {
   /**
    * A string value to compare with.
    */
-  private Expression<String> value = null;
+  Expression<String> value = null;
   /**
    * Determines if the comparison should ignore the string case.
    */
-  private boolean ignoreCase = false;
+  boolean ignoreCase = false;
 
   /**
    * Define an contains test between the string value of a property and another string value.
@@ -63,6 +63,10 @@ public abstract class ExecutionPolicy implements Serializable {
    * Whether an exception was already raised when evaluating this policy.
    */
   transient boolean hadException;
+  /**
+   * The compiled form of this policy, lazily computed by {@link CompiledPolicy#of(ExecutionPolicy)}.
+   */
+  transient CompiledPolicy compiled;
 
   /**
    * Initialize this policy with the specified children.
@@ -18,7 +18,6 @@
 
 package org.jppf.node.policy;
 
-import org.jppf.management.JPPFSystemInformation;
 import org.jppf.utils.PropertiesCollection;
 import org.jppf.utils.configuration.*;
 
@@ -30,11 +29,11 @@ class NoArgRule extends ExecutionPolicy {
   /**
    * The name of the property to lookup in {@link #accepts(PropertiesCollection)}.
    */
-  private final String propertyName;
+  final String propertyName;
   /**
    * The property's default value.
    */
-  private final boolean defaultValue;
+  final boolean defaultValue;
 
   /**
    * Construct this policy rule from the name of a property.
@@ -57,7 +56,7 @@ class NoArgRule extends ExecutionPolicy {
 
   @Override
   public boolean accepts(final PropertiesCollection<String> info) {
-    final String val = ((JPPFSystemInformation) info).getProperty(propertyName);
+    final String val = info.getProperty(propertyName);
     return (val == null) ? defaultValue : Boolean.valueOf(val);
   }
 
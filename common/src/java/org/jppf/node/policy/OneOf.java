@@ -35,15 +35,15 @@ public class OneOf extends LeftOperandRule {
   /**
    * A numeric value to compare with.
    */
-  private List<Expression<Double>> numbers;
+  List<Expression<Double>> numbers;
   /**
    * A string value to compare with.
    */
-  private List<Expression<String>> strings;
+  List<Expression<String>> strings;
   /**
    * Determines if the comparison should ignore the string case.
    */
-  private boolean ignoreCase;
+  boolean ignoreCase;
 
   /**
    * Determine whether the value of a property, expressed as a {@code double}, is in the specified array of values.
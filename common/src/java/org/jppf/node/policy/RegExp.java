@@ -37,7 +37,7 @@ public class RegExp extends LeftOperandRule {
   /**
    * A regular expression to match the property value against.
    */
-  private String regExp;
+  String regExp;
   /**
    * The pattern object to compile from the regular expression.
    */
@@ -171,5 +171,37 @@ public enum BundleParameter {
   /**
    * Whether a job graph is already being handled by a driver.
    */
-  JOB_GRAPH_ALREADY_HANDLED
+  JOB_GRAPH_ALREADY_HANDLED,
+  /**
+   * An array of ints that holds the positions of the tasks released by a node before they started, so they can be executed by other nodes.
+   */
+  RELEASED_TASK_POSITIONS,
+  /**
+   * An array of longs that holds the elapsed times, in nanoseconds, of the tasks executed by a node.
+   */
+  NODE_TASK_ELAPSED_TIMES,
+  /**
+   * An array of longs that holds the cpu times, in nanoseconds, of the tasks executed by a node, in the same order as {@link #NODE_TASK_ELAPSED_TIMES}.
+   * Only present when the node can measure the cpu time of its threads.
+   */
+  NODE_TASK_CPU_TIMES,
+  /**
+   * The time in nanoseconds a node spent deserializing the tasks of a bundle after they were all received, excluding the network transfer.
+   */
+  NODE_DESERIALIZATION_TIME,
+  /**
+   * The time in nanoseconds a node spent serializing the results of a bundle, after their execution completed.
+   * Only reported when the driver sets {@link #NODE_SERIALIZATION_TIME_REQUESTED} in the bundle.
+   */
+  NODE_SERIALIZATION_TIME,
+  /**
+   * An array of ints that holds the number of results in each of the batches coalesced by the driver into a single message to the client,
+   * so the client can process each batch as soon as it is received.
+   */
+  RESULTS_BATCH_SIZES,
+  /**
+   * Whether the driver's load-balancer uses the {@link #NODE_SERIALIZATION_TIME} of a bundle, for which the node must wait until all the results are serialized
+   * before sending them.
+   */
+  NODE_SERIALIZATION_TIME_REQUESTED
 }
@@ -28,6 +28,11 @@ import org.jppf.utils.Pair;
  * @exclude
  */
 public class BundleWithTasks extends Pair<TaskBundle, List<Task<?>>> {
+  /**
+   * Whether the tasks were submitted for execution while they were being deserialized.
+   */
+  private boolean streamed;
+
   /**
    * Construct.
    * @param bundle the task bundle.
@@ -50,4 +55,20 @@ public class BundleWithTasks extends Pair<TaskBundle, List<Task<?>>> {
   public List<Task<?>> getTasks() {
     return second();
   }
+
+  /**
+   * @return whether the tasks were submitted for execution while they were being deserialized.
+   */
+  public boolean isStreamed() {
+    return streamed;
+  }
+
+  /**
+   * @param streamed whether the tasks were submitted for execution while they were being deserialized.
+   * @return this object, for method call chaining.
+   */
+  public BundleWithTasks setStreamed(final boolean streamed) {
+    this.streamed = streamed;
+    return this;
+  }
 }
@@ -102,6 +102,10 @@ public class JobSLA extends JobCommonSLA<JobSLA> {
    * The specification of dependencies for the job.
    */
   private JobDependencySpec dependencySpec = new JobDependencySpec();
+  /**
+   * Fraction of the tasks of the job still executing below which speculative copies of the straggling tasks are dispatched to idle nodes.
+   */
+  private double speculativeExecutionThreshold;
 
   /**
    * Default constructor.
@@ -444,6 +448,7 @@ public class JobSLA extends JobCommonSLA<JobSLA> {
     sla.setResultsStrategy(resultsStrategy);
     sla.setSuspended(suspended);
     sla.setMaxDriverDepth(maxDriverDepth);
+    sla.setSpeculativeExecutionThreshold(speculativeExecutionThreshold);
     sla.dependencySpec = dependencySpec;
     return sla;
   }
@@ -478,4 +483,28 @@ public class JobSLA extends JobCommonSLA<JobSLA> {
   public JobDependencySpec getDependencySpec() {
     return dependencySpec;
   }
+
+  /**
+   * Get the fraction of the tasks of the job still executing below which speculative copies of the straggling tasks are dispatched to idle nodes.
+   * The default value is 0, meaning that speculative execution is disabled.
+   * @return the threshold as a fraction of the job's initial number of tasks.
+   * @since 6.2
+   */
+  public double getSpeculativeExecutionThreshold() {
+    return speculativeExecutionThreshold;
+  }
+
+  /**
+   * Set the fraction of the tasks of the job still executing below which speculative copies of the straggling tasks are dispatched to idle nodes.
+   * <p>When all the tasks of the job have been dispatched, and the number of tasks still executing is at most {@code threshold * initialTaskCount},
+   * the tasks of the oldest dispatch are copied to an idle node. The first result received for a task is sent to the client, the other is discarded
+   * and its execution is cancelled on the node whenever possible.
+   * @param threshold the threshold as a fraction of the job's initial number of tasks. A value of 0 or less disables speculative execution.
+   * @return this SLA, for method call chaining.
+   * @since 6.2
+   */
+  public JobSLA setSpeculativeExecutionThreshold(final double threshold) {
+    this.speculativeExecutionThreshold = threshold;
+    return this;
+  }
 }
@@ -32,4 +32,9 @@ public class SendResultsStrategyConstants {
    * Name of a strategy which returns results only when a client bundle is complete.
    */
   public static final String ALL_RESULTS = "AllResults";
+  /**
+   * Name of a strategy which coalesces the results received from multiple nodes, within a time window, into a single message to the client.
+   * @since 6.2
+   */
+  public static final String BATCHED_RESULTS = "BatchedResults";
 }
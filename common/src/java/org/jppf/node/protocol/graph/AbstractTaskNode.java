@@ -43,6 +43,10 @@ public class AbstractTaskNode<T> extends AbstractTask<T> implements TaskNode<T>
    * The tasks that depend on this task, if any.
    */
   transient Set<TaskNode<?>> dependants;
+  /**
+   * An estimate of the cost of executing this task, relative to the other tasks in the same job.
+   */
+  private transient double costHint;
 
   @Override
   public TaskNode<T> dependsOn(final Collection<TaskNode<?>> tasks) throws JPPFDependencyCycleException {
@@ -109,4 +113,19 @@ public class AbstractTaskNode<T> extends AbstractTask<T> implements TaskNode<T>
   public Collection<TaskNode<?>> getDependants() {
     return dependants;
   }
+
+  @Override
+  public double getCostHint() {
+    return costHint;
+  }
+
+  /**
+   * Set an estimate of the cost of executing this task, relative to the other tasks in the same job.
+   * @param costHint a strictly positive cost, or a value {@code <= 0} if the cost is unknown.
+   * @return this task, for method call chaining.
+   */
+  public AbstractTaskNode<T> setCostHint(final double costHint) {
+    this.costHint = costHint;
+    return this;
+  }
 }
@@ -74,6 +74,14 @@ public class JobDependencyNode implements Serializable {
    * Whether the job represented by this dependency node should be cancelled when it arrives in the server queue.
    */
   private boolean cancelled;
+  /**
+   * The estimated cost of the job, used to compute the bottom levels in the graph.
+   */
+  private double cost = 1d;
+  /**
+   * The estimated cost of the longest path from this node to a node that no other node depends on, including this node.
+   */
+  private double bottomLevel = 1d;
  
   /**
    * Create a new node with the specified id.
@@ -134,6 +142,14 @@ public class JobDependencyNode implements Serializable {
     dependedOn.put(node.getId(), node);
   }
 
+  /**
+   * Remove the specified node from the set of nodes that depend on this node.
+   * @param node the node to remove.
+   */
+  void removeDependedOn(final JobDependencyNode node) {
+    if (dependedOn.get(node.getId()) == node) dependedOn.remove(node.getId());
+  }
+
   /**
    * Add the specified pending ((i.e. not completed) dependency.
    * @param id the id of the pending dependency to add.
@@ -291,6 +307,40 @@ public class JobDependencyNode implements Serializable {
     this.cancelled = cancelled;
   }
 
+  /**
+   * Get the estimated cost of the job represented by this node.
+   * @return the cost, by default the number of tasks in the job, or 1 if the job has not been submitted yet.
+   */
+  public double getCost() {
+    return cost;
+  }
+
+  /**
+   * Set the estimated cost of the job represented by this node.
+   * @param cost the estimated cost.
+   */
+  void setCost(final double cost) {
+    this.cost = cost;
+  }
+
+  /**
+   * Get the bottom level of this node, that is, the estimated cost of the longest path from this node to a node that no other node
+   * depends on, including this node. Among the jobs whose dependencies are all completed, those with the highest bottom level
+   * are on the critical path of the graph.
+   * @return the bottom level of this node.
+   */
+  public double getBottomLevel() {
+    return bottomLevel;
+  }
+
+  /**
+   * Set the bottom level of this node.
+   * @param bottomLevel the bottom level.
+   */
+  void setBottomLevel(final double bottomLevel) {
+    this.bottomLevel = bottomLevel;
+  }
+
   @Override
   public String toString() {
     return new StringBuilder(getClass().getSimpleName()).append('[')
@@ -298,6 +348,7 @@ public class JobDependencyNode implements Serializable {
       .append(", removeUponCompletion=").append(graphRoot)
       .append(", completed=").append(completed)
       .append(", cancelled=").append(cancelled)
+      .append(", bottomLevel=").append(bottomLevel)
       .append(", jobUuid=").append(jobUuid)
       .append(", dependencies=").append(dependencies.keySet())
       .append(", pending=").append(pendingDependencies)
@@ -41,6 +41,10 @@ public class MutableJobDependencyGraph extends JobDependencyGraphImpl {
    * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
    */
   private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Incremented each time the bottom level of a node changes, so the users of the bottom levels can tell when to reorder the jobs.
+   */
+  private transient volatile long bottomLevelsVersion;
 
   /**
    * Default constructor.
@@ -71,6 +75,10 @@ public class MutableJobDependencyGraph extends JobDependencyGraphImpl {
     if (debugEnabled) log.debug("adding node with spec={}, uuid={}", spec, jobUuid);
     final JobDependencyNode node = addNode(spec.getId(), jobUuid, spec.getDependencies());
     node.setGraphRoot(spec.isGraphRoot());
+    // the dependencies of the node, possibly new, may now be on a longer path
+    final Deque<JobDependencyNode> toUpdate = new ArrayDeque<>(node.getDependencies());
+    toUpdate.push(node);
+    updateBottomLevels(toUpdate);
     if (debugEnabled) log.debug("job graph: added {}", node);
     return node;
   }
@@ -104,6 +112,57 @@ public class MutableJobDependencyGraph extends JobDependencyGraphImpl {
     return node;
   }
 
+  /**
+   * Set the estimated cost of the specified job and update the bottom levels of its node and of its direct and indirect dependencies.
+   * @param jobUuid the uuid of the job.
+   * @param cost the estimated cost of the job.
+   */
+  public synchronized void setJobCost(final String jobUuid, final double cost) {
+    final JobDependencyNode node = getNodeByJobUuid(jobUuid);
+    if ((node == null) || (node.getCost() == cost)) return;
+    node.setCost(cost);
+    final Deque<JobDependencyNode> toUpdate = new ArrayDeque<>();
+    toUpdate.push(node);
+    updateBottomLevels(toUpdate);
+  }
+
+  /**
+   * Get the bottom level of the node of the specified job.
+   * @param jobUuid the uuid of the job.
+   * @return the bottom level of the job's node, or 0 if the job is not in the graph.
+   */
+  public synchronized double getBottomLevel(final String jobUuid) {
+    final JobDependencyNode node = getNodeByJobUuid(jobUuid);
+    return (node == null) ? 0d : node.getBottomLevel();
+  }
+
+  /**
+   * Get a number which changes each time the bottom level of a node in this graph changes, or a node is removed.
+   * @return the version of the bottom levels.
+   */
+  public long getBottomLevelsVersion() {
+    return bottomLevelsVersion;
+  }
+
+  /**
+   * Recompute the bottom levels of the specified nodes, and propagate the changes to their dependencies, as long as their bottom levels change.
+   * @param toUpdate the nodes to update.
+   */
+  private void updateBottomLevels(final Deque<JobDependencyNode> toUpdate) {
+    boolean changed = false;
+    while (!toUpdate.isEmpty()) {
+      final JobDependencyNode node = toUpdate.pop();
+      double max = 0d;
+      for (final JobDependencyNode dependant: node.getDependedOn()) max = Math.max(max, dependant.getBottomLevel());
+      final double level = max + node.getCost();
+      if (level == node.getBottomLevel()) continue;
+      node.setBottomLevel(level);
+      changed = true;
+      for (final JobDependencyNode dependency: node.getDependencies()) toUpdate.push(dependency);
+    }
+    if (changed) bottomLevelsVersion++;
+  }
+
   /**
    * Remove the node with the specified id from this graph.
    * @param id the id of the node to remove.
@@ -116,6 +175,7 @@ public class MutableJobDependencyGraph extends JobDependencyGraphImpl {
 
   /**
    * Recursively remove the specified node and all its dependencies from this graph.
+   * The bottom levels of the dependencies which remain in the graph, if any, no longer account for the removed node.
    * @param node the node to remove.
    */
   public synchronized void removeNode(final JobDependencyNode node) {
@@ -127,6 +187,13 @@ public class MutableJobDependencyGraph extends JobDependencyGraphImpl {
     for (final JobDependencyNode dependent: node.getDependedOn()) dependent.removeDependency(node);
     nodes.remove(node.getId());
     if (node.getJobUuid() != null) nodesByUuid.remove(node.getJobUuid());
+    final Deque<JobDependencyNode> toUpdate = new ArrayDeque<>();
+    for (final JobDependencyNode dependency: dependencies) {
+      dependency.removeDependedOn(node);
+      if (nodes.get(dependency.getId()) == dependency) toUpdate.push(dependency);
+    }
+    updateBottomLevels(toUpdate);
+    bottomLevelsVersion++;
     if (debugEnabled) log.debug("job graph: removed '{}'", node.getId());
   }
 }
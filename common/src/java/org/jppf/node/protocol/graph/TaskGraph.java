@@ -20,44 +20,139 @@ package org.jppf.node.protocol.graph;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 import org.jppf.node.protocol.PositionalElement;
 import org.jppf.serialization.SerializationUtils;
-import org.jppf.utils.collections.*;
 
 /**
  * A graph of the tasks in a job, representing the "depends on" relationships between tasks.
  * Each task is represented by its position in the job as an {@code Integer} value.
  * <p>Dependency cycles are not allowed, making this graph effectively a Directed Acyclic Graph (DAG).
  * This allows, among other things to compute one or more topological orders for the tasks.
+ * <p>Internally, each node is identified by its index in the ascending order of positions, and the edges of the graph are held in
+ * <a href="https://en.wikipedia.org/wiki/Sparse_matrix#Compressed_sparse_row_(CSR,_CRS_or_Yale_format)">compressed sparse row</a> arrays,
+ * in both directions. The {@link Node} objects are only created on demand, so that the driver can track the completion of large graphs
+ * without any per-task object allocation.
+ * <p>The graph also computes the <i>bottom level</i> of each node, that is, the estimated cost of the longest path from the node to a node
+ * without dependants, including the node itself. Dispatching the available tasks with the highest bottom levels first, as done by
+ * {@link #selectCriticalNodes(int[], int, IntPredicate)}, shortens the execution of the graph when its critical path is much longer than its other paths.
+ * The cost of a task is its {@link TaskNode#getCostHint() cost hint} if it has one. Otherwise, it is estimated from the measured durations
+ * of the executed tasks, relative to the tasks that have a cost hint. When no task has a cost hint, all the tasks have the same cost,
+ * which is the average measured duration of the executed tasks, if any.
  * @author Laurent Cohen
  * @exclude
  */
 public class TaskGraph implements Serializable {
   /**
-   * Mapping of nodes to their position.
+   * Positions are looked up in a direct index table when the highest position is less than this factor times the number of nodes,
+   * otherwise a binary search in the sorted positions is used.
    */
-  private transient Map<Integer, Node> nodesMap;
+  private static final int MAX_DIRECT_INDEX_RATIO = 4;
   /**
-   * Mapping of not done nodes to their position.
+   * Relative change of the estimated cost of the tasks without cost hint above which all the bottom levels are recomputed.
    */
-  private transient Map<Integer, Node> notDoneMap;
+  private static final double COST_DRIFT_THRESHOLD = 0.1d;
   /**
-   * Mapping of node positions to the positions of their dependants.
+   * The number of nodes in the graph.
    */
-  private transient CollectionMap<Integer, Node> dependantsMap = new ArrayListHashMap<>();
+  private transient int size;
   /**
-   * Mapping of node positions to the positions of their remaining unexecuted dependencies.
+   * The positions of the nodes, in ascending order. The index of a position in this array identifies the corresponding node in all the other arrays.
    */
-  private transient CollectionMap<Integer, Integer> remainingDependenciesMap = new ArrayListHashMap<>();
+  private transient int[] positions;
   /**
-   * The set of non-executed tasks that no longer have pending dependencies.
+   * Whether the positions are exactly {@code 0 ... size - 1}, in which case a node's index is equal to its position.
    */
-  private transient Set<Integer> availableNodes = new HashSet<>();
+  private transient boolean identityIndex;
+  /**
+   * Mapping of positions to the corresponding node index + 1, or {@code null} when the positions are either contiguous or too sparse.
+   */
+  private transient int[] indexTable;
+  /**
+   * For each node, the start of its dependencies in {@link #dependencyIndices}. The last element is the total number of edges.
+   */
+  private transient int[] dependencyOffsets;
+  /**
+   * The indices of the dependencies of all the nodes, grouped by node.
+   */
+  private transient int[] dependencyIndices;
+  /**
+   * For each node, the start of its dependants in {@link #dependantIndices}. The last element is the total number of edges.
+   */
+  private transient int[] dependantOffsets;
+  /**
+   * The indices of the dependants of all the nodes, grouped by node.
+   */
+  private transient int[] dependantIndices;
+  /**
+   * For each node, the number of its dependencies that are not done yet.
+   */
+  private transient int[] remainingDependencies;
+  /**
+   * The indices of the nodes that are done.
+   */
+  private transient BitSet doneNodes;
+  /**
+   * The indices of the non-executed nodes that no longer have pending dependencies, in the first {@link #availableCount} slots.
+   */
+  private transient int[] availableNodes;
+  /**
+   * The number of available nodes.
+   */
+  private transient int availableCount;
+  /**
+   * For each node, its slot in {@link #availableNodes}, or -1 if it is not available.
+   */
+  private transient int[] availableSlots;
   /**
    * The count of completed tasks.
    */
   private transient int doneCount;
+  /**
+   * The nodes created so far, by index. Created lazily.
+   */
+  private transient Node[] nodes;
+  /**
+   * A read-only view of the available positions.
+   */
+  private transient Set<Integer> availableView;
+  /**
+   * The cost hints of the nodes, by index, or {@code null} if no node has a cost hint.
+   */
+  private transient double[] costHints;
+  /**
+   * The sum of the strictly positive cost hints.
+   */
+  private transient double hintSum;
+  /**
+   * The number of nodes with a strictly positive cost hint.
+   */
+  private transient int hintCount;
+  /**
+   * The sum of the measured durations of the executed tasks which have a cost hint, in nanoseconds.
+   */
+  private transient double hintedTime;
+  /**
+   * The sum of the cost hints of the executed tasks whose duration was measured.
+   */
+  private transient double hintedUnits;
+  /**
+   * The sum of the measured durations of the executed tasks which have no cost hint, in nanoseconds.
+   */
+  private transient double unhintedTime;
+  /**
+   * The number of executed tasks without cost hint whose duration was measured.
+   */
+  private transient int unhintedCount;
+  /**
+   * The bottom level of each node, by index, or {@code null} if they must be (re)computed.
+   */
+  private transient double[] bottomLevels;
+  /**
+   * The estimated cost of the tasks without cost hint, when the bottom levels were last computed.
+   */
+  private transient double bottomLevelsDefaultCost;
 
   /**
    * No-arg constrcutor used for custom (de)serialization.
@@ -70,9 +165,7 @@ public class TaskGraph implements Serializable {
    * @param nodes the nodes that constitute the graph.
    */
   public TaskGraph(final Collection<Node> nodes) {
-    final Map<Integer, Node> map = new HashMap<>(nodes.size());
-    for (final Node node: nodes) map.put(node.getPosition(), node);
-    buildGraph(map);
+    buildGraph(nodes);
   }
 
   /**
@@ -80,43 +173,176 @@ public class TaskGraph implements Serializable {
    * @param nodes the nodes that constitute the graph.
    */
   public TaskGraph(final Map<Integer, Node> nodes) {
-    buildGraph(nodes);
+    buildGraph(nodes.values());
   }
 
   /**
    * Create this graph form the specified collection of nodes.
-   * @param nodes the nodes that constitute the graph.
+   * @param nodeCollection the nodes that constitute the graph.
    */
-  private void buildGraph(final Map<Integer, Node> nodes) {
-    nodesMap = nodes;
-    notDoneMap = new HashMap<>(nodes.size());
-    for (final Map.Entry<Integer, Node> entry: nodesMap.entrySet()) {
-      final int pos = entry.getKey();
-      final Node node = entry.getValue();
-      if (!node.isDone()) notDoneMap.put(pos, node);
-      final List<Node> dependencies = node.getDependencies();
-      int remaining = 0;
-      for (final Node dep: dependencies) {
-        dependantsMap.putValue(dep.getPosition(), node);
-        if (!dep.isDone()) {
-          remainingDependenciesMap.putValue(pos, dep.getPosition());
-          remaining++;
-        }
+  private void buildGraph(final Collection<Node> nodeCollection) {
+    size = nodeCollection.size();
+    positions = new int[size];
+    int count = 0, nbEdges = 0;
+    for (final Node node: nodeCollection) {
+      positions[count++] = node.getPosition();
+      nbEdges += node.getDependencies().size();
+    }
+    Arrays.sort(positions);
+    buildIndex();
+    nodes = new Node[size];
+    for (final Node node: nodeCollection) nodes[indexOf(node.getPosition())] = node;
+    doneNodes = new BitSet(size);
+    dependencyOffsets = new int[size + 1];
+    dependencyIndices = new int[nbEdges];
+    count = 0;
+    for (int idx=0; idx<size; idx++) {
+      final Node node = nodes[idx];
+      if (node.isDone()) doneNodes.set(idx);
+      if (node.getCost() > 0d) {
+        if (costHints == null) costHints = new double[size];
+        costHints[idx] = node.getCost();
+      }
+      dependencyOffsets[idx] = count;
+      for (final Node dep: node.getDependencies()) {
+        final int depIndex = indexOf(dep.getPosition());
+        if (depIndex >= 0) dependencyIndices[count++] = depIndex;
+      }
+    }
+    dependencyOffsets[size] = count;
+    if (count < nbEdges) dependencyIndices = Arrays.copyOf(dependencyIndices, count);
+    initState();
+  }
+
+  /**
+   * Compute the sum and count of the cost hints.
+   */
+  private void initHints() {
+    hintSum = 0d;
+    hintCount = 0;
+    if (costHints == null) return;
+    for (final double hint: costHints) {
+      if (hint > 0d) {
+        hintSum += hint;
+        hintCount++;
       }
-      if (!node.isDone()) {
-        if (remaining <= 0) availableNodes.add(pos);
+    }
+  }
+
+  /**
+   * Build the lookup of node indices from the sorted positions.
+   */
+  private void buildIndex() {
+    indexTable = null;
+    identityIndex = (size == 0) || ((positions[0] == 0) && (positions[size - 1] == size - 1));
+    if (identityIndex) return;
+    final int maxPosition = positions[size - 1];
+    if ((positions[0] >= 0) && ((long) maxPosition < (long) MAX_DIRECT_INDEX_RATIO * size)) {
+      indexTable = new int[maxPosition + 1];
+      for (int i=0; i<size; i++) indexTable[positions[i]] = i + 1;
+    }
+  }
+
+  /**
+   * Compute the dependants of each node, the remaining dependencies and the available nodes from the dependencies and the done nodes.
+   */
+  private void initState() {
+    final int nbEdges = dependencyOffsets[size];
+    dependantOffsets = new int[size + 1];
+    for (int i=0; i<nbEdges; i++) dependantOffsets[dependencyIndices[i] + 1]++;
+    for (int i=0; i<size; i++) dependantOffsets[i + 1] += dependantOffsets[i];
+    dependantIndices = new int[nbEdges];
+    final int[] next = Arrays.copyOf(dependantOffsets, size);
+    remainingDependencies = new int[size];
+    availableNodes = new int[size];
+    availableSlots = new int[size];
+    Arrays.fill(availableSlots, -1);
+    availableCount = 0;
+    doneCount = 0;
+    bottomLevels = null;
+    initHints();
+    for (int idx=0; idx<size; idx++) {
+      int remaining = 0;
+      for (int i=dependencyOffsets[idx]; i<dependencyOffsets[idx + 1]; i++) {
+        final int dep = dependencyIndices[i];
+        dependantIndices[next[dep]++] = idx;
+        if (!doneNodes.get(dep)) remaining++;
       }
-      else doneCount++;
+      remainingDependencies[idx] = remaining;
+      if (doneNodes.get(idx)) doneCount++;
+      else if (remaining == 0) addAvailable(idx);
     }
   }
 
+  /**
+   * Get the index of the node at the specified position.
+   * @param position the position to lookup.
+   * @return the index of the node, or -1 if there is no node at this position.
+   */
+  private int indexOf(final int position) {
+    if (identityIndex) return ((position >= 0) && (position < size)) ? position : -1;
+    if (indexTable != null) return ((position >= 0) && (position < indexTable.length)) ? indexTable[position] - 1 : -1;
+    final int idx = Arrays.binarySearch(positions, 0, size, position);
+    return (idx >= 0) ? idx : -1;
+  }
+
+  /**
+   * Add the specified node to the available nodes.
+   * @param idx the index of the node.
+   */
+  private void addAvailable(final int idx) {
+    availableSlots[idx] = availableCount;
+    availableNodes[availableCount++] = idx;
+  }
+
+  /**
+   * Remove the specified node from the available nodes, if it is there, by moving the last available node into its slot.
+   * @param idx the index of the node.
+   */
+  private void removeAvailable(final int idx) {
+    final int slot = availableSlots[idx];
+    if (slot < 0) return;
+    final int last = availableNodes[--availableCount];
+    availableNodes[slot] = last;
+    availableSlots[last] = slot;
+    availableSlots[idx] = -1;
+  }
+
+  /**
+   * Get the node at the specified index, creating it if needed.
+   * @param idx the index of the node.
+   * @return a {@link Node} instance.
+   */
+  private Node nodeAtIndex(final int idx) {
+    if (nodes == null) nodes = new Node[size];
+    Node node = nodes[idx];
+    if (node == null) nodes[idx] = node = new Node(this, idx);
+    return node;
+  }
+
   /**
    * Perform a depth-first search topological sort.
    * @param position the position of the node to lookup.
    * @return the {@link Node} at the specified position, or {@link null} if there isn't one.
    */
   public Node nodeAt(final int position) {
-    return nodesMap.get(position);
+    final int idx = indexOf(position);
+    return (idx < 0) ? null : nodeAtIndex(idx);
+  }
+
+  /**
+   * Get the positions of the direct dependencies of the task at the specified position.
+   * Unlike {@code nodeAt(position).getDependencies()}, this method does not create any {@link Node}.
+   * @param position the position of the task in the job.
+   * @return the positions of the dependencies, possibly empty, or {@code null} if there is no task at this position in the graph.
+   */
+  public int[] getDependencyPositions(final int position) {
+    final int idx = indexOf(position);
+    if (idx < 0) return null;
+    final int start = dependencyOffsets[idx];
+    final int[] result = new int[dependencyOffsets[idx + 1] - start];
+    for (int i=0; i<result.length; i++) result[i] = positions[dependencyIndices[start + i]];
+    return result;
   }
 
   /**
@@ -124,35 +350,278 @@ public class TaskGraph implements Serializable {
    * @param position the position of hte task in the job.
    */
   public void nodeDone(final int position) {
-    final Node node = nodeAt(position);
-    if (node != null) {
-      doneCount++;
-      availableNodes.remove(position);
-      notDoneMap.remove(position);
-      node.setDone(true);
-      final Collection<Node> dependants = dependantsMap.getValues(position);
-      if (dependants != null) {
-        for (final Node dependant: dependants) {
-          final int dependantPosition = dependant.getPosition();
-          remainingDependenciesMap.removeValue(dependantPosition, position);
-          if (!remainingDependenciesMap.containsKey(dependantPosition)) availableNodes.add(dependantPosition);
-        }
+    final int idx = indexOf(position);
+    if ((idx >= 0) && !doneNodes.get(idx)) done(idx);
+  }
+
+  /**
+   * Called when a task has completed, with its measured execution duration.
+   * @param position the position of the task in the job.
+   * @param duration the execution duration of the task in nanoseconds, ignored if {@code <= 0}.
+   */
+  public void nodeDone(final int position, final long duration) {
+    final int idx = indexOf(position);
+    if ((idx < 0) || doneNodes.get(idx)) return;
+    if (duration > 0L) {
+      final double hint = (costHints == null) ? 0d : costHints[idx];
+      if (hint > 0d) {
+        hintedTime += duration;
+        hintedUnits += hint;
+      } else {
+        unhintedTime += duration;
+        unhintedCount++;
       }
+      checkCostDrift();
     }
+    done(idx);
   }
 
   /**
-   * @return the set of non-executed tasks that no longer have pending dependencies.
+   * Mark the specified node as done and update the available nodes accordingly.
+   * @param idx the index of the node, which must not be done.
+   */
+  private void done(final int idx) {
+    doneNodes.set(idx);
+    doneCount++;
+    removeAvailable(idx);
+    if ((nodes != null) && (nodes[idx] != null)) nodes[idx].setDone(true);
+    for (int i=dependantOffsets[idx]; i<dependantOffsets[idx + 1]; i++) {
+      final int dependant = dependantIndices[i];
+      if ((--remainingDependencies[dependant] == 0) && !doneNodes.get(dependant)) addAvailable(dependant);
+    }
+  }
+
+  /**
+   * Get the set of non-executed tasks that no longer have pending dependencies.
+   * The returned set is a read-only view which reflects the subsequent changes in the graph, and whose iteration order is unspecified.
+   * @return a set of task positions.
    */
   public Set<Integer> getAvailableNodes() {
-    return availableNodes;
+    if (availableView == null) availableView = new AvailableNodesView();
+    return availableView;
+  }
+
+  /**
+   * @return the number of non-executed tasks that no longer have pending dependencies.
+   */
+  public int getAvailableNodeCount() {
+    return availableCount;
+  }
+
+  /**
+   * Get the position of an available task, without boxing. The order of the available tasks changes whenever a task is done.
+   * @param i the index of the available task, in the range {@code [0, getAvailableNodeCount())}.
+   * @return the position of the task in the job.
+   */
+  public int getAvailableNodeAt(final int i) {
+    if ((i < 0) || (i >= availableCount)) throw new IndexOutOfBoundsException("index " + i + " out of bounds [0, " + availableCount + ")");
+    return positions[availableNodes[i]];
+  }
+
+  /**
+   * Set the cost hint of the task at the specified position. The bottom levels of the task and of its direct and indirect dependencies
+   * are updated incrementally, unless the change affects the estimated cost of the tasks without cost hint.
+   * @param position the position of the task in the job.
+   * @param cost a strictly positive cost, or a value {@code <= 0} if the cost is unknown.
+   */
+  public void setCostHint(final int position, final double cost) {
+    final int idx = indexOf(position);
+    if (idx < 0) return;
+    final double newHint = Math.max(0d, cost);
+    final double oldHint = (costHints == null) ? 0d : costHints[idx];
+    if (newHint == oldHint) return;
+    if (costHints == null) {
+      costHints = new double[size];
+      // the tasks without cost hint are no longer all assigned the same cost
+      bottomLevels = null;
+    }
+    costHints[idx] = newHint;
+    if (oldHint > 0d) {
+      hintSum -= oldHint;
+      hintCount--;
+    }
+    if (newHint > 0d) {
+      hintSum += newHint;
+      hintCount++;
+    }
+    if ((nodes != null) && (nodes[idx] != null)) nodes[idx].setCost(newHint);
+    checkCostDrift();
+    if (bottomLevels != null) updateBottomLevels(idx);
+  }
+
+  /**
+   * Get the bottom level of the task at the specified position, that is, the estimated cost of the longest path from the task
+   * to a task that no other task depends on, including the task itself.
+   * @param position the position of the task in the job.
+   * @return the bottom level of the task, or 0 if there is no task at this position.
+   */
+  public double getBottomLevel(final int position) {
+    final int idx = indexOf(position);
+    return (idx < 0) ? 0d : getBottomLevels()[idx];
+  }
+
+  /**
+   * Select the available tasks with the highest bottom levels, that is, the tasks on the longest remaining paths of the graph.
+   * @param dest the array into which the positions of the selected tasks are stored, by decreasing bottom level.
+   * @param max the maximum number of tasks to select.
+   * @param exclude determines which available positions cannot be selected, for instance because they were already dispatched. May be {@code null}.
+   * @return the number of selected tasks.
+   */
+  public int selectCriticalNodes(final int[] dest, final int max, final IntPredicate exclude) {
+    final int k = Math.min(max, dest.length);
+    if ((k <= 0) || (availableCount <= 0)) return 0;
+    final double[] levels = getBottomLevels();
+    // min-heap of the k best nodes found so far, whose root is the lowest ranked
+    final int[] heap = new int[Math.min(k, availableCount)];
+    int heapSize = 0;
+    for (int i=0; i<availableCount; i++) {
+      final int idx = availableNodes[i];
+      if ((exclude != null) && exclude.test(positions[idx])) continue;
+      if (heapSize < heap.length) {
+        int child = heapSize++;
+        while (child > 0) {
+          final int parent = (child - 1) >>> 1;
+          if (!ranksHigher(heap[parent], idx, levels)) break;
+          heap[child] = heap[parent];
+          child = parent;
+        }
+        heap[child] = idx;
+      } else if (ranksHigher(idx, heap[0], levels)) {
+        siftDown(heap, heapSize, idx, levels);
+      }
+    }
+    for (int n=heapSize; n>0; n--) {
+      dest[n - 1] = positions[heap[0]];
+      if (n > 1) siftDown(heap, n - 1, heap[n - 1], levels);
+    }
+    return heapSize;
+  }
+
+  /**
+   * Replace the root of the specified min-heap with the specified node and restore the heap order.
+   * @param heap the heap of node indices.
+   * @param heapSize the number of nodes in the heap.
+   * @param idx the index of the node to insert.
+   * @param levels the bottom levels of the nodes.
+   */
+  private static void siftDown(final int[] heap, final int heapSize, final int idx, final double[] levels) {
+    int parent = 0;
+    while (true) {
+      int child = 2 * parent + 1;
+      if (child >= heapSize) break;
+      if ((child + 1 < heapSize) && ranksHigher(heap[child], heap[child + 1], levels)) child++;
+      if (!ranksHigher(idx, heap[child], levels)) break;
+      heap[parent] = heap[child];
+      parent = child;
+    }
+    heap[parent] = idx;
+  }
+
+  /**
+   * Determine whether a node ranks higher than another for dispatch, that is, whether it has a higher bottom level,
+   * or the same bottom level and a lower position.
+   * @param idx1 the index of the first node.
+   * @param idx2 the index of the second node.
+   * @param levels the bottom levels of the nodes.
+   * @return {@code true} if the first node ranks higher, {@code false} otherwise.
+   */
+  private static boolean ranksHigher(final int idx1, final int idx2, final double[] levels) {
+    return (levels[idx1] > levels[idx2]) || ((levels[idx1] == levels[idx2]) && (idx1 < idx2));
+  }
+
+  /**
+   * @return the bottom levels of the nodes, computed if needed.
+   */
+  private double[] getBottomLevels() {
+    if (bottomLevels == null) computeBottomLevels();
+    return bottomLevels;
+  }
+
+  /**
+   * Compute the bottom levels of all the nodes, processing each node after all its dependants.
+   */
+  private void computeBottomLevels() {
+    final double defaultCost = defaultCost();
+    final double[] levels = new double[size];
+    final int[] pendingDependants = new int[size];
+    final int[] queue = new int[size];
+    int head = 0, tail = 0;
+    for (int idx=0; idx<size; idx++) {
+      pendingDependants[idx] = dependantOffsets[idx + 1] - dependantOffsets[idx];
+      if (pendingDependants[idx] == 0) queue[tail++] = idx;
+    }
+    while (head < tail) {
+      final int idx = queue[head++];
+      // until now, the level held the highest bottom level among the dependants
+      levels[idx] += costOf(idx, defaultCost);
+      for (int i=dependencyOffsets[idx]; i<dependencyOffsets[idx + 1]; i++) {
+        final int dep = dependencyIndices[i];
+        if (levels[idx] > levels[dep]) levels[dep] = levels[idx];
+        if (--pendingDependants[dep] == 0) queue[tail++] = dep;
+      }
+    }
+    bottomLevels = levels;
+    bottomLevelsDefaultCost = defaultCost;
+  }
+
+  /**
+   * Update the bottom level of the specified node after a change of its cost, then propagate the change to its dependencies,
+   * as long as their bottom levels change.
+   * @param start the index of the node whose cost has changed.
+   */
+  private void updateBottomLevels(final int start) {
+    int[] stack = new int[16];
+    int n = 0;
+    stack[n++] = start;
+    while (n > 0) {
+      final int idx = stack[--n];
+      double max = 0d;
+      for (int i=dependantOffsets[idx]; i<dependantOffsets[idx + 1]; i++) max = Math.max(max, bottomLevels[dependantIndices[i]]);
+      final double level = max + costOf(idx, bottomLevelsDefaultCost);
+      if (level == bottomLevels[idx]) continue;
+      bottomLevels[idx] = level;
+      final int nbDeps = dependencyOffsets[idx + 1] - dependencyOffsets[idx];
+      if (n + nbDeps > stack.length) stack = Arrays.copyOf(stack, Math.max(2 * stack.length, n + nbDeps));
+      for (int i=dependencyOffsets[idx]; i<dependencyOffsets[idx + 1]; i++) stack[n++] = dependencyIndices[i];
+    }
+  }
+
+  /**
+   * If the estimated cost of the tasks without cost hint has changed significantly since the last computation of the bottom levels, discard them.
+   */
+  private void checkCostDrift() {
+    if ((bottomLevels == null) || ((costHints != null) && (hintCount >= size))) return;
+    if (Math.abs(defaultCost() - bottomLevelsDefaultCost) > COST_DRIFT_THRESHOLD * bottomLevelsDefaultCost) bottomLevels = null;
+  }
+
+  /**
+   * Compute the estimated cost of the tasks without cost hint.
+   * @return the average measured duration of the executed tasks without cost hint, expressed in cost hint units if the durations of tasks
+   * with a cost hint were also measured, otherwise the average cost hint. If no task has a cost hint, the average measured duration
+   * in nanoseconds of the executed tasks, or 1 if no duration was measured yet.
+   */
+  private double defaultCost() {
+    if (costHints == null) return (unhintedCount > 0) ? unhintedTime / unhintedCount : 1d;
+    if ((unhintedCount > 0) && (hintedUnits > 0d) && (hintedTime > 0d)) return (unhintedTime / unhintedCount) / (hintedTime / hintedUnits);
+    return (hintCount > 0) ? hintSum / hintCount : 1d;
+  }
+
+  /**
+   * Get the estimated cost of the specified node.
+   * @param idx the index of the node.
+   * @param defaultCost the estimated cost of the tasks without cost hint.
+   * @return the cost hint of the node if it has one, otherwise the default cost.
+   */
+  private double costOf(final int idx, final double defaultCost) {
+    final double hint = (costHints == null) ? 0d : costHints[idx];
+    return (hint > 0d) ? hint : defaultCost;
   }
 
   /**
    * @return whether all task in the job graph are odne.
    */
   public boolean isDone() {
-    return doneCount >= nodesMap.size();
+    return doneCount >= size;
   }
 
   /**
@@ -161,7 +630,8 @@ public class TaskGraph implements Serializable {
    * @return {@code true} if the task has other tasks that depend on it, {@code false} otherwise.
    */
   public boolean isDependendOn(final int position) {
-    return dependantsMap.getValues(position) != null;
+    final int idx = indexOf(position);
+    return (idx >= 0) && (dependantOffsets[idx + 1] > dependantOffsets[idx]);
   }
 
   /**
@@ -169,23 +639,19 @@ public class TaskGraph implements Serializable {
    * @see <a href="https://en.wikipedia.org/wiki/Topological_sorting">topological sorting</a> on Wikipedia.
    */
   public List<Integer> topologicalSortDFS() {
-    final LinkedList<Integer> result = new LinkedList<>();
-    final Map<Integer, Node> p = new HashMap<>(notDoneMap);
-    while (!p.isEmpty()) {
-      startVisitNotDone(new TaskNodeVisitor() {
-        @Override
-        public TaskNodeVisitResult visitTaskNode(final Node node) {
-          if (node.isDone()) return TaskNodeVisitResult.SKIP;
-          return TaskNodeVisitResult.CONTINUE;
-        }
-  
-        @Override
-        public void postVisitNode(final Node node) {
-          p.remove(node.getPosition());
-          result.addLast(node.getPosition());
-        }
-      });
-    }
+    final List<Integer> result = new ArrayList<>(size - doneCount);
+    startVisitNotDone(new TaskNodeVisitor() {
+      @Override
+      public TaskNodeVisitResult visitTaskNode(final Node node) {
+        if (node.isDone()) return TaskNodeVisitResult.SKIP;
+        return TaskNodeVisitResult.CONTINUE;
+      }
+
+      @Override
+      public void postVisitNode(final Node node) {
+        result.add(node.getPosition());
+      }
+    });
     return result;
   }
 
@@ -194,7 +660,7 @@ public class TaskGraph implements Serializable {
    * @param visitor the visitor function to use.
    */
   public void startVisit(final TaskNodeVisitor visitor) {
-    startVisit(visitor, nodesMap, true);
+    startVisit(visitor, true);
   }
 
   /**
@@ -202,42 +668,42 @@ public class TaskGraph implements Serializable {
    * @param visitor the visitor function to use.
    */
   public void startVisitNotDone(final TaskNodeVisitor visitor) {
-    startVisit(visitor, notDoneMap, false);
+    startVisit(visitor, false);
   }
 
   /**
    * Start the visit of the graph.
    * @param visitor the visitor function to use.
-   * @param map the nodes to visit.
    * @param visitDoneNodes whether to visit the nodes that are done.
    */
-  private void startVisit(final TaskNodeVisitor visitor, final Map<Integer, Node> map, final boolean visitDoneNodes) {
-    final Set<Integer> visitedPositions = new HashSet<>();
-    for (final Map.Entry<Integer, Node> entry: map.entrySet()) {
-      final Node taskNode = entry.getValue();
-      if (taskNode.isDone() && !visitDoneNodes) continue; 
-      if (Visit(taskNode, visitor, visitDoneNodes, visitedPositions) == TaskNodeVisitResult.STOP) break;
+  private void startVisit(final TaskNodeVisitor visitor, final boolean visitDoneNodes) {
+    final BitSet visited = new BitSet(size);
+    for (int idx=0; idx<size; idx++) {
+      if (!visitDoneNodes && doneNodes.get(idx)) continue;
+      if (visit(idx, visitor, visitDoneNodes, visited) == TaskNodeVisitResult.STOP) break;
     }
   }
 
   /**
    * Visit the specified task node.
-   * @param taskNode the node to visit.
+   * @param idx the index of the node to visit.
    * @param visitor the visitor function to use.
    * @param visitDoneNodes whether to visit the nodes that are done.
-   * @param visitedPositions the set of already visited positions.
+   * @param visited the indices of the already visited nodes.
    * @return the result of the node's visit as a {@link TaskNodeVisitResult} enum element.
    */
-  private TaskNodeVisitResult Visit(final Node taskNode, final TaskNodeVisitor visitor, final boolean visitDoneNodes, final Set<Integer> visitedPositions) {
-    if (visitedPositions.contains(taskNode.getPosition())) return TaskNodeVisitResult.CONTINUE;
+  private TaskNodeVisitResult visit(final int idx, final TaskNodeVisitor visitor, final boolean visitDoneNodes, final BitSet visited) {
+    if (visited.get(idx)) return TaskNodeVisitResult.CONTINUE;
+    final Node taskNode = nodeAtIndex(idx);
     visitor.preVisitNode(taskNode);
-    visitedPositions.add(taskNode.getPosition());
+    visited.set(idx);
     final TaskNodeVisitResult result = visitor.visitTaskNode(taskNode);
     if (result == TaskNodeVisitResult.STOP) return result;
     else if (result == TaskNodeVisitResult.SKIP) return TaskNodeVisitResult.CONTINUE;
-    for (final Node child: taskNode.getDependencies()) {
-      if (child.isDone() && !visitDoneNodes) continue; 
-      if (Visit(child, visitor, visitDoneNodes, visitedPositions) == TaskNodeVisitResult.STOP) return TaskNodeVisitResult.STOP;
+    for (int i=dependencyOffsets[idx]; i<dependencyOffsets[idx + 1]; i++) {
+      final int dep = dependencyIndices[i];
+      if (!visitDoneNodes && doneNodes.get(dep)) continue;
+      if (visit(dep, visitor, visitDoneNodes, visited) == TaskNodeVisitResult.STOP) return TaskNodeVisitResult.STOP;
     }
     visitor.postVisitNode(taskNode);
     return result;
@@ -264,19 +730,34 @@ public class TaskGraph implements Serializable {
 
   /**
    * Save the state of this object to a stream (i.e.,serialize it).
+   * The serialized form is made of the number of nodes, the deltas between the sorted positions, the done nodes as a bit set,
+   * then for each node the number of its dependencies followed by their indices relative to the node's index, all integers being written as var ints.
+   * It ends with a flag indicating whether cost hints follow, one 8-bytes double per node.
    * @param out the output stream to which to write this object. 
    * @throws IOException if any I/O error occurs.
    */
   public void serialize(final OutputStream out) throws IOException {
     final byte[] buf = new byte[8];
-    SerializationUtils.writeVarInt(out, nodesMap.size(), buf);
-    for (final Map.Entry<Integer, Node> entry: nodesMap.entrySet()) {
-      final Node node = entry.getValue();
-      SerializationUtils.writeVarInt(out, node.getPosition(), buf);
-      out.write(node.isDone() ? 1 : 0);
-      final List<Node> deps = node.getDependencies();
-      SerializationUtils.writeVarInt(out, deps.size(), buf);
-      for (final Node dep: deps) SerializationUtils.writeVarInt(out, dep.getPosition(), buf);
+    SerializationUtils.writeVarInt(out, size, buf);
+    int previous = 0;
+    for (int i=0; i<size; i++) {
+      SerializationUtils.writeVarInt(out, positions[i] - previous, buf);
+      previous = positions[i];
+    }
+    final byte[] done = doneNodes.toByteArray();
+    SerializationUtils.writeVarInt(out, done.length, buf);
+    out.write(done);
+    for (int idx=0; idx<size; idx++) {
+      final int start = dependencyOffsets[idx], end = dependencyOffsets[idx + 1];
+      SerializationUtils.writeVarInt(out, end - start, buf);
+      for (int i=start; i<end; i++) SerializationUtils.writeVarInt(out, dependencyIndices[i] - idx, buf);
+    }
+    out.write((costHints == null) ? 0 : 1);
+    if (costHints != null) {
+      for (final double hint: costHints) {
+        SerializationUtils.writeLong(Double.doubleToLongBits(hint), buf, 0);
+        out.write(buf, 0, 8);
+      }
     }
   }
 
@@ -288,42 +769,51 @@ public class TaskGraph implements Serializable {
    */
   public void deserialize(final InputStream in) throws IOException, ClassNotFoundException {
     final byte[] buf = new byte[8];
-    final int nbNodes = SerializationUtils.readVarInt(in, buf);
-    nodesMap = new HashMap<>(nbNodes);
-    final CollectionMap<Integer, Integer> dependenciesMap = new ArrayListHashMap<>();
-    for (int i=0; i<nbNodes; i++) {
-      final int pos = SerializationUtils.readVarInt(in, buf);
-      final boolean done = in.read() != 0;
-      final Node node = new Node(pos, done, null);
-      nodesMap.put(pos, node);
+    size = SerializationUtils.readVarInt(in, buf);
+    positions = new int[size];
+    int previous = 0;
+    for (int i=0; i<size; i++) positions[i] = previous += SerializationUtils.readVarInt(in, buf);
+    final byte[] done = new byte[SerializationUtils.readVarInt(in, buf)];
+    SerializationUtils.readToBuf(in, done, 0, done.length);
+    doneNodes = BitSet.valueOf(done);
+    dependencyOffsets = new int[size + 1];
+    int[] indices = new int[size];
+    int count = 0;
+    for (int idx=0; idx<size; idx++) {
+      dependencyOffsets[idx] = count;
       final int nbDeps = SerializationUtils.readVarInt(in, buf);
-      if (nbDeps > 0) {
-        final List<Integer> deps = new ArrayList<>(nbDeps);
-        for (int j=0; j<nbDeps; j++) deps.add(SerializationUtils.readVarInt(in, buf));
-        dependenciesMap.addValues(pos, deps);
-      }
+      if (count + nbDeps > indices.length) indices = Arrays.copyOf(indices, Math.max(2 * indices.length, count + nbDeps));
+      for (int i=0; i<nbDeps; i++) indices[count++] = idx + SerializationUtils.readVarInt(in, buf);
     }
-    for (Map.Entry<Integer, Collection<Integer>> entry: dependenciesMap.entrySet()) {
-      final Collection<Integer> depsPositions = entry.getValue();
-      final List<Node> deps = new ArrayList<>(depsPositions.size());
-      for (final int p: depsPositions) deps.add(nodesMap.get(p));
-      nodesMap.get(entry.getKey()).getDependencies().addAll(deps);
+    dependencyOffsets[size] = count;
+    dependencyIndices = (count == indices.length) ? indices : Arrays.copyOf(indices, count);
+    costHints = null;
+    if (in.read() != 0) {
+      costHints = new double[size];
+      for (int i=0; i<size; i++) {
+        SerializationUtils.readToBuf(in, buf, 0, 8);
+        costHints[i] = Double.longBitsToDouble(SerializationUtils.readLong(buf, 0));
+      }
     }
-    dependenciesMap.clear();
-    if (remainingDependenciesMap == null) remainingDependenciesMap = new ArrayListHashMap<>();
-    if (dependantsMap == null) dependantsMap = new ArrayListHashMap<>();
-    if (availableNodes == null) availableNodes = new HashSet<>();
-    buildGraph(nodesMap);
+    nodes = null;
+    availableView = null;
+    buildIndex();
+    initState();
   }
 
   @Override
   public String toString() {
+    int withDependant = 0, withDependencies = 0;
+    for (int idx=0; idx<size; idx++) {
+      if (dependantOffsets[idx + 1] > dependantOffsets[idx]) withDependant++;
+      if (remainingDependencies[idx] > 0) withDependencies++;
+    }
     return new StringBuilder(getClass().getSimpleName()).append('[')
-      .append("nodes=").append(nodesMap.size())
+      .append("nodes=").append(size)
       .append(", doneCount=").append(doneCount)
-      .append(", nodesWithDependant=").append(dependantsMap.keySet().size())
-      .append(", nodesWithDependencies=").append(remainingDependenciesMap.keySet().size())
-      .append(", availableNodes=").append(availableNodes.size())
+      .append(", nodesWithDependant=").append(withDependant)
+      .append(", nodesWithDependencies=").append(withDependencies)
+      .append(", availableNodes=").append(availableCount)
       .append(']').toString();
   }
 
@@ -334,6 +824,44 @@ public class TaskGraph implements Serializable {
     return doneCount;
   }
 
+  /**
+   * A read-only view of the positions of the available nodes.
+   */
+  private class AvailableNodesView extends AbstractSet<Integer> {
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+        /**
+         * The slot of the next available node.
+         */
+        private int cursor;
+
+        @Override
+        public boolean hasNext() {
+          return cursor < availableCount;
+        }
+
+        @Override
+        public Integer next() {
+          if (cursor >= availableCount) throw new NoSuchElementException();
+          return positions[availableNodes[cursor++]];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return availableCount;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      if (!(o instanceof Integer)) return false;
+      final int idx = indexOf((Integer) o);
+      return (idx >= 0) && (availableSlots[idx] >= 0);
+    }
+  }
+
   /**
    * A node in the graph of the tasks in a job which represents a task and its dependants.
    * @exclude
@@ -351,6 +879,18 @@ public class TaskGraph implements Serializable {
      * Whether this task is done, that is, either completed or cancelled.
      */
     private boolean done;
+    /**
+     * The cost hint of this task, or 0 if it has none.
+     */
+    private double cost;
+    /**
+     * The graph from which the dependencies of this node are still to be resolved, or {@code null} if they already are.
+     */
+    private TaskGraph graph;
+    /**
+     * The index of this node in {@link #graph}.
+     */
+    private int index;
 
     /**
      * Initialize this node with the specified task.
@@ -364,18 +904,36 @@ public class TaskGraph implements Serializable {
       if (dependencies != null) this.dependencies.addAll(dependencies);
     }
 
+    /**
+     * Initialize this node from its representation in the specified graph. Its dependencies are resolved on first access.
+     * @param graph the graph which holds the node.
+     * @param index the index of the node in the graph.
+     */
+    private Node(final TaskGraph graph, final int index) {
+      this.position = graph.positions[index];
+      this.done = graph.doneNodes.get(index);
+      this.cost = (graph.costHints == null) ? 0d : graph.costHints[index];
+      this.graph = graph;
+      this.index = index;
+    }
+
     /**
      * Add the specified dependency.
      * @param dependency the dependency to add.
      */
     public void addDependency(final Node dependency) {
-      dependencies.add(dependency);
+      getDependencies().add(dependency);
     }
 
     /**
      * @return the tasks that depend on this task, if any.
      */
     public List<Node> getDependencies() {
+      if (graph != null) {
+        final TaskGraph g = graph;
+        graph = null;
+        for (int i=g.dependencyOffsets[index]; i<g.dependencyOffsets[index + 1]; i++) dependencies.add(g.nodeAtIndex(g.dependencyIndices[i]));
+      }
       return dependencies;
     }
 
@@ -399,12 +957,27 @@ public class TaskGraph implements Serializable {
       this.done = done;
     }
 
+    /**
+     * @return the cost hint of this task, or a value {@code <= 0} if it has none.
+     */
+    public double getCost() {
+      return cost;
+    }
+
+    /**
+     * Set the cost hint of this task. This has no effect on a graph this node is already part of.
+     * @param cost a strictly positive cost, or a value {@code <= 0} if the cost is unknown.
+     */
+    public void setCost(final double cost) {
+      this.cost = cost;
+    }
+
     @Override
     public String toString() {
       return new StringBuilder(getClass().getSimpleName()).append('[')
         .append("position=").append(position)
         .append(", done=").append(done)
-        .append(", dependencies=").append(dependencies.size())
+        .append(", dependencies=").append(getDependencies().size())
         .append(']').toString();
     }
 
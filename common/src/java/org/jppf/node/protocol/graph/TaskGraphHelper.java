@@ -53,6 +53,7 @@ public class TaskGraphHelper {
       nodesMap.put(pos, node);
       if (task instanceof TaskNode) {
         final TaskNode<?> taskNode = (TaskNode<?>) task;
+        node.setCost(taskNode.getCostHint());
         if (taskNode.hasDependency()) {
           for (final TaskNode<?> dep: taskNode.getDependencies()) {
             final TaskGraph.Node depNode = addNode(nodesMap, dep);
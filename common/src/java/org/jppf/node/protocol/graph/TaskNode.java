@@ -66,6 +66,15 @@ public interface TaskNode<T> extends Task<T> {
    */
   Collection<TaskNode<?>> getDependants();
 
+  /**
+   * Get an estimate of the cost of executing this task, relative to the other tasks in the same job.
+   * When the driver schedules the tasks along the critical path of the graph, this estimate is used to compute the length of the paths.
+   * @return a strictly positive cost, or a value {@code <= 0} if the cost is unknown, in which case it is estimated from the measured durations of the executed tasks.
+   */
+  default double getCostHint() {
+    return 0d;
+  }
+
   /**
    * Determine whether this tasks has at least one dependency.
    * @return {@code true} if there is at least one dependency, {@code false} otherwise.
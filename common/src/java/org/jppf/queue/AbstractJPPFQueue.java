@@ -19,6 +19,7 @@
 package org.jppf.queue;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.*;
 
@@ -56,11 +57,32 @@ public abstract class AbstractJPPFQueue<T, U, V> implements JPPFQueue<T, U, V> {
   /**
    * A map of task bundles, ordered by descending priority.
    */
-  protected final LinkedListSortedMap<Integer, T> priorityMap = new LinkedListSortedMap<>(PRIORITY_COMPARATOR);
+  protected final LinkedListSortedMap<Integer, T> priorityMap;
   /**
    * Contains the ids of all queued jobs.
    */
-  protected final Map<String, T> jobMap = new HashMap<>();
+  protected final Map<String, T> jobMap;
+  /**
+   * Whether the priority map and job map can be accessed without holding the queue lock.
+   */
+  protected final boolean concurrent;
+
+  /**
+   * Initialize this queue with data structures that require the queue lock for all accesses.
+   */
+  protected AbstractJPPFQueue() {
+    this(false);
+  }
+
+  /**
+   * Initialize this queue.
+   * @param concurrent if {@code true}, the priority map and job map can be read and updated concurrently without holding the queue lock.
+   */
+  protected AbstractJPPFQueue(final boolean concurrent) {
+    this.concurrent = concurrent;
+    priorityMap = concurrent ? new ConcurrentLinkedDequeSortedMap<>(PRIORITY_COMPARATOR) : new LinkedListSortedMap<>(PRIORITY_COMPARATOR);
+    jobMap = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+  }
 
   /**
    * Add a listener to the list of listeners.
@@ -127,7 +149,9 @@ public abstract class AbstractJPPFQueue<T, U, V> implements JPPFQueue<T, U, V> {
    * Update the value of the max bundle size.
    */
   public void updateLatestMaxSize() {
-    if (!sizeMap.isEmpty()) latestMaxSize.set(sizeMap.lastKey());
+    synchronized(sizeMap) {
+      if (!sizeMap.isEmpty()) latestMaxSize.set(sizeMap.lastKey());
+    }
   }
 
   @Override
@@ -137,6 +161,7 @@ public abstract class AbstractJPPFQueue<T, U, V> implements JPPFQueue<T, U, V> {
 
   @Override
   public boolean isEmpty() {
+    if (concurrent) return priorityMap.isEmpty();
     lock.lock();
     try {
       return priorityMap.isEmpty();
@@ -153,6 +178,7 @@ public abstract class AbstractJPPFQueue<T, U, V> implements JPPFQueue<T, U, V> {
    * @since 4.1
    */
   public int getQueueSize() {
+    if (concurrent) return priorityMap.size();
     lock.lock();
     try {
       return priorityMap.size();
@@ -0,0 +1,182 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.serialization;
+
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * Selects the codec used to compress an object, either from a fixed configured codec or based on the measured performance of each codec.
+ * <p>In adaptive mode, the compression ratio and the compression time per byte of each codec are maintained as exponential moving averages.
+ * The selected codec is the one which minimizes the estimated cost of sending one byte of serialized data, that is the compression time
+ * plus the transfer time of the compressed data over a link of the configured bandwidth. The codecs that are not selected are measured again
+ * at regular intervals, so that a change in the nature of the data is eventually detected.
+ * @author Laurent Cohen
+ * @exclude
+ */
+class AdaptiveCodecSelector {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(AdaptiveCodecSelector.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Weight of a new measurement in the moving averages.
+   */
+  private static final double ALPHA = 0.2d;
+  /**
+   * The configured codec, or {@code null} in adaptive mode.
+   */
+  private final CompressionCodec fixedCodec;
+  /**
+   * The estimated transfer time of one byte, in nanoseconds.
+   */
+  private final double nanosPerTransferredByte;
+  /**
+   * Interval at which the codecs that are not selected are measured again.
+   */
+  private final int probeInterval;
+  /**
+   * Moving average of the compressed size / uncompressed size ratio, indexed by codec ordinal.
+   */
+  private final double[] ratios = new double[CompressionCodec.values().length];
+  /**
+   * Moving average of the compression time per uncompressed byte, indexed by codec ordinal.
+   */
+  private final double[] nanosPerByte = new double[ratios.length];
+  /**
+   * Number of measurements, indexed by codec ordinal.
+   */
+  private final long[] samples = new long[ratios.length];
+  /**
+   * Number of selections made so far.
+   */
+  private long selections;
+  /**
+   * The codec selected in the last selection which was not a probe.
+   */
+  private CompressionCodec current;
+
+  /**
+   * Initialize this selector from the specified configuration.
+   * @param config the configuration to use.
+   */
+  AdaptiveCodecSelector(final TypedProperties config) {
+    final String name = config.get(JPPFProperties.COMPRESSION_CODEC);
+    CompressionCodec codec = null;
+    if ((name != null) && !"adaptive".equalsIgnoreCase(name.trim())) {
+      try {
+        codec = CompressionCodec.valueOf(name.trim().toUpperCase());
+      } catch (@SuppressWarnings("unused") final IllegalArgumentException e) {
+        log.warn("invalid value '{}' for property '{}', using adaptive compression instead", name, JPPFProperties.COMPRESSION_CODEC.getName());
+      }
+    }
+    fixedCodec = codec;
+    // MB/s -> bytes/ns
+    nanosPerTransferredByte = 1e3d / config.get(JPPFProperties.COMPRESSION_ADAPTIVE_BANDWIDTH);
+    probeInterval = config.get(JPPFProperties.COMPRESSION_ADAPTIVE_PROBE_INTERVAL);
+    ratios[CompressionCodec.NONE.ordinal()] = 1d;
+    samples[CompressionCodec.NONE.ordinal()] = 1L;
+    current = CompressionCodec.NONE;
+  }
+
+  /**
+   * Select the codec for the next object to compress.
+   * @return the selected codec.
+   */
+  synchronized CompressionCodec select() {
+    if (fixedCodec != null) return fixedCodec;
+    final CompressionCodec[] codecs = CompressionCodec.values();
+    for (final CompressionCodec codec: codecs) {
+      if (samples[codec.ordinal()] == 0L) return codec;
+    }
+    selections++;
+    if ((selections % probeInterval) == 0L) {
+      // measure the other codecs in turn
+      final int n = (int) ((selections / probeInterval) % (codecs.length - 1));
+      final CompressionCodec probe = codecs[n < current.ordinal() ? n : n + 1];
+      if (probe != CompressionCodec.NONE) return probe;
+    }
+    CompressionCodec best = CompressionCodec.NONE;
+    double bestCost = cost(best);
+    for (final CompressionCodec codec: codecs) {
+      final double cost = cost(codec);
+      if (cost < bestCost) {
+        best = codec;
+        bestCost = cost;
+      }
+    }
+    if ((best != current) && debugEnabled) log.debug("switching compression codec from {} to {}, {}", current, best, this);
+    current = best;
+    return best;
+  }
+
+  /**
+   * Record a measurement for the specified codec.
+   * @param codec the codec used to compress.
+   * @param rawLength the uncompressed length.
+   * @param compressedLength the compressed length.
+   * @param nanos the compression time in nanoseconds.
+   */
+  synchronized void record(final CompressionCodec codec, final int rawLength, final int compressedLength, final long nanos) {
+    if ((fixedCodec != null) || (codec == CompressionCodec.NONE) || (rawLength <= 0)) return;
+    final int i = codec.ordinal();
+    final double ratio = (double) compressedLength / rawLength, perByte = (double) nanos / rawLength;
+    if (samples[i] == 0L) {
+      ratios[i] = ratio;
+      nanosPerByte[i] = perByte;
+    } else {
+      ratios[i] += ALPHA * (ratio - ratios[i]);
+      nanosPerByte[i] += ALPHA * (perByte - nanosPerByte[i]);
+    }
+    samples[i]++;
+  }
+
+  /**
+   * Compute the estimated cost of sending one byte of serialized data with the specified codec.
+   * @param codec the codec to evaluate.
+   * @return the estimated cost in nanoseconds.
+   */
+  private double cost(final CompressionCodec codec) {
+    final int i = codec.ordinal();
+    return nanosPerByte[i] + ratios[i] * nanosPerTransferredByte;
+  }
+
+  /**
+   * @return the codec currently selected, excluding the probes.
+   */
+  synchronized CompressionCodec getCurrent() {
+    return (fixedCodec != null) ? fixedCodec : current;
+  }
+
+  @Override
+  public synchronized String toString() {
+    final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('[');
+    sb.append("fixedCodec=").append(fixedCodec);
+    for (final CompressionCodec codec: CompressionCodec.values()) {
+      final int i = codec.ordinal();
+      sb.append(String.format(", %s={ratio=%.3f, ns/byte=%.3f, samples=%d}", codec, ratios[i], nanosPerByte[i], samples[i]));
+    }
+    return sb.append(']').toString();
+  }
+}
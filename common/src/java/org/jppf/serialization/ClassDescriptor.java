@@ -84,6 +84,10 @@ class ClassDescriptor {
    * 
    */
   boolean populated;
+  /**
+   * The descriptors of this class and its superclasses, starting from the topmost superclass. Lazily computed.
+   */
+  private ClassDescriptor[] hierarchy;
 
   /**
    * Initialize an empty class descriptor.
@@ -138,6 +142,21 @@ class ClassDescriptor {
     return found;
   }
 
+  /**
+   * Get the descriptors of this class and its superclasses, in the order in which their fields are serialized.
+   * @return an array of class descriptors, starting from the topmost superclass and ending with this descriptor.
+   */
+  ClassDescriptor[] getHierarchy() {
+    if (hierarchy == null) {
+      int n = 0;
+      for (ClassDescriptor desc = this; desc != null; desc = desc.superClass) n++;
+      final ClassDescriptor[] result = new ClassDescriptor[n];
+      for (ClassDescriptor desc = this; desc != null; desc = desc.superClass) result[--n] = desc;
+      hierarchy = result;
+    }
+    return hierarchy;
+  }
+
   /**
    * Write this class descriptor to an object output stream.
    * @param serializer the stream to write to.
@@ -0,0 +1,151 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.serialization;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * A dictionary of class signatures shared by all the peers of a grid, which allows the serializer to write a compact id
+ * instead of the full signature of the classes it knows about. The signatures of the classes that are not in the dictionary
+ * are written only once per stream, then referenced by their id within the same stream.
+ * <p>The dictionary is made of a fixed list of built-in classes, followed by the classes listed in the
+ * {@code jppf.serialization.dictionary.classes} configuration property, which must be the same on all the peers.
+ * A checksum of the dictionary is written in the header of each stream, so that a peer with a different dictionary fails fast.
+ * @author Laurent Cohen
+ * @exclude
+ */
+final class ClassSignatureDictionary {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(ClassSignatureDictionary.class);
+  /**
+   * Signatures of the built-in classes. New entries can only be appended, since the position of a signature is its id.
+   */
+  private static final String[] BUILTIN_SIGNATURES = {
+    "Ljava.lang.Byte", "Ljava.lang.Short", "Ljava.lang.Integer", "Ljava.lang.Long", "Ljava.lang.Float", "Ljava.lang.Double",
+    "Ljava.lang.Character", "Ljava.lang.Boolean", "Ljava.lang.Object", "Ljava.lang.String", "Ljava.lang.Class",
+    "[B", "[S", "[I", "[J", "[F", "[D", "[C", "[Z", "[Ljava.lang.Object", "[Ljava.lang.String",
+    "Ljava.math.BigInteger", "Ljava.math.BigDecimal", "Ljava.util.Date", "Ljava.util.UUID",
+    "Ljava.util.ArrayList", "Ljava.util.LinkedList", "Ljava.util.Vector", "Ljava.util.HashMap", "Ljava.util.LinkedHashMap",
+    "Ljava.util.TreeMap", "Ljava.util.Hashtable", "Ljava.util.Properties", "Ljava.util.HashSet", "Ljava.util.LinkedHashSet",
+    "Ljava.util.TreeSet", "Ljava.util.concurrent.ConcurrentHashMap", "Ljava.util.concurrent.CopyOnWriteArrayList",
+    "Ljava.util.concurrent.atomic.AtomicInteger", "Ljava.util.concurrent.atomic.AtomicLong", "Ljava.util.concurrent.atomic.AtomicBoolean",
+    "Lorg.jppf.node.protocol.AbstractTask", "Lorg.jppf.node.protocol.JPPFTaskBundle", "Lorg.jppf.node.protocol.JPPFJobMetadata",
+    "Lorg.jppf.node.protocol.JobSLA", "Lorg.jppf.node.protocol.JobClientSLA", "Lorg.jppf.node.protocol.BundleParameter",
+    "Lorg.jppf.node.protocol.JPPFExceptionResult", "Lorg.jppf.utils.TypedProperties",
+  };
+  /**
+   * The dictionary built from the JPPF configuration.
+   */
+  private static final ClassSignatureDictionary INSTANCE = new ClassSignatureDictionary(JPPFConfiguration.get(JPPFProperties.SERIALIZATION_DICTIONARY_CLASSES));
+  /**
+   * The signatures in the dictionary, in id order.
+   */
+  private final String[] signatures;
+  /**
+   * Mapping of the signatures to their id.
+   */
+  private final Map<String, Integer> ids;
+  /**
+   * A checksum of all the signatures, in id order.
+   */
+  private final int checksum;
+
+  /**
+   * Initialize this dictionary with the built-in classes followed by the specified classes.
+   * @param classNames the fully qualified names of the additional classes, may be {@code null}.
+   */
+  ClassSignatureDictionary(final String[] classNames) {
+    final List<String> list = new ArrayList<>(Arrays.asList(BUILTIN_SIGNATURES));
+    if (classNames != null) {
+      for (final String name: classNames) {
+        final String sig = toSignature(name.trim());
+        if ((sig != null) && !list.contains(sig)) list.add(sig);
+      }
+    }
+    signatures = list.toArray(new String[list.size()]);
+    ids = new HashMap<>(2 * signatures.length);
+    final CRC32 crc = new CRC32();
+    for (int i=0; i<signatures.length; i++) {
+      ids.put(signatures[i], i);
+      crc.update(signatures[i].getBytes(StandardCharsets.UTF_8));
+      crc.update('\n');
+    }
+    checksum = (int) crc.getValue();
+    if (log.isDebugEnabled()) log.debug("class signature dictionary has {} entries, checksum = {}", signatures.length, Integer.toHexString(checksum));
+  }
+
+  /**
+   * @return the dictionary built from the JPPF configuration.
+   */
+  static ClassSignatureDictionary getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get the id of the specified signature.
+   * @param signature the signature to lookup.
+   * @return the id of the signature, or {@code null} if it is not in this dictionary.
+   */
+  Integer getId(final String signature) {
+    return ids.get(signature);
+  }
+
+  /**
+   * Get the signature with the specified id.
+   * @param id the id to lookup.
+   * @return the corresponding signature.
+   */
+  String getSignature(final int id) {
+    return signatures[id];
+  }
+
+  /**
+   * @return the number of signatures in this dictionary.
+   */
+  int size() {
+    return signatures.length;
+  }
+
+  /**
+   * @return a checksum of all the signatures in this dictionary.
+   */
+  int getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * Compute the signature of a class from its name, without loading it.
+   * @param name the name of the class, as returned by {@link Class#getName()}.
+   * @return the signature of the class, or {@code null} if the name is empty.
+   */
+  static String toSignature(final String name) {
+    if ((name == null) || name.isEmpty()) return null;
+    if (name.charAt(0) != '[') return "L" + name;
+    // array class names are in the form "[[Lsome.Type;" or "[I"
+    return name.endsWith(";") ? name.substring(0, name.length() - 1) : name;
+  }
+}
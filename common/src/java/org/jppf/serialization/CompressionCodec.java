@@ -0,0 +1,248 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.serialization;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.*;
+
+import org.jppf.utils.pooling.*;
+import org.jppf.utils.stats.JPPFStatisticsHelper;
+
+import net.jpountz.lz4.*;
+
+/**
+ * The codecs available to the {@link CompressionSerialization} composite serialization.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public enum CompressionCodec {
+  /**
+   * No compression, the data is copied as is. {@link CompressionSerialization} does not use these methods and writes the uncompressed data directly.
+   */
+  NONE(JPPFStatisticsHelper.COMPRESSION_NONE) {
+    @Override
+    int compress(final byte[] src, final int len, final Context context) {
+      System.arraycopy(src, 0, context.ensureCapacity(len), 0, len);
+      return len;
+    }
+
+    @Override
+    void decompress(final byte[] src, final int srcLen, final byte[] dest, final Context context) throws IOException {
+      if (srcLen != dest.length) throw new IOException(String.format("corrupted uncompressed data: %d bytes instead of %d", srcLen, dest.length));
+      System.arraycopy(src, 0, dest, 0, srcLen);
+    }
+  },
+  /**
+   * LZ4 compression, fast with a moderate compression ratio.
+   */
+  LZ4(JPPFStatisticsHelper.COMPRESSION_LZ4) {
+    @Override
+    int compress(final byte[] src, final int len, final Context context) {
+      final byte[] buf = context.ensureCapacity(LZ4_COMPRESSOR.maxCompressedLength(len));
+      return LZ4_COMPRESSOR.compress(src, 0, len, buf, 0, buf.length);
+    }
+
+    @Override
+    void decompress(final byte[] src, final int srcLen, final byte[] dest, final Context context) throws IOException {
+      final int n = LZ4_DECOMPRESSOR.decompress(src, 0, dest, 0, dest.length);
+      if (n != srcLen) throw new IOException(String.format("corrupted LZ4 data: read %d bytes out of %d", n, srcLen));
+    }
+  },
+  /**
+   * ZLIB compression, slower than LZ4 with a better compression ratio.
+   */
+  ZLIB(JPPFStatisticsHelper.COMPRESSION_ZLIB) {
+    @Override
+    int compress(final byte[] src, final int len, final Context context) {
+      final Deflater deflater = context.getDeflater();
+      deflater.setInput(src, 0, len);
+      deflater.finish();
+      byte[] buf = context.ensureCapacity(len + (len >> 8) + 64);
+      int n = 0;
+      while (!deflater.finished()) {
+        if (n == buf.length) buf = context.ensureCapacity(2 * buf.length);
+        n += deflater.deflate(buf, n, buf.length - n);
+      }
+      return n;
+    }
+
+    @Override
+    void decompress(final byte[] src, final int srcLen, final byte[] dest, final Context context) throws Exception {
+      final Inflater inflater = context.getInflater();
+      inflater.setInput(src, 0, srcLen);
+      int n = 0;
+      while (n < dest.length) {
+        final int count = inflater.inflate(dest, n, dest.length - n);
+        if ((count == 0) && (inflater.needsInput() || inflater.needsDictionary()))
+          throw new IOException(String.format("corrupted ZLIB data: inflated %d bytes out of %d", n, dest.length));
+        n += count;
+      }
+    }
+  };
+
+  /**
+   * The LZ4 compressor, which is thread-safe.
+   */
+  private static final LZ4Compressor LZ4_COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+  /**
+   * The LZ4 decompressor, which is thread-safe.
+   */
+  private static final LZ4FastDecompressor LZ4_DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+  /**
+   * The codecs, indexed by their ordinal, which is also their identifier in the serialized data.
+   */
+  private static final CompressionCodec[] VALUES = values();
+  /**
+   * Pool of the codec resources, shared by all the codecs.
+   */
+  private static final ObjectPool<Context> POOL = new AbstractObjectPoolQueue<Context>() {
+    @Override
+    protected Context create() {
+      return new Context();
+    }
+  };
+  /**
+   * The label of the statistics snapshot which counts the objects serialized with this codec.
+   */
+  private final String statisticsLabel;
+
+  /**
+   * Initialize this codec.
+   * @param statisticsLabel the label of the statistics snapshot which counts the objects serialized with this codec.
+   */
+  private CompressionCodec(final String statisticsLabel) {
+    this.statisticsLabel = statisticsLabel;
+  }
+
+  /**
+   * @return the label of the statistics snapshot which counts the objects serialized with this codec.
+   */
+  public String getStatisticsLabel() {
+    return statisticsLabel;
+  }
+
+  /**
+   * Compress the specified data into the buffer of the specified context.
+   * @param src the data to compress.
+   * @param len the length of the data to compress.
+   * @param context holds the codec resources.
+   * @return the length of the compressed data, available in {@link Context#buffer}.
+   * @throws Exception if any error occurs.
+   */
+  abstract int compress(byte[] src, int len, Context context) throws Exception;
+
+  /**
+   * Decompress the specified data.
+   * @param src the data to decompress.
+   * @param srcLen the length of the compressed data.
+   * @param dest the array to decompress into, whose length is the uncompressed length.
+   * @param context holds the codec resources.
+   * @throws Exception if any error occurs.
+   */
+  abstract void decompress(byte[] src, int srcLen, byte[] dest, Context context) throws Exception;
+
+  /**
+   * Get the codec with the specified identifier.
+   * @param id the identifier of the codec.
+   * @return a {@link CompressionCodec}.
+   * @throws IOException if the identifier is unknown.
+   */
+  static CompressionCodec fromId(final int id) throws IOException {
+    if ((id < 0) || (id >= VALUES.length)) throw new IOException("unknown compression codec id " + id);
+    return VALUES[id];
+  }
+
+  /**
+   * @return a context from the pool.
+   */
+  static Context getContext() {
+    return POOL.get();
+  }
+
+  /**
+   * Release the specified context to the pool.
+   * @param context the context to release.
+   */
+  static void releaseContext(final Context context) {
+    context.reset();
+    POOL.put(context);
+  }
+
+  /**
+   * Holds the reusable resources of the codecs.
+   */
+  static final class Context {
+    /**
+     * The initial size of the buffer.
+     */
+    private static final int INITIAL_SIZE = 8 * 1024;
+    /**
+     * The maximum size of a buffer kept in the pool, so a very large object does not permanently retain its memory.
+     */
+    private static final int MAX_POOLED_SIZE = 1024 * 1024;
+    /**
+     * The buffer which holds compressed data.
+     */
+    byte[] buffer = new byte[INITIAL_SIZE];
+    /**
+     * The ZLIB compressor, lazily created.
+     */
+    private Deflater deflater;
+    /**
+     * The ZLIB decompressor, lazily created.
+     */
+    private Inflater inflater;
+
+    /**
+     * Ensure the buffer can hold at least the specified number of bytes, preserving its content.
+     * @param size the minimum size of the buffer.
+     * @return the buffer.
+     */
+    byte[] ensureCapacity(final int size) {
+      if (buffer.length < size) buffer = Arrays.copyOf(buffer, size);
+      return buffer;
+    }
+
+    /**
+     * @return the ZLIB compressor.
+     */
+    Deflater getDeflater() {
+      if (deflater == null) deflater = new Deflater();
+      return deflater;
+    }
+
+    /**
+     * @return the ZLIB decompressor.
+     */
+    Inflater getInflater() {
+      if (inflater == null) inflater = new Inflater();
+      return inflater;
+    }
+
+    /**
+     * Reset the ZLIB compressor and decompressor so they can be reused, and shrink the buffer if it is too large.
+     */
+    void reset() {
+      if (buffer.length > MAX_POOLED_SIZE) buffer = new byte[INITIAL_SIZE];
+      if (deflater != null) deflater.reset();
+      if (inflater != null) inflater.reset();
+    }
+  }
+}
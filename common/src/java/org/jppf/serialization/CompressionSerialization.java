@@ -0,0 +1,155 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.serialization;
+
+import java.io.*;
+
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.stats.*;
+import org.jppf.utils.streams.JPPFByteArrayOutputStream;
+
+/**
+ * A composite serialization scheme which compresses the serialized objects with a {@link CompressionCodec} selected for each object.
+ * <p>Objects whose serialized size is below a configurable threshold are not compressed. Above the threshold, the codec is either the one
+ * specified in the configuration, or, in adaptive mode, the one with the best measured trade-off between the compression time and the
+ * transfer time of the compressed data. The codec used for each object is written before the data, so the peers can use different codecs.
+ * <p>It is used with the name "COMPRESSION", for instance:
+ * <pre>jppf.object.serialization.class = COMPRESSION org.jppf.serialization.DefaultJPPFSerialization</pre>
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public class CompressionSerialization extends JPPFCompositeSerialization {
+  /**
+   * The statistics updated with the number of objects serialized with each codec and the compression ratio.
+   */
+  private static volatile JPPFStatistics statistics = createStatistics();
+  /**
+   * The size below which objects are not compressed.
+   */
+  private final int threshold;
+  /**
+   * Selects the codec for each object.
+   */
+  private final AdaptiveCodecSelector selector;
+
+  /**
+   * Initialize this serialization scheme from the global configuration.
+   */
+  public CompressionSerialization() {
+    this(JPPFConfiguration.getProperties());
+  }
+
+  /**
+   * Initialize this serialization scheme from the specified configuration.
+   * @param config the configuration to use.
+   */
+  public CompressionSerialization(final TypedProperties config) {
+    threshold = config.get(JPPFProperties.COMPRESSION_THRESHOLD);
+    selector = new AdaptiveCodecSelector(config);
+  }
+
+  @Override
+  public void serialize(final Object o, final OutputStream os) throws Exception {
+    final JPPFByteArrayOutputStream baos = new JPPFByteArrayOutputStream();
+    getDelegate().serialize(o, baos);
+    final byte[] raw = baos.getBuf();
+    final int rawLength = baos.size();
+    final CompressionCodec codec = (rawLength < threshold) ? CompressionCodec.NONE : selector.select();
+    os.write(codec.ordinal());
+    SerializationUtils.writeInt(rawLength, os);
+    if (codec == CompressionCodec.NONE) {
+      os.write(raw, 0, rawLength);
+      statistics.addValue(codec.getStatisticsLabel(), 1d);
+      return;
+    }
+    final CompressionCodec.Context context = CompressionCodec.getContext();
+    try {
+      final long start = System.nanoTime();
+      final int compressedLength = codec.compress(raw, rawLength, context);
+      selector.record(codec, rawLength, compressedLength, System.nanoTime() - start);
+      SerializationUtils.writeInt(compressedLength, os);
+      os.write(context.buffer, 0, compressedLength);
+      final JPPFStatistics stats = statistics;
+      stats.addValue(codec.getStatisticsLabel(), 1d);
+      stats.addValue(JPPFStatisticsHelper.COMPRESSION_RATIO, 100d * compressedLength / rawLength);
+    } finally {
+      CompressionCodec.releaseContext(context);
+    }
+  }
+
+  @Override
+  public Object deserialize(final InputStream is) throws Exception {
+    final int id = is.read();
+    if (id < 0) throw new EOFException("could not read the compression codec");
+    final CompressionCodec codec = CompressionCodec.fromId(id);
+    final byte[] raw = new byte[SerializationUtils.readInt(is)];
+    if (codec == CompressionCodec.NONE) SerializationUtils.readToBuf(is, raw, 0, raw.length);
+    else {
+      final CompressionCodec.Context context = CompressionCodec.getContext();
+      try {
+        final int compressedLength = SerializationUtils.readInt(is);
+        SerializationUtils.readToBuf(is, context.ensureCapacity(compressedLength), 0, compressedLength);
+        codec.decompress(context.buffer, compressedLength, raw, context);
+      } finally {
+        CompressionCodec.releaseContext(context);
+      }
+    }
+    return getDelegate().deserialize(new ByteArrayInputStream(raw));
+  }
+
+  @Override
+  public String getName() {
+    return "COMPRESSION";
+  }
+
+  /**
+   * @return the codec currently selected for the objects above the size threshold.
+   */
+  public CompressionCodec getCurrentCodec() {
+    return selector.getCurrent();
+  }
+
+  /**
+   * Get the statistics updated by this serialization scheme. In a driver, these are the driver's statistics.
+   * @return a {@link JPPFStatistics} object.
+   */
+  public static JPPFStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Set the statistics to update. Called by the driver, so the compression statistics are part of the driver's statistics.
+   * @param statistics the statistics to update, which must include the compression snapshots.
+   * @exclude
+   */
+  public static void setStatistics(final JPPFStatistics statistics) {
+    if (statistics != null) CompressionSerialization.statistics = statistics;
+  }
+
+  /**
+   * @return a statistics object with the compression snapshots only.
+   */
+  private static JPPFStatistics createStatistics() {
+    final JPPFStatistics stats = new JPPFStatistics();
+    stats.createSingleValueSnapshots(JPPFStatisticsHelper.COMPRESSION_NONE, JPPFStatisticsHelper.COMPRESSION_LZ4, JPPFStatisticsHelper.COMPRESSION_ZLIB);
+    stats.createSnapshot(false, JPPFStatisticsHelper.COMPRESSION_RATIO);
+    return stats;
+  }
+}
@@ -38,6 +38,10 @@ class DeserializationCaches {
    * Mapping of handles to corresponding objects.
    */
   final Map<Integer, Object> handleToObjectMap = new HashMap<>();
+  /**
+   * The class signatures read in full from the current stream, in id order, when the class signature dictionary is used.
+   */
+  final List<String> signatures = new ArrayList<>();
 
   /**
    * Default constructor.
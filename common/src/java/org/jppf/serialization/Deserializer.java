@@ -20,12 +20,11 @@ package org.jppf.serialization;
 
 import java.io.*;
 import java.lang.reflect.*;
-import java.util.Deque;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jppf.serialization.SerializationUtils.StringLengthDesc;
 import org.jppf.utils.StringUtils;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
@@ -78,6 +77,10 @@ class Deserializer {
    * Temporary buffer used to read arrays of primitive values from the stream.
    */
   byte[] buf = new byte[SerializationUtils.TEMP_BUFFER_SIZE];
+  /**
+   * The class signature dictionary, or {@code null} if the current stream does not use it.
+   */
+  private ClassSignatureDictionary dictionary;
 
   /**
    * Initialize this deserializer with the specified input stream.
@@ -87,6 +90,35 @@ class Deserializer {
     this.in = in;
   }
 
+  /**
+   * Read and check the stream header, which determines whether the stream uses the class signature dictionary.
+   * @throws Exception if the header is invalid or the stream uses a different dictionary.
+   */
+  void readStreamHeader() throws Exception {
+    readToBuf(0, 4);
+    if (matchesHeader(Serializer.HEADER)) dictionary = null;
+    else if (matchesHeader(Serializer.DICTIONARY_HEADER)) {
+      dictionary = ClassSignatureDictionary.getInstance();
+      caches.signatures.clear();
+      final int checksum = readInt();
+      if (checksum != dictionary.getChecksum()) throw new IOException(String.format(
+        "class signature dictionary mismatch: stream checksum is %08x, local checksum is %08x, check the '%s' property",
+        checksum, dictionary.getChecksum(), JPPFProperties.SERIALIZATION_DICTIONARY_CLASSES.getName()));
+    } else throw new IOException("bad header: " + StringUtils.toHexString(buf, 0, 4, " "));
+  }
+
+  /**
+   * Determine whether the first 4 bytes of the temporary buffer match the specified header.
+   * @param header the header to compare with.
+   * @return {@code true} if the header matches, {@code false} otherwise.
+   */
+  private boolean matchesHeader(final byte[] header) {
+    for (int i=0; i<4; i++) {
+      if (buf[i] != header[i]) return false;
+    }
+    return true;
+  }
+
   /**
    * Read an object graph from the stream.
    * @return the next object read from the stream.
@@ -123,7 +155,7 @@ class Deserializer {
   @SuppressWarnings("unchecked")
   private void readObject(final int handle) throws Exception {
     if (traceEnabled) log.trace("reading object with handle = {}", handle);
-    final String sig = readString();
+    final String sig = readSignature();
     final ClassDescriptor cd = caches.getDescriptor(sig, classloader);
     if (cd.array) readArray(handle, cd);
     else if (cd.enumType) {
@@ -150,10 +182,29 @@ class Deserializer {
    * @throws Exception if any error occurs.
    */
   private Object readClassObject(final byte header) throws Exception {
-    final String handle = readString();
+    final String handle = readSignature();
     return caches.getClassFromHandle(handle, classloader);
   }
 
+  /**
+   * Read a class signature written by {@link Serializer#writeSignature(String)}.
+   * @return the signature read from the stream.
+   * @throws Exception if any error occurs.
+   */
+  private String readSignature() throws Exception {
+    if (dictionary == null) return readString();
+    final int code = SerializationUtils.readVarInt(in, buf);
+    if (code == 0) {
+      final String sig = readString();
+      caches.signatures.add(sig);
+      return sig;
+    }
+    final int id = code - 1, n = dictionary.size();
+    if (id < n) return dictionary.getSignature(id);
+    if (id - n < caches.signatures.size()) return caches.signatures.get(id - n);
+    throw new IOException("unknown class signature id " + id);
+  }
+
   /**
    * Read all the fields for the specified object.
    * @param cd the class descriptor for the object.
@@ -161,21 +212,15 @@ class Deserializer {
    * @throws Exception if any error occurs.
    */
   void readFields(final ClassDescriptor cd, final Object obj) throws Exception {
-    ClassDescriptor tmpDesc = cd;
     if (traceEnabled) try { log.trace("reading fields for object = {}, class = {}", StringUtils.toIdentityString(obj), cd); } catch(@SuppressWarnings("unused") final Exception e) {}
-    final Deque<ClassDescriptor> stack = new LinkedBlockingDeque<>();
-    while (tmpDesc != null) {
-      stack.addFirst(tmpDesc);
-      tmpDesc = tmpDesc.superClass;
-    }
-    for (ClassDescriptor desc: stack) {
+    for (ClassDescriptor desc: cd.getHierarchy()) {
       /*final SerializationHandler handler = SerializationReflectionHelper.getSerializationHandler(desc.clazz);
       if (handler != null) handler.readDeclaredFields(this, desc, obj);
       else*/ if (desc.hasReadWriteObject) {
         final Method m = desc.readObjectMethod;
         if (traceEnabled) try { log.trace("invoking readObject() for object = {}, class = {}", StringUtils.toIdentityString(obj), desc); } catch(@SuppressWarnings("unused") final Exception e) {}
+        final ClassDescriptor tmpDesc = currentClassDescriptor;
         try {
-          tmpDesc = currentClassDescriptor;
           currentClassDescriptor = desc;
           m.invoke(obj, in);
         } finally {
@@ -198,6 +243,10 @@ class Deserializer {
     if (traceEnabled) try { log.trace("reading declared fields for object = {}, class = {}", StringUtils.toIdentityString(obj), cd); } catch(@SuppressWarnings("unused") final Exception e) {}
     for (FieldDescriptor fd: cd.fields) {
       //if (traceEnabled) try { log.trace("reading field '{}' of object {}", fd, obj); } catch(@SuppressWarnings("unused") Exception e) {}
+      if (fd.accessor != null) {
+        fd.accessor.read(this, obj);
+        continue;
+      }
       final ClassDescriptor typeDesc = fd.type;
       if (fd.field == null) fd.field = cd.clazz.getDeclaredField(fd.name);
       final Field field = fd.field;
@@ -0,0 +1,389 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.serialization;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+
+import org.jppf.JPPFException;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * Reads and writes the value of a field during serialization and deserialization, without the reflective access checks of {@link Field}
+ * and without boxing primitive values. Each instance holds method handles for the field's getter and setter, adapted to the exact
+ * primitive or reference type of the field, and there is one subclass per field kind, which avoids a switch on the field type for each field value.
+ * @author Laurent Cohen
+ * @since 6.2
+ * @exclude
+ */
+abstract class FieldAccessor {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(FieldAccessor.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Whether field accessors are used. If {@code false}, the fields are accessed via reflection.
+   */
+  static final boolean ENABLED = JPPFConfiguration.get(JPPFProperties.SERIALIZATION_FIELD_ACCESSORS);
+  /**
+   * Used to create the method handles.
+   */
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  /**
+   * Reads the field value, with a type of {@code (Object)T}, where {@code T} is either a primitive type or {@code Object}.
+   */
+  final MethodHandle getter;
+  /**
+   * Sets the field value, with a type of {@code (Object, T)void}, where {@code T} is either a primitive type or {@code Object}.
+   */
+  final MethodHandle setter;
+
+  /**
+   * Initialize this accessor with the specified field.
+   * @param field the field to access.
+   * @param type the primitive type of the field, or {@code Object.class} for any reference type.
+   * @throws Exception if the method handles could not be created.
+   */
+  FieldAccessor(final Field field, final Class<?> type) throws Exception {
+    getter = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(type, Object.class));
+    setter = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, type));
+  }
+
+  /**
+   * Create an accessor for the specified field.
+   * @param field the field to access, which must have been made accessible.
+   * @return a {@link FieldAccessor}, or {@code null} if accessors are disabled or the field cannot be accessed via method handles,
+   * for instance a final field in some JVMs, in which case reflection should be used.
+   */
+  static FieldAccessor create(final Field field) {
+    if (!ENABLED || (field == null)) return null;
+    try {
+      final Class<?> type = field.getType();
+      if (type == byte.class) return new ByteAccessor(field);
+      else if (type == short.class) return new ShortAccessor(field);
+      else if (type == int.class) return new IntAccessor(field);
+      else if (type == long.class) return new LongAccessor(field);
+      else if (type == float.class) return new FloatAccessor(field);
+      else if (type == double.class) return new DoubleAccessor(field);
+      else if (type == char.class) return new CharAccessor(field);
+      else if (type == boolean.class) return new BooleanAccessor(field);
+      else if (type.isEnum()) return new EnumAccessor(field);
+      return new ObjectAccessor(field);
+    } catch (final Exception e) {
+      if (debugEnabled) log.debug("could not create accessor for field {}, falling back to reflection", field, e);
+      return null;
+    }
+  }
+
+  /**
+   * Write the value of the field for the specified object.
+   * @param serializer the serializer to write to.
+   * @param obj the object whose field value to write.
+   * @throws Exception if any error occurs.
+   */
+  final void write(final Serializer serializer, final Object obj) throws Exception {
+    try {
+      doWrite(serializer, obj);
+    } catch (final Exception | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new JPPFException(t);
+    }
+  }
+
+  /**
+   * Read the value of the field and set it on the specified object.
+   * @param deserializer the deserializer to read from.
+   * @param obj the object whose field value to set.
+   * @throws Exception if any error occurs.
+   */
+  final void read(final Deserializer deserializer, final Object obj) throws Exception {
+    try {
+      doRead(deserializer, obj);
+    } catch (final Exception | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new JPPFException(t);
+    }
+  }
+
+  /**
+   * Write the value of the field for the specified object.
+   * @param serializer the serializer to write to.
+   * @param obj the object whose field value to write.
+   * @throws Throwable if any error occurs.
+   */
+  abstract void doWrite(Serializer serializer, Object obj) throws Throwable;
+
+  /**
+   * Read the value of the field and set it on the specified object.
+   * @param deserializer the deserializer to read from.
+   * @param obj the object whose field value to set.
+   * @throws Throwable if any error occurs.
+   */
+  abstract void doRead(Deserializer deserializer, Object obj) throws Throwable;
+
+  /**
+   * Accessor for fields of type {@code byte}.
+   */
+  private static final class ByteAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    ByteAccessor(final Field field) throws Exception {
+      super(field, byte.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.out.write((byte) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, (byte) deserializer.in.read());
+    }
+  }
+
+  /**
+   * Accessor for fields of type {@code short}.
+   */
+  private static final class ShortAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    ShortAccessor(final Field field) throws Exception {
+      super(field, short.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.out.writeShort((short) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.in.readShort());
+    }
+  }
+
+  /**
+   * Accessor for fields of type {@code int}.
+   */
+  private static final class IntAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    IntAccessor(final Field field) throws Exception {
+      super(field, int.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.writeInt((int) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.readInt());
+    }
+  }
+
+  /**
+   * Accessor for fields of type {@code long}.
+   */
+  private static final class LongAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    LongAccessor(final Field field) throws Exception {
+      super(field, long.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.writeLong((long) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.readLong());
+    }
+  }
+
+  /**
+   * Accessor for fields of type {@code float}.
+   */
+  private static final class FloatAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    FloatAccessor(final Field field) throws Exception {
+      super(field, float.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.writeFloat((float) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.readFloat());
+    }
+  }
+
+  /**
+   * Accessor for fields of type {@code double}.
+   */
+  private static final class DoubleAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    DoubleAccessor(final Field field) throws Exception {
+      super(field, double.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.writeDouble((double) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.readDouble());
+    }
+  }
+
+  /**
+   * Accessor for fields of type {@code char}.
+   */
+  private static final class CharAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    CharAccessor(final Field field) throws Exception {
+      super(field, char.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.out.writeChar((char) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.in.readChar());
+    }
+  }
+
+  /**
+   * Accessor for fields of type {@code boolean}.
+   */
+  private static final class BooleanAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    BooleanAccessor(final Field field) throws Exception {
+      super(field, boolean.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.out.writeBoolean((boolean) getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.in.readBoolean());
+    }
+  }
+
+  /**
+   * Accessor for fields of an enum type, whose values are written as their name.
+   */
+  private static final class EnumAccessor extends FieldAccessor {
+    /**
+     * The enum type of the field.
+     */
+    @SuppressWarnings("rawtypes")
+    private final Class<? extends Enum> enumType;
+
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    EnumAccessor(final Field field) throws Exception {
+      super(field, Object.class);
+      enumType = (Class<? extends Enum>) field.getType();
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      final Object val = getter.invokeExact(obj);
+      serializer.writeObject((val == null) ? null : ((Enum<?>) val).name());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      final String name = (String) deserializer.readObject();
+      setter.invokeExact(obj, (Object) ((name == null) ? null : Enum.valueOf(enumType, name)));
+    }
+  }
+
+  /**
+   * Accessor for fields of any non-primitive, non-enum type.
+   */
+  private static final class ObjectAccessor extends FieldAccessor {
+    /**
+     * @param field the field to access.
+     * @throws Exception if the method handles could not be created.
+     */
+    ObjectAccessor(final Field field) throws Exception {
+      super(field, Object.class);
+    }
+
+    @Override
+    void doWrite(final Serializer serializer, final Object obj) throws Throwable {
+      serializer.writeObject(getter.invokeExact(obj));
+    }
+
+    @Override
+    void doRead(final Deserializer deserializer, final Object obj) throws Throwable {
+      setter.invokeExact(obj, deserializer.readObject());
+    }
+  }
+}
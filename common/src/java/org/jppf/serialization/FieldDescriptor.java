@@ -38,6 +38,10 @@ class FieldDescriptor {
    * Descriptor for the type of this field.
    */
   ClassDescriptor type;
+  /**
+   * Reads and writes the field value, or {@code null} if the field is accessed via reflection.
+   */
+  FieldAccessor accessor;
 
   /**
    * Initialize an empty field descriptor.
@@ -53,6 +57,7 @@ class FieldDescriptor {
   FieldDescriptor(final Field field) throws Exception {
     this.field = field;
     name = field.getName();
+    accessor = FieldAccessor.create(field);
   }
 
   @Override
@@ -21,8 +21,6 @@ package org.jppf.serialization;
 import java.io.*;
 import java.util.Map;
 
-import org.jppf.utils.StringUtils;
-
 /**
  * Implementation of {@link ObjectInputStream} that reads objects without regards to whether
  * they implement {@link Serializable} or not. This allows using non-serializable classes in
@@ -62,9 +60,7 @@ public class JPPFObjectInputStream extends ObjectInputStream {
     super();
     this.in = (in instanceof DataInputStream) ? (DataInputStream) in : new DataInputStream(in);
     deserializer = new Deserializer(this);
-    readToBuf(4);
-    if ( (buf[0] != Serializer.HEADER[0]) || (buf[1] != Serializer.HEADER[1]) || (buf[2] != Serializer.HEADER[2]) || (buf[3] != Serializer.HEADER[3]))
-      throw new IOException("bad header: " + StringUtils.toHexString(buf, 0, 4, " "));
+    readStreamHeader();
   }
 
   /**
@@ -78,9 +74,16 @@ public class JPPFObjectInputStream extends ObjectInputStream {
     this.in = (in instanceof DataInputStream) ? (DataInputStream) in : new DataInputStream(in);
     this.deserializer = deserializer;
     deserializer.in = this;
-    readToBuf(4);
-    if ( (buf[0] != Serializer.HEADER[0]) || (buf[1] != Serializer.HEADER[1]) || (buf[2] != Serializer.HEADER[2]) || (buf[3] != Serializer.HEADER[3]))
-      throw new IOException("bad header: " + StringUtils.toHexString(buf, 0, 4, " "));
+    readStreamHeader();
+  }
+
+  @Override
+  protected void readStreamHeader() throws IOException {
+    try {
+      deserializer.readStreamHeader();
+    } catch (final Exception e) {
+      throw (e instanceof IOException) ? (IOException) e : new IOException(e.getMessage(), e);
+    }
   }
 
   @Override
@@ -64,7 +64,7 @@ public class JPPFObjectOutputStream extends ObjectOutputStream {
     super();
     this.out = (out instanceof DataOutputStream) ? (DataOutputStream) out : new DataOutputStream(out);
     serializer = new Serializer(this);
-    write(Serializer.HEADER);
+    writeStreamHeader();
   }
 
   /**
@@ -78,7 +78,16 @@ public class JPPFObjectOutputStream extends ObjectOutputStream {
     this.out = (out instanceof DataOutputStream) ? (DataOutputStream) out : new DataOutputStream(out);
     this.serializer = serializer;
     serializer.out = this;
-    write(Serializer.HEADER);
+    writeStreamHeader();
+  }
+
+  @Override
+  protected void writeStreamHeader() throws IOException {
+    try {
+      serializer.writeStreamHeader();
+    } catch (final Exception e) {
+      throw (e instanceof IOException) ? (IOException) e : new IOException(e.getMessage(), e);
+    }
   }
 
   @Override
@@ -28,9 +28,18 @@ import net.jpountz.lz4.*;
  * @author Laurent Cohen
  */
 public class LZ4Serialization extends JPPFCompositeSerialization {
+  /**
+   * The compressor, which is thread-safe and can be shared by all streams.
+   */
+  private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+  /**
+   * The decompressor, which is thread-safe and can be shared by all streams.
+   */
+  private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
   @Override
   public void serialize(final Object o, final OutputStream os) throws Exception {
-    final LZ4BlockOutputStream lz4os = new LZ4BlockOutputStream(os, 32*1024, LZ4Factory.fastestInstance().fastCompressor());
+    final LZ4BlockOutputStream lz4os = new LZ4BlockOutputStream(os, 32*1024, COMPRESSOR);
     try {
       getDelegate().serialize(o, lz4os);
     } finally {
@@ -40,7 +49,7 @@ public class LZ4Serialization extends JPPFCompositeSerialization {
 
   @Override
   public Object deserialize(final InputStream is) throws Exception {
-    final LZ4BlockInputStream lz4is = new LZ4BlockInputStream(is, LZ4Factory.fastestInstance().fastDecompressor());
+    final LZ4BlockInputStream lz4is = new LZ4BlockInputStream(is, DECOMPRESSOR);
     return getDelegate().deserialize(lz4is);
   }
 
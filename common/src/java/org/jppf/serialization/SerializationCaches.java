@@ -57,6 +57,10 @@ class SerializationCaches {
    * Mapping of objects to their handle.
    */
   final Map<Object, Integer> objectHandleMap = new IdentityHashMap<>(256);
+  /**
+   * Mapping of the class signatures written in the current stream to their id, when the class signature dictionary is used.
+   */
+  final Map<String, Integer> signatureIds = new HashMap<>();
   /**
    * Counter for the class handles.
    */
@@ -21,10 +21,10 @@ package org.jppf.serialization;
 import java.io.*;
 import java.lang.reflect.*;
 import java.util.*;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.jppf.utils.StringUtils;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
@@ -45,6 +45,10 @@ class Serializer {
    * The stream header ('JPPF' in ascii, '4A 50 50 46' in hexadecimal).
    */
   static final byte[] HEADER = { 74, 80, 80, 70 };
+  /**
+   * The header of a stream which uses the class signature dictionary ('JPPD' in ascii, '4A 50 50 44' in hexadecimal).
+   */
+  static final byte[] DICTIONARY_HEADER = { 74, 80, 80, 68 };
   /**
    * Header written before a class descriptor.
    */
@@ -93,6 +97,10 @@ class Serializer {
    * Temporary buffer used to write arrays of primitive values to the stream.
    */
   private final byte[] buf = new byte[SerializationUtils.TEMP_BUFFER_SIZE];
+  /**
+   * The class signature dictionary, or {@code null} if it is not used.
+   */
+  private final ClassSignatureDictionary dictionary = JPPFConfiguration.get(JPPFProperties.SERIALIZATION_DICTIONARY_ENABLED) ? ClassSignatureDictionary.getInstance() : null;
 
   /**
    * Initialize this serializer with the specified output stream, and write the header.
@@ -102,6 +110,19 @@ class Serializer {
     this.out = out;
   }
 
+  /**
+   * Write the stream header and reset the signatures written in the previous stream, if any.
+   * @throws Exception if any error occurs.
+   */
+  void writeStreamHeader() throws Exception {
+    if (dictionary == null) out.write(HEADER);
+    else {
+      caches.signatureIds.clear();
+      out.write(DICTIONARY_HEADER);
+      writeInt(dictionary.getChecksum());
+    }
+  }
+
   /**
    * Write the specified object to the output stream.
    * @param obj the object to write.
@@ -138,7 +159,7 @@ class Serializer {
     currentObject = obj;
     currentClassDescriptor = cd;
     writeHeaderAndHandle(OBJECT_HEADER, handle);
-    writeString(cd.signature);
+    writeSignature(cd.signature);
     //if (traceEnabled) try { log.trace("writing object " + obj + ", handle=" + handle + ", class=" + obj.getClass() + ", cd=" + cd); } catch(Exception e) {}
     if (cd.array) writeArray(obj, cd);
     else if (cd.enumType) writeString(((Enum<?>) obj).name());
@@ -161,7 +182,28 @@ class Serializer {
     currentObject = obj;
     currentClassDescriptor = cd;
     out.writeByte(CLASS_OBJECT_HEADER);
-    writeString(cd.signature);
+    writeSignature(cd.signature);
+  }
+
+  /**
+   * Write the specified class signature. When the dictionary is used, a signature is written in full only the first time
+   * it is found in the stream and only if it is not in the dictionary. Otherwise its id + 1 is written, 0 denoting a full signature.
+   * @param signature the signature to write.
+   * @throws Exception if any error occurs.
+   */
+  private void writeSignature(final String signature) throws Exception {
+    if (dictionary == null) {
+      writeString(signature);
+      return;
+    }
+    Integer id = dictionary.getId(signature);
+    if (id == null) id = caches.signatureIds.get(signature);
+    if (id != null) SerializationUtils.writeVarInt(out, id + 1, buf);
+    else {
+      caches.signatureIds.put(signature, dictionary.size() + caches.signatureIds.size());
+      SerializationUtils.writeVarInt(out, 0, buf);
+      writeString(signature);
+    }
   }
 
   /**
@@ -171,20 +213,14 @@ class Serializer {
    * @throws Exception if any error occurs.
    */
   void writeFields(final Object obj, final ClassDescriptor cd) throws Exception {
-    ClassDescriptor tmpDesc = cd;
-    final Deque<ClassDescriptor> stack = new LinkedBlockingDeque<>();
-    while (tmpDesc != null) {
-      stack.addFirst(tmpDesc);
-      tmpDesc = tmpDesc.superClass;
-    }
-    for (final ClassDescriptor desc: stack) {
+    for (final ClassDescriptor desc: cd.getHierarchy()) {
       /*final SerializationHandler handler = SerializationReflectionHelper.getSerializationHandler(desc.clazz);
       if (handler != null) handler.writeDeclaredFields(this, desc, obj);
       else*/ if (desc.hasReadWriteObject) {
         final Method m = desc.writeObjectMethod;
         //if (traceEnabled) try { log.trace("invoking writeObject() for class=" + desc + " on object " + obj.hashCode()); } catch(Exception e) { log.trace(e.getMessage(), e); }
+        final ClassDescriptor tmpDesc = currentClassDescriptor;
         try {
-          tmpDesc = currentClassDescriptor;
           currentClassDescriptor = desc;
           m.invoke(obj, out);
         } finally {
@@ -205,6 +241,10 @@ class Serializer {
   void writeDeclaredFields(final Object obj, final ClassDescriptor cd) throws Exception {
     for (FieldDescriptor fd: cd.fields) {
       //if (traceEnabled) try { log.trace("writing field '" + fd.name + "' of object " + obj); } catch(Exception e) {}
+      if (fd.accessor != null) {
+        fd.accessor.write(this, obj);
+        continue;
+      }
       final Object val = fd.field.get(obj);
       if (fd.type.primitive) {
         switch(fd.type.signature.charAt(0)) {
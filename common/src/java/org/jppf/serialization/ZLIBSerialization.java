@@ -21,32 +21,58 @@ package org.jppf.serialization;
 import java.io.*;
 import java.util.zip.*;
 
+import org.jppf.utils.pooling.*;
+
 /**
  * A composite serialization scheme which applies a ZLIB compression/decompression to a concrete {@link JPPFSerialization} implementation.
  * @author Laurent Cohen
  */
 public class ZLIBSerialization extends JPPFCompositeSerialization {
+  /**
+   * Pool of reusable compressors.
+   */
+  private final ObjectPool<Deflater> deflaters = new AbstractObjectPoolQueue<Deflater>() {
+    @Override
+    protected Deflater create() {
+      return new Deflater();
+    }
+  };
+  /**
+   * Pool of reusable decompressors.
+   */
+  private final ObjectPool<Inflater> inflaters = new AbstractObjectPoolQueue<Inflater>() {
+    @Override
+    protected Inflater create() {
+      return new Inflater();
+    }
+  };
+
   @Override
   public void serialize(final Object o, final OutputStream os) throws Exception {
-    final Deflater deflater = new Deflater();
-    final DeflaterOutputStream zlibos = new DeflaterOutputStream(os, deflater);
+    final Deflater deflater = deflaters.get();
     try {
-      getDelegate().serialize(o, zlibos);
+      final DeflaterOutputStream zlibos = new DeflaterOutputStream(os, deflater);
+      try {
+        getDelegate().serialize(o, zlibos);
+      } finally {
+        zlibos.flush();
+        zlibos.finish();
+      }
     } finally {
-      zlibos.flush();
-      zlibos.finish();
-      deflater.end(); // required to clear the native/JNI buffers
+      // the native buffers are kept and reused, unlike with end()
+      deflater.reset();
+      deflaters.put(deflater);
     }
   }
 
   @Override
   public Object deserialize(final InputStream is) throws Exception {
-    final Inflater inflater = new Inflater();
-    final InflaterInputStream zlibis = new InflaterInputStream(is, inflater);
+    final Inflater inflater = inflaters.get();
     try {
-      return getDelegate().deserialize(zlibis);
+      return getDelegate().deserialize(new InflaterInputStream(is, inflater));
     } finally {
-      inflater.end(); // required to clear the native/JNI buffers
+      inflater.reset();
+      inflaters.put(inflater);
     }
   }
 
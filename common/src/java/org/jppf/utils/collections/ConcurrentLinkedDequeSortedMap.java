@@ -0,0 +1,148 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.utils.collections;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A sorted map whose values are lock-free deques of a given component type, and which can be read and updated concurrently without external synchronization.
+ * <p>The keys are never removed when their deque becomes empty, since doing so would race with concurrent insertions for the same key.
+ * This is intended for a small and mostly stable set of keys, such as job priorities. Iterations are weakly consistent and never copy the values.
+ * @param <K> the type of keys in the map.
+ * @param <V> the type of values in the collections mapped to the keys.
+ * @author Laurent Cohen
+ */
+public class ConcurrentLinkedDequeSortedMap<K, V> extends LinkedListSortedMap<K, V> {
+  /**
+   * Explicit serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Default constructor.
+   */
+  public ConcurrentLinkedDequeSortedMap() {
+    super();
+  }
+
+  /**
+   * Initialize this collection sorted map with the specified comparator.
+   * @param comparator comparator used to sort the keys.
+   */
+  public ConcurrentLinkedDequeSortedMap(final Comparator<K> comparator) {
+    super(comparator);
+  }
+
+  @Override
+  protected Map<K, Collection<V>> createMap() {
+    return (comparator == null) ? new ConcurrentSkipListMap<>() : new ConcurrentSkipListMap<>(comparator);
+  }
+
+  @Override
+  protected Collection<V> newCollection() {
+    return new ConcurrentLinkedDeque<>();
+  }
+
+  @Override
+  protected Collection<V> createOrGetCollection(final K key) {
+    return ((ConcurrentMap<K, Collection<V>>) map).computeIfAbsent(key, k -> newCollection());
+  }
+
+  @Override
+  public boolean removeValue(final K key, final V value) {
+    final Collection<V> coll = map.get(key);
+    return (coll != null) && coll.remove(value);
+  }
+
+  @Override
+  public int removeValues(final K key, @SuppressWarnings("unchecked") final V...values) {
+    final Collection<V> coll = map.get(key);
+    if (coll == null) return 0;
+    int count = 0;
+    for (final V value: values) {
+      if (coll.remove(value)) count++;
+    }
+    return count;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (final Collection<V> coll: map.values()) {
+      if (!coll.isEmpty()) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void moveToEndOfList(final K key, final V value) {
+    final Deque<V> deque = (Deque<V>) map.get(key);
+    if ((deque == null) || value.equals(deque.peekLast())) return;
+    if (deque.remove(value)) deque.offerLast(value);
+  }
+
+  /**
+   * Get a weakly consistent iterator over the values in this map, in the order of the keys.
+   * @return an {@link Iterator} which does not copy the values and does not support removal.
+   */
+  @Override
+  public Iterator<V> iterator() {
+    return new ConcurrentIterator();
+  }
+
+  /**
+   * Get a weakly consistent iterator over the values in this map. No synchronization is required, so the specified lock is ignored.
+   * @param lock not used.
+   * @return an {@link Iterator} which does not copy the values and does not support removal.
+   */
+  @Override
+  public Iterator<V> iterator(final Lock lock) {
+    return new ConcurrentIterator();
+  }
+
+  /**
+   * A weakly consistent iterator over the values of all the deques, which skips the empty ones.
+   */
+  private class ConcurrentIterator implements Iterator<V> {
+    /**
+     * Iterator over the deques in the map.
+     */
+    private final Iterator<Collection<V>> collectionIterator = map.values().iterator();
+    /**
+     * Iterator over the values of the current deque.
+     */
+    private Iterator<V> valueIterator = Collections.emptyIterator();
+
+    @Override
+    public boolean hasNext() {
+      while (!valueIterator.hasNext()) {
+        if (!collectionIterator.hasNext()) return false;
+        valueIterator = collectionIterator.next().iterator();
+      }
+      return true;
+    }
+
+    @Override
+    public V next() {
+      if (!hasNext()) throw new NoSuchElementException("no more element for this iterator");
+      return valueIterator.next();
+    }
+  }
+}
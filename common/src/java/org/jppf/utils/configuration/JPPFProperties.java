@@ -135,6 +135,12 @@ public class JPPFProperties {
   public static final JPPFProperty<String[]> LOAD_BALANCING_PERSISTENCE = new StringArrayProperty("jppf.load.balancing.persistence", " ", (String[]) null, "jppf.load.balancer.persistence");
   /** The hash function used to generate load-balancer state identifiers. */
   public static final JPPFProperty<String> LOAD_BALANCING_PERSISTENCE_HASH = new StringProperty("jppf.load.balancing.persistence.hash", "SHA-1", "jppf.load.balancer.persistence.hash");
+  /** Whether the driver keeps a separate load-balancer state for each job signature on each node. */
+  public static final JPPFProperty<Boolean> LOAD_BALANCING_JOB_AWARE = new BooleanProperty("jppf.load.balancing.job.aware", false);
+  /** Regular expression applied to the job names to compute the job signatures. */
+  public static final JPPFProperty<String> LOAD_BALANCING_JOB_SIGNATURE = new StringProperty("jppf.load.balancing.job.signature", "(.*)");
+  /** Maximum number of job signatures for which a load-balancer state is kept in memory for each node. */
+  public static final JPPFProperty<Integer> LOAD_BALANCING_JOB_MAX_STATES = new IntProperty("jppf.load.balancing.job.max.states", 16, 1, 1024);
   /** Enable/disable remote execution (client only). */
   public static final JPPFProperty<Boolean> REMOTE_EXECUTION_ENABLED = new BooleanProperty("jppf.remote.execution.enabled", true);
   /** Enable/disable local execution in the client. */
@@ -204,6 +210,14 @@ public class JPPFProperties {
   public static final JPPFProperty<Long> PROVISIONING_REQUEST_CHECK_TIMEOUT = new LongProperty("jppf.provisioning.request.check.timeout", 15_000L);
   /** Serialization scheme: name of a class implementing {@link org.jppf.serialization.JPPFSerialization JPPFSerialization}. */
   public static final JPPFProperty<String> OBJECT_SERIALIZATION_CLASS = new StringProperty("jppf.object.serialization.class", null);
+  /** Codec used by the "COMPRESSION" composite serialization: one of 'adaptive', 'lz4', 'zlib' or 'none'. */
+  public static final JPPFProperty<String> COMPRESSION_CODEC = new StringProperty("jppf.compression.codec", "adaptive");
+  /** Size in bytes of a serialized object below which the "COMPRESSION" composite serialization does not compress it. */
+  public static final JPPFProperty<Integer> COMPRESSION_THRESHOLD = new IntProperty("jppf.compression.threshold", 1024, 0, Integer.MAX_VALUE);
+  /** Estimated bandwidth of the network links in MB/s, used to weigh the compression time against the transfer time in adaptive mode. */
+  public static final JPPFProperty<Integer> COMPRESSION_ADAPTIVE_BANDWIDTH = new IntProperty("jppf.compression.adaptive.bandwidth", 100, 1, Integer.MAX_VALUE);
+  /** In adaptive compression mode, the interval, in number of compressed objects, at which the codecs that are not selected are measured again. */
+  public static final JPPFProperty<Integer> COMPRESSION_ADAPTIVE_PROBE_INTERVAL = new IntProperty("jppf.compression.adaptive.probe.interval", 50, 1, Integer.MAX_VALUE);
   /** Whether to send jobs to orphan peer servers. */
   public static final JPPFProperty<Boolean> PEER_ALLOW_ORPHANS = new BooleanProperty("jppf.peer.allow.orphans", false);
   /** Enable/disable peer server discovery. */
@@ -266,6 +280,10 @@ public class JPPFProperties {
   public static final JPPFProperty<Boolean> RESOURCE_CACHE_ENABLED = new BooleanProperty("jppf.resource.cache.enabled", true);
   /** Type of cache storage: either 'file' or 'memory'. */
   public static final JPPFProperty<String> RESOURCE_CACHE_STORAGE = new StringProperty("jppf.resource.cache.storage", "file").setPossibleValues("file", "memory");
+  /** Whether the node keeps a persistent, content-addressed cache of downloaded resource definitions, reused across restarts. */
+  public static final JPPFProperty<Boolean> RESOURCE_CACHE_PERSISTENT = new BooleanProperty("jppf.resource.cache.persistent", false);
+  /** Root folder of the persistent resource cache. If unspecified, a 'persistent' folder under the JPPF temp folder is used. */
+  public static final JPPFProperty<String> RESOURCE_CACHE_PERSISTENT_DIR = new StringProperty("jppf.resource.cache.persistent.dir", null);
   /** Enable/disable the screen saver. */
   public static final JPPFProperty<Boolean> SCREENSAVER_ENABLED = new BooleanProperty("jppf.screensaver.enabled", false);
   /** Class name of an implementation of {@code org.jppf.node.screensaver.JPPFScreenSaver}. */
@@ -370,6 +388,10 @@ public class JPPFProperties {
   public static final JPPFProperty<Integer> NIO_THREAD_QUEUE_SIZE = new IntProperty("jppf.nio.thread.queue.size", 50, 1, Integer.MAX_VALUE);
   /** TTL in milliseconds for threads beyond the core number performing network I/O. */
   public static final JPPFProperty<Long> NIO_THREAD_TTL = new LongProperty("jppf.nio.thread.ttl", 15_000L, 1L, Long.MAX_VALUE);
+  /** Number of selector threads, each handling its own subset of the connections, in the driver's server for node job channels. */
+  public static final JPPFProperty<Integer> NIO_NODE_SELECTOR_THREADS = new IntProperty("jppf.nio.node.selector.threads", 1, 1, 1024);
+  /** Number of selector threads, each handling its own subset of the connections, in the driver's server for client job channels. */
+  public static final JPPFProperty<Integer> NIO_CLIENT_SELECTOR_THREADS = new IntProperty("jppf.nio.client.selector.threads", 1, 1, 1024);
   /** Whether to display the animated splash screen at console startup, defaults to false. */
   public static final JPPFProperty<Boolean> UI_SPLASH = new BooleanProperty("jppf.ui.splash", true);
   /** Interval between images in milliseconds. */
@@ -390,6 +412,22 @@ public class JPPFProperties {
   public static final JPPFProperty<Long> LOW_MEMORY_THRESHOLD = new LongProperty("jppf.low.memory.threshold", 32L);
   /** Whether to check for low memory and trigger disk offloading. */
   public static final JPPFProperty<Boolean> CHECK_LOW_MEMORY = new BooleanProperty("jppf.check.low.memory", true);
+  /** Maximum size in MB of the off-heap memory used to store the data that does not fit in the heap, before overflowing to disk. 0 disables off-heap storage. */
+  public static final JPPFProperty<Long> OFFHEAP_MAX_SIZE = new LongProperty("jppf.offheap.max.size", 0L, 0L, Long.MAX_VALUE);
+  /** Size in bytes of the pooled direct buffers that make up the off-heap storage. */
+  public static final JPPFProperty<Integer> OFFHEAP_SEGMENT_SIZE = new IntProperty("jppf.offheap.segment.size", 64 * 1024, 1024, 64 * 1024 * 1024);
+  /** Maximum size in bytes of each chunk of serialized data, above which the data is split and sent in length-prefixed chunks. */
+  public static final JPPFProperty<Integer> DATA_CHUNK_SIZE = new IntProperty("jppf.data.chunk.size", 1024 * 1024 * 1024, 1024, Integer.MAX_VALUE);
+  /** Maximum size in MB of the pooled direct buffers in which the driver holds the task payloads it relays from the clients to the nodes, 0 to disable. */
+  public static final JPPFProperty<Long> SERVER_RELAY_OFFHEAP_SIZE = new LongProperty("jppf.server.relay.offheap.size", 0L, 0L, Long.MAX_VALUE / (1024L * 1024L));
+  /** Maximum size in MB of the resources cached by the driver on behalf of the clients' class loaders. */
+  public static final JPPFProperty<Long> CLASS_CACHE_MAX_SIZE = new LongProperty("jppf.server.class.cache.max.size", 128L, 0L, Long.MAX_VALUE / (1024L * 1024L));
+  /** Number of independently locked segments of the driver's class cache. */
+  public static final JPPFProperty<Integer> CLASS_CACHE_SEGMENTS = new IntProperty("jppf.server.class.cache.segments", 16, 1, 1024);
+  /** Whether the driver's job queue uses concurrent data structures and per-job lock stripes instead of a single global lock. */
+  public static final JPPFProperty<Boolean> SERVER_QUEUE_CONCURRENT = new BooleanProperty("jppf.server.queue.concurrent", false);
+  /** Number of lock stripes that guard the state changes of the jobs in a concurrent driver job queue. */
+  public static final JPPFProperty<Integer> SERVER_QUEUE_LOCK_STRIPES = new IntProperty("jppf.server.queue.lock.stripes", 64, 1, 4096);
   /** Used heap in bytes above which notifications from task are offloaded to file. Defaults to 0.8 * maxHeapSize.. */
   public static final JPPFProperty<String> NOTIFICATION_OFFLOAD_MEMORY_THRESHOLD = new StringProperty("jppf.notification.offload.memory.threshold", "" + (long) (0.8d * Runtime.getRuntime().maxMemory()) + "b" );
   /** Determines the frequency at which the JVM's cpu load is recomputed, in ms. */
@@ -400,14 +438,22 @@ public class JPPFProperties {
   public static final JPPFProperty<String> NODE_CLASS = new StringProperty("jppf.node.class", "org.jppf.server.node.remote.JPPFRemoteNode");
   /** Maximum number of jobs that can be handled concurrently by a node. */
   public static final JPPFProperty<Integer> NODE_MAX_JOBS = new IntProperty("jppf.node.max.jobs", Integer.MAX_VALUE, 1, Integer.MAX_VALUE);
+  /** Whether a node executes the tasks of a job as soon as they are deserialized and serializes their results as soon as they complete. */
+  public static final JPPFProperty<Boolean> NODE_STREAMING_EXECUTION = new BooleanProperty("jppf.node.streaming.execution", false);
   /** How often the node throttling mechanism will check, expressed as an interval in milliseconds. */
   public static final JPPFProperty<Long> NODE_THROTTLING_CHECK_PERIOD = new LongProperty("jppf.node.throttling.check.period", 2000L, 1L, Long.MAX_VALUE);
   /** Default script language for scripted property values. */
   public static final JPPFProperty<String> SCRIPT_DEFAULT_LANGUAGE = new StringProperty("jppf.script.default.language", "javascript");
   /** Fully qualified name of a class implementing {@link org.jppf.node.connection.DriverConnectionStrategy DriverConnectionStrategy}. */
   public static final JPPFProperty<String> SERVER_CONNECTION_STRATEGY = new StringProperty("jppf.server.connection.strategy", null);
+  /** Whether the default JPPF serialization replaces the class signatures with compact ids from a dictionary shared by all the peers. */
+  public static final JPPFProperty<Boolean> SERIALIZATION_DICTIONARY_ENABLED = new BooleanProperty("jppf.serialization.dictionary.enabled", false);
+  /** Names of the classes added to the built-in class signature dictionary of the default JPPF serialization. */
+  public static final JPPFProperty<String[]> SERIALIZATION_DICTIONARY_CLASSES = new StringArrayProperty("jppf.serialization.dictionary.classes", " ", null);
   /** @exclude . */
   public static final JPPFProperty<String> SERIALIZATION_EXCEPTION_HOOK = new StringProperty("jppf.serialization.exception.hook", null);
+  /** Whether the default JPPF serialization accesses the object fields via method handles rather than reflection. */
+  public static final JPPFProperty<Boolean> SERIALIZATION_FIELD_ACCESSORS = new BooleanProperty("jppf.serialization.field.accessors.enabled", true);
   /** Full path to the Java executable. */
   public static final JPPFProperty<String> JAVA_PATH = new StringProperty("jppf.java.path", null);
   /** Path to the temporary config overrides properties file. */
@@ -430,8 +476,48 @@ public class JPPFProperties {
   public static final JPPFProperty<Boolean> SEQUENTIAL_SERIALiZATION = new BooleanProperty("jppf.sequential.serialization", false, "jppf.sequential.deserialization");
   /** Whether bias towards local node for scheduling is enabled in the driver. */
   public static final JPPFProperty<Boolean> LOCAL_NODE_BIAS = new BooleanProperty("jppf.local.node.bias", true);
+  /** Whether the driver caches the results of execution policies evaluated against the nodes. */
+  public static final JPPFProperty<Boolean> POLICY_CACHE_ENABLED = new BooleanProperty("jppf.policy.cache.enabled", true);
+  /** Whether the driver also caches the results of context-dependent policies, such as scripted policies, per job and number of job dispatches. */
+  public static final JPPFProperty<Boolean> POLICY_CACHE_CONTEXTUAL = new BooleanProperty("jppf.policy.cache.contextual", false);
+  /** Maximum number of execution policy results cached by the driver for each node. */
+  public static final JPPFProperty<Integer> POLICY_CACHE_MAX_ENTRIES = new IntProperty("jppf.policy.cache.max.entries", 1000, 1, Integer.MAX_VALUE);
+  /** Whether the driver compiles the execution policies before evaluating them against the nodes. */
+  public static final JPPFProperty<Boolean> POLICY_COMPILED_ENABLED = new BooleanProperty("jppf.policy.compiled.enabled", true);
+  /** Number of threads used by the driver's job scheduler to dispatch jobs to the nodes in parallel. */
+  public static final JPPFProperty<Integer> JOB_SCHEDULER_THREADS = new IntProperty("jppf.job.scheduler.threads", 1, 1, 1024);
+  /** Fully qualified name of a class implementing {@code org.jppf.server.nio.nodeserver.NodeChannelSelector}, which chooses the node a job is dispatched to. */
+  public static final JPPFProperty<String> JOB_SCHEDULER_NODE_SELECTOR = new StringProperty("jppf.job.scheduler.node.selector", null);
+  /** Weight of the class loader warmth of a node in the score computed by the affinity node selector. */
+  public static final JPPFProperty<Double> JOB_SCHEDULER_AFFINITY_WARMTH_WEIGHT = new DoubleProperty("jppf.job.scheduler.affinity.warmth.weight", 1d);
+  /** Weight of the relative throughput of a node for a job in the score computed by the affinity node selector. */
+  public static final JPPFProperty<Double> JOB_SCHEDULER_AFFINITY_THROUGHPUT_WEIGHT = new DoubleProperty("jppf.job.scheduler.affinity.throughput.weight", 1d);
+  /** Weight of the number of jobs executing in a node in the score computed by the affinity node selector. */
+  public static final JPPFProperty<Double> JOB_SCHEDULER_AFFINITY_DEPTH_WEIGHT = new DoubleProperty("jppf.job.scheduler.affinity.depth.weight", 0.5d);
+  /** Whether the tasks of task graphs and the jobs of job dependency graphs are dispatched along their critical path first. */
+  public static final JPPFProperty<Boolean> JOB_SCHEDULER_CRITICAL_PATH = new BooleanProperty("jppf.job.scheduler.critical.path.enabled", false);
+  /** Whether the nodes which finished their share of a fully dispatched job cause other nodes to release the tasks of the job they have not started yet. */
+  public static final JPPFProperty<Boolean> JOB_WORK_STEALING_ENABLED = new BooleanProperty("jppf.job.work.stealing.enabled", false);
+  /** Minimum number of tasks in a dispatch to a node for the node to be asked to release its unstarted tasks. */
+  public static final JPPFProperty<Integer> JOB_WORK_STEALING_MIN_TASKS = new IntProperty("jppf.job.work.stealing.min.tasks", 2, 2, Integer.MAX_VALUE);
+  /** Maximum time in milliseconds the results of a job using the batched results strategy are held by the driver before being sent to the client. */
+  public static final JPPFProperty<Long> RESULTS_BATCH_MAX_LATENCY = new LongProperty("jppf.results.batch.max.latency", 50L, 0L, Long.MAX_VALUE);
+  /** Maximum number of task results of a job using the batched results strategy the driver sends to the client in a single message. */
+  public static final JPPFProperty<Integer> RESULTS_BATCH_MAX_TASKS = new IntProperty("jppf.results.batch.max.tasks", 1000, 1, Integer.MAX_VALUE);
   /** Location of the file that contains the DDL statements to create the database table for the databse job persistence. */
   public static final JPPFProperty<String> JOB_PERSISTENCE_DDL_LOCATION = new StringProperty("jppf.job.persistence.ddl.location", "org/jppf/job/persistence/impl/job_persistence.sql");
+  /** Whether the database job persistence stores and loads multiple objects with JDBC batches and range queries, rather than one statement per object. */
+  public static final JPPFProperty<Boolean> JOB_PERSISTENCE_DB_BULK = new BooleanProperty("jppf.job.persistence.db.bulk.enabled", true);
+  /** Maximum number of inserts or updates in a JDBC batch of the database job persistence, in bulk mode. */
+  public static final JPPFProperty<Integer> JOB_PERSISTENCE_DB_BATCH_SIZE = new IntProperty("jppf.job.persistence.db.batch.size", 500, 1, Integer.MAX_VALUE);
+  /** Number of rows fetched from the database in each round trip when the database job persistence loads objects in bulk mode, 0 for the JDBC driver's default. */
+  public static final JPPFProperty<Integer> JOB_PERSISTENCE_DB_FETCH_SIZE = new IntProperty("jppf.job.persistence.db.fetch.size", 100, 0, Integer.MAX_VALUE);
+  /** Maximum size in bytes of a segment file of the log-structured job persistence, before a new segment is started. */
+  public static final JPPFProperty<Long> JOB_PERSISTENCE_LOG_SEGMENT_SIZE = new LongProperty("jppf.job.persistence.log.segment.size", 64L * 1024L * 1024L, 1024L, (long) Integer.MAX_VALUE);
+  /** Whether the log-structured job persistence forces the appended job elements to disk before a store operation returns. */
+  public static final JPPFProperty<Boolean> JOB_PERSISTENCE_LOG_SYNC = new BooleanProperty("jppf.job.persistence.log.sync.enabled", true);
+  /** Ratio of obsolete data in a segment of the log-structured job persistence above which the segment is compacted. */
+  public static final JPPFProperty<Double> JOB_PERSISTENCE_LOG_COMPACTION_THRESHOLD = new DoubleProperty("jppf.job.persistence.log.compaction.threshold", 0.5d, 0d, 1d);
   /** Percentage of used heap above which async job persistence switches to sequential mode, until the used heap decreases below the threshold. */
   public static final JPPFProperty<Double> JOB_PERSISTENCE_MEMORY_THRESHOLD = new DoubleProperty("jppf.job.persistence.memory.threshold", 70d);
   /** Location of the file that contains the DDL statements to create the database table for the laod-balancers persistence. */
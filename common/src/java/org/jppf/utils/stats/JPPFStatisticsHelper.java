@@ -157,6 +157,30 @@ public final class JPPFStatisticsHelper {
    * Bytes sent to unidentified remote peers.
    */
   public static final String UNKNOWN_OUT_TRAFFIC = "unknwon.traffic.out";
+  /**
+   * Number of execution policy evaluations served from the driver's policy cache.
+   */
+  public static final String POLICY_CACHE_HITS = "policy.cache.hits";
+  /**
+   * Number of execution policy evaluations not found in the driver's policy cache.
+   */
+  public static final String POLICY_CACHE_MISSES = "policy.cache.misses";
+  /**
+   * Number of objects serialized without compression by the "COMPRESSION" composite serialization.
+   */
+  public static final String COMPRESSION_NONE = "compression.none";
+  /**
+   * Number of objects compressed with LZ4 by the "COMPRESSION" composite serialization.
+   */
+  public static final String COMPRESSION_LZ4 = "compression.lz4";
+  /**
+   * Number of objects compressed with ZLIB by the "COMPRESSION" composite serialization.
+   */
+  public static final String COMPRESSION_ZLIB = "compression.zlib";
+  /**
+   * Size of the compressed objects as a percentage of their uncompressed size.
+   */
+  public static final String COMPRESSION_RATIO = "compression.ratio";
 
   /**
    * Determine wether the specified snapshot is a single value snapshot.
@@ -232,10 +256,11 @@ public final class JPPFStatisticsHelper {
     new ServiceFinder().findProviders(JPPFFilteredStatisticsListener.class)
       .forEach(listener -> statistics.addListener(listener, listener.getFilter()));
     statistics.createSnapshots(false, EXECUTION, NODE_EXECUTION, TRANSPORT_TIME, TASK_QUEUE_TIME, JOB_TIME, JOB_TASKS, JOB_DISPATCH_TIME, JOB_DISPATCH_TASKS, DISPATCH_PER_JOB_COUNT, TASK_DISPATCH,
-        NODE_CLASS_REQUESTS_TIME, CLIENT_CLASS_REQUESTS_TIME);
+        NODE_CLASS_REQUESTS_TIME, CLIENT_CLASS_REQUESTS_TIME, COMPRESSION_RATIO);
     statistics.createSnapshots(true, TASK_QUEUE_COUNT, JOB_COUNT, JOB_DISPATCH_COUNT, NODES, IDLE_NODES, CLIENTS);
     statistics.createSingleValueSnapshots(TASK_QUEUE_TOTAL, JOB_TOTAL, JOB_DISPATCH_TOTAL, NODE_IN_TRAFFIC, NODE_OUT_TRAFFIC, CLIENT_IN_TRAFFIC, CLIENT_OUT_TRAFFIC,
-        PEER_IN_TRAFFIC, PEER_OUT_TRAFFIC, JMX_IN_TRAFFIC, JMX_OUT_TRAFFIC, UNKNOWN_IN_TRAFFIC, UNKNOWN_OUT_TRAFFIC);
+        PEER_IN_TRAFFIC, PEER_OUT_TRAFFIC, JMX_IN_TRAFFIC, JMX_OUT_TRAFFIC, UNKNOWN_IN_TRAFFIC, UNKNOWN_OUT_TRAFFIC, POLICY_CACHE_HITS, POLICY_CACHE_MISSES,
+        COMPRESSION_NONE, COMPRESSION_LZ4, COMPRESSION_ZLIB);
     return statistics;
   }
 }
@@ -0,0 +1,302 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.graph;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+import org.jppf.node.protocol.graph.TaskGraph;
+import org.jppf.node.protocol.graph.TaskGraph.Node;
+import org.jppf.serialization.SerializationUtils;
+import org.jppf.utils.collections.*;
+
+/**
+ * Compares the array-based {@link TaskGraph} with the map-based implementation it replaced, on a large layered graph with dense dependencies.
+ * <p>Each round builds both graphs from the same nodes, then simulates their traversal by the driver: the available tasks are dispatched
+ * in batches, then marked as done, until the whole graph is done.
+ * <p>Usage: {@code TaskGraphBenchmark [nbTasks [layerWidth [nbDependencies]]]}, by default 100,000 tasks in layers of 1,000 tasks,
+ * where each task depends on 8 tasks of the next layer.
+ * @author Laurent Cohen
+ */
+public class TaskGraphBenchmark {
+  /**
+   * Number of measurement rounds.
+   */
+  private static final int NB_ROUNDS = 5;
+  /**
+   * The maximum number of tasks taken from the available tasks at once, as in a dispatch to a node.
+   */
+  private static final int BATCH_SIZE = 500;
+
+  /**
+   * Entry point for this benchmark.
+   * @param args the number of tasks, the number of tasks per layer and the number of dependencies per task.
+   */
+  public static void main(final String... args) {
+    try {
+      final int nbTasks = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+      final int layerWidth = (args.length > 1) ? Integer.parseInt(args[1]) : 1_000;
+      final int nbDeps = (args.length > 2) ? Integer.parseInt(args[2]) : 8;
+      System.out.printf("graph of %,d tasks in layers of %,d tasks, %d dependencies per task%n", nbTasks, layerWidth, nbDeps);
+      final Measure legacy = new Measure(), compact = new Measure();
+      // the first 2 rounds are for warmup
+      for (int i=0; i<NB_ROUNDS + 2; i++) {
+        final boolean warmup = i < 2;
+        final int legacyDone = runLegacy(createNodes(nbTasks, layerWidth, nbDeps), warmup ? new Measure() : legacy);
+        final int compactDone = runCompact(createNodes(nbTasks, layerWidth, nbDeps), warmup ? new Measure() : compact);
+        if ((legacyDone != nbTasks) || (compactDone != nbTasks)) throw new IllegalStateException(String.format("expected %d done tasks but got %d and %d", nbTasks, legacyDone, compactDone));
+      }
+      System.out.printf("map-based  : %s%n", legacy);
+      System.out.printf("array-based: %s%n", compact);
+      System.out.printf("speedup    : build %.2fx, traversal %.2fx%n",
+        (double) legacy.buildTime / compact.buildTime, (double) legacy.traversalTime / compact.traversalTime);
+      final TaskGraph graph = new TaskGraph(createNodes(nbTasks, layerWidth, nbDeps));
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      graph.serialize(out);
+      System.out.printf("serialized size: map-based %,d bytes, array-based %,d bytes%n", MapTaskGraph.serializedSize(createNodes(nbTasks, layerWidth, nbDeps)), out.size());
+    } catch (final Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Build and traverse a map-based graph.
+   * @param nodes the nodes of the graph.
+   * @param measure records the measurements.
+   * @return the number of tasks marked as done.
+   */
+  private static int runLegacy(final List<Node> nodes, final Measure measure) {
+    final long startAlloc = allocatedBytes(), start = System.nanoTime();
+    final MapTaskGraph graph = new MapTaskGraph(nodes);
+    final long built = System.nanoTime();
+    final int[] batch = new int[BATCH_SIZE];
+    int done = 0;
+    while (!graph.isDone()) {
+      int count = 0;
+      final Iterator<Integer> it = graph.getAvailableNodes().iterator();
+      while (it.hasNext() && (count < BATCH_SIZE)) batch[count++] = it.next();
+      if (count == 0) throw new IllegalStateException("no available task in " + graph);
+      for (int i=0; i<count; i++) graph.nodeDone(batch[i]);
+      done += count;
+    }
+    measure.add(built - start, System.nanoTime() - built, allocatedBytes() - startAlloc);
+    return done;
+  }
+
+  /**
+   * Build and traverse an array-based graph.
+   * @param nodes the nodes of the graph.
+   * @param measure records the measurements.
+   * @return the number of tasks marked as done.
+   */
+  private static int runCompact(final List<Node> nodes, final Measure measure) {
+    final long startAlloc = allocatedBytes(), start = System.nanoTime();
+    final TaskGraph graph = new TaskGraph(nodes);
+    final long built = System.nanoTime();
+    final int[] batch = new int[BATCH_SIZE];
+    int done = 0;
+    while (!graph.isDone()) {
+      final int count = Math.min(BATCH_SIZE, graph.getAvailableNodeCount());
+      if (count == 0) throw new IllegalStateException("no available task in " + graph);
+      for (int i=0; i<count; i++) batch[i] = graph.getAvailableNodeAt(i);
+      for (int i=0; i<count; i++) graph.nodeDone(batch[i]);
+      done += count;
+    }
+    measure.add(built - start, System.nanoTime() - built, allocatedBytes() - startAlloc);
+    return done;
+  }
+
+  /**
+   * Create the nodes of a layered graph, where each task depends on randomly chosen tasks of the next layer.
+   * @param nbTasks the number of tasks.
+   * @param layerWidth the number of tasks in each layer.
+   * @param nbDeps the number of dependencies of each task not in the last layer.
+   * @return a list of {@link Node} instances.
+   */
+  private static List<Node> createNodes(final int nbTasks, final int layerWidth, final int nbDeps) {
+    final Random rand = new Random(42L);
+    final Node[] nodes = new Node[nbTasks];
+    for (int pos=nbTasks-1; pos>=0; pos--) {
+      final Node node = new Node(pos, false, null);
+      nodes[pos] = node;
+      final int nextLayer = (pos / layerWidth + 1) * layerWidth;
+      if (nextLayer >= nbTasks) continue;
+      final int width = Math.min(layerWidth, nbTasks - nextLayer);
+      final Set<Integer> deps = new HashSet<>();
+      while (deps.size() < Math.min(nbDeps, width)) deps.add(nextLayer + rand.nextInt(width));
+      for (final int dep: deps) node.addDependency(nodes[dep]);
+    }
+    return Arrays.asList(nodes);
+  }
+
+  /**
+   * @return the number of bytes allocated so far by the current thread, or 0 if this measurement is not supported by the JVM.
+   */
+  private static long allocatedBytes() {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    return 0L;
+  }
+
+  /**
+   * The best measurements over the rounds.
+   */
+  private static class Measure {
+    /**
+     * Time to build the graph, in nanoseconds.
+     */
+    long buildTime = Long.MAX_VALUE;
+    /**
+     * Time to traverse the graph, in nanoseconds.
+     */
+    long traversalTime = Long.MAX_VALUE;
+    /**
+     * Number of bytes allocated while building and traversing the graph.
+     */
+    long allocated = Long.MAX_VALUE;
+
+    /**
+     * Record the measurements of a round.
+     * @param build time to build the graph, in nanoseconds.
+     * @param traversal time to traverse the graph, in nanoseconds.
+     * @param bytes number of bytes allocated.
+     */
+    void add(final long build, final long traversal, final long bytes) {
+      buildTime = Math.min(buildTime, build);
+      traversalTime = Math.min(traversalTime, traversal);
+      allocated = Math.min(allocated, bytes);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("build %,.1f ms, traversal %,.1f ms, allocated %,d KB", buildTime / 1e6d, traversalTime / 1e6d, allocated / 1024L);
+    }
+  }
+
+  /**
+   * The map-based implementation of the task graph which {@link TaskGraph} replaced, reduced to what the driver uses.
+   */
+  private static class MapTaskGraph {
+    /**
+     * Mapping of nodes to their position.
+     */
+    private final Map<Integer, Node> nodesMap = new HashMap<>();
+    /**
+     * Mapping of node positions to the positions of their dependants.
+     */
+    private final CollectionMap<Integer, Node> dependantsMap = new ArrayListHashMap<>();
+    /**
+     * Mapping of node positions to the positions of their remaining unexecuted dependencies.
+     */
+    private final CollectionMap<Integer, Integer> remainingDependenciesMap = new ArrayListHashMap<>();
+    /**
+     * The set of non-executed tasks that no longer have pending dependencies.
+     */
+    private final Set<Integer> availableNodes = new HashSet<>();
+    /**
+     * The count of completed tasks.
+     */
+    private int doneCount;
+
+    /**
+     * Create this graph from the specified collection of nodes.
+     * @param nodes the nodes that constitute the graph.
+     */
+    MapTaskGraph(final Collection<Node> nodes) {
+      for (final Node node: nodes) nodesMap.put(node.getPosition(), node);
+      for (final Map.Entry<Integer, Node> entry: nodesMap.entrySet()) {
+        final int pos = entry.getKey();
+        final Node node = entry.getValue();
+        int remaining = 0;
+        for (final Node dep: node.getDependencies()) {
+          dependantsMap.putValue(dep.getPosition(), node);
+          if (!dep.isDone()) {
+            remainingDependenciesMap.putValue(pos, dep.getPosition());
+            remaining++;
+          }
+        }
+        if (!node.isDone()) {
+          if (remaining <= 0) availableNodes.add(pos);
+        }
+        else doneCount++;
+      }
+    }
+
+    /**
+     * Called when a task has completed or was cancelled.
+     * @param position the position of hte task in the job.
+     */
+    void nodeDone(final int position) {
+      final Node node = nodesMap.get(position);
+      if (node != null) {
+        doneCount++;
+        availableNodes.remove(position);
+        node.setDone(true);
+        final Collection<Node> dependants = dependantsMap.getValues(position);
+        if (dependants != null) {
+          for (final Node dependant: dependants) {
+            final int dependantPosition = dependant.getPosition();
+            remainingDependenciesMap.removeValue(dependantPosition, position);
+            if (!remainingDependenciesMap.containsKey(dependantPosition)) availableNodes.add(dependantPosition);
+          }
+        }
+      }
+    }
+
+    /**
+     * @return the set of non-executed tasks that no longer have pending dependencies.
+     */
+    Set<Integer> getAvailableNodes() {
+      return availableNodes;
+    }
+
+    /**
+     * @return whether all task in the job graph are odne.
+     */
+    boolean isDone() {
+      return doneCount >= nodesMap.size();
+    }
+
+    /**
+     * Compute the size of the serialized form of the map-based graph.
+     * @param nodes the nodes of the graph.
+     * @return the serialized size in bytes.
+     * @throws IOException if any I/O error occurs.
+     */
+    static int serializedSize(final Collection<Node> nodes) throws IOException {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buf = new byte[8];
+      SerializationUtils.writeVarInt(out, nodes.size(), buf);
+      for (final Node node: nodes) {
+        SerializationUtils.writeVarInt(out, node.getPosition(), buf);
+        out.write(node.isDone() ? 1 : 0);
+        final List<Node> deps = node.getDependencies();
+        SerializationUtils.writeVarInt(out, deps.size(), buf);
+        for (final Node dep: deps) SerializationUtils.writeVarInt(out, dep.getPosition(), buf);
+      }
+      return out.size();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("MapTaskGraph[nodes=%d, doneCount=%d, availableNodes=%d]", nodesMap.size(), doneCount, availableNodes.size());
+    }
+  }
+}
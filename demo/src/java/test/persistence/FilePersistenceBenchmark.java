@@ -0,0 +1,147 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.persistence;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.io.MultipleBuffersLocation;
+import org.jppf.job.persistence.*;
+import org.jppf.job.persistence.impl.*;
+import org.jppf.utils.DeleteFileVisitor;
+
+/**
+ * Compares the throughput of the default file job persistence with that of the log-structured job persistence.
+ * Each job is stored by its own thread, in groups of tasks the size of a node dispatch, then loaded and deleted:
+ * <pre>
+ * java test.persistence.FilePersistenceBenchmark [nbJobs] [nbTasks] [taskSize] [dispatchSize]
+ * </pre>
+ * @author Laurent Cohen
+ */
+public class FilePersistenceBenchmark {
+  /**
+   * Entry point.
+   * @param args optional: the number of concurrent jobs, the number of tasks per job, the size in bytes of each serialized task, the number of tasks per store operation.
+   */
+  public static void main(final String[] args) {
+    try {
+      final int nbJobs = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+      final int nbTasks = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000;
+      final int taskSize = (args.length > 2) ? Integer.parseInt(args[2]) : 512;
+      final int dispatchSize = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+      System.out.printf("%d jobs with %,d tasks of %,d bytes, stored %d tasks at a time%n", nbJobs, nbTasks, taskSize, dispatchSize);
+      final Path root = Paths.get("persistence_benchmark");
+      for (int i=0; i<2; i++) {
+        // the first pass is a warmup
+        final boolean print = i > 0;
+        run("file", new DefaultFilePersistence(root.toString()), nbJobs, nbTasks, taskSize, dispatchSize, print);
+        deleteDirectory(root);
+        final LogStructuredPersistence log = new LogStructuredPersistence(root.toString());
+        try {
+          run("log", log, nbJobs, nbTasks, taskSize, dispatchSize, print);
+        } finally {
+          log.close();
+        }
+        deleteDirectory(root);
+      }
+    } catch (final Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Measure the store, load and delete throughput of the specified persistence.
+   * @param name the name to display.
+   * @param persistence the persistence to measure.
+   * @param nbJobs the number of concurrent jobs.
+   * @param nbTasks the number of tasks per job.
+   * @param taskSize the size in bytes of each serialized task.
+   * @param dispatchSize the number of tasks per store operation.
+   * @param print whether to print the results.
+   * @throws Exception if any error occurs.
+   */
+  private static void run(final String name, final JobPersistence persistence, final int nbJobs, final int nbTasks, final int taskSize, final int dispatchSize,
+    final boolean print) throws Exception {
+    final byte[] data = new byte[taskSize];
+    new Random(1L).nextBytes(data);
+    final List<List<PersistenceInfo>> jobs = new ArrayList<>(nbJobs);
+    for (int i=0; i<nbJobs; i++) {
+      final String uuid = "benchmark-job-" + i;
+      final List<PersistenceInfo> infos = new ArrayList<>(nbTasks);
+      for (int j=0; j<nbTasks; j++) infos.add(new PersistenceInfoImpl(uuid, null, PersistenceObjectType.TASK, j, new MultipleBuffersLocation(data)));
+      jobs.add(infos);
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(nbJobs);
+    try {
+      final long store = runJobs(executor, jobs, infos -> {
+        for (int i=0; i<infos.size(); i+=dispatchSize) persistence.store(infos.subList(i, Math.min(i + dispatchSize, infos.size())));
+      });
+      final long load = runJobs(executor, jobs, infos -> {
+        if (persistence.load(infos).size() != infos.size()) throw new IllegalStateException("some tasks were not loaded");
+      });
+      final long delete = runJobs(executor, jobs, infos -> persistence.deleteJob(infos.get(0).getJobUuid()));
+      if (print) System.out.printf("%-4s : store %,10.0f tasks/s, load %,10.0f tasks/s, delete %,8.1f ms%n", name,
+        1e9d * nbJobs * nbTasks / store, 1e9d * nbJobs * nbTasks / load, delete / 1e6d);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Perform an operation on all the jobs concurrently.
+   * @param executor the executor which runs the operations.
+   * @param jobs the tasks of each job.
+   * @param operation the operation to perform.
+   * @return the elapsed time in nanoseconds.
+   * @throws Exception if any error occurs.
+   */
+  private static long runJobs(final ExecutorService executor, final List<List<PersistenceInfo>> jobs, final JobOperation operation) throws Exception {
+    final long start = System.nanoTime();
+    final List<Future<?>> futures = new ArrayList<>(jobs.size());
+    for (final List<PersistenceInfo> infos: jobs) futures.add(executor.submit(() -> {
+      operation.execute(infos);
+      return null;
+    }));
+    for (final Future<?> future: futures) future.get();
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Delete the specified directory if it exists.
+   * @param dir the directory to delete.
+   * @throws Exception if any error occurs.
+   */
+  private static void deleteDirectory(final Path dir) throws Exception {
+    if (Files.exists(dir)) Files.walkFileTree(dir, new DeleteFileVisitor());
+  }
+
+  /**
+   * An operation performed on the tasks of a job.
+   */
+  @FunctionalInterface
+  private interface JobOperation {
+    /**
+     * Perform the operation.
+     * @param infos the tasks of the job.
+     * @throws Exception if any error occurs.
+     */
+    void execute(List<PersistenceInfo> infos) throws Exception;
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.persistence;
+
+import java.io.InputStream;
+import java.util.*;
+
+import org.jppf.io.MultipleBuffersLocation;
+import org.jppf.job.persistence.*;
+import org.jppf.job.persistence.impl.DefaultDatabasePersistence;
+import org.jppf.persistence.JPPFDatasourceFactory;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+
+/**
+ * Measures the throughput of the database job persistence against an embedded H2 database, with and without bulk mode.
+ * The H2 and HikariCP libraries must be in the classpath:
+ * <pre>
+ * java test.persistence.JobPersistenceBenchmark [nbTasks] [taskSize] [iterations]
+ * </pre>
+ * @author Laurent Cohen
+ */
+public class JobPersistenceBenchmark {
+  /**
+   * Name of the datasource.
+   */
+  private static final String DATASOURCE = "benchDS";
+
+  /**
+   * Entry point.
+   * @param args optional: the number of tasks in the job, the size in bytes of each serialized task, the number of measured iterations.
+   */
+  public static void main(final String[] args) {
+    try {
+      final int nbTasks = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+      final int taskSize = (args.length > 1) ? Integer.parseInt(args[1]) : 512;
+      final int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+      final Properties props = new Properties();
+      props.setProperty("name", DATASOURCE);
+      props.setProperty("driverClassName", "org.h2.Driver");
+      props.setProperty("jdbcUrl", "jdbc:h2:mem:jppf_benchmark;DB_CLOSE_DELAY=-1");
+      props.setProperty("username", "sa");
+      props.setProperty("password", "");
+      props.setProperty("maximumPoolSize", "2");
+      JPPFDatasourceFactory.getInstance().createDataSource(DATASOURCE, props);
+      System.out.printf("job with %,d tasks of %,d bytes, %d iterations%n", nbTasks, taskSize, iterations);
+      run(false, nbTasks, taskSize, iterations);
+      run(true, nbTasks, taskSize, iterations);
+    } catch (final Exception e) {
+      e.printStackTrace();
+    } finally {
+      JPPFDatasourceFactory.getInstance().clear();
+    }
+  }
+
+  /**
+   * Measure the store and load throughput in the specified mode.
+   * @param bulk whether to use bulk mode.
+   * @param nbTasks the number of tasks in the job.
+   * @param taskSize the size in bytes of each serialized task.
+   * @param iterations the number of measured iterations.
+   * @throws Exception if any error occurs.
+   */
+  private static void run(final boolean bulk, final int nbTasks, final int taskSize, final int iterations) throws Exception {
+    // read by the persistence when it is created
+    JPPFConfiguration.set(JPPFProperties.JOB_PERSISTENCE_DB_BULK, bulk);
+    final JobPersistence persistence = new DefaultDatabasePersistence(bulk ? "BENCH_BULK" : "BENCH_SINGLE", DATASOURCE);
+    final String uuid = "benchmark-job";
+    final List<PersistenceInfo> infos = new ArrayList<>(nbTasks);
+    final byte[] data = new byte[taskSize];
+    new Random(1L).nextBytes(data);
+    for (int i=0; i<nbTasks; i++) infos.add(new PersistenceInfoImpl(uuid, null, PersistenceObjectType.TASK, i, new MultipleBuffersLocation(data)));
+    long insertTime = 0L, updateTime = 0L, loadTime = 0L;
+    // the first iteration is a warmup
+    for (int i=0; i<=iterations; i++) {
+      long start = System.nanoTime();
+      persistence.store(infos);
+      final long insert = System.nanoTime() - start;
+      start = System.nanoTime();
+      persistence.store(infos);
+      final long update = System.nanoTime() - start;
+      start = System.nanoTime();
+      final List<InputStream> streams = persistence.load(infos);
+      final long load = System.nanoTime() - start;
+      if (streams.size() != nbTasks) throw new IllegalStateException("loaded " + streams.size() + " tasks instead of " + nbTasks);
+      persistence.deleteJob(uuid);
+      if (i > 0) {
+        insertTime += insert;
+        updateTime += update;
+        loadTime += load;
+      }
+    }
+    System.out.printf("%-6s : insert %,10.0f tasks/s, update %,10.0f tasks/s, load %,10.0f tasks/s%n", bulk ? "bulk" : "single",
+      throughput(nbTasks, iterations, insertTime), throughput(nbTasks, iterations, updateTime), throughput(nbTasks, iterations, loadTime));
+  }
+
+  /**
+   * Compute a throughput in tasks per second.
+   * @param nbTasks the number of tasks processed in each iteration.
+   * @param iterations the number of iterations.
+   * @param nanos the total elapsed time in nanoseconds.
+   * @return the number of tasks per second.
+   */
+  private static double throughput(final int nbTasks, final int iterations, final long nanos) {
+    return 1e9d * nbTasks * iterations / nanos;
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.policy;
+
+import java.util.*;
+
+import org.jppf.management.JPPFSystemInformation;
+import org.jppf.node.policy.*;
+import org.jppf.utils.*;
+
+/**
+ * Compares the throughput of interpreted and compiled execution policies, evaluated against a simulated population of nodes.
+ * <p>Usage: {@code PolicyEvaluationBenchmark [nbNodes [nbIterations]]}, by default 1000 nodes and 200 iterations.
+ * @author Laurent Cohen
+ */
+public class PolicyEvaluationBenchmark {
+  /**
+   * The operating systems of the simulated nodes.
+   */
+  private static final String[] OS_NAMES = { "Linux", "Windows 10", "Mac OS X" };
+  /**
+   * Number of measurement rounds.
+   */
+  private static final int NB_ROUNDS = 5;
+
+  /**
+   * Entry point for this benchmark.
+   * @param args the number of nodes and the number of iterations.
+   */
+  public static void main(final String... args) {
+    try {
+      final int nbNodes = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+      final int nbIterations = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+      final List<PropertiesCollection<String>> nodes = createNodes(nbNodes);
+      final ExecutionPolicy[] policies = createPolicies();
+      final CompiledPolicy[] compiled = new CompiledPolicy[policies.length];
+      for (int i=0; i<policies.length; i++) compiled[i] = CompiledPolicy.compile(policies[i]);
+      checkResults(nodes, policies, compiled);
+      System.out.printf("evaluating %d policies against %d nodes, %d iterations%n", policies.length, nbNodes, nbIterations);
+      // warmup
+      for (int i=0; i<3; i++) {
+        runInterpreted(nodes, policies, Math.max(1, nbIterations / 10));
+        runCompiled(nodes, compiled, Math.max(1, nbIterations / 10));
+      }
+      // alternate the measurements and keep the best of each, to limit the effects of JIT compilation and GC
+      final long nbEvals = (long) nbIterations * nbNodes * policies.length;
+      long interpreted = Long.MAX_VALUE, compiledTime = Long.MAX_VALUE;
+      for (int i=0; i<NB_ROUNDS; i++) {
+        interpreted = Math.min(interpreted, runInterpreted(nodes, policies, nbIterations));
+        compiledTime = Math.min(compiledTime, runCompiled(nodes, compiled, nbIterations));
+      }
+      System.out.printf("interpreted: %,d ms, %.1f ns/evaluation%n", interpreted / 1_000_000L, (double) interpreted / nbEvals);
+      System.out.printf("compiled   : %,d ms, %.1f ns/evaluation%n", compiledTime / 1_000_000L, (double) compiledTime / nbEvals);
+      System.out.printf("speedup    : %.2fx%n", (double) interpreted / compiledTime);
+    } catch (final Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Evaluate the policies in interpreted mode.
+   * @param nodes the nodes to evaluate.
+   * @param policies the policies to evaluate.
+   * @param nbIterations the number of times all the policies are evaluated against all the nodes.
+   * @return the elapsed time in nanoseconds.
+   */
+  private static long runInterpreted(final List<PropertiesCollection<String>> nodes, final ExecutionPolicy[] policies, final int nbIterations) {
+    int accepted = 0;
+    final long start = System.nanoTime();
+    for (int i=0; i<nbIterations; i++) {
+      for (final PropertiesCollection<String> node: nodes) {
+        for (final ExecutionPolicy policy: policies) {
+          if (policy.evaluate(node)) accepted++;
+        }
+      }
+    }
+    final long elapsed = System.nanoTime() - start;
+    if (accepted < 0) System.out.println("should never happen");
+    return elapsed;
+  }
+
+  /**
+   * Evaluate the policies in compiled mode.
+   * @param nodes the nodes to evaluate.
+   * @param policies the compiled policies to evaluate.
+   * @param nbIterations the number of times all the policies are evaluated against all the nodes.
+   * @return the elapsed time in nanoseconds.
+   */
+  private static long runCompiled(final List<PropertiesCollection<String>> nodes, final CompiledPolicy[] policies, final int nbIterations) {
+    int accepted = 0;
+    final long start = System.nanoTime();
+    for (int i=0; i<nbIterations; i++) {
+      for (final PropertiesCollection<String> node: nodes) {
+        for (final CompiledPolicy policy: policies) {
+          if (policy.evaluate(node)) accepted++;
+        }
+      }
+    }
+    final long elapsed = System.nanoTime() - start;
+    if (accepted < 0) System.out.println("should never happen");
+    return elapsed;
+  }
+
+  /**
+   * Check that the interpreted and compiled policies yield the same results for all the nodes.
+   * @param nodes the nodes to evaluate.
+   * @param policies the policies to evaluate.
+   * @param compiled the compiled policies.
+   */
+  private static void checkResults(final List<PropertiesCollection<String>> nodes, final ExecutionPolicy[] policies, final CompiledPolicy[] compiled) {
+    for (int i=0; i<policies.length; i++) {
+      int count = 0;
+      for (final PropertiesCollection<String> node: nodes) {
+        final boolean expected = policies[i].evaluate(node);
+        if (expected != compiled[i].evaluate(node)) throw new IllegalStateException("different results for policy " + i + ":\n" + policies[i]);
+        if (expected) count++;
+      }
+      System.out.printf("policy %d accepts %d nodes%n", i, count);
+    }
+  }
+
+  /**
+   * Create execution policies representative of those used in real-world jobs.
+   * @return an array of policies.
+   */
+  private static ExecutionPolicy[] createPolicies() {
+    return new ExecutionPolicy[] {
+      new AtLeast("availableProcessors", 4).and(new AtLeast("maxMemory", 2L * 1024 * 1024 * 1024)),
+      new Contains("node.os.name", true, "linux").or(new Contains("node.os.name", true, "mac")),
+      new OneOf("jppf.processing.threads", 4, 8, 16).and(new Equal("jppf.node.provisioning.master", true)),
+      new BetweenII("jppf.processing.threads", 2, 8).and(new RegExp("jppf.uuid", "node-[0-9]*5"), new Equal("node.os.name", false, "Linux").not()),
+      new Preference(new AtLeast("availableProcessors", 16), new AtLeast("availableProcessors", 8)).and(new IsMasterNode()),
+      new BetweenII("availableProcessors", 2, 4).and(new AtLeast("maxMemory", 1024L * 1024 * 1024))
+        .or(new BetweenII("availableProcessors", 8, 16).and(new AtLeast("maxMemory", 4L * 1024 * 1024 * 1024)))
+        .or(new MoreThan("availableProcessors", 16).and(new AtLeast("maxMemory", 8L * 1024 * 1024 * 1024), new Contains("node.os.name", true, "LINUX"))),
+    };
+  }
+
+  /**
+   * Create the properties of the simulated nodes. Each node has the same system, environment and network properties as the current JVM,
+   * along with its own JPPF configuration and runtime properties.
+   * @param nbNodes the number of nodes to create.
+   * @return a list of {@link PropertiesCollection} instances.
+   */
+  private static List<PropertiesCollection<String>> createNodes(final int nbNodes) {
+    final JPPFSystemInformation template = new JPPFSystemInformation(JPPFConfiguration.getProperties(), "template", false, true);
+    final Random rand = new Random(42L);
+    final List<PropertiesCollection<String>> nodes = new ArrayList<>(nbNodes);
+    for (int i=0; i<nbNodes; i++) {
+      final NodeProperties node = new NodeProperties();
+      node.addProperties("uuid", new TypedProperties().setString("jppf.uuid", "node-" + i));
+      node.addProperties("system", template.getSystem());
+      node.addProperties("env", template.getEnv());
+      node.addProperties("jppf", new TypedProperties(template.getJppf()).setInt("jppf.processing.threads", 1 << rand.nextInt(6))
+        .setBoolean("jppf.node.provisioning.master", rand.nextBoolean()));
+      node.addProperties("network", template.getNetwork());
+      node.addProperties("runtime", new TypedProperties().setInt("availableProcessors", 1 << rand.nextInt(6))
+        .setLong("maxMemory", (1L + rand.nextInt(16)) * 512L * 1024L * 1024L));
+      node.addProperties("os", new TypedProperties().setString("node.os.name", OS_NAMES[rand.nextInt(OS_NAMES.length)]));
+      nodes.add(node);
+    }
+    return nodes;
+  }
+
+  /**
+   * A lightweight collection of properties which looks up the properties the same way as {@link JPPFSystemInformation}.
+   */
+  private static class NodeProperties implements PropertiesCollection<String> {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * Mapping of keys to the sets of properties.
+     */
+    private final Map<String, TypedProperties> map = new LinkedHashMap<>();
+    /**
+     * The sets of properties, in insertion order.
+     */
+    private TypedProperties[] array = new TypedProperties[0];
+
+    @Override
+    public void addProperties(final String key, final TypedProperties properties) {
+      map.put(key, properties);
+      array = map.values().toArray(new TypedProperties[map.size()]);
+    }
+
+    @Override
+    public TypedProperties getProperties(final String key) {
+      return map.get(key);
+    }
+
+    @Override
+    public TypedProperties[] getPropertiesArray() {
+      return array;
+    }
+
+    @Override
+    public String getProperty(final String name) {
+      for (final TypedProperties props: array) {
+        if ((props != null) && props.containsKey(name)) return props.getProperty(name);
+      }
+      return null;
+    }
+
+    @Override
+    public boolean containsKey(final String name) {
+      for (final TypedProperties props: array) {
+        if ((props != null) && props.containsKey(name)) return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package test.serialization;
+
+import java.io.*;
+import java.util.*;
+
+import org.jppf.serialization.*;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+
+/**
+ * Compares the throughput of the default JPPF serialization with that of the standard Java serialization, for a large graph of small objects.
+ * <p>The JPPF serialization scheme uses field accessors based on method handles by default. Since this choice is made once per JVM,
+ * the reflective field access is measured by running this program again with "reflect" as first argument:
+ * <pre>
+ * java test.serialization.SerializationBenchmark [reflect] [nbObjects] [iterations]
+ * </pre>
+ * <p>The JPPF serialization is also measured with the class signature dictionary, which mostly reduces the size of the serialized graph.
+ * @author Laurent Cohen
+ */
+public class SerializationBenchmark {
+  /**
+   * Entry point.
+   * @param args optional: "reflect" or "accessors", the number of objects in the graph, the number of measured iterations.
+   */
+  public static void main(final String[] args) {
+    try {
+      final boolean reflect = (args.length > 0) && "reflect".equalsIgnoreCase(args[0]);
+      // must be set before the first use of the serialization
+      JPPFConfiguration.set(JPPFProperties.SERIALIZATION_FIELD_ACCESSORS, !reflect);
+      final int nbObjects = (args.length > 1) ? Integer.parseInt(args[1]) : 20_000;
+      final int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 50;
+      final List<Item> graph = createGraph(nbObjects);
+      System.out.printf("graph of %,d objects, %d iterations%n", nbObjects, iterations);
+      run(reflect ? "JPPF, reflection" : "JPPF, field accessors", new DefaultJPPFSerialization(), graph, iterations);
+      // read by each new serializer, so it can be switched between runs
+      JPPFConfiguration.set(JPPFProperties.SERIALIZATION_DICTIONARY_ENABLED, true);
+      run("JPPF, dictionary", new DefaultJPPFSerialization(), graph, iterations);
+      JPPFConfiguration.set(JPPFProperties.SERIALIZATION_DICTIONARY_ENABLED, false);
+      run("Java", new DefaultJavaSerialization(), graph, iterations);
+    } catch (final Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Measure the serialization and deserialization times for the specified scheme.
+   * @param name the name of the scheme to display.
+   * @param serialization the serialization scheme.
+   * @param graph the object graph to serialize.
+   * @param iterations the number of measured iterations.
+   * @throws Exception if any error occurs.
+   */
+  private static void run(final String name, final JPPFSerialization serialization, final Object graph, final int iterations) throws Exception {
+    // warmup
+    for (int i=0; i<Math.max(5, iterations / 5); i++) serialization.deserialize(new ByteArrayInputStream(serialize(serialization, graph)));
+    long serTime = 0L, deserTime = 0L;
+    int size = 0;
+    for (int i=0; i<iterations; i++) {
+      long start = System.nanoTime();
+      final byte[] bytes = serialize(serialization, graph);
+      serTime += System.nanoTime() - start;
+      size = bytes.length;
+      start = System.nanoTime();
+      serialization.deserialize(new ByteArrayInputStream(bytes));
+      deserTime += System.nanoTime() - start;
+    }
+    System.out.printf("%-22s: serialization %8.3f ms, deserialization %8.3f ms, size %,d bytes%n", name, serTime / 1e6 / iterations, deserTime / 1e6 / iterations, size);
+  }
+
+  /**
+   * Serialize the specified object.
+   * @param serialization the serialization scheme.
+   * @param object the object to serialize.
+   * @return the serialized object as an array of bytes.
+   * @throws Exception if any error occurs.
+   */
+  private static byte[] serialize(final JPPFSerialization serialization, final Object object) throws Exception {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    serialization.serialize(object, baos);
+    return baos.toByteArray();
+  }
+
+  /**
+   * Create a list of small objects, which reference a few shared objects.
+   * @param nbObjects the number of objects to create.
+   * @return the objects as a list.
+   */
+  private static List<Item> createGraph(final int nbObjects) {
+    final Random rand = new Random(42L);
+    final List<Item> list = new ArrayList<>(nbObjects);
+    final Item[] shared = new Item[16];
+    for (int i=0; i<nbObjects; i++) {
+      final Item item = new Item();
+      item.id = i;
+      item.timestamp = rand.nextLong();
+      item.value = rand.nextDouble();
+      item.weight = rand.nextFloat();
+      item.code = (short) rand.nextInt();
+      item.flag = rand.nextBoolean();
+      if (i < shared.length) shared[i] = item;
+      else item.shared = shared[i % shared.length];
+      list.add(item);
+    }
+    return list;
+  }
+
+  /**
+   * A small object with mostly primitive fields.
+   */
+  public static class Item implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /** An int field. */
+    int id;
+    /** A long field. */
+    long timestamp;
+    /** A double field. */
+    double value;
+    /** A float field. */
+    float weight;
+    /** A short field. */
+    short code;
+    /** A boolean field. */
+    boolean flag;
+    /** A reference to an object shared with other items. */
+    Item shared;
+  }
+}
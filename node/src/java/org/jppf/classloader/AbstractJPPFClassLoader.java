@@ -49,6 +49,10 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * Determines the class loading delegation model to use.
    */
   private static DelegationModel delegationModel = initDelegationModel();
+  static {
+    // class loading is synchronized on a lock per class name rather than on the class loader instance
+    registerAsParallelCapable();
+  }
   /**
    * System classloader for URL_FIRST delegation model.
    */
@@ -79,12 +83,14 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @throws ClassNotFoundException if the class could not be found
    * @exclude
    */
-  public synchronized Class<?> loadJPPFClass(final String name) throws ClassNotFoundException {
+  public Class<?> loadJPPFClass(final String name) throws ClassNotFoundException {
     if (debugEnabled) log.debug(build("looking up resource [", name, "]"));
     Class<?> c = findLoadedClass(name);
     if (c == null) {
       if (debugEnabled) log.debug(build("resource [", name, "] not already loaded"));
-      c = isRemoteClassLoadingDisabled() ? Class.forName(name, true, this) : findClass(name, false);
+      synchronized(getClassLoadingLock(name)) {
+        c = isRemoteClassLoadingDisabled() ? Class.forName(name, true, this) : findClass(name, false);
+      }
     }
     if (debugEnabled) log.debug(build("definition for resource [", name, "] : ", c));
     if ((c != null) && debugEnabled) log.debug("class '" + name + "' loaded by " + c.getClassLoader());
@@ -112,10 +118,24 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @see java.lang.ClassLoader#findClass(java.lang.String)
    * @exclude
    */
-  protected synchronized Class<?> findClass(final String name, final boolean lookupClasspath) throws ClassNotFoundException {
-    Class<?> c = null;
+  protected Class<?> findClass(final String name, final boolean lookupClasspath) throws ClassNotFoundException {
     if (notFoundCache.has(name)) throw new ClassNotFoundException(build("Could not load class '", name, "'"));
-    c = findLoadedClass(name);
+    Class<?> c = findLoadedClass(name);
+    if (c != null) return c;
+    synchronized(getClassLoadingLock(name)) {
+      return findClassLocked(name, lookupClasspath);
+    }
+  }
+
+  /**
+   * Find a class in this class loader's classpath, while holding the class loading lock for the class name.
+   * @param name binary name of the resource to find.
+   * @param lookupClasspath specifies whether the class should be looked up in the URL classpath as well.
+   * @return a defined <code>Class</code> instance.
+   * @throws ClassNotFoundException if the class could not be loaded.
+   */
+  private Class<?> findClassLocked(final String name, final boolean lookupClasspath) throws ClassNotFoundException {
+    Class<?> c = findLoadedClass(name);
     if (c != null) return c;
     if (lookupClasspath) {
       c = findClassInURLClasspath(name, false);
@@ -131,8 +151,13 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
     final int i = name.lastIndexOf('.');
     if (i >= 0) {
       final String pkgName = name.substring(0, i);
-      final Package pkg = getPackage(pkgName);
-      if (pkg == null) definePackage(pkgName, null, null, null, null, null, null, null);
+      if (getPackage(pkgName) == null) {
+        try {
+          definePackage(pkgName, null, null, null, null, null, null, null);
+        } catch (@SuppressWarnings("unused") final IllegalArgumentException e) {
+          // the package was concurrently defined while loading another class
+        }
+      }
     }
     if (debugEnabled) log.debug(build("looking up definition for resource [", name, "]"));
     byte[] b = null;
@@ -316,10 +341,13 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @exclude
    */
   @Override
-  protected synchronized Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+  protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
     final DelegationModel model = getDelegationModel();
     switch(model) {
-      case URL_FIRST: return loadClassLocalFirst(name, resolve);
+      case URL_FIRST:
+        synchronized(getClassLoadingLock(name)) {
+          return loadClassLocalFirst(name, resolve);
+        }
       case PARENT_FIRST: return super.loadClass(name, resolve);
     }
     throw new IllegalStateException("unknown class loader delegation model " + model);
@@ -390,7 +418,7 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
    * @return a <code>Class</code> instance, or null if the class could not be found in the URL classpath.
    * @exclude
    */
-  private synchronized Class<?> findClassInURLClasspath(final String name, final boolean recursive){
+  private Class<?> findClassInURLClasspath(final String name, final boolean recursive){
     if (debugEnabled) log.debug("looking up resource [{}] in the URL classpath for {}", name, this);
     Class<?> c = findLoadedClass(name);
     if (c == null) {
@@ -398,9 +426,14 @@ public abstract class AbstractJPPFClassLoader extends AbstractJPPFClassLoaderLif
         c = ((AbstractJPPFClassLoader) getParent()).findClassInURLClasspath(name, recursive);
       }
       if (c == null) {
-        try {
-          c = super.findClass(name);
-        } catch(@SuppressWarnings("unused") final ClassNotFoundException ignore) {
+        synchronized(getClassLoadingLock(name)) {
+          c = findLoadedClass(name);
+          if (c == null) {
+            try {
+              c = super.findClass(name);
+            } catch(@SuppressWarnings("unused") final ClassNotFoundException ignore) {
+            }
+          }
         }
       }
     }
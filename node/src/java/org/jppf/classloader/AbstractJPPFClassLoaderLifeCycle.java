@@ -26,7 +26,7 @@ import java.util.concurrent.atomic.*;
 
 import org.jppf.JPPFNodeReconnectionNotification;
 import org.jppf.caching.*;
-import org.jppf.classloader.resource.ResourceCache;
+import org.jppf.classloader.resource.*;
 import org.jppf.node.connection.ConnectionReason;
 import org.jppf.node.protocol.TaskThreadLocals;
 import org.jppf.utils.*;
@@ -57,6 +57,9 @@ public abstract class AbstractJPPFClassLoaderLifeCycle extends URLClassLoader {
    * Whether resources should be looked up in the file system if not found in the classpath.
    */
   private static final boolean FILE_LOOKUP = JPPFConfiguration.get(JPPFProperties.CLASSLOADER_FILE_LOOKUP);
+  static {
+    registerAsParallelCapable();
+  }
   /**
    * Determines whether this class loader should handle dynamic class updating.
    * @exclude
@@ -72,6 +75,11 @@ public abstract class AbstractJPPFClassLoaderLifeCycle extends URLClassLoader {
    * @exclude
    */
   protected ResourceCache resourceCache = createResourceCache();
+  /**
+   * The persistent store of downloaded definitions, or {@code null} if it is disabled.
+   * @exclude
+   */
+  protected PersistentResourceStore persistentStore = PersistentResourceStore.getInstance();
   /**
    * The cache handling resources that were not found by this class loader.
    * @exclude
@@ -159,7 +167,13 @@ public abstract class AbstractJPPFClassLoaderLifeCycle extends URLClassLoader {
       try {
         if (debugEnabled) log.debug(build(this, " loading remote definition for resource [", map.get("name"), "]"));
         map.put(ResourceIdentifier.FILE_LOOKUP_ALLOWED, FILE_LOOKUP);
+        final PersistentResourceStore store = isSingleResource(map) ? persistentStore : null;
+        if (store != null) {
+          final String knownHash = store.getKnownHash((String) map.get(ResourceIdentifier.NAME));
+          if (knownHash != null) map.put(ResourceIdentifier.KNOWN_HASH, knownHash);
+        }
         resource = connection.loadResource(map, dynamic, TaskThreadLocals.getRequestUuid(), uuidPath);
+        if (store != null) resource = resolveFromStore(store, map, resource);
         if (debugEnabled) log.debug(build(this, " remote definition for resource [", map.get("name") + "] ", resource.getDefinition()==null ? "not " : "", "found"));
       } catch(final IOException e) {
         if (debugEnabled) log.debug(this.toString() + " connection with class server ended, re-initializing, exception is:", e);
@@ -173,6 +187,44 @@ public abstract class AbstractJPPFClassLoaderLifeCycle extends URLClassLoader {
     return resource;
   }
 
+  /**
+   * Determine whether the specified request is for the definition of a single resource.
+   * @param map contains the necessary resource request data.
+   * @return {@code true} if the request is for a single resource, {@code false} otherwise.
+   */
+  private static boolean isSingleResource(final Map<ResourceIdentifier, Object> map) {
+    return (map.get(ResourceIdentifier.NAME) != null) && !map.containsKey(ResourceIdentifier.MULTIPLE) && !map.containsKey(ResourceIdentifier.MULTIPLE_NAMES) && !map.containsKey(ResourceIdentifier.CALLABLE);
+  }
+
+  /**
+   * Complete a response with the definition held in the persistent store when the server indicated that it is unchanged,
+   * or record the downloaded definition in the store otherwise.
+   * If the definition can no longer be read from the store, it is requested again without a known hash.
+   * @param store the persistent resource store.
+   * @param map contains the necessary resource request data.
+   * @param resource the response received from the server.
+   * @return the response, with its definition set if it was found in the store.
+   * @throws Exception if any error occurs.
+   */
+  private JPPFResourceWrapper resolveFromStore(final PersistentResourceStore store, final Map<ResourceIdentifier, Object> map, final JPPFResourceWrapper resource) throws Exception {
+    final String name = (String) map.get(ResourceIdentifier.NAME);
+    if (resource.getDefinition() != null) {
+      if (resource.getData(ResourceIdentifier.HASH_MATCH) == null) store.store(name, resource.getDefinition());
+      return resource;
+    }
+    if (resource.getData(ResourceIdentifier.HASH_MATCH) == null) return resource;
+    final byte[] definition = store.load((String) resource.getData(ResourceIdentifier.KNOWN_HASH));
+    if (definition != null) {
+      if (debugEnabled) log.debug(build(this, " definition for resource [", name, "] found in the persistent cache"));
+      resource.setDefinition(definition);
+      return resource;
+    }
+    map.remove(ResourceIdentifier.KNOWN_HASH);
+    final JPPFResourceWrapper retry = connection.loadResource(map, dynamic, TaskThreadLocals.getRequestUuid(), uuidPath);
+    if (retry.getDefinition() != null) store.store(name, retry.getDefinition());
+    return retry;
+  }
+
   @Override
   public void addURL(final URL url) {
     super.addURL(url);
@@ -21,7 +21,7 @@ package org.jppf.classloader;
 import static org.jppf.utils.StringUtils.build;
 
 import java.util.Map;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
 
 import org.jppf.utils.*;
 import org.jppf.utils.concurrent.*;
@@ -71,6 +71,11 @@ public class ClassLoaderRequestHandler {
    * 
    */
   private int peakBatchSize;
+  /**
+   * The futures of the requests which are either pending or sent and awaiting a response.
+   * Concurrent requests for the same resource share the same future, whether they fall in the same batch or not.
+   */
+  private final Map<JPPFResourceWrapper, Future<JPPFResourceWrapper>> inFlight = new ConcurrentHashMap<>();
 
   /**
    * Initialize this request handler.
@@ -83,16 +88,23 @@ public class ClassLoaderRequestHandler {
   }
 
   /**
-   * Add a resource request.
+   * Add a resource request. If a request for the same resource is already pending or awaiting a response, its future is returned instead.
    * @param resource the resource request to add.
    * @return a future for getting the respone at a later time.
    */
   public Future<JPPFResourceWrapper> addRequest(final JPPFResourceWrapper resource) {
     if (resource == null) throw new IllegalArgumentException("resource is null");
     resource.preProcess();
-    final Future<JPPFResourceWrapper> f;
+    Future<JPPFResourceWrapper> f = inFlight.get(resource);
+    if (f != null) {
+      if (debugEnabled) log.debug("coalescing request for {} with an in-flight request", resource);
+      return f;
+    }
     synchronized (periodicTask) {
+      f = inFlight.get(resource);
+      if (f != null) return f;
       f = nextRequest.addResource(resource);
+      inFlight.put(resource, f);
     }
     periodicTask.wakeUp();
     return f;
@@ -109,6 +121,7 @@ public class ClassLoaderRequestHandler {
     final ResourceRequestRunner tmp = requestRunner;
     requestRunner = null;
     periodicThread = null;
+    inFlight.clear();
     return tmp;
   }
 
@@ -148,11 +161,15 @@ public class ClassLoaderRequestHandler {
           if (response != null) {
             for (final JPPFResourceWrapper rw : response.getResources()) {
               final ResourceFuture<JPPFResourceWrapper> f = (ResourceFuture<JPPFResourceWrapper>) futureMap.remove(rw);
-              if (f != null) f.setDone(rw);
+              if (f != null) {
+                inFlight.remove(rw, f);
+                f.setDone(rw);
+              }
             }
           }
           for (final Map.Entry<JPPFResourceWrapper, Future<JPPFResourceWrapper>> entry : futureMap.entrySet()) {
             final ResourceFuture<JPPFResourceWrapper> future = (ResourceFuture<JPPFResourceWrapper>) entry.getValue();
+            inFlight.remove(entry.getKey(), future);
             if (t != null) future.setThrowable(t);
             else future.setDone(null);
           }
@@ -31,6 +31,9 @@ public class JPPFClassLoader extends AbstractJPPFClassLoader {
    * Logger for this class.
    */
   private static Logger log = LoggerFactory.getLogger(JPPFClassLoader.class);
+  static {
+    registerAsParallelCapable();
+  }
 
   /**
    * Initialize this class loader with a parent class loader.
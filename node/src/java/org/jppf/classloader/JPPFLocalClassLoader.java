@@ -31,6 +31,9 @@ public class JPPFLocalClassLoader extends AbstractJPPFClassLoader {
    * Logger for this class.
    */
   private static Logger log = LoggerFactory.getLogger(JPPFLocalClassLoader.class);
+  static {
+    registerAsParallelCapable();
+  }
 
   /**
    * Initialize this class loader with a parent class loader.
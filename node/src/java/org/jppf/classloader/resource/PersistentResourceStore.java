@@ -0,0 +1,206 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.classloader.resource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+
+import org.jppf.classloader.JPPFResourceWrapper;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * A persistent store of resource definitions, addressed by the hash of their content, which survives node restarts and is shared by all the class loaders in the JVM.
+ * <p>The store also remembers the hash of the latest definition downloaded for each resource name. The node sends this hash along with its requests,
+ * so the driver can omit the definition from its response when it has not changed.
+ * <p>The content is laid out as {@code <root>/content/<2 first hex digits>/<hash>}, and the name index as {@code <root>/names/<2 first hex digits>/<hash of the name>}.
+ * Files are written to a temporary file then atomically renamed, so that several nodes can share the same root folder.
+ * @author Laurent Cohen
+ * @exclude
+ */
+public class PersistentResourceStore {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(PersistentResourceStore.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Determines whether the trace level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static boolean traceEnabled = log.isTraceEnabled();
+  /**
+   * The store configured for this JVM, if any.
+   */
+  private static PersistentResourceStore instance;
+  /**
+   * Whether {@link #instance} was initialized.
+   */
+  private static boolean initialized;
+  /**
+   * The folder where the definitions are stored.
+   */
+  private final File contentDir;
+  /**
+   * The folder where the hashes of the definitions are stored for each resource name.
+   */
+  private final File namesDir;
+
+  /**
+   * Initialize this store with the specified root folder.
+   * @param root the root folder of the store, created if it does not exist.
+   * @throws IOException if the folders of the store could not be created.
+   */
+  public PersistentResourceStore(final File root) throws IOException {
+    this.contentDir = new File(root, "content");
+    this.namesDir = new File(root, "names");
+    Files.createDirectories(contentDir.toPath());
+    Files.createDirectories(namesDir.toPath());
+  }
+
+  /**
+   * Get the persistent store configured for this JVM.
+   * @return a {@link PersistentResourceStore}, or {@code null} if the persistent cache is disabled or could not be initialized.
+   */
+  public static synchronized PersistentResourceStore getInstance() {
+    if (!initialized) {
+      initialized = true;
+      final TypedProperties config = JPPFConfiguration.getProperties();
+      if (config.get(JPPFProperties.RESOURCE_CACHE_PERSISTENT)) {
+        final String path = config.get(JPPFProperties.RESOURCE_CACHE_PERSISTENT_DIR);
+        final File root = (path == null) ? new File(FileUtils.getJPPFTempDir(), "persistent") : new File(path);
+        try {
+          instance = new PersistentResourceStore(root);
+          log.info("persistent resource cache in {}", root);
+        } catch (final Exception e) {
+          log.error("could not initialize the persistent resource cache in {} : {}", root, ExceptionUtils.getStackTrace(e));
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Get the hash of the latest definition stored for the specified resource name.
+   * @param name the name of the resource.
+   * @return the hash as a string of hexadecimal digits, or {@code null} if no definition was stored for this name.
+   */
+  public String getKnownHash(final String name) {
+    final File file = nameFile(name);
+    return privileged(() -> file.exists() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim() : null);
+  }
+
+  /**
+   * Load the definition with the specified hash.
+   * A definition whose content does not match its hash, for instance after a partial write, is deleted and not returned.
+   * @param hash the hash of the definition.
+   * @return the definition as an array of bytes, or {@code null} if it could not be found.
+   */
+  public byte[] load(final String hash) {
+    final File file = contentFile(hash);
+    final byte[] definition = privileged(() -> file.exists() ? Files.readAllBytes(file.toPath()) : null);
+    if (definition == null) return null;
+    if (!hash.equals(JPPFResourceWrapper.computeDefinitionHash(definition))) {
+      log.warn("removing corrupted definition {} from the persistent resource cache", file);
+      privileged(() -> Files.deleteIfExists(file.toPath()));
+      return null;
+    }
+    return definition;
+  }
+
+  /**
+   * Store the specified definition and record its hash as the latest known for the specified resource name.
+   * @param name the name of the resource.
+   * @param definition the definition to store.
+   * @return the hash of the definition, or {@code null} if it could not be stored.
+   */
+  public String store(final String name, final byte[] definition) {
+    final String hash = JPPFResourceWrapper.computeDefinitionHash(definition);
+    if (hash == null) return null;
+    final Boolean stored = privileged(() -> {
+      final File content = contentFile(hash);
+      if (!content.exists()) writeAtomically(content, definition);
+      writeAtomically(nameFile(name), hash.getBytes(StandardCharsets.UTF_8));
+      return true;
+    });
+    if (traceEnabled) log.trace("stored definition of {} with hash {}", name, hash);
+    return (stored == null) ? null : hash;
+  }
+
+  /**
+   * Get the file holding the definition with the specified hash.
+   * @param hash the hash of the definition.
+   * @return a {@link File} instance.
+   */
+  private File contentFile(final String hash) {
+    return new File(new File(contentDir, hash.substring(0, 2)), hash);
+  }
+
+  /**
+   * Get the file holding the hash of the latest definition for the specified resource name.
+   * @param name the name of the resource.
+   * @return a {@link File} instance.
+   */
+  private File nameFile(final String name) {
+    final String nameHash = JPPFResourceWrapper.computeDefinitionHash(name.getBytes(StandardCharsets.UTF_8));
+    return new File(new File(namesDir, nameHash.substring(0, 2)), nameHash);
+  }
+
+  /**
+   * Write the specified data to a temporary file, then rename it to the target file.
+   * @param target the file to write.
+   * @param data the data to write.
+   * @throws IOException if any I/O error occurs.
+   */
+  private static void writeAtomically(final File target, final byte[] data) throws IOException {
+    final Path dir = Files.createDirectories(target.getParentFile().toPath());
+    final Path tmp = Files.createTempFile(dir, target.getName(), ".tmp");
+    try {
+      Files.write(tmp, data);
+      try {
+        Files.move(tmp, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (@SuppressWarnings("unused") final AtomicMoveNotSupportedException e) {
+        Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Perform the specified file system operation with the privileges of this class, since it may be invoked while loading classes for a task.
+   * @param <T> the type of result of the operation.
+   * @param action the operation to perform.
+   * @return the result of the operation, or {@code null} if it failed.
+   */
+  private static <T> T privileged(final PrivilegedExceptionAction<T> action) {
+    try {
+      return AccessController.doPrivileged(action);
+    } catch (final PrivilegedActionException e) {
+      if (debugEnabled) log.debug("error accessing the persistent resource cache", e.getException());
+      else log.warn("error accessing the persistent resource cache: {}", ExceptionUtils.getMessage(e.getException()));
+      return null;
+    }
+  }
+}
@@ -48,6 +48,11 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
    * The node who owns this TaskIO.
    */
   protected final N node;
+  /**
+   * Whether the tasks of the last bundle that was read were submitted to the execution manager while they were deserialized.
+   * Only accessed from the thread that reads the jobs.
+   */
+  protected boolean streamed;
 
   /**
    * Initialize this TaskIO with the specified node.
@@ -69,7 +74,7 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
         final int taskCount = currentBundle.getTaskCount();
         for (int i=0; i<taskCount; i++) {
           final Task<?> task = (Task<?>) result[2 + i];
-          task.setDataProvider(dataProvider).setInNode(true).setNode(node).setJob(currentBundle);
+          if (!streamed) initializeTask(task, dataProvider, currentBundle);
           taskList.add(task);
         }
         final TaskGraphInfo graphInfo = currentBundle.getParameter(BundleParameter.JOB_TASK_GRAPH_INFO, null);
@@ -94,7 +99,7 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
           }
         }
       }
-      return new BundleWithTasks(currentBundle, taskList);
+      return new BundleWithTasks(currentBundle, taskList).setStreamed(streamed);
     } catch (final Exception|Error e) {
       if (debugEnabled) log.debug("error in readJob():", e);
       throw e;
@@ -183,6 +188,16 @@ public abstract class AbstractNodeIO<N extends AbstractCommonNode> implements No
     }
   }
 
+  /**
+   * Set the node-side state of a deserialized task.
+   * @param task the task to initialize.
+   * @param dataProvider the data provider shared by the tasks of the bundle.
+   * @param bundle the bundle the task is a part of.
+   */
+  protected void initializeTask(final Task<?> task, final DataProvider dataProvider, final TaskBundle bundle) {
+    task.setDataProvider(dataProvider).setInNode(true).setNode(node).setJob(bundle);
+  }
+
   /**
    * Prepare the task bundle's data that will be sent back to the server.
    * @param bundle the bundle to process.
@@ -21,6 +21,7 @@ package org.jppf.server.node;
 import java.util.*;
 
 import org.jppf.classloader.AbstractJPPFClassLoader;
+import org.jppf.execute.CpuTimeCollector;
 import org.jppf.execute.async.*;
 import org.jppf.node.NodeInternal;
 import org.jppf.node.event.LifeCycleEventHandler;
@@ -60,7 +61,7 @@ public class AsyncNodeExecutionManager extends AbstractAsyncExecutionManager {
   }
 
   @Override
-  protected JobProcessingEntry setup(final BundleWithTasks bundleWithTasks) {
+  protected JobProcessingEntry setup(final BundleWithTasks bundleWithTasks, final DataProvider dataProvider) {
     final List<Task<?>> taskList = bundleWithTasks.getTasks();
     final TaskBundle bundle = bundleWithTasks.getBundle();
     if (debugEnabled) log.debug("setting up bundle {}", bundle);
@@ -68,11 +69,11 @@ public class AsyncNodeExecutionManager extends AbstractAsyncExecutionManager {
     jobEntry.bundle = bundle;
     jobEntry.taskList = taskList;
     jobEntry.taskWrapperList = new ArrayList<>(taskList.size());
-    jobEntry.dataProvider = taskList.get(0).getDataProvider();
+    jobEntry.dataProvider = dataProvider;
     jobEntry.uuidList = bundle.getUuidPath().getList();
     ClassLoader taskClassLoader = null;
     try {
-      taskClassLoader = node instanceof ClassLoaderProvider ? ((ClassLoaderProvider) node).getClassLoader(jobEntry.uuidList) : taskList.get(0).getTaskClassLoader();
+      taskClassLoader = node instanceof ClassLoaderProvider ? ((ClassLoaderProvider) node).getClassLoader(jobEntry.uuidList) : (taskList.isEmpty() ? null : taskList.get(0).getTaskClassLoader());
       jobEntry.usedClassLoader = threadManager.useClassLoader(taskClassLoader);
     } catch (final Exception e) {
       final String msg = ExceptionUtils.getMessage(e) + " - class loader lookup failed for uuidPath=" + jobEntry.uuidList;
@@ -93,6 +94,8 @@ public class AsyncNodeExecutionManager extends AbstractAsyncExecutionManager {
     if (debugEnabled) log.debug("cleaning up bundle {}", bundle);
     //jobEntry.bundle = null;
     bundle.setParameter(BundleParameter.NODE_BUNDLE_ELAPSED_PARAM, jobEntry.accumulatedElapsed.get());
+    bundle.setParameter(BundleParameter.NODE_TASK_ELAPSED_TIMES, jobEntry.getTaskElapsedTimes());
+    if (CpuTimeCollector.isCpuTimeEnabled()) bundle.setParameter(BundleParameter.NODE_TASK_CPU_TIMES, jobEntry.getTaskCpuTimes());
     final ClassLoader cl = jobEntry.getClassLoader();
     final LifeCycleEventHandler handler = node.getLifeCycleEventHandler();
     if (handler != null) handler.fireJobEnding(bundle, cl instanceof AbstractJPPFClassLoader ? (AbstractJPPFClassLoader) cl : null, jobEntry.taskList, jobEntry.dataProvider);
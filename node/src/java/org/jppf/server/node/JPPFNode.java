@@ -221,7 +221,8 @@ public abstract class JPPFNode extends AbstractCommonNode implements ClassLoader
     final TaskBundle bundle = pair.getBundle();
     if (debugEnabled) log.debug(!bundle.isHandshake() ? "received a bundle with " + pair.getTasks().size()  + " tasks" : "received a handshake bundle");
     if (!bundle.isHandshake() && (bundle.getParameter(NODE_EXCEPTION_PARAM) == null)) {
-      executionManager.execute(pair);
+      // streamed tasks were already submitted for execution while the job was being read
+      if (!pair.isStreamed()) executionManager.execute(pair);
     } else {
       checkInitialBundle(bundle);
       getJobWriter().put(pair);
@@ -402,6 +403,11 @@ public abstract class JPPFNode extends AbstractCommonNode implements ClassLoader
     }
   }
 
+  @Override
+  public void taskExecuted(final TaskBundle bundle, final Task<?> task) {
+    if (!isOffline()) nodeIO.taskExecuted(bundle, task);
+  }
+
   /**
    * @exclude
    */
@@ -42,4 +42,12 @@ public interface NodeIO {
    * @throws Exception if an error occurs while writing to the socket stream.
    */
   void writeResults(TaskBundle bundle, List<Task<?>> tasks) throws Exception;
+
+  /**
+   * Called when a task has completed, before the results of its bundle are written. This implementation does nothing.
+   * @param bundle the bundle the task is a part of.
+   * @param task the task that was executed.
+   */
+  default void taskExecuted(TaskBundle bundle, Task<?> task) {
+  }
 }
@@ -89,7 +89,7 @@ public class ObjectSerializationTask implements Callable<DataLocation> {
       Thread.currentThread().setContextClassLoader(contextCL);
       if (traceEnabled) log.trace("serializing {} at position={}, submitOrder={}, job={}", toString(object), p, submitOrder, toString(isTask ? ((Task<?>) object).getJob() : object));
       dl = IOHelper.serializeData(object, ser);
-      final int size = dl.getSize();
+      final long size = dl.getLongSize();
       if (traceEnabled) log.trace("serialized  {} at position={}, submitOrder={}, job={}, size={}", toString(object), p, submitOrder, toString(isTask ? ((Task<?>) object).getJob() : object), size);
     } catch(final Throwable t) {
       log.error(t.getMessage(), t);
@@ -191,7 +191,7 @@ public class PersistedJobsManager implements PersistedJobsManagerMBean {
       final ServerTask task = (ServerTask) IOHelper.unwrappedData(data);
       dl = task.getInitialTask();
     }
-    final JPPFByteArrayOutputStream baos = new JPPFByteArrayOutputStream(dl.getSize());
+    final JPPFByteArrayOutputStream baos = (dl.getSize() > 0) ? new JPPFByteArrayOutputStream(dl.getSize()) : new JPPFByteArrayOutputStream();
     final long l = StreamUtils.copyStream(dl.getInputStream(), baos, true);
     if (debugEnabled) log.debug("copied {} bytes", l);
     return baos.toByteArray();
@@ -295,4 +295,15 @@ public class JPPFDriverAdmin implements JPPFDriverAdminMBean {
   public boolean getBroadcasting() throws Exception {
     return driver.getInitializer().isBroadcasting();
   }
+
+  @Override
+  public ClassCacheStatistics classCacheStatistics() throws Exception {
+    return driver.getInitializer().getClassCache().getStatistics();
+  }
+
+  @Override
+  public void resetClassCacheStatistics() throws Exception {
+    if (debugEnabled) log.debug("class cache statistics reset requested");
+    driver.getInitializer().getClassCache().resetStatistics();
+  }
 }
@@ -288,6 +288,13 @@ public class JPPFNodeAdmin implements JPPFNodeAdminMBean {
     }
   }
 
+  @Override
+  public int[] releaseUnstartedTasks(final String jobUuid) throws Exception {
+    if (debugEnabled) log.debug("Request to release the unstarted tasks of jobUuid = '{}'", jobUuid);
+    if (jobUuid == null) return new int[0];
+    return node.getExecutionManager().releaseUnstartedTasks(jobUuid);
+  }
+
   @Override
   public DelegationModel getDelegationModel() throws Exception {
     return AbstractJPPFClassLoader.getDelegationModel();
@@ -28,7 +28,7 @@ import org.jppf.management.*;
 import org.jppf.nio.*;
 import org.jppf.nio.acceptor.AcceptorNioServer;
 import org.jppf.node.initialization.OutputRedirectHook;
-import org.jppf.serialization.ObjectSerializer;
+import org.jppf.serialization.*;
 import org.jppf.server.job.JPPFJobManager;
 import org.jppf.server.nio.classloader.client.AsyncClientClassNioServer;
 import org.jppf.server.nio.classloader.node.AsyncNodeClassNioServer;
@@ -36,6 +36,7 @@ import org.jppf.server.nio.client.AsyncClientNioServer;
 import org.jppf.server.nio.heartbeat.HeartbeatNioServer;
 import org.jppf.server.nio.nodeserver.async.AsyncNodeNioServer;
 import org.jppf.server.node.JPPFNode;
+import org.jppf.server.protocol.SendResultsStrategyManager;
 import org.jppf.server.queue.JPPFPriorityQueue;
 import org.jppf.utils.*;
 import org.jppf.utils.configuration.JPPFProperties;
@@ -129,6 +130,10 @@ abstract class AbstractJPPFDriver {
    * To create and invoke hook instances.
    */
   final HookFactory hookFactory = HookFactory.newInstance();
+  /**
+   * Holds the strategies used to send the results back to the clients.
+   */
+  final SendResultsStrategyManager sendResultsStrategyManager;
   /**
    * Holds the statistics monitors.
    */
@@ -168,7 +173,9 @@ abstract class AbstractJPPFDriver {
     SystemUtils.printPidAndUuid("driver", uuid);
     new OutputRedirectHook().initializing(configuration);
     jppfDebugEnabled = configuration.get(JPPFProperties.DEBUG_ENABLED);
+    sendResultsStrategyManager = new SendResultsStrategyManager(configuration);
     statistics = createServerStatistics();
+    CompressionSerialization.setStatistics(statistics);
   }
 
   /**
@@ -385,6 +392,14 @@ abstract class AbstractJPPFDriver {
     this.peerDriver = peerDriver;
   }
 
+  /**
+   * @return the strategies used to send the results back to the clients.
+   * @exclude
+   */
+  public SendResultsStrategyManager getSendResultsStrategyManager() {
+    return sendResultsStrategyManager;
+  }
+
   /**
    * @return whether JPPF debug mode is enabled.
    */
@@ -105,9 +105,9 @@ public class DriverInitializer {
    */
   private final NodeConnectionEventHandler nodeConnectionEventHandler = new NodeConnectionEventHandler();
   /**
-   * Holds the soft cache of classes downlaoded form the clients r from this driver's classpath.
+   * Holds the cache of classes downlaoded form the clients r from this driver's classpath.
    */
-  private final ClassCache classCache = new ClassCache();
+  private final ClassCache classCache;
   /**
    * Supports built-in and custom discovery mechanisms.
    */
@@ -135,6 +135,7 @@ public class DriverInitializer {
     this.driver = driver;
     this.config = config;
     this.peerConnectionPoolHandler = new PeerConnectionPoolHandler(driver, config);
+    this.classCache = new ClassCache(config);
     mbeanServer = JPPFMBeanServerFactory.getMBeanServer();
   }
 
@@ -397,6 +398,7 @@ public class DriverInitializer {
           final TypedProperties oldConfig = node.getSystemInformation().getJppf();
           oldConfig.clear();
           oldConfig.putAll(nodeConfig);
+          node.getSystemInformation().incrementModificationCount();
           if (node.getBundler() instanceof ChannelAwareness) ((ChannelAwareness) node.getBundler()).setChannelConfiguration(node.getSystemInformation());
         }
       };
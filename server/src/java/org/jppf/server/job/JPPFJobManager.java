@@ -248,6 +248,8 @@ public class JPPFJobManager implements ServerJobChangeListener, JobNotificationE
     if (job != null) {
       sla = job.getSLA();
       jobInfo = new JobInformation(job.getUuid(), job.getName(), job.getTaskCount(), job.getInitialTaskCount(), sla.getPriority(), job.isSuspended(), job.isPending());
+      jobInfo.setSpeculativeCopies(job.getSpeculativeCopies());
+      jobInfo.setSpeculativeWins(job.getSpeculativeWins());
     } else {
       sla = bundle.getSLA();
       jobInfo = new JobInformation(bundle.getUuid(), bundle.getName(), bundle.getCurrentTaskCount(), bundle.getInitialTaskCount(), sla.getPriority(), sla.isSuspended(),
@@ -156,6 +156,8 @@ public class DriverJobManagement extends NotificationBroadcasterSupport implemen
     if (job == null) return null;
     final JobInformation jobInfo = new JobInformation(jobUuid, job.getName(), job.getTaskCount(), job.getInitialTaskCount(), job.getSLA().getPriority(), job.isSuspended(), job.isPending());
     jobInfo.setMaxNodes(job.getSLA().getMaxNodes());
+    jobInfo.setSpeculativeCopies(job.getSpeculativeCopies());
+    jobInfo.setSpeculativeWins(job.getSpeculativeWins());
     return jobInfo;
   }
 
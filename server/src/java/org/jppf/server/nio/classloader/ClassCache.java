@@ -18,14 +18,19 @@
 
 package org.jppf.server.nio.classloader;
 
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.jppf.management.ClassCacheStatistics;
 import org.jppf.utils.*;
-import org.jppf.utils.collections.SoftReferenceValuesMap;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
  * A cache for resources loaded by client class loaders.
+ * <p>The cache is split into segments, each with its own lock, so that lookups from many nodes do not all contend on the same monitor.
+ * Each segment holds at most its share of the configured maximum size, evicting its least recently used entries when the bound is exceeded.
  * @author Laurent Cohen
  */
 public class ClassCache {
@@ -38,18 +43,49 @@ public class ClassCache {
    */
   private static boolean traceEnabled = log.isTraceEnabled();
   /**
-   * The cache of class definition, this is done to not flood the provider when it dispatch many tasks. it uses
-   * a soft map to minimize the OutOfMemory.
+   * The segments of this cache.
    */
-  private final Map<CacheClassKey, CacheClassContent> classCache = new SoftReferenceValuesMap<>();
+  private final Segment[] segments;
+  /**
+   * The maximum size in bytes of the cached content.
+   */
+  private final long maxSize;
   /**
    * Total number of cache lookups.
    */
-  private long nbLookups;
+  private final LongAdder nbLookups = new LongAdder();
   /**
    * Total number of positive cache lookups.
    */
-  private long nbHits;
+  private final LongAdder nbHits = new LongAdder();
+  /**
+   * Total number of evicted entries.
+   */
+  private final LongAdder nbEvictions = new LongAdder();
+  /**
+   * Size in bytes of the cached content for each resource provider uuid.
+   */
+  private final ConcurrentMap<String, Long> sizePerUuid = new ConcurrentHashMap<>();
+
+  /**
+   * Initialize this cache with the specified configuration.
+   * @param config the configuration from which to read the maximum size and number of segments.
+   */
+  public ClassCache(final TypedProperties config) {
+    this(config.get(JPPFProperties.CLASS_CACHE_MAX_SIZE) * 1024L * 1024L, config.get(JPPFProperties.CLASS_CACHE_SEGMENTS));
+  }
+
+  /**
+   * Initialize this cache with the specified maximum size and number of segments.
+   * @param maxSize the maximum size in bytes of the cached content. A value of zero or less disables the cache.
+   * @param nbSegments the number of independently locked segments.
+   */
+  public ClassCache(final long maxSize, final int nbSegments) {
+    this.maxSize = Math.max(0L, maxSize);
+    final int n = Math.max(1, nbSegments);
+    segments = new Segment[n];
+    for (int i=0; i<n; i++) segments[i] = new Segment(this.maxSize / n);
+  }
 
   /**
    * Add a resource content to the class cache.
@@ -59,11 +95,8 @@ public class ClassCache {
    */
   public void setCacheContent(final String uuid, final String name, final byte[] content) {
     if (traceEnabled) log.trace("adding cache entry with key=[" + uuid + ", " + name + ']');
-    final CacheClassContent cacheContent = new CacheClassContent(content);
     final CacheClassKey cacheKey = new CacheClassKey(uuid, name);
-    synchronized (classCache) {
-      classCache.put(cacheKey, cacheContent);
-    }
+    segmentFor(cacheKey).put(cacheKey, new CacheClassContent(content));
   }
 
   /**
@@ -73,14 +106,135 @@ public class ClassCache {
    * @return the content of the resource as an array of bytes.
    */
   public byte[] getCacheContent(final String uuid, final String name) {
-    final CacheClassContent content;
-    final boolean contentNull;
-    synchronized (classCache) {
-      contentNull = (content = classCache.get(new CacheClassKey(uuid, name))) == null;
-      nbLookups++;
-      if (!contentNull) nbHits++;
-      if (traceEnabled) log.trace(StringUtils.build("nbLookups=", nbLookups, ", nbHits=", nbHits, ", lookup for key=[", uuid, ", ", name, "] : ", ReflectionUtils.simpleDump(content)));
+    final CacheClassKey cacheKey = new CacheClassKey(uuid, name);
+    final CacheClassContent content = segmentFor(cacheKey).get(cacheKey);
+    nbLookups.increment();
+    if (content != null) nbHits.increment();
+    if (traceEnabled) log.trace(StringUtils.build("nbLookups=", nbLookups, ", nbHits=", nbHits, ", lookup for key=[", uuid, ", ", name, "] : ", ReflectionUtils.simpleDump(content)));
+    return (content == null) ? null : content.getContent();
+  }
+
+  /**
+   * Get a snapshot of the statistics of this cache.
+   * @return a {@link ClassCacheStatistics} instance.
+   */
+  public ClassCacheStatistics getStatistics() {
+    int entries = 0;
+    long size = 0L;
+    for (final Segment segment: segments) {
+      synchronized(segment) {
+        entries += segment.map.size();
+        size += segment.size;
+      }
+    }
+    return new ClassCacheStatistics(nbLookups.sum(), nbHits.sum(), nbEvictions.sum(), entries, size, maxSize, sizePerUuid);
+  }
+
+  /**
+   * Reset the lookup, hit and eviction counters of this cache. The cached content is not affected.
+   */
+  public void resetStatistics() {
+    nbLookups.reset();
+    nbHits.reset();
+    nbEvictions.reset();
+  }
+
+  /**
+   * Get the segment which holds the specified key.
+   * @param key the key to lookup.
+   * @return a {@link Segment} instance.
+   */
+  private Segment segmentFor(final CacheClassKey key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[(h & 0x7FFFFFFF) % segments.length];
+  }
+
+  /**
+   * Add the specified delta to the size accounted for the specified uuid. This is called while holding the lock of the segment being modified.
+   * @param uuid uuid of the resource provider.
+   * @param delta the number of bytes to add, may be negative.
+   */
+  private void account(final String uuid, final long delta) {
+    if (delta == 0L) return;
+    sizePerUuid.compute(uuid, (k, v) -> {
+      final long n = ((v == null) ? 0L : v) + delta;
+      return (n <= 0L) ? null : n;
+    });
+  }
+
+  /**
+   * The size in bytes of the specified cache entry.
+   * @param content the content of the entry.
+   * @return the size of the content in bytes.
+   */
+  private static long sizeOf(final CacheClassContent content) {
+    final byte[] bytes = content.getContent();
+    return (bytes == null) ? 0L : bytes.length;
+  }
+
+  /**
+   * A segment of the cache, which maintains its entries in least recently accessed order.
+   */
+  private final class Segment {
+    /**
+     * The entries in this segment, in access order.
+     */
+    private final LinkedHashMap<CacheClassKey, CacheClassContent> map = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The maximum size in bytes of the content in this segment.
+     */
+    private final long maxSegmentSize;
+    /**
+     * The current size in bytes of the content in this segment.
+     */
+    private long size;
+
+    /**
+     * Initialize this segment with the specified size bound.
+     * @param maxSegmentSize the maximum size in bytes of the content in this segment.
+     */
+    private Segment(final long maxSegmentSize) {
+      this.maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Get the entry for the specified key and mark it as most recently used.
+     * @param key the key to lookup.
+     * @return the cached content, or {@code null} if there is no entry for the key.
+     */
+    private synchronized CacheClassContent get(final CacheClassKey key) {
+      return map.get(key);
+    }
+
+    /**
+     * Add or replace an entry, then evict the least recently used entries until the segment fits within its bound.
+     * An entry larger than the whole segment is not cached, and any existing entry for the same key is removed, so it cannot be returned as stale content.
+     * @param key the key of the entry.
+     * @param content the content of the entry.
+     */
+    private void put(final CacheClassKey key, final CacheClassContent content) {
+      final long entrySize = sizeOf(content);
+      synchronized(this) {
+        final CacheClassContent old = (entrySize > maxSegmentSize) ? map.remove(key) : map.put(key, content);
+        if (old != null) {
+          size -= sizeOf(old);
+          account(key.first(), -sizeOf(old));
+        }
+        if (entrySize > maxSegmentSize) return;
+        size += entrySize;
+        account(key.first(), entrySize);
+        final Iterator<Map.Entry<CacheClassKey, CacheClassContent>> it = map.entrySet().iterator();
+        while ((size > maxSegmentSize) && it.hasNext()) {
+          final Map.Entry<CacheClassKey, CacheClassContent> eldest = it.next();
+          final long eldestSize = sizeOf(eldest.getValue());
+          it.remove();
+          size -= eldestSize;
+          account(eldest.getKey().first(), -eldestSize);
+          nbEvictions.increment();
+          if (traceEnabled) log.trace("evicted {}", eldest.getKey());
+        }
+      }
     }
-    return contentNull ? null : content.getContent();
   }
 }
@@ -183,11 +183,30 @@ public class AsyncNodeClassContext extends AbstractAsyncClassContext implements
       setLocalResponse(response);
       AsyncNodeClassMessageWriter.handleResponseSent(this, response);
     } else {
+      omitKnownDefinitions(response);
       final ClassLoaderNioMessage message = serializeResource(response);
       offerMessageToSend(message);
     }
   }
 
+  /**
+   * Remove from a response the definitions which the node already holds in its persistent cache,
+   * that is, those whose hash is the same as the one the node sent with its request.
+   * @param response the response to process.
+   */
+  private void omitKnownDefinitions(final JPPFResourceWrapper response) {
+    for (final JPPFResourceWrapper resource: response.getResources()) {
+      final String knownHash = (String) resource.getData(ResourceIdentifier.KNOWN_HASH);
+      final byte[] definition = resource.getDefinition();
+      if ((knownHash == null) || (definition == null)) continue;
+      if (knownHash.equals(JPPFResourceWrapper.computeDefinitionHash(definition))) {
+        if (debugEnabled) log.debug("node already has definition of {} with hash {}, it will not be sent to {}", resource.getName(), knownHash, this);
+        resource.setDefinition(null);
+        resource.setData(ResourceIdentifier.HASH_MATCH, Boolean.TRUE);
+      }
+    }
+  }
+
   /**
    * Get the number of pending responses.
    * @return the number of pending responses as an int.
@@ -132,8 +132,8 @@ public class AsyncClientContext extends AbstractNioContext {
     final List<DataLocation> locations = message.getLocations();
     //if (traceEnabled) log.trace("deserializing {}", message);
     final TaskBundle bundle = message.getBundle();
-    if (locations.size() <= 2) return new ServerTaskBundleClient(bundle, locations.get(1), Collections.<DataLocation>emptyList(), false);
-    final ServerTaskBundleClient clientBundle = new ServerTaskBundleClient(bundle, locations.get(1), locations.subList(2, 2 + bundle.getTaskCount()), isPeer());
+    if (locations.size() <= 2) return new ServerTaskBundleClient(bundle, locations.get(1), Collections.<DataLocation>emptyList(), false, driver.getSendResultsStrategyManager());
+    final ServerTaskBundleClient clientBundle = new ServerTaskBundleClient(bundle, locations.get(1), locations.subList(2, 2 + bundle.getTaskCount()), isPeer(), driver.getSendResultsStrategyManager());
     final TaskGraphInfo graphInfo = bundle.getParameter(BundleParameter.JOB_TASK_GRAPH_INFO, null);
     final int dependencyCount = (graphInfo == null) ? 0 : graphInfo.getNbDependencies();
     if (dependencyCount > 0) {
@@ -238,7 +238,11 @@ public class AsyncClientContext extends AbstractNioContext {
         }
       }
     });
-    entriesToRemove.forEach(id -> entryMap.remove(id));
+    entriesToRemove.forEach(id -> {
+      // the results of the cancelled job will not be sent
+      final JobEntry entry = entryMap.remove(id);
+      if (entry != null) entry.getBundle().releaseData();
+    });
   }
 
   /**
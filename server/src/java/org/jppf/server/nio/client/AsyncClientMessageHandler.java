@@ -87,6 +87,7 @@ public class AsyncClientMessageHandler {
     if (clientBundle.isDone()) {
       if (debugEnabled) log.debug("client bundle done: {}", clientBundle);
       clientBundle.bundleEnded();
+      clientBundle.releaseData();
     } else {
       context.addEntry(clientBundle);
       driver.getQueue().addBundle(clientBundle);
@@ -201,7 +202,7 @@ public class AsyncClientMessageHandler {
     header.setSLA(null);
     header.setMetadata(null);
     final DataLocation dataProvider = IOHelper.serializeData(null);
-    final ServerTaskBundleClient bundle = new ServerTaskBundleClient(header, dataProvider, Collections.<DataLocation>emptyList(), true);
+    final ServerTaskBundleClient bundle = new ServerTaskBundleClient(header, dataProvider, Collections.<DataLocation>emptyList(), true, driver.getSendResultsStrategyManager());
     final ClientMessage request = context.serializeBundle(bundle);
     context.offerMessageToSend(bundle, request);
   }
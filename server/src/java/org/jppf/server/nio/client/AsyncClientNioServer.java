@@ -25,10 +25,12 @@ import java.util.*;
 
 import javax.net.ssl.*;
 
+import org.jppf.io.OffHeapMemoryPool;
 import org.jppf.nio.*;
 import org.jppf.server.JPPFDriver;
 import org.jppf.server.nio.classloader.client.*;
-import org.jppf.utils.ExceptionUtils;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.*;
 import org.jppf.utils.stats.JPPFStatisticsHelper;
 import org.slf4j.*;
 
@@ -57,6 +59,10 @@ public final class AsyncClientNioServer extends StatelessNioServer<AsyncClientCo
    * Reference to the driver.
    */
   private final JPPFDriver driver;
+  /**
+   * The pool of direct buffers which hold the task payloads received from the clients.
+   */
+  private final OffHeapMemoryPool relayPool;
 
   /**
    * @param driver reference to the driver.
@@ -69,6 +75,8 @@ public final class AsyncClientNioServer extends StatelessNioServer<AsyncClientCo
     this.driver = driver;
     selectTimeout = 1000L;
     messageHandler = new AsyncClientMessageHandler(driver);
+    final TypedProperties config = driver.getConfiguration();
+    relayPool = new OffHeapMemoryPool(config.get(JPPFProperties.SERVER_RELAY_OFFHEAP_SIZE) * 1024L * 1024L, config.get(JPPFProperties.OFFHEAP_SEGMENT_SIZE));
   }
 
   @Override
@@ -214,6 +222,11 @@ public final class AsyncClientNioServer extends StatelessNioServer<AsyncClientCo
     }
   }
 
+  @Override
+  protected JPPFProperty<Integer> getSelectorThreadsProperty() {
+    return JPPFProperties.NIO_CLIENT_SELECTOR_THREADS;
+  }
+
   @Override
   public void removeAllConnections() {
     if (!isStopped()) return;
@@ -239,4 +252,11 @@ public final class AsyncClientNioServer extends StatelessNioServer<AsyncClientCo
   JPPFDriver getDriver() {
     return driver;
   }
+
+  /**
+   * @return the pool of direct buffers which hold the task payloads received from the clients.
+   */
+  OffHeapMemoryPool getRelayPool() {
+    return relayPool;
+  }
 }
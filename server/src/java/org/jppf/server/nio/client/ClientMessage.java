@@ -18,7 +18,7 @@
 
 package org.jppf.server.nio.client;
 
-import org.jppf.io.IOHelper;
+import org.jppf.io.*;
 import org.jppf.nio.*;
 import org.jppf.node.protocol.*;
 import org.jppf.node.protocol.graph.TaskGraphInfo;
@@ -94,6 +94,25 @@ public class ClientMessage extends AbstractTaskBundleMessage {
     return clientBundle;
   }
 
+  /**
+   * The data provider and tasks are opaque to the driver, which only relays them to the nodes.
+   * They are read into pooled direct buffers when available, so that all the nodes they are sent to share the same memory.
+   * @param size the size of the data to read.
+   * @return a {@link DataLocation} with the specified size.
+   * @throws Exception if any error occurs.
+   */
+  @Override
+  protected DataLocation createDataLocation(final int size) throws Exception {
+    if ((position > 0) && (channel instanceof AsyncClientContext)) {
+      final OffHeapMemoryPool pool = ((AsyncClientContext) channel).server.getRelayPool();
+      if (pool.isEnabled()) {
+        final DataLocation location = OffHeapDataLocation.create(pool, size);
+        if (location != null) return location;
+      }
+    }
+    return super.createDataLocation(size);
+  }
+
   @Override
   protected boolean readNextObject() throws Exception {
     final boolean result = super.readNextObject();
@@ -65,12 +65,13 @@ public class JobEntry {
   }
 
   /**
-   * Send the job ended notification.
+   * Send the job ended notification, then release the data of the job since all its results were sent.
    */
   void jobEnded() {
     final ServerTaskBundleClient bundle;
     if ((bundle = getBundle()) != null) {
       bundle.bundleEnded();
+      bundle.releaseData();
     }
   }
 
@@ -0,0 +1,157 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver;
+
+import static org.jppf.utils.configuration.JPPFProperties.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jppf.node.protocol.TaskBundle;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.protocol.ServerJob;
+import org.jppf.utils.*;
+import org.slf4j.*;
+
+/**
+ * A node selection strategy which favors the nodes that are most likely to execute a job quickly. Each candidate node is given a score computed from:
+ * <ul>
+ * <li>whether the node already has a class loader for the client that submitted the job, in which case it doesn't need to load the job's classes again</li>
+ * <li>the recent time per task of the job on the node, relative to the fastest candidate node</li>
+ * <li>the number of jobs the node is already executing, relative to the maximum number of jobs it accepts</li>
+ * </ul>
+ * <p>The node with the highest score is selected, and ties are broken randomly. This results in repeated jobs from the same client sticking to the same warm nodes.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public class AffinityNodeChannelSelector implements NodeChannelSelector {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(AffinityNodeChannelSelector.class);
+  /**
+   * Determines whether the trace level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean traceEnabled = log.isTraceEnabled();
+  /**
+   * Score given to the nodes for which the time per task of the job is not yet known.
+   */
+  private static final double UNKNOWN_THROUGHPUT = 0.5d;
+  /**
+   * Weight of the class loader warmth in the score of a node.
+   */
+  private final double warmthWeight;
+  /**
+   * Weight of the relative throughput in the score of a node.
+   */
+  private final double throughputWeight;
+  /**
+   * Weight of the number of jobs executing in the score of a node.
+   */
+  private final double depthWeight;
+
+  /**
+   * Initialize this selector with the global JPPF configuration.
+   */
+  public AffinityNodeChannelSelector() {
+    this(JPPFConfiguration.getProperties());
+  }
+
+  /**
+   * Initialize this selector with the configuration of the specified driver.
+   * @param driver the JPPF driver.
+   */
+  public AffinityNodeChannelSelector(final JPPFDriver driver) {
+    this(driver.getConfiguration());
+  }
+
+  /**
+   * Initialize this selector with the specified configuration.
+   * @param config the configuration to read the weights from.
+   */
+  public AffinityNodeChannelSelector(final TypedProperties config) {
+    this(config.get(JOB_SCHEDULER_AFFINITY_WARMTH_WEIGHT), config.get(JOB_SCHEDULER_AFFINITY_THROUGHPUT_WEIGHT), config.get(JOB_SCHEDULER_AFFINITY_DEPTH_WEIGHT));
+  }
+
+  /**
+   * Initialize this selector with the specified weights.
+   * @param warmthWeight weight of the class loader warmth in the score of a node.
+   * @param throughputWeight weight of the relative throughput in the score of a node.
+   * @param depthWeight weight of the number of jobs executing in the score of a node.
+   */
+  public AffinityNodeChannelSelector(final double warmthWeight, final double throughputWeight, final double depthWeight) {
+    this.warmthWeight = warmthWeight;
+    this.throughputWeight = throughputWeight;
+    this.depthWeight = depthWeight;
+  }
+
+  @Override
+  public BaseNodeContext select(final ServerJob job, final List<BaseNodeContext> candidates) {
+    final int size = candidates.size();
+    if (size == 1) return candidates.get(0);
+    final String clientUuid = getClientUuid(job.getJob());
+    final String jobUuid = job.getUuid();
+    double bestTime = -1d;
+    for (final BaseNodeContext candidate: candidates) {
+      final double time = candidate.getAffinity().getTimePerTask(jobUuid);
+      if ((time > 0d) && ((bestTime <= 0d) || (time < bestTime))) bestTime = time;
+    }
+    BaseNodeContext selected = null;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    int nbTies = 0;
+    for (final BaseNodeContext candidate: candidates) {
+      final double score = score(candidate.getAffinity(), clientUuid, jobUuid, bestTime, candidate.getCurrentNbJobs(), candidate.getMaxJobs());
+      if (traceEnabled) log.trace("score = {} for job uuid={}, node={}", score, jobUuid, candidate);
+      if (score > bestScore) {
+        bestScore = score;
+        selected = candidate;
+        nbTies = 1;
+      } else if ((score == bestScore) && (ThreadLocalRandom.current().nextInt(++nbTies) == 0)) selected = candidate;
+    }
+    return selected;
+  }
+
+  /**
+   * Compute the score of a node for a job.
+   * @param affinity the affinity information of the node.
+   * @param clientUuid the uuid of the client that submitted the job.
+   * @param jobUuid the uuid of the job.
+   * @param bestTime the lowest known time per task of the job among all candidate nodes, or a negative value if it is not known for any node.
+   * @param currentNbJobs the number of jobs the node is currently executing.
+   * @param maxJobs the maximum number of jobs the node can execute concurrently.
+   * @return the score of the node, the higher the better.
+   */
+  public double score(final NodeAffinity affinity, final String clientUuid, final String jobUuid, final double bestTime, final int currentNbJobs, final int maxJobs) {
+    final double warmth = affinity.isWarm(clientUuid) ? 1d : 0d;
+    final double time = affinity.getTimePerTask(jobUuid);
+    final double throughput = ((time > 0d) && (bestTime > 0d)) ? bestTime / time : UNKNOWN_THROUGHPUT;
+    final double depth = (maxJobs > 0) ? Math.min(1d, (double) currentNbJobs / maxJobs) : 0d;
+    return warmthWeight * warmth + throughputWeight * throughput - depthWeight * depth;
+  }
+
+  /**
+   * Get the uuid of the client that submitted the specified job.
+   * @param job the header of the job to check.
+   * @return the uuid of the client, or {@code null} if it cannot be determined.
+   */
+  public static String getClientUuid(final TaskBundle job) {
+    final TraversalList<String> uuidPath = job.getUuidPath();
+    return ((uuidPath == null) || uuidPath.getList().isEmpty()) ? null : uuidPath.getFirst();
+  }
+}
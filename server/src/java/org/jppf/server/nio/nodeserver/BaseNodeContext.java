@@ -28,10 +28,12 @@ import org.jppf.load.balancer.persistence.LoadBalancerPersistenceManager;
 import org.jppf.load.balancer.spi.JPPFBundlerFactory;
 import org.jppf.management.*;
 import org.jppf.nio.AbstractNioContext;
+import org.jppf.node.protocol.JPPFDistributedJob;
 import org.jppf.server.JPPFDriver;
 import org.jppf.server.nio.nodeserver.async.AsyncNodeNioServer;
 import org.jppf.server.protocol.ServerTaskBundleNode;
 import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
@@ -118,6 +120,14 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
    * Determines whether the node is idle or not.
    */
   private final AtomicBoolean idle = new AtomicBoolean(false);
+  /**
+   * What the driver knows about the node that is relevant to the choice of a node for a job.
+   */
+  private final NodeAffinity affinity = new NodeAffinity();
+  /**
+   * The bundlers for the recurring job types executed by the node, or {@code null} if the load-balancer state is not kept per job type.
+   */
+  private final JobBundlerCache jobBundlers;
 
   /**
    *
@@ -128,6 +138,8 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
     this.driver = server.getDriver();
     this.bundlerHandler = server.getBundlerHandler();
     this.listener = server;
+    final TypedProperties config = (driver == null) ? null : driver.getConfiguration();
+    this.jobBundlers = ((config != null) && config.get(JPPFProperties.LOAD_BALANCING_JOB_AWARE)) ? new JobBundlerCache(config) : null;
   }
 
   @Override
@@ -165,13 +177,84 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
       setBundler(pair.second());
       bundlerAlgorithm = pair.first();
       bundler = pair.second();
-      if (bundler instanceof ContextAwareness) ((ContextAwareness) bundler).setJPPFContext(jppfContext);
-      bundler.setup();
-      if (bundler instanceof ChannelAwareness) ((ChannelAwareness) bundler).setChannelConfiguration(systemInfo);
+      initBundler(bundler, jppfContext);
     }
     return bundler;
   }
 
+  /**
+   * Check whether the bundler held by this context for the specified job is up to date.
+   * When the load-balancer state is kept per job type, the bundler for the job's signature is loaded, or reloaded if the load-balancer configuration
+   * has changed since it was created. Otherwise, or if the job has no signature, this method is equivalent to {@link #checkBundler(JPPFBundlerFactory, JPPFContext)}.
+   * @param factory the load-balancer factory.
+   * @param jppfContext execution context.
+   * @param job the job to dispatch.
+   * @return the (possibly new) bundler for this executor channel and the specified job.
+   */
+  public Bundler<?> checkBundler(final JPPFBundlerFactory factory, final JPPFContext jppfContext, final JPPFDistributedJob job) {
+    final Bundler<?> nodeBundler = checkBundler(factory, jppfContext);
+    final String signature = (jobBundlers == null) ? null : jobBundlers.getSignature(job);
+    if (signature == null) return nodeBundler;
+    final JobBundlerCache.JobBundlerEntry entry = jobBundlers.get(signature);
+    if ((entry != null) && (entry.getBundler().getTimestamp() >= factory.getLastUpdateTime())) return entry.getBundler();
+    final Pair<String, String> channelId = bundlerHandler.getJobChannelIdentifier(nodeIdentifier, signature);
+    final Pair<String, Bundler<?>> pair = bundlerHandler.loadBundler(channelId);
+    if (debugEnabled) log.debug("loaded bundler for job signature '{}' on {}", signature, this);
+    initBundler(pair.second(), jppfContext);
+    jobBundlers.put(signature, new JobBundlerCache.JobBundlerEntry(channelId, pair.first(), pair.second()));
+    return pair.second();
+  }
+
+  /**
+   * Get the bundler used for the specified job.
+   * @param job the job whose bundler to get.
+   * @return the bundler for the job's signature if there is one, otherwise the node's bundler.
+   */
+  public Bundler<?> getBundler(final JPPFDistributedJob job) {
+    final JobBundlerCache.JobBundlerEntry entry = getJobBundlerEntry(job);
+    return (entry == null) ? bundler : entry.getBundler();
+  }
+
+  /**
+   * Store the state of the specified bundler, used for the specified job, with the load-balancer persistence.
+   * @param job the job for which the bundler was used.
+   * @param bundler the bundler whose state to store.
+   */
+  public void storeBundler(final JPPFDistributedJob job, final Bundler<?> bundler) {
+    final JobBundlerCache.JobBundlerEntry entry = getJobBundlerEntry(job);
+    if ((entry != null) && (entry.getBundler() == bundler)) {
+      if (entry.getChannelId() != null) bundlerHandler.storeBundler(entry.getChannelId(), bundler, entry.getAlgorithm());
+    } else bundlerHandler.storeBundler(nodeIdentifier, bundler, bundlerAlgorithm);
+  }
+
+  /**
+   * Get the cached bundler entry for the signature of the specified job.
+   * @param job the job to lookup.
+   * @return a {@link JobBundlerCache.JobBundlerEntry}, or {@code null} if the load-balancer state is not kept per job type or there is none for the job.
+   */
+  private JobBundlerCache.JobBundlerEntry getJobBundlerEntry(final JPPFDistributedJob job) {
+    final String signature = (jobBundlers == null) ? null : jobBundlers.getSignature(job);
+    return (signature == null) ? null : jobBundlers.get(signature);
+  }
+
+  /**
+   * Initialize a newly created or loaded bundler.
+   * @param bundler the bundler to initialize.
+   * @param jppfContext execution context.
+   */
+  private void initBundler(final Bundler<?> bundler, final JPPFContext jppfContext) {
+    if (bundler instanceof ContextAwareness) ((ContextAwareness) bundler).setJPPFContext(jppfContext);
+    bundler.setup();
+    if (bundler instanceof ChannelAwareness) ((ChannelAwareness) bundler).setChannelConfiguration(systemInfo);
+  }
+
+  /**
+   * Dispose all the bundlers kept for the recurring job types executed by the node.
+   */
+  protected void disposeJobBundlers() {
+    if (jobBundlers != null) jobBundlers.clear();
+  }
+
   @Override
   public JPPFSystemInformation getSystemInformation() {
     return systemInfo;
@@ -186,7 +269,12 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
     if (update && debugEnabled) log.debug("updating node information for {}", systemInfo);
     this.systemInfo = systemInfo;
     systemInfo.getJppf().setProperty("jppf.channel.local", String.valueOf(isLocal()));
+    systemInfo.incrementModificationCount();
     if (managementInfo != null) managementInfo.setSystemInfo(systemInfo);
+    affinity.setClassLoaderCacheSize(systemInfo.getJppf().get(JPPFProperties.CLASSLOADER_CACHE_SIZE));
+    if (update && (jobBundlers != null)) jobBundlers.forEach(jobBundler -> {
+      if (jobBundler instanceof ChannelAwareness) ((ChannelAwareness) jobBundler).setChannelConfiguration(systemInfo);
+    });
   }
 
   @Override
@@ -404,6 +492,26 @@ public abstract class BaseNodeContext extends AbstractNioContext implements  Exe
     return idle;
   }
 
+  /**
+   * @return what the driver knows about the node that is relevant to the choice of a node for a job.
+   */
+  public NodeAffinity getAffinity() {
+    return affinity;
+  }
+
+  /**
+   * Ask the node to release the tasks of the specified job which have not started yet.
+   * @param jobUuid the uuid of the job whose tasks are released.
+   * @return the positions of the released tasks, or {@code null} if the node cannot be reached via JMX.
+   * @throws Exception if any error occurs.
+   */
+  public int[] releaseUnstartedTasks(final String jobUuid) throws Exception {
+    if (isOffline() || isPeer()) return null;
+    final JMXNodeConnectionWrapper jmx = getJmxConnection();
+    if ((jmx == null) || !jmx.isConnected()) return null;
+    return jmx.releaseUnstartedTasks(jobUuid);
+  }
+
   /**
    * Cancel the job with the specified id.
    * @param jobId the id of the job to cancel.
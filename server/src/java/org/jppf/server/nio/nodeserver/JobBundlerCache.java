@@ -0,0 +1,203 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jppf.server.nio.nodeserver;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.*;
+
+import org.jppf.load.balancer.*;
+import org.jppf.node.protocol.*;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * Holds the load-balancers of a node for the recurring job types it executes, so that the performance learned for one job type does not
+ * pollute the bundle sizes computed for another. Jobs are grouped by signature, computed from the job metadata or from the job name.
+ * <p>The number of bundlers kept in memory is bounded: when it is exceeded, the least recently used bundler is evicted and disposed.
+ * Its state was persisted after each update, if load-balancer persistence is enabled, and is reloaded when a job with the same signature is dispatched again.
+ * @author Laurent Cohen
+ * @since 6.2
+ * @exclude
+ */
+public class JobBundlerCache {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(JobBundlerCache.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Name of the job metadata which explicitly specifies the signature of a job.
+   */
+  public static final String SIGNATURE_METADATA = "jppf.load.balancing.job.signature";
+  /**
+   * The pattern matched against the job names.
+   */
+  private final Pattern pattern;
+  /**
+   * Mapping of job signatures to the corresponding bundlers, in least recently used first order.
+   */
+  private final LinkedHashMap<String, JobBundlerEntry> entries;
+
+  /**
+   * Initialize this cache with the specified configuration.
+   * @param config the driver configuration.
+   */
+  public JobBundlerCache(final TypedProperties config) {
+    this.pattern = Pattern.compile(config.get(JPPFProperties.LOAD_BALANCING_JOB_SIGNATURE));
+    final int maxEntries = config.get(JPPFProperties.LOAD_BALANCING_JOB_MAX_STATES);
+    this.entries = new LinkedHashMap<String, JobBundlerEntry>(16, 0.75f, true) {
+      /** Explicit serialVersionUID. */
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, JobBundlerEntry> eldest) {
+        if (size() <= maxEntries) return false;
+        if (debugEnabled) log.debug("evicting bundler for job signature '{}'", eldest.getKey());
+        dispose(eldest.getValue().getBundler());
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Compute the signature of the specified job.
+   * @param job the job for which to compute a signature.
+   * @return the value of the {@link #SIGNATURE_METADATA} job metadata if it is set, otherwise the first capturing group of the configured pattern
+   * matched against the job name, or the whole name if the pattern has no group. {@code null} if the job name doesn't match.
+   */
+  public String getSignature(final JPPFDistributedJob job) {
+    if (job == null) return null;
+    final JobMetadata metadata = job.getMetadata();
+    final Object value = (metadata == null) ? null : metadata.getParameter(SIGNATURE_METADATA);
+    if (value != null) return value.toString();
+    final String name = job.getName();
+    if (name == null) return null;
+    final Matcher matcher = pattern.matcher(name);
+    if (!matcher.matches()) return null;
+    return (matcher.groupCount() > 0) ? matcher.group(1) : matcher.group();
+  }
+
+  /**
+   * Get the bundler for the specified job signature.
+   * @param signature the signature of a job.
+   * @return a {@link JobBundlerEntry}, or {@code null} if there is none for the signature.
+   */
+  public synchronized JobBundlerEntry get(final String signature) {
+    return entries.get(signature);
+  }
+
+  /**
+   * Set the bundler for the specified job signature. The bundler it replaces, if any, is disposed.
+   * @param signature the signature of a job.
+   * @param entry the bundler to set.
+   */
+  public synchronized void put(final String signature, final JobBundlerEntry entry) {
+    final JobBundlerEntry old = entries.put(signature, entry);
+    if ((old != null) && (old.getBundler() != entry.getBundler())) dispose(old.getBundler());
+  }
+
+  /**
+   * Perform the specified action on all the bundlers in this cache.
+   * @param action the action to perform.
+   */
+  public synchronized void forEach(final Consumer<Bundler<?>> action) {
+    for (final JobBundlerEntry entry: entries.values()) action.accept(entry.getBundler());
+  }
+
+  /**
+   * Dispose and remove all the bundlers in this cache.
+   */
+  public synchronized void clear() {
+    for (final JobBundlerEntry entry: entries.values()) dispose(entry.getBundler());
+    entries.clear();
+  }
+
+  /**
+   * @return the number of bundlers in this cache.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Dispose the specified bundler.
+   * @param bundler the bundler to dispose.
+   */
+  private static void dispose(final Bundler<?> bundler) {
+    bundler.dispose();
+    if (bundler instanceof ContextAwareness) ((ContextAwareness) bundler).setJPPFContext(null);
+  }
+
+  /**
+   * A bundler along with the information required to persist its state.
+   */
+  public static class JobBundlerEntry {
+    /**
+     * Identifier of the load-balancer state.
+     */
+    private final Pair<String, String> channelId;
+    /**
+     * The algorithm name for the bundler.
+     */
+    private final String algorithm;
+    /**
+     * The bundler.
+     */
+    private final Bundler<?> bundler;
+
+    /**
+     * Initialize this entry.
+     * @param channelId identifier of the load-balancer state, possibly {@code null} if persistence is disabled.
+     * @param algorithm the algorithm name for the bundler.
+     * @param bundler the bundler.
+     */
+    public JobBundlerEntry(final Pair<String, String> channelId, final String algorithm, final Bundler<?> bundler) {
+      this.channelId = channelId;
+      this.algorithm = algorithm;
+      this.bundler = bundler;
+    }
+
+    /**
+     * @return the identifier of the load-balancer state.
+     */
+    public Pair<String, String> getChannelId() {
+      return channelId;
+    }
+
+    /**
+     * @return the algorithm name for the bundler.
+     */
+    public String getAlgorithm() {
+      return algorithm;
+    }
+
+    /**
+     * @return the bundler.
+     */
+    public Bundler<?> getBundler() {
+      return bundler;
+    }
+  }
+}
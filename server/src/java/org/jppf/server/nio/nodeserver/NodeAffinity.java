@@ -0,0 +1,116 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver;
+
+import java.util.*;
+
+import org.jppf.utils.configuration.JPPFProperties;
+
+/**
+ * Holds what the driver knows about the state of a node that is relevant to choosing it for a job:
+ * the clients for which the node most likely holds a class loader, and the recent execution time per task of each job dispatched to the node.
+ * <p>The node keeps one class loader per client in a cache bounded by {@code jppf.classloader.cache.size}, and evicts the least recently used one.
+ * The driver cannot see this cache, so it mirrors it with an LRU set of client uuids updated each time a job is dispatched to the node.
+ * @author Laurent Cohen
+ */
+public class NodeAffinity {
+  /**
+   * Maximum number of jobs for which an execution time is kept.
+   */
+  private static final int MAX_JOB_ENTRIES = 64;
+  /**
+   * Weight of the latest sample in the exponential moving average of the time per task.
+   */
+  private static final double SMOOTHING = 0.3d;
+  /**
+   * The uuids of the clients for which the node has a class loader, in least recently used order.
+   */
+  private final LinkedHashMap<String, Boolean> warmClients = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+      return size() > classLoaderCacheSize;
+    }
+  };
+  /**
+   * Mapping of job uuids to the average time per task in nanoseconds, in least recently used order.
+   */
+  private final LinkedHashMap<String, Double> jobTimes = new LinkedHashMap<String, Double>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Double> eldest) {
+      return size() > MAX_JOB_ENTRIES;
+    }
+  };
+  /**
+   * The size of the node's class loader cache.
+   */
+  private int classLoaderCacheSize = JPPFProperties.CLASSLOADER_CACHE_SIZE.getDefaultValue();
+
+  /**
+   * Record that a job from the specified client was dispatched to the node, which then creates or reuses a class loader for this client.
+   * @param clientUuid the uuid of the client that submitted the job.
+   */
+  public synchronized void jobDispatched(final String clientUuid) {
+    if (clientUuid != null) warmClients.put(clientUuid, Boolean.TRUE);
+  }
+
+  /**
+   * Determine whether the node is likely to still have a class loader for the specified client.
+   * @param clientUuid the uuid of the client to check.
+   * @return {@code true} if a job from the client was dispatched to the node recently enough, {@code false} otherwise.
+   */
+  public synchronized boolean isWarm(final String clientUuid) {
+    return (clientUuid != null) && warmClients.containsKey(clientUuid);
+  }
+
+  /**
+   * Update the time per task of the specified job with the results received from the node.
+   * @param jobUuid the uuid of the job.
+   * @param nbTasks the number of tasks received.
+   * @param elapsed the round trip time of the tasks, in nanoseconds.
+   */
+  public synchronized void resultsReceived(final String jobUuid, final int nbTasks, final long elapsed) {
+    if ((jobUuid == null) || (nbTasks <= 0) || (elapsed <= 0L)) return;
+    final double sample = (double) elapsed / nbTasks;
+    final Double mean = jobTimes.get(jobUuid);
+    jobTimes.put(jobUuid, (mean == null) ? sample : SMOOTHING * sample + (1d - SMOOTHING) * mean);
+  }
+
+  /**
+   * Get the recent average time per task of the specified job on the node.
+   * @param jobUuid the uuid of the job.
+   * @return the time per task in nanoseconds, or a negative value if no results of the job were received from the node.
+   */
+  public synchronized double getTimePerTask(final String jobUuid) {
+    final Double mean = (jobUuid == null) ? null : jobTimes.get(jobUuid);
+    return (mean == null) ? -1d : mean;
+  }
+
+  /**
+   * Set the size of the node's class loader cache. If it is smaller than the current number of warm clients, the least recently used ones are removed.
+   * @param size the size of the cache.
+   */
+  public synchronized void setClassLoaderCacheSize(final int size) {
+    classLoaderCacheSize = Math.max(1, size);
+    final Iterator<String> it = warmClients.keySet().iterator();
+    while ((warmClients.size() > classLoaderCacheSize) && it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver;
+
+import java.util.List;
+
+import org.jppf.server.protocol.ServerJob;
+
+/**
+ * Interface for the strategies which choose the node a job is dispatched to, among the idle nodes that passed all the eligibility checks of the job scheduler.
+ * <p>The implementation is specified with the {@code jppf.job.scheduler.node.selector} configuration property. It must have either a public constructor
+ * which takes a {@link org.jppf.server.JPPFDriver JPPFDriver} argument, or a public no-args constructor.
+ * When the property is not set, a node is chosen randomly.
+ * <p>Implementations are called concurrently when the driver dispatches jobs with multiple threads, and must therefore be thread-safe.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+@FunctionalInterface
+public interface NodeChannelSelector {
+  /**
+   * Select the node to which the specified job is dispatched.
+   * @param job the job to dispatch.
+   * @param candidates the nodes the job can be dispatched to. This list is never empty.
+   * @return one of the candidates, or {@code null} to postpone the dispatch of the job.
+   */
+  BaseNodeContext select(ServerJob job, List<BaseNodeContext> candidates);
+}
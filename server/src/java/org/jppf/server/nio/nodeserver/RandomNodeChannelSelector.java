@@ -0,0 +1,37 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jppf.server.protocol.ServerJob;
+
+/**
+ * The default node selection strategy, which picks one of the candidate nodes at random.
+ * @author Laurent Cohen
+ * @since 6.2
+ */
+public class RandomNodeChannelSelector implements NodeChannelSelector {
+  @Override
+  public BaseNodeContext select(final ServerJob job, final List<BaseNodeContext> candidates) {
+    final int size = candidates.size();
+    return (size > 1) ? candidates.get(ThreadLocalRandom.current().nextInt(size)) : candidates.get(0);
+  }
+}
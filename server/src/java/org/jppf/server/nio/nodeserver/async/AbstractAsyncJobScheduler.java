@@ -26,12 +26,13 @@ import org.jppf.load.balancer.JPPFContext;
 import org.jppf.load.balancer.spi.JPPFBundlerFactory;
 import org.jppf.management.*;
 import org.jppf.node.policy.*;
-import org.jppf.server.JPPFContextDriver;
+import org.jppf.server.*;
 import org.jppf.server.nio.nodeserver.*;
 import org.jppf.server.protocol.ServerJob;
 import org.jppf.server.queue.*;
 import org.jppf.utils.concurrent.*;
 import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.hooks.Hook;
 import org.jppf.utils.stats.*;
 import org.slf4j.*;
 
@@ -52,9 +53,9 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
    */
   final boolean disptachtoPeersWithoutNode;
   /**
-   * Random number generator used to randomize the choice of idle channel.
+   * Chooses a node among those that are eligible for a job.
    */
-  final Random random = new Random(System.nanoTime());
+  final NodeChannelSelector channelSelector;
   /**
    * Reference to the statistics.
    */
@@ -64,9 +65,9 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
    */
   final JPPFPriorityQueue queue;
   /**
-   * The list of idle node channels.
+   * The set of idle node channels.
    */
-  final Set<BaseNodeContext> idleChannels = new LinkedHashSet<>();
+  final IdleChannelIndex idleChannels = new IdleChannelIndex();
   /**
    * Holds information about the execution context.
    */
@@ -108,6 +109,14 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
    * 
    */
   final JobDependenciesHandler dependencyHandler; 
+  /**
+   * The number of threads used to dispatch jobs to the nodes in parallel. A value of 1 means jobs are dispatched sequentially by the scheduler thread.
+   */
+  final int nbDispatchThreads;
+  /**
+   * Caches the results of execution policies evaluated against the nodes.
+   */
+  final PolicyResultCache policyCache;
 
   /**
    * Initialize this task queue checker with the specified node server.
@@ -128,6 +137,12 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
     this.peerLoadBalanceThreshold = server.getDriver().getInitializer().getPeerConnectionPoolHandler().getLoadBalanceThreshold();
     this.localNodeBiasEnabled = server.getDriver().getConfiguration().get(JPPFProperties.LOCAL_NODE_BIAS);
     this.selectionHelper = new NodeSelectionHelper(server.getDriver());
+    this.nbDispatchThreads = server.getDriver().getConfiguration().get(JPPFProperties.JOB_SCHEDULER_THREADS);
+    this.policyCache = new PolicyResultCache(server.getDriver().getConfiguration());
+    final Hook<NodeChannelSelector> hook = server.getDriver().getHookFactory().registerConfigSingleHook(JPPFProperties.JOB_SCHEDULER_NODE_SELECTOR, NodeChannelSelector.class,
+      new RandomNodeChannelSelector(), null, new Class<?>[] { JPPFDriver.class }, server.getDriver());
+    this.channelSelector = hook.getInstances().get(0).getInstance();
+    if (debugEnabled) log.debug("using node selector {}", channelSelector);
   }
 
   /**
@@ -180,6 +195,7 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
         channel.getIdle().set(true);
         if (added) {
           final JPPFSystemInformation info = channel.getSystemInformation();
+          // not signalled as a modification, so the cached policy results of the node are kept
           if (info != null) info.getJppf().set(JPPFProperties.NODE_IDLE, true);
           stats.addValue(JPPFStatisticsHelper.IDLE_NODES, 1);
         }
@@ -237,6 +253,14 @@ abstract class AbstractAsyncJobScheduler extends ThreadSynchronization implement
     }
   }
 
+  /**
+   * Get the cache of execution policy results.
+   * @return a {@link PolicyResultCache} instance.
+   */
+  PolicyResultCache getPolicyCache() {
+    return policyCache;
+  }
+
   /**
    * Set the parameters needed as bounded variables for scripted execution policies.
    * @param policy the root policy to explore.
@@ -19,7 +19,7 @@
 package org.jppf.server.nio.nodeserver.async;
 
 import java.util.*;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
 import java.util.concurrent.locks.Lock;
 
 import org.jppf.execute.ExecutorStatus;
@@ -33,6 +33,7 @@ import org.jppf.server.protocol.*;
 import org.jppf.server.queue.*;
 import org.jppf.utils.*;
 import org.jppf.utils.collections.*;
+import org.jppf.utils.concurrent.ConcurrentUtils;
 import org.jppf.utils.configuration.JPPFProperties;
 import org.jppf.utils.stats.JPPFStatistics;
 import org.slf4j.*;
@@ -49,6 +50,31 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
    * Determines whether DEBUG logging level is enabled.
    */
   private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Maximum number of idle channel lookups when the selected channel is claimed by another dispatching thread.
+   */
+  private static final int MAX_CLAIM_ATTEMPTS = 3;
+  /**
+   * The possible outcomes of an attempt to dispatch a job.
+   */
+  private enum DispatchResult {
+    /**
+     * A bundle of the job was dispatched to a node.
+     */
+    DISPATCHED,
+    /**
+     * No suitable channel could be found for the job, the next job can be processed.
+     */
+    NO_CHANNEL,
+    /**
+     * A channel was found but no bundle could be dispatched, the current dispatch pass should stop.
+     */
+    ABORTED
+  }
+  /**
+   * The executor which dispatches the jobs in parallel, or {@code null} if jobs are dispatched sequentially.
+   */
+  private final ExecutorService dispatchExecutor;
 
   /**
    * Initialize this task queue checker with the specified node server.
@@ -59,6 +85,8 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
    */
   AsyncJobScheduler(final AsyncNodeNioServer server, final JPPFPriorityQueue queue, final JPPFStatistics stats, final JPPFBundlerFactory bundlerFactory) {
     super(server, queue, stats, bundlerFactory);
+    this.dispatchExecutor = (nbDispatchThreads > 1) ? ConcurrentUtils.newFixedExecutor(nbDispatchThreads, "JobDispatcher") : null;
+    if (debugEnabled) log.debug("job scheduler using {} dispatch thread(s)", nbDispatchThreads);
   }
 
   /**
@@ -70,7 +98,9 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
     reservationHandler = server.getNodeReservationHandler();
     try {
       while (!isStopped()) {
-        if (!dispatch()) goToSleep(1000L);
+        final boolean dispatched = dispatch();
+        policyCache.updateStatistics(stats);
+        if (!dispatched) goToSleep(1000L);
       }
     } catch (final Throwable t) {
       log.error("error in driver dispatch loop", t);
@@ -82,55 +112,25 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
    * @return true if a job was dispatched, false otherwise.
    */
   private boolean dispatch() {
+    if (dispatchExecutor != null) return dispatchParallel();
     try {
       queue.getBroadcastManager().processPendingBroadcasts();
-      if (queue.isEmpty()) return false;
-      BaseNodeContext channel = null;
-      ServerTaskBundleNode nodeBundle = null;
+      if (queue.isEmpty()) return dispatchSpeculativeCopies();
       synchronized(idleChannels) {
         if (idleChannels.isEmpty()) return false;
-        final List<ServerJob> allJobs = queue.getAllJobsFromPriorityMap();
-        if (debugEnabled) log.debug("there are {} idle channels and {} jobs in the queue", idleChannels.size(), allJobs.size());
+        if (debugEnabled) log.debug("there are {} idle channels and {} jobs in the queue", idleChannels.size(), queue.getQueueSize());
         try {
-          final Iterator<ServerJob> jobIterator = allJobs.iterator();
-          while ((channel == null) && jobIterator.hasNext() && !idleChannels.isEmpty()) {
+          final Iterator<ServerJob> jobIterator = queue.getJobsByPriority().iterator();
+          while (jobIterator.hasNext() && !idleChannels.isEmpty()) {
             final ServerJob job = jobIterator.next();
             if (debugEnabled) log.debug("checking {}", job);
             if (!performJobChecks(job)) continue;
-            channel = findIdleChannelIndex(job);
-            if (channel == null) continue;
-            synchronized(channel.getMonitor()) {
-              if (job.getSLA().getDesiredNodeConfiguration() != null) {
-                final String readyJobUUID = reservationHandler.getReadyJobUUID(channel);
-                final String pendingJobUUID = reservationHandler.getPendingJobUUID(channel);
-                if ((pendingJobUUID == null) && (readyJobUUID == null)) {
-                  if (debugEnabled) log.debug("reserving {} with {}", job, channel);
-                  reservationHandler.doReservation(job, channel);
-                  channel = null;
-                  continue;
-                }
-              }
-              if (channel.getCurrentNbJobs() >= channel.getMaxJobs()) removeIdleChannel(channel);
-              if (!channel.isEnabled()) {
-                if (debugEnabled) log.debug("channel is disabled [}", channel);
-                channel = null;
-                continue;
-              }
-              nodeBundle = prepareJobDispatch(channel, job);
-              if (debugEnabled) log.debug("prepareJobDispatch() returned {}", nodeBundle);
-              if (nodeBundle != null) {
-                try {
-                  dispatchJobToChannel(channel, nodeBundle);
-                  return true;
-                } catch (final Exception e) {
-                  log.error("{}\nchannel={}\njob={}\nstack trace: {}", ExceptionUtils.getMessage(e), channel, nodeBundle, ExceptionUtils.getStackTrace(e));
-                  channel.setClosed(false);
-                  channel.handleException(e);
-                }
-              }
-            }
+            final DispatchResult result = dispatchJob(job);
+            if (result == DispatchResult.DISPATCHED) return true;
+            else if (result == DispatchResult.ABORTED) break;
           }
-          if (debugEnabled) log.debug((channel == null) ? "no channel found for bundle " : "channel found for bundle " + channel);
+          if (debugEnabled) log.debug("no job dispatched in this pass");
+          return dispatchSpeculativeCopies();
         } catch(final Exception e) {
           log.error("An error occurred while attempting to dispatch task bundles. This is most likely due to an error in the load balancer implementation.", e);
         }
@@ -141,6 +141,142 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
     return false;
   }
 
+  /**
+   * Perform the assignment of jobs to nodes using multiple threads. The jobs are processed in successive waves of at most
+   * {@code nbDispatchThreads} jobs, in the order of their priority, and the jobs in the same wave are dispatched concurrently.
+   * Concurrent threads are prevented from selecting the same channel via {@link IdleChannelIndex#claim(BaseNodeContext)}.
+   * @return true if at least one job was dispatched, false otherwise.
+   */
+  private boolean dispatchParallel() {
+    boolean dispatched = false;
+    try {
+      queue.getBroadcastManager().processPendingBroadcasts();
+      if (idleChannels.isEmpty()) return false;
+      if (queue.isEmpty()) return dispatchSpeculativeCopies();
+      if (debugEnabled) log.debug("there are {} idle channels and {} jobs in the queue", idleChannels.size(), queue.getQueueSize());
+      final List<Future<DispatchResult>> futures = new ArrayList<>(nbDispatchThreads);
+      final Iterator<ServerJob> jobIterator = queue.getJobsByPriority().iterator();
+      while (jobIterator.hasNext() && !idleChannels.isEmpty()) {
+        futures.clear();
+        while (jobIterator.hasNext() && (futures.size() < nbDispatchThreads)) {
+          final ServerJob job = jobIterator.next();
+          futures.add(dispatchExecutor.submit(() -> performJobChecks(job) ? dispatchJob(job) : DispatchResult.NO_CHANNEL));
+        }
+        for (final Future<DispatchResult> future: futures) {
+          try {
+            if (future.get() == DispatchResult.DISPATCHED) dispatched = true;
+          } catch(final ExecutionException e) {
+            log.error("An error occurred while attempting to dispatch task bundles. This is most likely due to an error in the load balancer implementation.", e.getCause());
+          }
+        }
+      }
+      if (!dispatched) dispatched = dispatchSpeculativeCopies();
+    } catch (final Exception e) {
+      log.error("An error occurred while preparing for bundle creation and dispatching.", e);
+    }
+    return dispatched;
+  }
+
+  /**
+   * Dispatch speculative copies of straggling tasks to an idle node, for the first job that requests it and whose tasks have all been dispatched.
+   * Only the jobs with few enough tasks still executing, as maintained by the queue, are considered.
+   * @return {@code true} if a speculative dispatch was performed, {@code false} otherwise.
+   */
+  private boolean dispatchSpeculativeCopies() {
+    final Collection<ServerJob> candidates = queue.getSpeculationCandidates();
+    if (candidates.isEmpty() || idleChannels.isEmpty()) return false;
+    for (final ServerJob job: candidates) {
+      final JobSLA sla = job.getSLA();
+      if ((sla.getSpeculativeExecutionThreshold() <= 0d) || (sla.getDesiredNodeConfiguration() != null) || (job.getTaskCount() > 0) || !checkJobState(job)) continue;
+      final DispatchResult result;
+      if (dispatchExecutor != null) result = dispatchJob(job, true);
+      else {
+        synchronized(idleChannels) {
+          result = dispatchJob(job, true);
+        }
+      }
+      if (result == DispatchResult.DISPATCHED) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Attempt to dispatch the specified job to one of the idle channels.
+   * @param job the job to dispatch.
+   * @return the outcome of the dispatch attempt.
+   */
+  private DispatchResult dispatchJob(final ServerJob job) {
+    return dispatchJob(job, false);
+  }
+
+  /**
+   * Attempt to dispatch the specified job to one of the idle channels.
+   * @param job the job to dispatch.
+   * @param speculative whether to dispatch speculative copies of already dispatched tasks, rather than tasks from the queue.
+   * @return the outcome of the dispatch attempt.
+   */
+  private DispatchResult dispatchJob(final ServerJob job, final boolean speculative) {
+    final boolean parallel = dispatchExecutor != null;
+    BaseNodeContext channel = null;
+    for (int i=0; i<MAX_CLAIM_ATTEMPTS; i++) {
+      final BaseNodeContext candidate = findIdleChannelIndex(job);
+      if (candidate == null) return DispatchResult.NO_CHANNEL;
+      if (!parallel || idleChannels.claim(candidate)) {
+        channel = candidate;
+        break;
+      }
+      // another dispatching thread claimed the channel first, it is skipped on the next lookup
+      if (debugEnabled) log.debug("lost the race to claim {} for {}", candidate, job);
+    }
+    if (channel == null) return DispatchResult.NO_CHANNEL;
+    try {
+      synchronized(channel.getMonitor()) {
+        if (parallel) {
+          // another thread may have claimed, dispatched to and released the channel between the lookup and the claim
+          final List<BaseNodeContext> toRemove = new ArrayList<>(1);
+          if (!checkChannel((AsyncNodeContext) channel, job, toRemove) || !checkJobState(job)) {
+            if (debugEnabled) log.debug("{} is no longer eligible for {}", channel, job);
+            for (final BaseNodeContext c: toRemove) removeIdleChannel(c);
+            return DispatchResult.NO_CHANNEL;
+          }
+        }
+        if (job.getSLA().getDesiredNodeConfiguration() != null) {
+          final String readyJobUUID = reservationHandler.getReadyJobUUID(channel);
+          final String pendingJobUUID = reservationHandler.getPendingJobUUID(channel);
+          if ((pendingJobUUID == null) && (readyJobUUID == null)) {
+            if (debugEnabled) log.debug("reserving {} with {}", job, channel);
+            reservationHandler.doReservation(job, channel);
+            return DispatchResult.NO_CHANNEL;
+          }
+        }
+        if (channel.getCurrentNbJobs() >= channel.getMaxJobs()) {
+          removeIdleChannel(channel);
+          return DispatchResult.NO_CHANNEL;
+        }
+        if (!channel.isEnabled()) {
+          if (debugEnabled) log.debug("channel is disabled {}", channel);
+          return DispatchResult.NO_CHANNEL;
+        }
+        final ServerTaskBundleNode nodeBundle = speculative ? job.createSpeculativeDispatch(channel) : prepareJobDispatch(channel, job);
+        if (debugEnabled) log.debug("prepareJobDispatch() returned {}", nodeBundle);
+        if (nodeBundle != null) {
+          try {
+            dispatchJobToChannel(channel, nodeBundle);
+            return DispatchResult.DISPATCHED;
+          } catch (final Exception e) {
+            log.error("{}\nchannel={}\njob={}\nstack trace: {}", ExceptionUtils.getMessage(e), channel, nodeBundle, ExceptionUtils.getStackTrace(e));
+            channel.setClosed(false);
+            channel.handleException(e);
+          }
+        }
+        if (debugEnabled) log.debug("channel found for bundle {}", channel);
+        return speculative ? DispatchResult.NO_CHANNEL : DispatchResult.ABORTED;
+      }
+    } finally {
+      if (parallel) idleChannels.release(channel);
+    }
+  }
+
   /**
    * Prepare the specified job for the selected channel, after applying the load balancer to the job.
    * @param channel the node channel to prepare dispatch the job to.
@@ -150,15 +286,20 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
   private ServerTaskBundleNode prepareJobDispatch(final BaseNodeContext channel, final ServerJob selectedJob) {
     if (debugEnabled) log.debug("dispatching jobUuid=" + selectedJob.getUuid() + " to node " + channel + ", nodeUuid=" + channel.getConnectionUuid());
     int size = 1;
+    Bundler<?> bundler = null;
     try {
-      updateBundler(selectedJob.getJob(), channel);
-      size = channel.getBundler().getBundleSize();
+      bundler = updateBundler(selectedJob.getJob(), channel);
+      size = bundler.getBundleSize();
       if (selectedJob.getSLA().getMaxDispatchSize() < size) size = selectedJob.getSLA().getMaxDispatchSize();
     } catch (final Exception e) {
       log.error("Error in load balancer implementation, switching to 'manual' with a bundle size of 1", e);
       size = bundlerFactory.getFallbackBundler().getBundleSize();
     }
-    return selectedJob.isCancelled() ? null : queue.nextBundle(selectedJob, size, channel);
+    if (selectedJob.isCancelled()) return null;
+    final ServerTaskBundleNode result = queue.nextBundle(selectedJob, size, channel);
+    // the node only waits for the serialization of all the results, to measure it, if the load-balancer uses it
+    if ((result != null) && (bundler instanceof TimingAwareBundler)) result.getJob().setParameter(BundleParameter.NODE_SERIALIZATION_TIME_REQUESTED, true);
+    return result;
   }
 
   /**
@@ -196,6 +337,7 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
       final Future<?> future = channel.submit(nodeBundle);
       nodeBundle.jobDispatched(channel, future);
     }
+    channel.getAffinity().jobDispatched(AffinityNodeChannelSelector.getClientUuid(nodeBundle.getJob()));
     if (debugEnabled) log.debug("dispatched {} tasks of job '{}' to node {}", nodeBundle.getTaskCount(), nodeBundle.getJob().getName(), channel.getUuid());
   }
 
@@ -216,42 +358,15 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
       final Set<BaseNodeContext> preferedChannels = filterPreferredNodes(job);
       if (preferedChannels.isEmpty()) return null;
       nodeIterator = preferedChannels.iterator();
+    } else {
+      final boolean includePeers = server.nodeConnectionHandler.getConnectedRealNodes() < peerLoadBalanceThreshold;
+      nodeIterator = idleChannels.getCandidates(job.getBroadcastUUID(), includePeers).iterator();
     }
-    else nodeIterator = idleChannels.iterator();
     while (nodeIterator.hasNext()) {
       final AsyncNodeContext channel = (AsyncNodeContext) nodeIterator.next();
+      if ((dispatchExecutor != null) && idleChannels.isClaimed(channel)) continue;
       synchronized(channel.getMonitor()) {
-        if ((channel.getExecutionStatus() != ExecutorStatus.ACTIVE) || channel.isClosed() || !channel.isEnabled()) {
-          if (debugEnabled) log.debug("channel is not opened: {}", channel);
-          toRemove.add(channel);
-          continue;
-        }
-        if (!channel.isActive() || !channel.isAcceptingNewJobs()) {
-          if (debugEnabled) log.debug("node not accepting jobs: {}", channel);
-          continue;
-        }
-        if (channel.isPeer() && (server.nodeConnectionHandler.getConnectedRealNodes() >= peerLoadBalanceThreshold)) {
-          if (debugEnabled) log.debug("this driver has {} nodes and the threshold is {}", server.nodeConnectionHandler.getConnectedNodes(), peerLoadBalanceThreshold);
-          continue;
-        }
-        if (channel.getCurrentNbJobs() >= channel.getMaxJobs()) {
-          if (debugEnabled) log.debug("[currentNbJobs = {}] >= maxJobs = {}] for {}", channel.getCurrentNbJobs(), channel.getMaxJobs(), channel);
-          continue;
-        }
-        if (!checkJobAgainstChannel(channel, job)) continue;
-        if (job.getBroadcastUUID() != null && !job.getBroadcastUUID().equals(channel.getUuid())) continue;
-        final JPPFSystemInformation info = channel.getSystemInformation();
-        if (channel.isPeer() && !disptachtoPeersWithoutNode) {
-          if ((info != null) && (info.getJppf().getInt(PeerAttributesHandler.PEER_TOTAL_NODES, 0) <= 0)) {
-            if (debugEnabled) log.debug("peer has no attached node: {}", channel.getUuid());
-            continue;
-          }
-        }
-        if (!checkExecutionPolicy(channel, job, sla.getExecutionPolicy(), info, job.getNbChannels())) continue;
-        if (!checkMaxNodeGroups(channel, job)) continue;
-        final Collection<String> readyNodes = (spec == null) ? null : reservationHandler.getReadyNodes(job.getUuid());
-        if (debugEnabled) log.debug("jobUuid={}, readyNodes={}", job.getUuid(), readyNodes);
-        if (!checkDesiredConfiguration(desiredConfiguration, channel, job, readyNodes, reservationHandler.getNbReservedNodes(job.getUuid()))) continue;
+        if (!checkChannel(channel, job, toRemove)) continue;
         if (channel.isLocal() && localNodeBiasEnabled) { // add a bias toward local node
           if (desiredConfiguration != null) continue;
           else return channel;
@@ -264,20 +379,62 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
     }
     if (!checkJobNotCancelled(job)) return null;
     if (!acceptableChannels.isEmpty() && (desiredConfiguration != null)) acceptableChannels = filterLowestDistances(job, acceptableChannels);
-    return selectChannel(acceptableChannels);
+    return selectChannel(job, acceptableChannels);
+  }
+
+  /**
+   * Check whether the specified channel can accept the specified job. Must be called while holding the channel's monitor.
+   * @param channel the channel to check.
+   * @param job the job to dispatch.
+   * @param toRemove receives the channel if it is no longer usable and must be removed from the idle channels.
+   * @return {@code true} if the job can be dispatched to the channel, {@code false} otherwise.
+   */
+  private boolean checkChannel(final AsyncNodeContext channel, final ServerJob job, final List<BaseNodeContext> toRemove) {
+    final JobSLA sla = job.getSLA();
+    final JPPFNodeConfigSpec spec =  sla.getDesiredNodeConfiguration();
+    if ((channel.getExecutionStatus() != ExecutorStatus.ACTIVE) || channel.isClosed() || !channel.isEnabled()) {
+      if (debugEnabled) log.debug("channel is not opened: {}", channel);
+      toRemove.add(channel);
+      return false;
+    }
+    if (!channel.isActive() || !channel.isAcceptingNewJobs()) {
+      if (debugEnabled) log.debug("node not accepting jobs: {}", channel);
+      return false;
+    }
+    if (channel.isPeer() && (server.nodeConnectionHandler.getConnectedRealNodes() >= peerLoadBalanceThreshold)) {
+      if (debugEnabled) log.debug("this driver has {} nodes and the threshold is {}", server.nodeConnectionHandler.getConnectedNodes(), peerLoadBalanceThreshold);
+      return false;
+    }
+    if (channel.getCurrentNbJobs() >= channel.getMaxJobs()) {
+      if (debugEnabled) log.debug("[currentNbJobs = {}] >= maxJobs = {}] for {}", channel.getCurrentNbJobs(), channel.getMaxJobs(), channel);
+      return false;
+    }
+    if (!checkJobAgainstChannel(channel, job)) return false;
+    if (job.getBroadcastUUID() != null && !job.getBroadcastUUID().equals(channel.getUuid())) return false;
+    final JPPFSystemInformation info = channel.getSystemInformation();
+    if (channel.isPeer() && !disptachtoPeersWithoutNode) {
+      if ((info != null) && (info.getJppf().getInt(PeerAttributesHandler.PEER_TOTAL_NODES, 0) <= 0)) {
+        if (debugEnabled) log.debug("peer has no attached node: {}", channel.getUuid());
+        return false;
+      }
+    }
+    if (!checkExecutionPolicy(channel, job, sla.getExecutionPolicy(), info, job.getNbChannels())) return false;
+    if (!checkMaxNodeGroups(channel, job)) return false;
+    final Collection<String> readyNodes = (spec == null) ? null : reservationHandler.getReadyNodes(job.getUuid());
+    if (debugEnabled) log.debug("jobUuid={}, readyNodes={}", job.getUuid(), readyNodes);
+    return checkDesiredConfiguration((spec == null) ? null : spec.getConfiguration(), channel, job, readyNodes, reservationHandler.getNbReservedNodes(job.getUuid()));
   }
 
   /**
    * Select a single channle from a list of channels eligible  for a job.
+   * @param job the job to dispatch.
    * @param acceptableChannels the list of channels to select from.
    * @return an instance of {@link BaseNodeContext}, or {@code null} if the list is empty or no channel passes the selection criteria.
    */
-  private BaseNodeContext selectChannel(final List<BaseNodeContext> acceptableChannels) {
+  private BaseNodeContext selectChannel(final ServerJob job, final List<BaseNodeContext> acceptableChannels) {
     if (acceptableChannels.isEmpty()) return null;
-    final int size = acceptableChannels.size();
-    if (debugEnabled) log.debug("found {} acceptable channels", size);
-    final BaseNodeContext channel = (size > 0) ? acceptableChannels.get(size > 1 ? random.nextInt(size) : 0) : null;
-    return channel;
+    if (debugEnabled) log.debug("found {} acceptable channels", acceptableChannels.size());
+    return channelSelector.select(job, acceptableChannels);
   }
 
   /**
@@ -370,7 +527,7 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
       boolean b = false;
       try {
         preparePolicy(policy, job, stats, nbJobChannels);
-        b = policy.evaluate(info);
+        b = policyCache.evaluate(policy, job, channel.isPeer() ? null : channel.getUuid(), info, nbJobChannels);
       } catch(final Exception ex) {
         log.error("An error occurred while running the execution policy to determine node participation.", ex);
       }
@@ -461,11 +618,12 @@ public class AsyncJobScheduler extends AbstractAsyncJobScheduler {
    * Perform the checks on the bundler before submitting a job.
    * @param taskBundle the job.
    * @param context the current node context.
+   * @return the bundler to use for the job on the node.
    */
-  private void updateBundler(final TaskBundle taskBundle, final BaseNodeContext context) {
-    context.checkBundler(bundlerFactory, jppfContext);
-    final Bundler<?> ctxBundler = context.getBundler();
+  private Bundler<?> updateBundler(final TaskBundle taskBundle, final BaseNodeContext context) {
+    final Bundler<?> ctxBundler = context.checkBundler(bundlerFactory, jppfContext, taskBundle);
     if (ctxBundler instanceof JobAwareness) ((JobAwareness) ctxBundler).setJob(taskBundle);
+    return ctxBundler;
   }
 
   /**
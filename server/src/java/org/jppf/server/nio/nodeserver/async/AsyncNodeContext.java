@@ -430,6 +430,7 @@ public class AsyncNodeContext extends BaseNodeContext {
       bundler.dispose();
       if (bundler instanceof ContextAwareness) ((ContextAwareness) bundler).setJPPFContext(null);
     }
+    disposeJobBundlers();
     setReadMessage(null);
   }
 
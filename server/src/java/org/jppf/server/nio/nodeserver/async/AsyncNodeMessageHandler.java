@@ -26,6 +26,7 @@ import java.nio.channels.SocketChannel;
 import java.util.*;
 
 import org.jppf.execute.ExecutorStatus;
+import org.jppf.io.DataLocation;
 import org.jppf.job.JobReturnReason;
 import org.jppf.load.balancer.*;
 import org.jppf.load.balancer.spi.JPPFBundlerFactory;
@@ -62,6 +63,14 @@ public class AsyncNodeMessageHandler {
    * Whether to resolve the nodes' ip addresses into host names.
    */
   protected final boolean resolveIPs;
+  /**
+   * Moves the unstarted tasks of a node to idle nodes, or {@code null} if this feature is disabled.
+   */
+  private final WorkStealingHandler workStealingHandler;
+  /**
+   * Cancels the dispatches which lost the race against their speculative copies.
+   */
+  private final SpeculativeExecutionHandler speculativeExecutionHandler = new SpeculativeExecutionHandler();
 
   /**
    * COnstruct this object.
@@ -70,6 +79,15 @@ public class AsyncNodeMessageHandler {
   public AsyncNodeMessageHandler(final JPPFDriver driver) {
     this.driver = driver;
     this.resolveIPs = driver.getConfiguration().get(JPPFProperties.RESOLVE_ADDRESSES);
+    this.workStealingHandler = driver.getConfiguration().get(JPPFProperties.JOB_WORK_STEALING_ENABLED) ? new WorkStealingHandler(driver.getConfiguration()) : null;
+  }
+
+  /**
+   * Release the resources used by this handler.
+   */
+  void close() {
+    if (workStealingHandler != null) workStealingHandler.close();
+    speculativeExecutionHandler.close();
   }
 
   /**
@@ -309,6 +327,10 @@ public class AsyncNodeMessageHandler {
         nodeBundle.resultsReceived(t);
       }
       if (requeue) nodeBundle.resubmit();
+      else {
+        speculativeExecutionHandler.dispatchReturned(nodeBundle);
+        if (workStealingHandler != null) workStealingHandler.dispatchReturned(job, context);
+      }
     }
     if (!context.isOffline()) updateMaxJobs(context, bundle);
     if (context.getCurrentNbJobs() < context.getMaxJobs()) {
@@ -327,7 +349,6 @@ public class AsyncNodeMessageHandler {
    */
   private boolean processResults(final AsyncNodeContext context, final NodeBundleResults received, final ServerTaskBundleNode nodeBundle) throws Exception {
     final TaskBundle newBundle = received.bundle();
-    Bundler<?> bundler = context.getBundler();
     final ServerJob job = nodeBundle.getClientJob();
     final Throwable t = newBundle.getParameter(NODE_EXCEPTION_PARAM);
     if (t != null) {
@@ -343,6 +364,10 @@ public class AsyncNodeMessageHandler {
     } else {
       if (debugEnabled) log.debug("received bundle with {} tasks, taskCount={}: {}", received.second().size(), newBundle.getTaskCount(), received.bundle());
       if (nodeBundle.getJobReturnReason() == null) nodeBundle.setJobReturnReason(JobReturnReason.RESULTS_RECEIVED);
+      // the tasks whose release was acknowledged are already requeued and no longer part of the dispatch
+      final List<DataLocation> results = nodeBundle.dispatchReturned(received.data());
+      final int[] releasedPositions = newBundle.getParameter(RELEASED_TASK_POSITIONS, null);
+      final int nbReleased = (releasedPositions == null) ? 0 : releasedPositions.length;
       if (!nodeBundle.isExpired()) {
         Set<Integer> resubmitSet = null;
         final int[] resubmitPositions = newBundle.getParameter(RESUBMIT_TASK_POSITIONS, null);
@@ -352,9 +377,19 @@ public class AsyncNodeMessageHandler {
           for (int n: resubmitPositions) resubmitSet.add(n);
           if (debugEnabled) log.debug("resubmitSet = {} for {}", resubmitSet, newBundle);
         }
+        Set<Integer> releasedSet = null;
+        if (releasedPositions != null) {
+          if (debugEnabled) log.debug("node released {} unstarted tasks of {}", releasedPositions.length, newBundle);
+          releasedSet = new HashSet<>();
+          for (int n: releasedPositions) releasedSet.add(n);
+        }
         int count = 0;
         for (final ServerTask task: nodeBundle.getTaskList()) {
-          if ((resubmitSet != null) && resubmitSet.contains(task.getPosition())) {
+          if ((releasedSet != null) && releasedSet.contains(task.getPosition())) {
+            // the task was never executed, so it doesn't count as a resubmit
+            task.resubmit();
+            count++;
+          } else if ((resubmitSet != null) && resubmitSet.contains(task.getPosition())) {
             if (task.incResubmitCount() <= task.getMaxResubmits()) {
               task.resubmit();
               count++;
@@ -364,13 +399,15 @@ public class AsyncNodeMessageHandler {
         if (count > 0) context.updateStatsUponTaskResubmit(count);
       } else if (debugEnabled) log.debug("bundle has expired: {}", nodeBundle);
       if (debugEnabled) log.debug("nodeBundle={}", nodeBundle);
-      bundler = updateBundlerAndStats(context, bundler, nodeBundle, newBundle);
-      nodeBundle.resultsReceived(received.data());
+      updateBundlerAndStats(context, nodeBundle, newBundle, newBundle.getTaskCount() - nbReleased);
+      nodeBundle.setAccumulatedElapsed(newBundle.getParameter(NODE_BUNDLE_ELAPSED_PARAM, -1L));
+      nodeBundle.resultsReceived(results);
       if (debugEnabled) log.debug("updated stats for {}", context);
     }
     final JPPFSystemInformation systemInfo = newBundle.getParameter(SYSTEM_INFO_PARAM);
     if (systemInfo != null) {
       context.setNodeInfo(systemInfo, true);
+      final Bundler<?> bundler = context.getBundler();
       if (bundler instanceof ChannelAwareness) ((ChannelAwareness) bundler).setChannelConfiguration(systemInfo);
     }
     return newBundle.isRequeue();
@@ -395,22 +432,27 @@ public class AsyncNodeMessageHandler {
   /**
    * 
    * @param context the context for which to update the bundler
-   * @param currentBundler the current bundler for this context.
    * @param nodeBundle the bundle that was dispatched to the node.
    * @param newBundle the header of the bundle received from the node.
-   * @return the updated bundler;
+   * @param nbTasks the number of tasks executed by the node, which excludes the tasks it released without executing them.
    */
-  private Bundler<?> updateBundlerAndStats(final AsyncNodeContext context, final Bundler<?> currentBundler, final ServerTaskBundleNode nodeBundle, final TaskBundle newBundle) {
+  private void updateBundlerAndStats(final AsyncNodeContext context, final ServerTaskBundleNode nodeBundle, final TaskBundle newBundle, final int nbTasks) {
     final long elapsed = System.nanoTime() - nodeBundle.getJob().getExecutionStartTime();
-    final Bundler<?> bundler = (currentBundler == null) ? context.checkBundler(context.getServer().getBundlerFactory(), context.getServer().getJPPFContext()) : currentBundler;
-    if (bundler instanceof BundlerEx) {
+    final Bundler<?> currentBundler = context.getBundler(nodeBundle.getJob());
+    final Bundler<?> bundler = (currentBundler == null) ? context.checkBundler(context.getServer().getBundlerFactory(), context.getServer().getJPPFContext(), nodeBundle.getJob()) : currentBundler;
+    if (nbTasks <= 0) return;
+    if (bundler instanceof TimingAwareBundler) {
+      final DispatchTimings timings = new DispatchTimings(nbTasks, elapsed, newBundle.getNodeExecutionTime(), newBundle.getParameter(NODE_DESERIALIZATION_TIME, 0L),
+        newBundle.getParameter(NODE_SERIALIZATION_TIME, 0L), newBundle.getParameter(NODE_TASK_ELAPSED_TIMES), newBundle.getParameter(NODE_TASK_CPU_TIMES));
+      BundlerHelper.updateBundler((TimingAwareBundler<?>) bundler, timings);
+    } else if (bundler instanceof BundlerEx) {
       final long accumulatedTime = newBundle.getParameter(NODE_BUNDLE_ELAPSED_PARAM, -1L);
-      BundlerHelper.updateBundler((BundlerEx<?>) bundler, newBundle.getTaskCount(), elapsed, accumulatedTime, elapsed - newBundle.getNodeExecutionTime());
-    } else BundlerHelper.updateBundler(bundler, newBundle.getTaskCount(), elapsed);
+      BundlerHelper.updateBundler((BundlerEx<?>) bundler, nbTasks, elapsed, accumulatedTime, elapsed - newBundle.getNodeExecutionTime());
+    } else BundlerHelper.updateBundler(bundler, nbTasks, elapsed);
     if (debugEnabled) log.debug("updated bundler for {}", context);
-    context.getServer().getBundlerHandler().storeBundler(context.getNodeIdentifier(), bundler, context.getBundlerAlgorithm());
-    updateStats(newBundle.getTaskCount(), elapsed / 1_000_000L, newBundle.getNodeExecutionTime() / 1_000_000L);
-    return bundler;
+    context.storeBundler(nodeBundle.getJob(), bundler);
+    context.getAffinity().resultsReceived(nodeBundle.getJob().getUuid(), nbTasks, elapsed);
+    updateStats(nbTasks, elapsed / 1_000_000L, newBundle.getNodeExecutionTime() / 1_000_000L);
   }
 
   /**
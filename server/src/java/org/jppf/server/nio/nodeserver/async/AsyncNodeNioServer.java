@@ -46,6 +46,7 @@ import org.jppf.server.protocol.*;
 import org.jppf.server.queue.JPPFPriorityQueue;
 import org.jppf.utils.*;
 import org.jppf.utils.concurrent.*;
+import org.jppf.utils.configuration.*;
 import org.jppf.utils.stats.JPPFStatisticsHelper;
 import org.slf4j.*;
 
@@ -266,10 +267,16 @@ public final class AsyncNodeNioServer extends StatelessNioServer<AsyncNodeContex
     }
   }
 
+  @Override
+  protected JPPFProperty<Integer> getSelectorThreadsProperty() {
+    return JPPFProperties.NIO_NODE_SELECTOR_THREADS;
+  }
+
   @Override
   public void removeAllConnections() {
     if (!isStopped()) return;
     super.removeAllConnections();
+    messageHandler.close();
   }
 
   /**
@@ -448,6 +455,7 @@ public final class AsyncNodeNioServer extends StatelessNioServer<AsyncNodeContex
       try {
         final String uuid = nodeContext.getUuid();
         if (uuid != null) allConnections.remove(uuid);
+        jobScheduler.getPolicyCache().invalidate(uuid);
         nodeContext.removeExecutionStatusListener(statusListener);
       } catch (final Throwable e) {
         if (debugEnabled) log.debug("error removing connection {} : {}", nodeContext, e);
@@ -0,0 +1,209 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver.async;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jppf.server.nio.nodeserver.BaseNodeContext;
+
+/**
+ * A thread-safe set of idle node channels, which maintains an index of the channels by node uuid and by kind of channel (local node, peer driver or remote node).
+ * <p>The index is updated incrementally whenever a channel is added or removed, which allows the job scheduler to only iterate over the channels
+ * that can actually accept a given job, instead of scanning all idle channels for each job.
+ * <p>It also provides a lightweight claim mechanism, which ensures that a channel selected by one dispatching thread is not selected by another one.
+ */
+class IdleChannelIndex extends AbstractSet<BaseNodeContext> {
+  /**
+   * All the idle channels.
+   */
+  private final Set<BaseNodeContext> all = ConcurrentHashMap.newKeySet();
+  /**
+   * The idle channels for the local nodes.
+   */
+  private final Set<BaseNodeContext> localChannels = ConcurrentHashMap.newKeySet();
+  /**
+   * The idle channels for the peer drivers.
+   */
+  private final Set<BaseNodeContext> peerChannels = ConcurrentHashMap.newKeySet();
+  /**
+   * The idle channels for the remote, non-peer nodes.
+   */
+  private final Set<BaseNodeContext> remoteChannels = ConcurrentHashMap.newKeySet();
+  /**
+   * Mapping of node uuids to the corresponding idle channels.
+   */
+  private final Map<String, BaseNodeContext> uuidMap = new ConcurrentHashMap<>();
+  /**
+   * The channels currently claimed by a dispatching thread.
+   */
+  private final Set<BaseNodeContext> claimed = ConcurrentHashMap.newKeySet();
+
+  @Override
+  public boolean add(final BaseNodeContext channel) {
+    if (!all.add(channel)) return false;
+    getBucket(channel).add(channel);
+    final String uuid = channel.getUuid();
+    if (uuid != null) uuidMap.put(uuid, channel);
+    return true;
+  }
+
+  @Override
+  public boolean remove(final Object o) {
+    if (!all.remove(o)) return false;
+    final BaseNodeContext channel = (BaseNodeContext) o;
+    getBucket(channel).remove(channel);
+    final String uuid = channel.getUuid();
+    if (uuid != null) uuidMap.remove(uuid, channel);
+    return true;
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    return all.contains(o);
+  }
+
+  @Override
+  public Iterator<BaseNodeContext> iterator() {
+    return new IndexIterator(all.iterator());
+  }
+
+  @Override
+  public int size() {
+    return all.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return all.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    all.clear();
+    localChannels.clear();
+    peerChannels.clear();
+    remoteChannels.clear();
+    uuidMap.clear();
+  }
+
+  /**
+   * Get the idle channel with the specified node uuid.
+   * @param uuid the uuid of the node to lookup.
+   * @return a {@link BaseNodeContext}, or {@code null} if there is no idle channel with this uuid.
+   */
+  BaseNodeContext getByUuid(final String uuid) {
+    return (uuid == null) ? null : uuidMap.get(uuid);
+  }
+
+  /**
+   * Get the idle channels that are candidates for a job, in the order in which they should be evaluated.
+   * <p>When a broadcast uuid is specified, only the channel with this uuid, if any, is returned.
+   * Otherwise the local channels are returned first, followed by the remote nodes and, optionally, the peer drivers.
+   * @param broadcastUuid the uuid of the only node the job can be dispatched to, or {@code null} if the job is not a broadcast job.
+   * @param includePeers whether to include the peer drivers in the candidates.
+   * @return a list of channels, possibly empty but never {@code null}.
+   */
+  List<BaseNodeContext> getCandidates(final String broadcastUuid, final boolean includePeers) {
+    if (broadcastUuid != null) {
+      final BaseNodeContext channel = uuidMap.get(broadcastUuid);
+      return (channel == null) ? Collections.<BaseNodeContext>emptyList() : Collections.singletonList(channel);
+    }
+    final List<BaseNodeContext> result = new ArrayList<>(all.size());
+    result.addAll(localChannels);
+    result.addAll(remoteChannels);
+    if (includePeers) result.addAll(peerChannels);
+    return result;
+  }
+
+  /**
+   * Attempt to claim the specified channel on behalf of the current thread.
+   * @param channel the channel to claim.
+   * @return {@code true} if the channel was claimed, {@code false} if it is already claimed by another thread.
+   */
+  boolean claim(final BaseNodeContext channel) {
+    return claimed.add(channel);
+  }
+
+  /**
+   * Release a channel previously claimed with {@link #claim(BaseNodeContext)}.
+   * @param channel the channel to release.
+   */
+  void release(final BaseNodeContext channel) {
+    claimed.remove(channel);
+  }
+
+  /**
+   * Determine whether the specified channel is currently claimed by a dispatching thread.
+   * @param channel the channel to check.
+   * @return {@code true} if the channel is claimed, {@code false} otherwise.
+   */
+  boolean isClaimed(final BaseNodeContext channel) {
+    return claimed.contains(channel);
+  }
+
+  /**
+   * Get the index bucket in which the specified channel is stored.
+   * @param channel the channel for which to get the bucket.
+   * @return a set of channels.
+   */
+  private Set<BaseNodeContext> getBucket(final BaseNodeContext channel) {
+    if (channel.isLocal()) return localChannels;
+    return channel.isPeer() ? peerChannels : remoteChannels;
+  }
+
+  /**
+   * An iterator which keeps the index consistent when an element is removed.
+   */
+  private final class IndexIterator implements Iterator<BaseNodeContext> {
+    /**
+     * The iterator over all channels.
+     */
+    private final Iterator<BaseNodeContext> delegate;
+    /**
+     * The last returned element.
+     */
+    private BaseNodeContext current;
+
+    /**
+     * Initialize this iterator.
+     * @param delegate the iterator over all channels.
+     */
+    private IndexIterator(final Iterator<BaseNodeContext> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return delegate.hasNext();
+    }
+
+    @Override
+    public BaseNodeContext next() {
+      return current = delegate.next();
+    }
+
+    @Override
+    public void remove() {
+      if (current == null) throw new IllegalStateException();
+      IdleChannelIndex.this.remove(current);
+      current = null;
+    }
+  }
+}
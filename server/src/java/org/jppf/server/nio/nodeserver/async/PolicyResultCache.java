@@ -0,0 +1,268 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver.async;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jppf.management.JPPFSystemInformation;
+import org.jppf.node.policy.*;
+import org.jppf.server.protocol.ServerJob;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.stats.*;
+import org.slf4j.*;
+
+/**
+ * Caches the results of execution policies evaluated against the nodes, keyed by a fingerprint of the policy and the node uuid.
+ * <p>Jobs which have identical execution policies share the same fingerprint, so a policy needs to be evaluated only once per node,
+ * rather than once per job and per dispatch pass. The cached results for a node are discarded whenever its {@link JPPFSystemInformation}
+ * is replaced or modified in place, as signalled by {@link JPPFSystemInformation#incrementModificationCount()}, or when the node is disconnected.
+ * When the maximum number of results for a node is reached, the least recently used results are evicted.
+ * <p>Policies whose outcome depends on the job or grid context ({@link ScriptedPolicy}, {@link NodesMatching} and user-defined policies)
+ * are not cached by default. When {@link JPPFProperties#POLICY_CACHE_CONTEXTUAL} is {@code true}, they are cached with a key which also
+ * includes the job uuid and the number of nodes the job is dispatched to, such that the results are re-evaluated when this context changes.
+ * <p>The {@code jppf.node.idle} property is toggled in place each time a job is dispatched to or returned by a node, without signalling a modification,
+ * so that the cached results of a node survive a dispatch cycle. Policies which reference this property are instead cached with a key which includes its current value.
+ */
+class PolicyResultCache {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(PolicyResultCache.class);
+  /**
+   * Determines whether DEBUG logging level is enabled.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * The package of the built-in execution policies.
+   */
+  private static final String POLICY_PACKAGE = ExecutionPolicy.class.getPackage().getName();
+  /**
+   * Whether the cache is enabled.
+   */
+  private final boolean enabled;
+  /**
+   * Whether to cache the results of context-dependent policies.
+   */
+  private final boolean cacheContextual;
+  /**
+   * Maximum number of cached results per node.
+   */
+  private final int maxEntriesPerNode;
+  /**
+   * Whether to evaluate the compiled form of the policies.
+   */
+  private final boolean compiled;
+  /**
+   * Mapping of node uuids to their cached results.
+   */
+  private final Map<String, NodeEntry> nodeEntries = new ConcurrentHashMap<>();
+  /**
+   * Mapping of policy instances to their fingerprint. Execution policies do not override {@code equals()}, so the keys are compared by identity.
+   */
+  private final Map<ExecutionPolicy, PolicyFingerprint> fingerprints = Collections.synchronizedMap(new WeakHashMap<ExecutionPolicy, PolicyFingerprint>());
+  /**
+   * Number of cache hits since the last call to {@link #updateStatistics(JPPFStatistics)}.
+   */
+  private final LongAdder hits = new LongAdder();
+  /**
+   * Number of cache misses since the last call to {@link #updateStatistics(JPPFStatistics)}.
+   */
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Initialize this cache with the specified configuration.
+   * @param config the driver configuration.
+   */
+  PolicyResultCache(final TypedProperties config) {
+    this.enabled = config.get(JPPFProperties.POLICY_CACHE_ENABLED);
+    this.cacheContextual = config.get(JPPFProperties.POLICY_CACHE_CONTEXTUAL);
+    this.maxEntriesPerNode = config.get(JPPFProperties.POLICY_CACHE_MAX_ENTRIES);
+    this.compiled = config.get(JPPFProperties.POLICY_COMPILED_ENABLED);
+    if (debugEnabled) log.debug("policy cache enabled={}, cacheContextual={}, maxEntriesPerNode={}, compiled={}", enabled, cacheContextual, maxEntriesPerNode, compiled);
+  }
+
+  /**
+   * Evaluate the specified policy against a node, using the cached result if there is one.
+   * The policy context must have been set prior to calling this method.
+   * @param policy the policy to evaluate.
+   * @param job the job to which the policy belongs.
+   * @param nodeUuid the uuid of the node, or {@code null} if the result is not to be cached.
+   * @param info the node's system information.
+   * @param nbJobChannels the number of nodes the job is already dispatched to.
+   * @return the result of the policy evaluation.
+   */
+  boolean evaluate(final ExecutionPolicy policy, final ServerJob job, final String nodeUuid, final JPPFSystemInformation info, final int nbJobChannels) {
+    if (!enabled || (nodeUuid == null) || (info == null)) return doEvaluate(policy, info);
+    final PolicyFingerprint fingerprint = getFingerprint(policy);
+    String key;
+    if (!fingerprint.contextual) key = fingerprint.value;
+    else if (cacheContextual) key = new StringBuilder(fingerprint.value).append('|').append(job.getUuid()).append('|').append(nbJobChannels).toString();
+    else return doEvaluate(policy, info);
+    if (fingerprint.idleDependent) key = new StringBuilder(key).append("|idle=").append(info.getJppf().get(JPPFProperties.NODE_IDLE)).toString();
+    NodeEntry entry = nodeEntries.get(nodeUuid);
+    final long modificationCount = info.getModificationCount();
+    if ((entry == null) || (entry.info != info) || (entry.modificationCount != modificationCount)) {
+      entry = new NodeEntry(info, modificationCount, maxEntriesPerNode);
+      nodeEntries.put(nodeUuid, entry);
+    }
+    final Boolean cached = entry.results.get(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+    misses.increment();
+    final boolean result = doEvaluate(policy, info);
+    entry.results.put(key, result);
+    return result;
+  }
+
+  /**
+   * Discard all the cached results for the specified node.
+   * @param nodeUuid the uuid of the node.
+   */
+  void invalidate(final String nodeUuid) {
+    if (nodeUuid != null) nodeEntries.remove(nodeUuid);
+  }
+
+  /**
+   * Add the hits and misses accumulated since the last call to this method to the specified statistics.
+   * @param stats the statistics to update.
+   */
+  void updateStatistics(final JPPFStatistics stats) {
+    final long h = hits.sumThenReset();
+    if (h > 0L) stats.addValue(JPPFStatisticsHelper.POLICY_CACHE_HITS, h);
+    final long m = misses.sumThenReset();
+    if (m > 0L) stats.addValue(JPPFStatisticsHelper.POLICY_CACHE_MISSES, m);
+  }
+
+  /**
+   * Evaluate the specified policy against a node, using the compiled form of the policy if compilation is enabled.
+   * @param policy the policy to evaluate.
+   * @param info the node's system information.
+   * @return the result of the policy evaluation.
+   */
+  private boolean doEvaluate(final ExecutionPolicy policy, final JPPFSystemInformation info) {
+    return (compiled && (info != null)) ? CompiledPolicy.of(policy).evaluate(info) : policy.evaluate(info);
+  }
+
+  /**
+   * Get the fingerprint of the specified policy, computing it if needed.
+   * @param policy the policy for which to get a fingerprint.
+   * @return a {@link PolicyFingerprint} instance.
+   */
+  private PolicyFingerprint getFingerprint(final ExecutionPolicy policy) {
+    PolicyFingerprint fingerprint = fingerprints.get(policy);
+    if (fingerprint == null) {
+      final String value = policy.toString();
+      fingerprint = new PolicyFingerprint(value, isContextual(policy), value.contains(JPPFProperties.NODE_IDLE.getName()));
+      fingerprints.put(policy, fingerprint);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Determine whether the result of the specified policy may depend on the job or grid context rather than only on the node information.
+   * @param policy the policy to check.
+   * @return {@code true} if the policy or one of its descendants is context-dependent, {@code false} otherwise.
+   */
+  private static boolean isContextual(final ExecutionPolicy policy) {
+    if ((policy instanceof ScriptedPolicy) || (policy instanceof NodesMatching)) return true;
+    if (!POLICY_PACKAGE.equals(policy.getClass().getPackage().getName())) return true;
+    final ExecutionPolicy[] children = policy.getChildren();
+    if (children != null) {
+      for (final ExecutionPolicy child: children) {
+        if (isContextual(child)) return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The fingerprint of an execution policy.
+   */
+  private static final class PolicyFingerprint {
+    /**
+     * The canonical string representation of the policy.
+     */
+    private final String value;
+    /**
+     * Whether the policy is context-dependent.
+     */
+    private final boolean contextual;
+    /**
+     * Whether the policy references the {@code jppf.node.idle} property.
+     */
+    private final boolean idleDependent;
+
+    /**
+     * Initialize this fingerprint.
+     * @param value the canonical string representation of the policy.
+     * @param contextual whether the policy is context-dependent.
+     * @param idleDependent whether the policy references the {@code jppf.node.idle} property.
+     */
+    private PolicyFingerprint(final String value, final boolean contextual, final boolean idleDependent) {
+      this.value = value;
+      this.contextual = contextual;
+      this.idleDependent = idleDependent;
+    }
+  }
+
+  /**
+   * The cached results for a node.
+   */
+  private static final class NodeEntry {
+    /**
+     * The system information against which the results were computed.
+     */
+    private final JPPFSystemInformation info;
+    /**
+     * The modification count of the system information when the results were computed.
+     */
+    private final long modificationCount;
+    /**
+     * Mapping of policy keys to evaluation results, in access order.
+     */
+    private final Map<String, Boolean> results;
+
+    /**
+     * Initialize this entry.
+     * @param info the system information against which the results are computed.
+     * @param modificationCount the modification count of the system information.
+     * @param maxEntries the maximum number of results, above which the least recently used ones are evicted.
+     */
+    private NodeEntry(final JPPFSystemInformation info, final long modificationCount, final int maxEntries) {
+      this.info = info;
+      this.modificationCount = modificationCount;
+      this.results = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        /**
+         * Explicit serialVersionUID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+          return size() > maxEntries;
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver.async;
+
+import java.util.concurrent.*;
+
+import org.jppf.server.nio.nodeserver.BaseNodeContext;
+import org.jppf.server.protocol.*;
+import org.jppf.utils.ExceptionUtils;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.slf4j.*;
+
+/**
+ * Cancels, on their node, the dispatches whose tasks have all lost the race against their speculative copies, or conversely.
+ * The speculative copies themselves are dispatched by the {@link AsyncJobScheduler}.
+ * @author Laurent Cohen
+ */
+class SpeculativeExecutionHandler {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(SpeculativeExecutionHandler.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Performs the JMX requests, so they don't block the thread processing the results.
+   */
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(new JPPFThreadFactory("SpeculativeExecution"));
+
+  /**
+   * Called after a node returned the results of a dispatch.
+   * @param nodeBundle the dispatch whose results were received.
+   */
+  void dispatchReturned(final ServerTaskBundleNode nodeBundle) {
+    if (nodeBundle.getSpeculativePeer() == null) return;
+    final ServerTaskBundleNode loser = nodeBundle.getServerJob().getSpeculativeLoser(nodeBundle);
+    if (loser == null) return;
+    final BaseNodeContext node = (BaseNodeContext) loser.getChannel();
+    final String jobUuid = loser.getJob().getUuid();
+    if (debugEnabled) log.debug("cancelling speculative race loser {} on {}", loser, node);
+    executor.execute(() -> {
+      try {
+        node.cancelJob(jobUuid, false);
+      } catch (final Exception e) {
+        if (debugEnabled) log.debug("error cancelling speculative race loser of job uuid={} on {}", jobUuid, node, e);
+        else log.warn("error cancelling speculative race loser of job uuid={} on {}: {}", jobUuid, node, ExceptionUtils.getMessage(e));
+      }
+    });
+  }
+
+  /**
+   * Stop the thread which performs the JMX requests.
+   */
+  void close() {
+    executor.shutdownNow();
+  }
+}
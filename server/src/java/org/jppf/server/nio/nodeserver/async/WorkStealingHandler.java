@@ -0,0 +1,113 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.server.nio.nodeserver.async;
+
+import java.util.concurrent.*;
+
+import org.jppf.execute.ExecutorChannel;
+import org.jppf.server.nio.nodeserver.BaseNodeContext;
+import org.jppf.server.protocol.*;
+import org.jppf.utils.*;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * Shortens the tail of large jobs by moving the tasks that a node has not started yet to the nodes that become idle.
+ * <p>When a node returns the results of a job whose tasks have all been dispatched, the node with the largest pending dispatch of the same job
+ * is asked, via JMX, to release the tasks it has not started yet. The node acknowledges the request with the positions of the released tasks,
+ * which the driver requeues right away so they can be dispatched to any available node.
+ * The released tasks are also sent back along with the results of the node's other tasks, in case the acknowledgement is lost.
+ * @author Laurent Cohen
+ */
+class WorkStealingHandler {
+  /**
+   * Logger for this class.
+   */
+  private static final Logger log = LoggerFactory.getLogger(WorkStealingHandler.class);
+  /**
+   * Determines whether the debug level is enabled in the log configuration, without the cost of a method call.
+   */
+  private static final boolean debugEnabled = log.isDebugEnabled();
+  /**
+   * Minimum number of tasks in a dispatch for the node to be asked to release its unstarted tasks.
+   */
+  private final int minTasks;
+  /**
+   * Performs the JMX requests, so they don't block the thread processing the results.
+   */
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(new JPPFThreadFactory("WorkStealing"));
+
+  /**
+   * Initialize this handler with the specified configuration.
+   * @param config the driver configuration.
+   */
+  WorkStealingHandler(final TypedProperties config) {
+    this.minTasks = config.get(JPPFProperties.JOB_WORK_STEALING_MIN_TASKS);
+  }
+
+  /**
+   * Called after a node returned the results of a dispatch of the specified job.
+   * @param job the job whose results were received.
+   * @param idleNode the node which returned the results.
+   */
+  void dispatchReturned(final ServerJob job, final BaseNodeContext idleNode) {
+    final ServerTaskBundleNode nodeBundle = selectDispatch(job, idleNode);
+    if (nodeBundle == null) return;
+    final BaseNodeContext node = (BaseNodeContext) nodeBundle.getChannel();
+    final String jobUuid = nodeBundle.getJob().getUuid();
+    if (debugEnabled) log.debug("requesting release of unstarted tasks of {} from {}", nodeBundle, node);
+    executor.execute(() -> {
+      try {
+        final int[] positions = node.releaseUnstartedTasks(jobUuid);
+        if (debugEnabled) log.debug("node released {} unstarted tasks of job uuid={}: {}", (positions == null) ? "no" : positions.length, jobUuid, node);
+        final int nbRequeued = job.tasksReleased(node, positions);
+        if ((nbRequeued > 0) && (node instanceof AsyncNodeContext)) ((AsyncNodeContext) node).updateStatsUponTaskResubmit(nbRequeued);
+      } catch (final Exception e) {
+        if (debugEnabled) log.debug("error requesting the release of unstarted tasks of job uuid={} from {}", jobUuid, node, e);
+        else log.warn("error requesting the release of unstarted tasks of job uuid={} from {}: {}", jobUuid, node, ExceptionUtils.getMessage(e));
+      }
+    });
+  }
+
+  /**
+   * Select the dispatch of the specified job from which to release the unstarted tasks.
+   * @param job the job whose results were received.
+   * @param idleNode the node which returned the results.
+   * @return the dispatch with the most tasks, or {@code null} if the job still has tasks to dispatch or no dispatch is eligible.
+   */
+  ServerTaskBundleNode selectDispatch(final ServerJob job, final BaseNodeContext idleNode) {
+    if (job.isCancelled() || job.getSLA().isBroadcastJob() || (job.getTaskCount() > 0)) return null;
+    ServerTaskBundleNode selected = null;
+    for (final ServerTaskBundleNode nodeBundle: job.getDispatchSet()) {
+      final ExecutorChannel<?> channel = nodeBundle.getChannel();
+      if (!(channel instanceof BaseNodeContext) || (channel == idleNode) || ((BaseNodeContext) channel).isPeer()) continue;
+      if (nodeBundle.isOffline() || nodeBundle.isReleaseRequested() || (nodeBundle.getTaskCount() < minTasks)) continue;
+      if ((selected == null) || (nodeBundle.getTaskCount() > selected.getTaskCount())) selected = nodeBundle;
+    }
+    return ((selected != null) && selected.requestRelease()) ? selected : null;
+  }
+
+  /**
+   * Stop the thread which performs the JMX requests.
+   */
+  void close() {
+    executor.shutdownNow();
+  }
+}
@@ -19,6 +19,7 @@ package org.jppf.server.node.remote;
 
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import org.jppf.classloader.AbstractJPPFClassLoader;
 import org.jppf.io.*;
@@ -75,17 +76,39 @@ public class JPPFRemoteContainer extends JPPFContainer {
    */
   @Override
   public int deserializeObjects(final Object[] list, final int count, final ExecutorService executor) throws Throwable {
+    deserializeObjects(list, 0, count, executor, null);
+    return 0;
+  }
+
+  /**
+   * Deserialize a number of objects from a socket client, optionally notifying a callback as soon as each object is deserialized.
+   * @param list a list holding the resulting deserialized objects. The object at index {@code i} in the message is stored at {@code list[i + 1]}.
+   * @param start the index in the message of the first object to deserialize.
+   * @param count the number of objects to deserialize.
+   * @param executor the executor which performs the deserialization.
+   * @param callback invoked from the deserialization thread, as soon as each object is deserialized. May be {@code null}.
+   * @return the time in nanoseconds, as given by {@link System#nanoTime()}, at which all the objects were received, while some of them may still be deserializing.
+   * @throws Throwable if an error occurs while deserializing.
+   */
+  public long deserializeObjects(final Object[] list, final int start, final int count, final ExecutorService executor, final Consumer<ObjectDeserializationTask> callback) throws Throwable {
     if (debugEnabled) log.debug("deserializing {} objects", count);
     final ClassLoader cl = Thread.currentThread().getContextClassLoader();
     try {
       Thread.currentThread().setContextClassLoader(classLoader);
       final CompletionService<ObjectDeserializationTask> completionService = new ExecutorCompletionService<>(executor, new ArrayBlockingQueue<Future<ObjectDeserializationTask>>(count));
       final InputSource is = new SocketWrapperInputSource(nodeConnection.getChannel());
-      for (int i = 0; i < count; i++) {
+      for (int i = start; i < start + count; i++) {
         final DataLocation dl = IOHelper.readData(is);
-        if (traceEnabled) log.trace("i = {}, read data size = {}", i, (dl == null) ? -1 : dl.getSize());
-        completionService.submit(new ObjectDeserializationTask(this, (TaskBundle) list[0], dl, i));
+        if (traceEnabled) log.trace("i = {}, read data size = {}", i, (dl == null) ? -1 : dl.getLongSize());
+        final ObjectDeserializationTask task = new ObjectDeserializationTask(this, (TaskBundle) list[0], dl, i);
+        if (callback == null) completionService.submit(task);
+        else completionService.submit(() -> {
+          task.call();
+          callback.accept(task);
+          return task;
+        });
       }
+      final long received = System.nanoTime();
       Throwable t = null;
       int throwableCount = 0;
       for (int i=0; i<count; i++) {
@@ -102,7 +125,7 @@ public class JPPFRemoteContainer extends JPPFContainer {
         if (debugEnabled) log.debug("tasks deserialization resulted in {} errors, first throwable = {}", throwableCount, ExceptionUtils.getMessage(t));
         throw t;
       }
-      return 0;
+      return received;
     } finally {
       Thread.currentThread().setContextClassLoader(cl);
     }
@@ -26,11 +26,13 @@ import java.util.concurrent.*;
 
 import org.jppf.JPPFSuspendedNodeException;
 import org.jppf.comm.socket.SocketWrapper;
+import org.jppf.execute.async.*;
 import org.jppf.io.*;
 import org.jppf.node.protocol.*;
 import org.jppf.node.protocol.graph.TaskGraphInfo;
 import org.jppf.serialization.ObjectSerializer;
 import org.jppf.server.node.*;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.slf4j.*;
 
 /**
@@ -50,6 +52,14 @@ public class RemoteNodeIO extends AbstractNodeIO<AbstractRemoteNode> {
    * Determines whether the trace level is enabled in the logging configuration, without the cost of a method call.
    */
   private static boolean traceEnabled = log.isTraceEnabled();
+  /**
+   * Whether the tasks are executed as soon as they are deserialized and their results serialized as soon as they complete.
+   */
+  private final boolean streamingEnabled;
+  /**
+   * Mapping of the bundles being executed in streaming mode to their results serialized as soon as the tasks complete.
+   */
+  private final Map<String, StreamedResults> streamedResultsMap = new ConcurrentHashMap<>();
 
   /**
    * Initialize this TaskIO with the specified node.
@@ -57,6 +67,7 @@ public class RemoteNodeIO extends AbstractNodeIO<AbstractRemoteNode> {
    */
   public RemoteNodeIO(final AbstractRemoteNode node) {
     super(node);
+    this.streamingEnabled = node.getConfiguration().get(JPPFProperties.NODE_STREAMING_EXECUTION);
   }
 
   @Override
@@ -85,6 +96,7 @@ public class RemoteNodeIO extends AbstractNodeIO<AbstractRemoteNode> {
     final int count = bundle.getTaskCount() + dependencyCount;
     final Object[] list = new Object[count + 2];
     list[0] = bundle;
+    streamed = false;
     try {
       initializeBundleData(bundle);
       if (debugEnabled) log.debug("bundle task count = {}, dependencies = {}, handshake = {}", bundle.getTaskCount(), dependencyCount, bundle.isHandshake());
@@ -95,7 +107,11 @@ public class RemoteNodeIO extends AbstractNodeIO<AbstractRemoteNode> {
         cont.setNodeConnection((RemoteNodeConnection) node.getNodeConnection());
         if (!node.isOffline() && !bundle.getSLA().isRemoteClassLoadingEnabled()) cont.getClassLoader().setRemoteClassLoadingDisabled(true);
         node.getLifeCycleEventHandler().fireJobHeaderLoaded(bundle, cont.getClassLoader());
-        cont.deserializeObjects(list, 1 + count, node.getSerializationExecutor());
+        final long received;
+        if (streamingEnabled && !node.isOffline() && (dependencyCount == 0) && (count > 0)) received = deserializeStreamed(bundle, cont, list, count);
+        else received = cont.deserializeObjects(list, 0, 1 + count, node.getSerializationExecutor(), null);
+        // only the deserialization which did not overlap with the network transfer of the tasks is reported
+        bundle.setParameter(NODE_DESERIALIZATION_TIME, System.nanoTime() - received);
       }
       else  getSocketWrapper().receiveBytes(0); // skip null data provider
       if (debugEnabled) log.debug("got all data");
@@ -107,6 +123,65 @@ public class RemoteNodeIO extends AbstractNodeIO<AbstractRemoteNode> {
     return list;
   }
 
+  /**
+   * Deserialize the data provider, then submit each task to the execution manager as soon as it is deserialized.
+   * @param bundle the bundle being read.
+   * @param cont the container used to deserialize the objects.
+   * @param list holds the resulting deserialized objects.
+   * @param count the number of tasks to deserialize.
+   * @return the time in nanoseconds at which all the tasks were received.
+   * @throws Throwable if an error occurs while deserializing.
+   */
+  private long deserializeStreamed(final TaskBundle bundle, final JPPFRemoteContainer cont, final Object[] list, final int count) throws Throwable {
+    final ExecutorService executor = node.getSerializationExecutor();
+    cont.deserializeObjects(list, 0, 1, executor, null);
+    final DataProvider dataProvider = (DataProvider) list[1];
+    final AsyncExecutionManager manager = node.getExecutionManager();
+    final String key = bundle.getUuid() + bundle.getBundleId();
+    streamedResultsMap.put(key, new StreamedResults(cont));
+    final JobProcessingEntry jobEntry = manager.startStreaming(bundle, dataProvider);
+    streamed = true;
+    if (debugEnabled) log.debug("streaming {} tasks of {}", count, bundle);
+    final long received;
+    try {
+      received = cont.deserializeObjects(list, 1, count, executor, deserialized -> {
+        final Object o = deserialized.getObject();
+        if (o instanceof Task) {
+          final Task<?> task = (Task<?>) o;
+          initializeTask(task, dataProvider, bundle);
+          manager.submitStreamedTask(jobEntry, task);
+        }
+      });
+    } catch (final Throwable t) {
+      streamedResultsMap.remove(key);
+      manager.endStreaming(jobEntry, getTasks(list), t);
+      throw t;
+    }
+    manager.endStreaming(jobEntry, getTasks(list), null);
+    return received;
+  }
+
+  /**
+   * Get the tasks, in the order in which they were received, from the specified deserialized objects.
+   * @param list the deserialized bundle, data provider and tasks.
+   * @return a list of tasks.
+   */
+  private static List<Task<?>> getTasks(final Object[] list) {
+    final List<Task<?>> tasks = new ArrayList<>(list.length - 2);
+    for (int i=2; i<list.length; i++) {
+      if (list[i] instanceof Task) tasks.add((Task<?>) list[i]);
+    }
+    return tasks;
+  }
+
+  @Override
+  public void taskExecuted(final TaskBundle bundle, final Task<?> task) {
+    final StreamedResults results = streamedResultsMap.get(bundle.getUuid() + bundle.getBundleId());
+    if (results == null) return;
+    if (traceEnabled) log.trace("serializing result of task at position {} of {}", task.getPosition(), bundle);
+    results.futures.put(task.getPosition(), node.getSerializationExecutor().submit(new ObjectSerializationTask(task, results.cont, bundle, task.getPosition())));
+  }
+
   /**
    * Performs the actions required if reloading the classes is necessary.
    * @throws Exception if any error occurs.
@@ -127,16 +202,31 @@ public class RemoteNodeIO extends AbstractNodeIO<AbstractRemoteNode> {
     finalizeBundleData(bundle, tasks);
     final List<Future<DataLocation>> futureList = new ArrayList<>((tasks == null) ? 1 : tasks.size() + 1);
     final JPPFContainer cont = node.getContainer(bundle.isNotification() ? node.getHandshakeUuidPath() : bundle.getUuidPath().getList());
-    int submitCount = 0;
-    futureList.add(executor.submit(new ObjectSerializationTask(bundle, cont, bundle, submitCount++)));
+    final StreamedResults results = bundle.isNotification() ? null : streamedResultsMap.remove(bundle.getUuid() + bundle.getBundleId());
+    final long start = System.nanoTime();
+    // the header reports the time spent serializing the results which were not already serialized while other tasks were executing.
+    // Waiting for it delays the header, so it is only done when the driver's load-balancer uses this time
+    final boolean timeRequested = !bundle.isNotification() && bundle.getParameter(NODE_SERIALIZATION_TIME_REQUESTED, false);
+    int submitCount = 1;
+    futureList.add(timeRequested ? null : executor.submit(new ObjectSerializationTask(bundle, cont, bundle, 0)));
     if (tasks != null) {
-      for (final Task<?> task : tasks) futureList.add(executor.submit(new ObjectSerializationTask(task, cont, bundle, submitCount++)));
+      for (final Task<?> task : tasks) {
+        // reuse the results serialized as soon as the task completed, if any
+        final Future<DataLocation> future = (results == null) ? null : results.futures.get(task.getPosition());
+        futureList.add((future != null) ? future : executor.submit(new ObjectSerializationTask(task, cont, bundle, submitCount)));
+        submitCount++;
+      }
+    }
+    if (timeRequested) {
+      for (int i=1; i<futureList.size(); i++) futureList.get(i).get();
+      bundle.setParameter(NODE_SERIALIZATION_TIME, System.nanoTime() - start);
+      futureList.set(0, executor.submit(new ObjectSerializationTask(bundle, cont, bundle, 0)));
     }
     final OutputDestination dest = new SocketWrapperOutputDestination(socketWrapper);
     int count = 0;
     for (final Future<DataLocation> f: futureList) {
       final DataLocation dl = f.get();
-      if (traceEnabled) log.trace("writing "  + (count == 0 ? "header" : "task[" + count + ']') + " with size = " + dl.getSize());
+      if (traceEnabled) log.trace("writing "  + (count == 0 ? "header" : "task[" + count + ']') + " with size = " + dl.getLongSize());
       IOHelper.writeData(dl, dest);
       count++;
     }
@@ -165,6 +255,28 @@ public class RemoteNodeIO extends AbstractNodeIO<AbstractRemoteNode> {
     if (debugEnabled) log.debug("closed the data channel");
   }
 
+  /**
+   * Holds the results of a streamed bundle which are serialized as soon as the tasks complete.
+   */
+  private static final class StreamedResults {
+    /**
+     * The container used to serialize the results.
+     */
+    private final JPPFContainer cont;
+    /**
+     * Mapping of task positions to their serialized results.
+     */
+    private final Map<Integer, Future<DataLocation>> futures = new ConcurrentHashMap<>();
+
+    /**
+     * Initialize with the specified container.
+     * @param cont the container used to serialize the results.
+     */
+    private StreamedResults(final JPPFContainer cont) {
+      this.cont = cont;
+    }
+  }
+
   /**
    * Get the socket wrapper associated with the node connection.
    * @return a {@link SocketWrapper} instance.
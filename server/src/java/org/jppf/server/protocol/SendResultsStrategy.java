@@ -19,8 +19,10 @@
 package org.jppf.server.protocol;
 
 import java.util.Collection;
+import java.util.concurrent.*;
 
 import org.jppf.node.protocol.SendResultsStrategyConstants;
+import org.jppf.utils.concurrent.JPPFThreadFactory;
 
 /**
  * Strategy to determine whether results should be sent immediately.
@@ -74,4 +76,46 @@ public interface SendResultsStrategy {
       return SendResultsStrategyConstants.ALL_RESULTS;
     }
   }
+
+  /**
+   * Strategy that coalesces the results received from multiple nodes into a single message to the client. The results are sent when
+   * the oldest unsent result has been held for a maximum latency, when their number reaches a maximum size, or when all results have been received.
+   * @exclude
+   */
+  public static class SendBatchedResultsStrategy implements SendResultsStrategy {
+    /**
+     * Sends the results whose maximum latency has expired.
+     */
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new JPPFThreadFactory("ResultsBatchTimer", false, true));
+    /**
+     * Maximum time in milliseconds the results are held before being sent.
+     */
+    private final long maxLatency;
+    /**
+     * Maximum number of results sent in a single message.
+     */
+    private final int maxTasks;
+
+    /**
+     * Initialize this strategy.
+     * @param maxLatency the maximum time in milliseconds the results are held before being sent.
+     * @param maxTasks the maximum number of results sent in a single message.
+     */
+    public SendBatchedResultsStrategy(final long maxLatency, final int maxTasks) {
+      this.maxLatency = maxLatency;
+      this.maxTasks = maxTasks;
+    }
+
+    @Override
+    public boolean sendResults(final ServerTaskBundleClient bundle, final Collection<ServerTask> tasks) {
+      if ((maxLatency <= 0L) || (bundle.getResultsToSendCount() >= maxTasks)) return true;
+      if (bundle.scheduleResultsFlush()) timer.schedule(bundle::flushResults, maxLatency, TimeUnit.MILLISECONDS);
+      return false;
+    }
+
+    @Override
+    public String getName() {
+      return SendResultsStrategyConstants.BATCHED_RESULTS;
+    }
+  }
 }
@@ -21,6 +21,8 @@ package org.jppf.server.protocol;
 import java.util.*;
 
 import org.jppf.node.protocol.SendResultsStrategyConstants;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
 
 /**
  * This class manages the loading and use of strategies for sending results back to the JPPF clients.
@@ -31,32 +33,44 @@ public class SendResultsStrategyManager {
   /**
    * A mapping of strategy names to {@link SendResultsStrategy} instances.
    */
-  private static final Map<String, SendResultsStrategy> strategyMap = initializeMap();
+  private final Map<String, SendResultsStrategy> strategyMap;
   /**
    * The default strategy to use when a strategy with a given name cannot be found.
    */
-  private static final SendResultsStrategy DEFAULT_STRATEGY = strategyMap.get(SendResultsStrategyConstants.NODE_RESULTS);
+  private final SendResultsStrategy defaultStrategy;
+
+  /**
+   * Initialize this manager with the specified configuration.
+   * @param config the configuration of the driver, from which the parameters of the batched results strategy are read.
+   */
+  public SendResultsStrategyManager(final TypedProperties config) {
+    strategyMap = initializeMap(config);
+    defaultStrategy = strategyMap.get(SendResultsStrategyConstants.NODE_RESULTS);
+  }
 
   /**
    * Initialize the map of available strategies.
+   * @param config the configuration of the driver.
    * @return a mapping of strategy names to {@link SendResultsStrategy} instances.
    */
-  private static Map<String, SendResultsStrategy> initializeMap() {
+  private static Map<String, SendResultsStrategy> initializeMap(final TypedProperties config) {
     final Map<String, SendResultsStrategy> map = new HashMap<>();
     map.put(SendResultsStrategyConstants.ALL_RESULTS, new SendResultsStrategy.SendAllResultsStrategy());
     map.put(SendResultsStrategyConstants.NODE_RESULTS, new SendResultsStrategy.SendNodeResultsStrategy());
+    map.put(SendResultsStrategyConstants.BATCHED_RESULTS,
+      new SendResultsStrategy.SendBatchedResultsStrategy(config.get(JPPFProperties.RESULTS_BATCH_MAX_LATENCY), config.get(JPPFProperties.RESULTS_BATCH_MAX_TASKS)));
     return map;
   }
 
   /**
    * Get a strategy from its name.
-   * If no strategy with this name is found, then {@link #DEFAULT_STRATEGY} is returned.
+   * If no strategy with this name is found, then {@link #defaultStrategy} is returned.
    * @param name the name of the strtaegy to find.
    * @return a {@link SendResultsStrategy} instance.
    */
-  public static SendResultsStrategy getStrategy(final String name) {
-    if (name == null) return DEFAULT_STRATEGY;
+  public SendResultsStrategy getStrategy(final String name) {
+    if (name == null) return defaultStrategy;
     final SendResultsStrategy strategy = strategyMap.get(name);
-    return strategy != null ? strategy : DEFAULT_STRATEGY;
+    return strategy != null ? strategy : defaultStrategy;
   }
 }
@@ -20,8 +20,10 @@ package org.jppf.server.protocol;
 
 import java.util.*;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 
+import org.jppf.execute.ExecutorChannel;
 import org.jppf.io.DataLocation;
 import org.jppf.job.JobInformation;
 import org.jppf.management.JPPFManagementInfo;
@@ -62,6 +64,22 @@ public class ServerJob extends AbstractServerJobBase {
    * Position of taskss sent tot he server.
    */
   private final Set<Integer> dispatchedTasks = new HashSet<>();
+  /**
+   * Number of speculative copies of tasks dispatched for this job.
+   */
+  private final AtomicInteger speculativeCopies = new AtomicInteger(0);
+  /**
+   * Number of speculative copies whose result was received before that of the original task.
+   */
+  private final AtomicInteger speculativeWins = new AtomicInteger(0);
+  /**
+   * Called when this job has few enough tasks still executing for speculative copies of its straggling tasks to be dispatched.
+   */
+  private Runnable onSpeculationCandidate;
+  /**
+   * Whether the available tasks of the graph are dispatched by decreasing bottom level, rather than in no particular order.
+   */
+  private boolean criticalPathScheduling;
 
   /**
    * Initialized client job with task bundle and list of tasks to execute.
@@ -98,17 +116,25 @@ public class ServerJob extends AbstractServerJobBase {
           }
           if (debugEnabled) log.debug("requested tasks={}, found tasks={}", nbTasks, list.size());
         } else {
-          final Set<Integer> availablePos = taskGraph.getAvailableNodes();
-          final int effectiveNbTasks = Math.min(nbTasks, availablePos.size());
-          final Iterator<Integer> it = availablePos.iterator();
+          final int nbAvailable = taskGraph.getAvailableNodeCount();
+          final int effectiveNbTasks = Math.min(nbTasks, nbAvailable);
           list = new ArrayList<>(effectiveNbTasks);
           int count = 0;
-          while (it.hasNext() && (count < nbTasks)) {
-            final int pos = it.next();
-            if (!dispatchedTasks.contains(pos)) {
-              dispatchedTasks.add(pos);
-              count++;
-              list.add(tasks.get(pos));
+          if (criticalPathScheduling) {
+            final int[] selected = new int[effectiveNbTasks];
+            count = taskGraph.selectCriticalNodes(selected, effectiveNbTasks, dispatchedTasks::contains);
+            for (int i=0; i<count; i++) {
+              dispatchedTasks.add(selected[i]);
+              list.add(tasks.get(selected[i]));
+            }
+          } else {
+            for (int i=0; (i<nbAvailable) && (count < nbTasks); i++) {
+              final int pos = taskGraph.getAvailableNodeAt(i);
+              if (!dispatchedTasks.contains(pos)) {
+                dispatchedTasks.add(pos);
+                count++;
+                list.add(tasks.get(pos));
+              }
             }
           }
           if (debugEnabled) log.debug("count={}, nbTasks={}, effectiveNbTasks={}, dispatchedTasks={} for {}", count, nbTasks, effectiveNbTasks, dispatchedTasks.size(), this);
@@ -159,11 +185,15 @@ public class ServerJob extends AbstractServerJobBase {
       bundleTasks = (bundle == null) ? new ArrayList<>(tasks.values()) : bundle.getTaskList();
       b = isJobExpired() || isCancelled() || (bundle.isExpired() && bundle.isOffline());
       if (b) {
-        for (final ServerTask task : bundleTasks) map.putValue(task.getBundle(), task);
+        for (final ServerTask task : bundleTasks) {
+          if (!settleSpeculation(task)) map.putValue(task.getBundle(), task);
+        }
       } else if (results != null) {
         int nbResubmits = 0, maxPos = 0, minPos = Integer.MAX_VALUE;
+        final long taskDuration = (taskGraph == null) ? -1L : averageTaskDuration(bundle, bundleTasks);
         for (int i=0; i<bundleTasks.size(); i++) {
           final ServerTask task = bundleTasks.get(i);
+          if (settleSpeculation(task)) continue;
           final int pos = task.getPosition();
           if (task.getState() == TaskState.RESUBMIT) {
             if (traceEnabled) log.trace("task to resubmit: {}", task);
@@ -175,7 +205,7 @@ public class ServerJob extends AbstractServerJobBase {
           } else {
             if (taskGraph != null) {
               dispatchedTasks.remove(pos);
-              taskGraph.nodeDone(pos);
+              taskGraph.nodeDone(pos, taskDuration);
             }
             final DataLocation location = results.get(i);
             task.resultReceived(location);
@@ -193,6 +223,21 @@ public class ServerJob extends AbstractServerJobBase {
     postResultsReceived(map, bundle, null);
   }
 
+  /**
+   * Compute the average execution time of the tasks of a dispatch, based on the total execution time reported by the node.
+   * @param bundle the dispatch whose results were received.
+   * @param bundleTasks the tasks of the dispatch.
+   * @return the average duration in nanoseconds, or -1 if it is unknown.
+   */
+  private static long averageTaskDuration(final ServerTaskBundleNode bundle, final List<ServerTask> bundleTasks) {
+    if ((bundle == null) || (bundle.getAccumulatedElapsed() <= 0L)) return -1L;
+    int nbExecuted = 0;
+    for (final ServerTask task: bundleTasks) {
+      if (task.getState() != TaskState.RESUBMIT) nbExecuted++;
+    }
+    return (nbExecuted > 0) ? bundle.getAccumulatedElapsed() / nbExecuted : -1L;
+  }
+
   /**
    * Called to notify that throwable eventually raised while receiving the results.
    * @param bundle    the finished job.
@@ -206,6 +251,7 @@ public class ServerJob extends AbstractServerJobBase {
     try {
       int nbResubmits = 0, maxPos = 0, minPos = Integer.MAX_VALUE;
       for (final ServerTask task : bundle.getTaskList()) {
+        if (settleSpeculation(task)) continue;
         final int pos = task.getPosition();
         if (task.getState() == TaskState.RESUBMIT) {
           if (traceEnabled) log.trace("task to resubmit: {}", task);
@@ -220,7 +266,6 @@ public class ServerJob extends AbstractServerJobBase {
             taskGraph.nodeDone(pos);
           }
           task.resultReceived(throwable);
-          if (taskGraph != null) taskGraph.nodeDone(pos);
           map.putValue(task.getBundle(), task);
         }
       }
@@ -232,6 +277,183 @@ public class ServerJob extends AbstractServerJobBase {
     postResultsReceived(map, bundle, throwable);
   }
 
+  /**
+   * Called when a node acknowledges the release of the tasks of this job which it had not started yet.
+   * The released tasks are removed from the dispatches of this job to the node and put back in the queue, without waiting for the dispatches to return.
+   * @param channel the node which released the tasks.
+   * @param positions the positions of the released tasks.
+   * @return the number of requeued tasks.
+   */
+  public int tasksReleased(final ExecutorChannel<?> channel, final int[] positions) {
+    if ((positions == null) || (positions.length == 0)) return 0;
+    final Set<Integer> positionSet = new HashSet<>(positions.length);
+    for (final int position: positions) positionSet.add(position);
+    final List<ServerTask> released = new ArrayList<>();
+    boolean requeue = false;
+    lock.lock();
+    try {
+      if (isCancelled() || isJobExpired()) return 0;
+      for (final ServerTaskBundleNode nodeBundle: getDispatchSet()) {
+        if (nodeBundle.getChannel() == channel) released.addAll(nodeBundle.removeReleasedTasks(positionSet));
+      }
+      for (final ServerTask task: released) task.setReturnedFromNode(false);
+      requeue = merge(released, false);
+    } finally {
+      lock.unlock();
+    }
+    if (debugEnabled) log.debug("requeued {} tasks released by {}, requeue={} for {}", released.size(), channel, requeue, this);
+    if (requeue && (onRequeue != null)) onRequeue.run();
+    return released.size();
+  }
+
+  /**
+   * Settle the race between a task and its speculative copy, if any, when one of them returns from a node.
+   * The first of the two tasks to return with a result wins, the other one is discarded when it returns. If one of them is to be resubmitted
+   * before the race is settled, it is discarded and the other one carries on alone. This method must be called while holding the job lock.
+   * @param task the task that returned from a node.
+   * @return {@code true} if the task must be discarded, {@code false} if it must be processed as usual.
+   */
+  private boolean settleSpeculation(final ServerTask task) {
+    final ServerTask source = task.getSpeculativeSource();
+    final ServerTask original = (source != null) ? source : task;
+    final ServerTask copy = original.getSpeculativeCopy();
+    if (copy == null) return false;
+    if (original.isSpeculationSettled()) {
+      if (traceEnabled) log.trace("discarding result of speculative race loser {}", task);
+      task.setState(TaskState.CANCELLED);
+      return true;
+    }
+    if (task.getState() == TaskState.RESUBMIT) {
+      if (traceEnabled) log.trace("discarding resubmitted task {}, its {} carries on", task, (task == copy) ? "original" : "speculative copy");
+      task.setState(TaskState.CANCELLED);
+      original.setSpeculativeCopy(null);
+      copy.setSpeculativeSource(null);
+      return true;
+    }
+    original.setSpeculationSettled(true);
+    if (task == copy) speculativeWins.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Create a dispatch holding speculative copies of the tasks of the oldest dispatch of this job, provided that all its tasks are dispatched
+   * and the number of tasks still executing is below the threshold specified in the job SLA.
+   * @param channel the idle node to which the copies will be dispatched.
+   * @return a new {@link ServerTaskBundleNode}, or {@code null} if no speculative dispatch is needed.
+   */
+  public ServerTaskBundleNode createSpeculativeDispatch(final ExecutorChannel<?> channel) {
+    final JobSLA sla = getSLA();
+    final double threshold = sla.getSpeculativeExecutionThreshold();
+    if ((threshold <= 0d) || sla.isBroadcastJob() || (taskGraph != null)) return null;
+    lock.lock();
+    try {
+      if (isCancelled() || !tasks.isEmpty()) return null;
+      int executing = 0;
+      ServerTaskBundleNode straggler = null;
+      for (final ServerTaskBundleNode nodeBundle: getDispatchSet()) {
+        if (nodeBundle.isSpeculative()) continue;
+        executing += nodeBundle.getTaskCount();
+        final ExecutorChannel<?> nodeChannel = nodeBundle.getChannel();
+        if ((nodeChannel == null) || (nodeChannel == channel) || nodeBundle.isOffline() || (nodeBundle.getSpeculativePeer() != null)) continue;
+        if ((straggler == null) || (nodeBundle.getDispatchStartTime() < straggler.getDispatchStartTime())) straggler = nodeBundle;
+      }
+      if ((straggler == null) || (executing > threshold * job.getInitialTaskCount())) return null;
+      final List<ServerTask> copies = new ArrayList<>(straggler.getTaskCount());
+      for (final ServerTask task: straggler.getTaskList()) copies.add(task.createSpeculativeCopy());
+      final TaskBundle newTaskBundle = job.copy();
+      if (sla.getDependencySpec().getId() != null) newTaskBundle.setParameter(BundleParameter.JOB_GRAPH_ALREADY_HANDLED, true);
+      final ServerTaskBundleNode result = new ServerTaskBundleNode(this, newTaskBundle, copies);
+      result.setSpeculativeSource(straggler);
+      speculativeCopies.addAndGet(copies.size());
+      if (debugEnabled) log.debug("created speculative copy of {} with {} tasks still executing", straggler, executing);
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Determine whether this job has few enough tasks still executing for speculative copies of its straggling tasks to be dispatched,
+   * and if so notify the speculation candidate callback, if any.
+   */
+  private void checkSpeculationCandidate() {
+    if (onSpeculationCandidate == null) return;
+    final double threshold = getSLA().getSpeculativeExecutionThreshold();
+    if ((threshold <= 0d) || getSLA().isBroadcastJob() || (taskGraph != null)) return;
+    int executing = 0;
+    lock.lock();
+    try {
+      if (isCancelled() || !tasks.isEmpty()) return;
+      for (final ServerTaskBundleNode nodeBundle: getDispatchSet()) {
+        if (!nodeBundle.isSpeculative()) executing += nodeBundle.getTaskCount();
+      }
+    } finally {
+      lock.unlock();
+    }
+    if ((executing > 0) && (executing <= threshold * job.getInitialTaskCount())) onSpeculationCandidate.run();
+  }
+
+  /**
+   * Set the callback invoked when this job has few enough tasks still executing for speculative copies of its straggling tasks to be dispatched.
+   * @param onSpeculationCandidate the callback to invoke.
+   */
+  public void setOnSpeculationCandidate(final Runnable onSpeculationCandidate) {
+    this.onSpeculationCandidate = onSpeculationCandidate;
+  }
+
+  @Override
+  public void jobDispatched(final ServerTaskBundleNode bundle) {
+    super.jobDispatched(bundle);
+    checkSpeculationCandidate();
+  }
+
+  @Override
+  public void jobReturned(final ServerTaskBundleNode bundle) {
+    super.jobReturned(bundle);
+    checkSpeculationCandidate();
+  }
+
+  /**
+   * Get the dispatch which lost the speculative race against the specified dispatch, if it can be cancelled on its node.
+   * @param nodeBundle a dispatch that returned from a node.
+   * @return the losing dispatch, or {@code null} if it still has tasks to execute, already returned, or if its node is executing other dispatches of this job.
+   */
+  public ServerTaskBundleNode getSpeculativeLoser(final ServerTaskBundleNode nodeBundle) {
+    final ServerTaskBundleNode peer = nodeBundle.getSpeculativePeer();
+    if (peer == null) return null;
+    lock.lock();
+    try {
+      final ExecutorChannel<?> channel = peer.getChannel();
+      if ((channel == null) || (getNodeBundle(peer.getId()) == null)) return null;
+      for (final ServerTask task: peer.getTaskList()) {
+        final ServerTask source = task.getSpeculativeSource();
+        final ServerTask original = (source != null) ? source : task;
+        if ((original.getSpeculativeCopy() == null) || !original.isSpeculationSettled()) return null;
+      }
+      // a node can only cancel all the tasks of a job at once
+      for (final ServerTaskBundleNode other: getDispatchSet()) {
+        if ((other != peer) && (other.getChannel() == channel)) return null;
+      }
+      return peer;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of speculative copies of tasks dispatched for this job.
+   */
+  public int getSpeculativeCopies() {
+    return speculativeCopies.get();
+  }
+
+  /**
+   * @return the number of speculative copies whose result was received before that of the original task.
+   */
+  public int getSpeculativeWins() {
+    return speculativeWins.get();
+  }
+
   /**
    * 
    * @param map .
@@ -282,6 +504,8 @@ public class ServerJob extends AbstractServerJobBase {
    * @param throwable the {@link Exception} thrown during job execution or {@code null}.
    */
   public void taskCompleted(final ServerTaskBundleNode bundle, final Throwable throwable) {
+    // a dispatch that lost a speculative race may return after the job has ended
+    if (getSubmissionStatus() == SubmissionStatus.ENDED) return;
     boolean requeue = false;
     final List<DataLocation> list = new ArrayList<>();
     lock.lock();
@@ -441,13 +665,29 @@ public class ServerJob extends AbstractServerJobBase {
     return taskGraph;
   }
 
+  /**
+   * @return whether the available tasks of the graph are dispatched by decreasing bottom level.
+   */
+  public boolean isCriticalPathScheduling() {
+    return criticalPathScheduling;
+  }
+
+  /**
+   * Specify whether the available tasks of the graph, if any, are dispatched by decreasing bottom level, that is,
+   * the tasks on the longest remaining paths of the graph first.
+   * @param criticalPathScheduling {@code true} to dispatch the tasks on the critical path first, {@code false} otherwise.
+   */
+  public void setCriticalPathScheduling(final boolean criticalPathScheduling) {
+    this.criticalPathScheduling = criticalPathScheduling;
+  }
+
   /**
    * @return {@code true} if there is a graph and an available node in the graph, {@code false} otherwise.
    */
   public boolean hasAvailableGraphNode() {
     synchronized (tasks) {
       if (taskGraph == null) return false;
-      return taskGraph.getAvailableNodes().size() - dispatchedTasks.size() > 0;
+      return taskGraph.getAvailableNodeCount() - dispatchedTasks.size() > 0;
     }
   }
 
@@ -456,7 +696,7 @@ public class ServerJob extends AbstractServerJobBase {
    */
   public int getAvailableGraphNodeCount() {
     synchronized (tasks) {
-      return (taskGraph != null) ? taskGraph.getAvailableNodes().size() - dispatchedTasks.size() : -1;
+      return (taskGraph != null) ? taskGraph.getAvailableNodeCount() - dispatchedTasks.size() : -1;
     }
   }
 }
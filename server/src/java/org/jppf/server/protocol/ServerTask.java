@@ -82,6 +82,18 @@ public class ServerTask implements Serializable, PositionalElement<ServerTask> {
    * Whether this task has returned from the node.
    */
   private boolean returnedFromNode;
+  /**
+   * The task of which this task is a speculative copy, if any.
+   */
+  private transient ServerTask speculativeSource;
+  /**
+   * The speculative copy of this task, if any.
+   */
+  private transient ServerTask speculativeCopy;
+  /**
+   * Whether the result of either this task or its speculative copy was received.
+   */
+  private transient boolean speculationSettled;
 
   /**
    *
@@ -311,6 +323,59 @@ public class ServerTask implements Serializable, PositionalElement<ServerTask> {
     this.returnedFromNode = returnedFromNode;
   }
 
+  /**
+   * Create a speculative copy of this task, to be executed concurrently on another node.
+   * @return a new {@link ServerTask} which shares the client bundle, position and serialized form of this task.
+   */
+  public ServerTask createSpeculativeCopy() {
+    final ServerTask copy = new ServerTask(bundle, initialTask, jobPosition, maxResubmits);
+    copy.speculativeSource = this;
+    speculativeCopy = copy;
+    return copy;
+  }
+
+  /**
+   * @return the task of which this task is a speculative copy, or {@code null} if this task is not a copy.
+   */
+  public ServerTask getSpeculativeSource() {
+    return speculativeSource;
+  }
+
+  /**
+   * @param speculativeSource the task of which this task is a speculative copy, or {@code null} to detach this task from its source.
+   */
+  public void setSpeculativeSource(final ServerTask speculativeSource) {
+    this.speculativeSource = speculativeSource;
+  }
+
+  /**
+   * @return the speculative copy of this task, or {@code null} if there is none.
+   */
+  public ServerTask getSpeculativeCopy() {
+    return speculativeCopy;
+  }
+
+  /**
+   * @param speculativeCopy the speculative copy of this task, or {@code null} to detach this task from its copy.
+   */
+  public void setSpeculativeCopy(final ServerTask speculativeCopy) {
+    this.speculativeCopy = speculativeCopy;
+  }
+
+  /**
+   * @return whether the result of either this task or its speculative copy was received.
+   */
+  public boolean isSpeculationSettled() {
+    return speculationSettled;
+  }
+
+  /**
+   * @param speculationSettled whether the result of either this task or its speculative copy was received.
+   */
+  public void setSpeculationSettled(final boolean speculationSettled) {
+    this.speculationSettled = speculationSettled;
+  }
+
   /**
    * Reconstitute the {@code ServerTask} instance from a stream (i.e., deserialize it).
    * @param in the input stream from which to read the task.
@@ -66,6 +66,14 @@ public class ServerTaskBundleClient {
    * The tasks to be sent back to the client.
    */
   private final List<ServerTask> tasksToSendList = new LinkedList<>();
+  /**
+   * The number of tasks added to {@link #tasksToSendList} by each notification of received results, since the tasks were last sent.
+   */
+  private final List<Integer> batchSizes = new ArrayList<>();
+  /**
+   * Whether a deferred sending of the results is scheduled.
+   */
+  private boolean flushScheduled;
   /**
    * The tasks to be executed by the node.
    */
@@ -110,6 +118,10 @@ public class ServerTaskBundleClient {
    * Whether ths client bundle is ended.
    */
   private final AtomicBoolean isEnded = new AtomicBoolean(false);
+  /**
+   * Whether the data of this bundle was released.
+   */
+  private final AtomicBoolean dataReleased = new AtomicBoolean(false);
 
   /**
    * Initialize this task bundle and set its build number.
@@ -117,8 +129,10 @@ public class ServerTaskBundleClient {
    * @param dataProvider the shared data provider for this task bundle.
    * @param taskList the tasks to execute.
    * @param forPeer whether the job comes from a peer driver.
+   * @param strategyManager holds the strategies used to send the results back to the client.
    */
-  public ServerTaskBundleClient(final TaskBundle job, final DataLocation dataProvider, final List<DataLocation> taskList, final boolean forPeer) {
+  public ServerTaskBundleClient(final TaskBundle job, final DataLocation dataProvider, final List<DataLocation> taskList, final boolean forPeer,
+    final SendResultsStrategyManager strategyManager) {
     if (job == null) throw new IllegalArgumentException("job is null");
     if (taskList == null) throw new IllegalArgumentException("taskList is null");
     id = INSTANCE_COUNT.incrementAndGet();
@@ -148,8 +162,8 @@ public class ServerTaskBundleClient {
       }
       this.pendingTasksCount.set(this.taskList.size() + nullTasks.size());
       if (forPeer) this.strategy = new SendResultsStrategy.SendAllResultsStrategy();
-      else this.strategy = SendResultsStrategyManager.getStrategy(job.getSLA().getResultsStrategy());
-    } else this.strategy = SendResultsStrategyManager.getStrategy(null);
+      else this.strategy = strategyManager.getStrategy(job.getSLA().getResultsStrategy());
+    } else this.strategy = strategyManager.getStrategy(null);
     this.tasksPositions = computeTasksPositions();
   }
 
@@ -158,8 +172,9 @@ public class ServerTaskBundleClient {
    * @param tasks the tasks to execute.
    * @param job the job to execute.
    * @param dataProvider the shared data provider for this task bundle.
+   * @param strategyManager holds the strategies used to send the results back to the client.
    */
-  public ServerTaskBundleClient(final Collection<ServerTask> tasks, final TaskBundle job, final DataLocation dataProvider) {
+  public ServerTaskBundleClient(final Collection<ServerTask> tasks, final TaskBundle job, final DataLocation dataProvider, final SendResultsStrategyManager strategyManager) {
     if (job == null) throw new IllegalArgumentException("job is null");
     if (taskList == null) throw new IllegalArgumentException("taskList is null");
     id = INSTANCE_COUNT.incrementAndGet();
@@ -168,7 +183,7 @@ public class ServerTaskBundleClient {
     this.taskList.addAll(tasks);
     for (final ServerTask task: tasks) task.setBundle(this);
     this.pendingTasksCount.set(tasks.size());
-    this.strategy = SendResultsStrategyManager.getStrategy(job.getSLA().getResultsStrategy());
+    this.strategy = strategyManager.getStrategy(job.getSLA().getResultsStrategy());
     this.sourceBundleId = -1L;
     this.tasksPositions = computeTasksPositions();
   }
@@ -259,12 +274,17 @@ public class ServerTaskBundleClient {
         pendingTasksCount.decrementAndGet();
       }
     }
+    if (!tasks.isEmpty()) batchSizes.add(tasks.size());
     done = pendingTasksCount.get() <= 0;
     final boolean shouldFire = done || strategy.sendResults(this, tasks);
-    if (shouldFire) completedTasks = getAndClearCompletedTasks();
+    int[] sizes = null;
+    if (shouldFire) {
+      completedTasks = getAndClearCompletedTasks();
+      sizes = getAndClearBatchSizes(completedTasks.size());
+    }
     if (debugEnabled) log.debug("processed {} tasks, completedTasks={}, done={}, tasksToSend={}, pendingTasksCount={}",
       tasks.size(), (completedTasks == null) ? 0 : completedTasks.size(), done, tasksToSendList.size(), pendingTasksCount.get());
-    if (completedTasks != null) fireTasksCompleted(completedTasks);
+    if (completedTasks != null) fireTasksCompleted(completedTasks, sizes);
   }
 
   /**
@@ -285,11 +305,16 @@ public class ServerTaskBundleClient {
       if (count > 0) pendingTasksCount.addAndGet(-count);
       task.resultReceived(exception);
     }
+    if (count > 0) batchSizes.add(count);
     done = pendingTasksCount.get() <= 0;
     final boolean shouldFire = done || strategy.sendResults(this, tasks);
-    if (shouldFire) completedTasks = getAndClearCompletedTasks();
+    int[] sizes = null;
+    if (shouldFire) {
+      completedTasks = getAndClearCompletedTasks();
+      sizes = getAndClearBatchSizes(completedTasks.size());
+    }
     if (debugEnabled) log.debug("processed {} tasks, completedTasks={}, done={}, tasksToSend={}", tasks.size(), (completedTasks == null ? 0 : completedTasks.size()), done, tasksToSendList.size());
-    if (completedTasks != null) fireTasksCompleted(completedTasks);
+    if (completedTasks != null) fireTasksCompleted(completedTasks, sizes);
   }
 
   /**
@@ -329,9 +354,57 @@ public class ServerTaskBundleClient {
         if (count > 0) pendingTasksCount.addAndGet(-count);
         this.done = true;
         completedTasks = getAndClearCompletedTasks();
+        batchSizes.clear();
       }
     }
-    fireTasksCompleted(completedTasks);
+    fireTasksCompleted(completedTasks, null);
+  }
+
+  /**
+   * Send the results received so far which are still held by this bundle. This is called when the maximum latency of a batching strategy has expired.
+   */
+  public synchronized void flushResults() {
+    flushScheduled = false;
+    if (cancelled || tasksToSendList.isEmpty()) return;
+    final List<ServerTask> completedTasks = getAndClearCompletedTasks();
+    final int[] sizes = getAndClearBatchSizes(completedTasks.size());
+    if (debugEnabled) log.debug("flushing {} results in {} batches for {}", completedTasks.size(), (sizes == null) ? 1 : sizes.length, this);
+    fireTasksCompleted(completedTasks, sizes);
+  }
+
+  /**
+   * Record that a deferred sending of the results is about to be scheduled, unless one is already pending.
+   * @return {@code true} if the caller should schedule a call to {@link #flushResults()}, {@code false} if one is already scheduled.
+   */
+  synchronized boolean scheduleResultsFlush() {
+    if (flushScheduled) return false;
+    flushScheduled = true;
+    return true;
+  }
+
+  /**
+   * Get the number of results received and not yet sent back to the client.
+   * @return the number of results held by this bundle.
+   */
+  public synchronized int getResultsToSendCount() {
+    return tasksToSendList.size();
+  }
+
+  /**
+   * Get the sizes of the batches of results held since the last time results were sent, and clear them.
+   * @param nbTasks the number of tasks being sent.
+   * @return an array of batch sizes, or {@code null} if the results are made of a single batch or their count is inconsistent with {@code nbTasks}.
+   */
+  private synchronized int[] getAndClearBatchSizes(final int nbTasks) {
+    int[] sizes = null;
+    if (batchSizes.size() > 1) {
+      sizes = new int[batchSizes.size()];
+      int total = 0;
+      for (int i=0; i<sizes.length; i++) total += sizes[i] = batchSizes.get(i);
+      if (total != nbTasks) sizes = null;
+    }
+    batchSizes.clear();
+    return sizes;
   }
 
   /**
@@ -405,10 +478,12 @@ public class ServerTaskBundleClient {
   /**
    * Notifies that tasks have been completed.
    * @param completedTasks the task whose results to send.
+   * @param sizes the sizes of the batches of results coalesced into a single notification, or {@code null} if there is a single batch.
    */
-  private void fireTasksCompleted(final List<ServerTask> completedTasks) {
+  private void fireTasksCompleted(final List<ServerTask> completedTasks, final int[] sizes) {
     if (completedTasks != null) {
       final ServerTaskBundleClient bundle = new ServerTaskBundleClient(this, completedTasks);
+      if (sizes != null) bundle.getJob().setParameter(BundleParameter.RESULTS_BATCH_SIZES, sizes);
       if (debugEnabled) log.debug("created bundle id=" + bundle.id + " for " + this);
       for (final CompletionListener listener : listenerList) listener.taskCompleted(bundle, completedTasks);
     }
@@ -424,6 +499,21 @@ public class ServerTaskBundleClient {
     }
   }
 
+  /**
+   * Release the data provider, the tasks and the dependencies received from the client, such as the pooled buffers they may be read into.
+   * This must only be called on the bundle received from the client, once its results are sent or can no longer be sent, since the bundles of results share the same data.
+   * Calling this method more than once has no effect.
+   */
+  public void releaseData() {
+    if (!dataReleased.compareAndSet(false, true)) return;
+    if (debugEnabled) log.debug("releasing the data of {}", this);
+    if (dataProvider != null) dataProvider.release();
+    for (final ServerTask task: taskList) task.getInitialTask().release();
+    if ((graphInfo != null) && (graphInfo.getDependencies() != null)) {
+      for (final PositionalElement<?> dependency: graphInfo.getDependencies()) ((ServerTask) dependency).getInitialTask().release();
+    }
+  }
+
   /**
    * Add a listener to the list of bundle listeners.
    * @param listener a {@link CompletionListener} instance.
@@ -65,9 +65,13 @@ public class ServerTaskBundleNode {
    */
   private transient final DataLocation dataProvider;
   /**
-   * The tasks to be executed by the node.
+   * The tasks to be executed by the node. When the node releases some of them, this list is replaced with one that no longer holds them.
    */
-  private transient final List<ServerTask> taskList;
+  private transient volatile List<ServerTask> taskList;
+  /**
+   * The tasks as they were dispatched to the node, if some of them were released and requeued since, otherwise {@code null}.
+   */
+  private transient List<ServerTask> dispatchedTaskList;
   /**
    * Job requeue indicator.
    */
@@ -112,6 +116,26 @@ public class ServerTaskBundleNode {
    * Info on the dependenencies of the tasks in this bundle.
    */
   private TaskGraphInfo graphInfo;
+  /**
+   * Whether the node was asked to release the tasks of this bundle which have not started yet.
+   */
+  private boolean releaseRequested;
+  /**
+   * Whether the node returned this dispatch, after which its list of tasks no longer changes.
+   */
+  private boolean returned;
+  /**
+   * Whether this bundle holds speculative copies of tasks dispatched to another node.
+   */
+  private boolean speculative;
+  /**
+   * For a speculative bundle, the dispatch whose tasks it copies. Otherwise, the speculative bundle that copies the tasks of this dispatch, if any.
+   */
+  private ServerTaskBundleNode speculativePeer;
+  /**
+   * The total execution time of the tasks in the node, in nanoseconds, or -1 if it is unknown.
+   */
+  private long accumulatedElapsed = -1L;
 
   /**
    * Initialize this task bundle and set its build number.
@@ -225,6 +249,9 @@ public class ServerTaskBundleNode {
    * @param exception the {@link Exception} thrown during job execution or <code>null</code>.
    */
   public void taskCompleted(final Throwable exception) {
+    synchronized(this) {
+      returned = true;
+    }
     if (debugEnabled && (exception != null)) log.debug("received exception for {} :\n{}\ncall stack:\n{}", this, ExceptionUtils.getStackTrace(exception), ExceptionUtils.getCallStack());
     try {
       job.jobReturned(this);
@@ -275,6 +302,88 @@ public class ServerTaskBundleNode {
     for (ServerTask task: taskList) task.cancel();
   }
 
+  /**
+   * Record a request to the node to release the tasks of this bundle which have not started yet. Only the first request is recorded.
+   * @return {@code true} if this is the first request, {@code false} otherwise.
+   */
+  public synchronized boolean requestRelease() {
+    if (releaseRequested) return false;
+    releaseRequested = true;
+    return true;
+  }
+
+  /**
+   * Determine whether the node was asked to release the tasks of this bundle which have not started yet.
+   * @return {@code true} if a release was requested, {@code false} otherwise.
+   */
+  public synchronized boolean isReleaseRequested() {
+    return releaseRequested;
+  }
+
+  /**
+   * Remove from this dispatch the tasks the node released before they started, so they can be requeued right away.
+   * The tasks which have a speculative copy are not removed, they are handled when this dispatch returns.
+   * @param positions the positions of the released tasks.
+   * @return the removed tasks, possibly empty if this dispatch already returned, was cancelled or expired.
+   */
+  public synchronized List<ServerTask> removeReleasedTasks(final Set<Integer> positions) {
+    if (returned || cancelled || expired) return Collections.emptyList();
+    final List<ServerTask> kept = new ArrayList<>(taskList.size());
+    final List<ServerTask> removed = new ArrayList<>();
+    for (final ServerTask task: taskList) {
+      final boolean speculated = (task.getSpeculativeCopy() != null) || (task.getSpeculativeSource() != null);
+      if (!speculated && (task.getState() == TaskState.PENDING) && positions.contains(task.getPosition())) removed.add(task);
+      else kept.add(task);
+    }
+    if (!removed.isEmpty()) {
+      if (dispatchedTaskList == null) dispatchedTaskList = taskList;
+      taskList = kept;
+      if (debugEnabled) log.debug("removed {} released tasks from {}", removed.size(), this);
+    }
+    return removed;
+  }
+
+  /**
+   * Called when the node returns this dispatch, after which no task can be removed from it.
+   * @param results the results returned by the node, in the order in which the tasks were dispatched.
+   * @return the results of the tasks which are still part of this dispatch.
+   */
+  public synchronized List<DataLocation> dispatchReturned(final List<DataLocation> results) {
+    returned = true;
+    if ((dispatchedTaskList == null) || (results == null)) return results;
+    final Set<ServerTask> current = Collections.newSetFromMap(new IdentityHashMap<>());
+    current.addAll(taskList);
+    final List<DataLocation> filtered = new ArrayList<>(taskList.size());
+    for (int i=0; i<dispatchedTaskList.size(); i++) {
+      if (current.contains(dispatchedTaskList.get(i))) filtered.add(results.get(i));
+    }
+    return filtered;
+  }
+
+  /**
+   * @return whether this bundle holds speculative copies of tasks dispatched to another node.
+   */
+  public boolean isSpeculative() {
+    return speculative;
+  }
+
+  /**
+   * Link this bundle, which holds speculative copies of tasks, to the dispatch whose tasks it copies.
+   * @param source the dispatch whose tasks are copied.
+   */
+  public void setSpeculativeSource(final ServerTaskBundleNode source) {
+    speculative = true;
+    speculativePeer = source;
+    source.speculativePeer = this;
+  }
+
+  /**
+   * @return for a speculative bundle, the dispatch whose tasks it copies; otherwise the speculative bundle that copies the tasks of this dispatch, if any.
+   */
+  public ServerTaskBundleNode getSpeculativePeer() {
+    return speculativePeer;
+  }
+
   /**
    * Get the cancelled indicator.
    * @return <code>true</code> if job is cancelled, <code>false</code> otherwise.
@@ -333,6 +442,7 @@ public class ServerTaskBundleNode {
     sb.append(", taskCount=").append(taskCount);
     sb.append(", cancelled=").append(cancelled);
     sb.append(", requeued=").append(requeued);
+    sb.append(", speculative=").append(speculative);
     sb.append(", dependencies=").append(graphInfo == null ? 0 : graphInfo.getNbDependencies());
     sb.append(", channel=").append(channel);
     sb.append(']');
@@ -422,6 +532,21 @@ public class ServerTaskBundleNode {
     return dispatchStartTime;
   }
 
+  /**
+   * @return the total execution time of the tasks in the node, in nanoseconds, or -1 if it is unknown.
+   */
+  public long getAccumulatedElapsed() {
+    return accumulatedElapsed;
+  }
+
+  /**
+   * Set the total execution time of the tasks in the node, as reported by the node along with the results.
+   * @param accumulatedElapsed the execution time in nanoseconds, or -1 if it is unknown.
+   */
+  public void setAccumulatedElapsed(final long accumulatedElapsed) {
+    this.accumulatedElapsed = accumulatedElapsed;
+  }
+
   /**
    * Find and capture a canonical set of direct dependencies for all the tasks in this dispatch bundle.
    */
@@ -434,18 +559,15 @@ public class ServerTaskBundleNode {
       final CollectionMap<Integer, Integer> dependenciesMap = new ArrayListHashMap<>();
       for (final ServerTask task: taskList) {
         if (graph != null) { 
-          final TaskGraph.Node node = graph.nodeAt(task.getPosition());
-          if (node == null) continue;
+          final int[] deps = graph.getDependencyPositions(task.getPosition());
+          if (deps == null) continue;
           if (traceEnabled) log.trace("found node in graph for {}", task);
-          final List<TaskGraph.Node> deps = node.getDependencies();
-          if ((deps != null) && !deps.isEmpty()) {
-            for (final TaskGraph.Node dep: deps) {
-              ServerTask depTask = job.tasks.get(dep.getPosition());
-              if (depTask == null) depTask = job.dependendedOnTasks.get(dep.getPosition());
-              if (depTask != null) {
-                dependencies.add(depTask);
-                dependenciesMap.putValue(task.getPosition(), dep.getPosition());
-              }
+          for (final int depPosition: deps) {
+            ServerTask depTask = job.tasks.get(depPosition);
+            if (depTask == null) depTask = job.dependendedOnTasks.get(depPosition);
+            if (depTask != null) {
+              dependencies.add(depTask);
+              dependenciesMap.putValue(task.getPosition(), depPosition);
             }
           }
         } else {
@@ -230,6 +230,7 @@ public class BroadcastManager {
     broadcastJob.setJobReceivedTime(broadcastJob.getQueueEntryTime());
     broadcastJob.addOnDone(new RemoveBundleAction(queue, broadcastJob));
     queue.getPriorityMap().putValue(broadcastJob.getSLA().getPriority(), broadcastJob);
+    queue.criticalPathJobAdded();
     if (debugEnabled) log.debug("adding bundle with " + broadcastJob);
     queue.scheduleManager.handleStartJobSchedule(broadcastJob);
     queue.scheduleManager.handleExpirationJobSchedule(queue.driver, broadcastJob);
@@ -21,12 +21,13 @@ package org.jppf.server.queue;
 import static org.jppf.utils.collections.CollectionUtils.formatSizeMapInfo;
 
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
 import java.util.concurrent.locks.*;
 
 import org.jppf.execute.*;
 import org.jppf.job.*;
 import org.jppf.node.protocol.*;
+import org.jppf.node.protocol.graph.MutableJobDependencyGraph;
 import org.jppf.queue.*;
 import org.jppf.server.JPPFDriver;
 import org.jppf.server.job.*;
@@ -35,11 +36,16 @@ import org.jppf.server.protocol.*;
 import org.jppf.server.submission.SubmissionStatus;
 import org.jppf.utils.*;
 import org.jppf.utils.collections.LinkedListSortedMap;
+import org.jppf.utils.configuration.JPPFProperties;
 import org.jppf.utils.stats.JPPFStatisticsHelper;
 import org.slf4j.*;
 
 /**
  * A JPPF queue whose elements are ordered by decreasing priority.
+ * <p>By default, all the operations on the queue are guarded by a single lock. When {@link JPPFProperties#SERVER_QUEUE_CONCURRENT} is enabled,
+ * the jobs are looked up in a concurrent map and ordered in lock-free per-priority deques, while the state changes of each job are guarded
+ * by one of {@link JPPFProperties#SERVER_QUEUE_LOCK_STRIPES} locks, selected from the job uuid. Broadcast jobs and jobs with dependencies,
+ * whose processing involves other jobs, are still guarded by the single queue lock.
  * @author Laurent Cohen
  * @author Martin JANDA
  */
@@ -77,13 +83,41 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    */
   final PersistenceHandler persistenceHandler;
   /**
-   * 
+   * Conditions on which threads adding bundles to an ending job wait for the job to be removed, mapped to the job uuids.
    */
-  private final Map<String, Condition> jobRemovalConditions = new HashMap<>();
+  private final Map<String, Condition> jobRemovalConditions;
+  /**
+   * Locks that guard the state changes of the jobs when this queue is concurrent.
+   */
+  private final Lock[] lockStripes;
   /**
    * The job dependency graph handler.
    */
   private final JobDependenciesHandler dependenciesHandler;
+  /**
+   * Whether the tasks of task graphs and the jobs of job dependency graphs are dispatched along their critical path first.
+   */
+  private final boolean criticalPathScheduling;
+  /**
+   * The jobs which have few enough tasks still executing for speculative copies of their straggling tasks to be dispatched.
+   */
+  private final Set<ServerJob> speculationCandidates = ConcurrentHashMap.newKeySet();
+  /**
+   * Guards the access to the critical path order of the jobs.
+   */
+  private final Object criticalPathLock = new Object();
+  /**
+   * The queued jobs in critical path order, or {@code null} if it must be recomputed. Only used when critical path scheduling is enabled.
+   */
+  private List<ServerJob> criticalPathOrder;
+  /**
+   * Incremented each time the jobs in the queue change, so a critical path order computed concurrently with a change is not kept.
+   */
+  private long criticalPathModCount;
+  /**
+   * The version of the bottom levels in the job dependency graph for which the critical path order was computed.
+   */
+  private long criticalPathLevelsVersion;
 
   /**
    * Initialize this queue.
@@ -91,11 +125,22 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @param jobManager the job manager.
    */
   public JPPFPriorityQueue(final JPPFDriver driver, final JPPFJobManager jobManager) {
+    super(driver.getConfiguration().get(JPPFProperties.SERVER_QUEUE_CONCURRENT));
+    if (concurrent) {
+      lockStripes = new Lock[driver.getConfiguration().get(JPPFProperties.SERVER_QUEUE_LOCK_STRIPES)];
+      for (int i=0; i<lockStripes.length; i++) lockStripes[i] = new ReentrantLock();
+      jobRemovalConditions = new ConcurrentHashMap<>();
+    } else {
+      lockStripes = null;
+      jobRemovalConditions = new HashMap<>();
+    }
+    if (debugEnabled) log.debug("concurrent = {}, lock stripes = {}", concurrent, (lockStripes == null) ? 0 : lockStripes.length);
     this.driver = driver;
     this.jobManager = jobManager;
     broadcastManager = new BroadcastManager(this);
     persistenceHandler = new PersistenceHandler(this);
     dependenciesHandler = new JobDependenciesHandler(this);
+    criticalPathScheduling = driver.getConfiguration().get(JPPFProperties.JOB_SCHEDULER_CRITICAL_PATH);
   }
 
   @Override
@@ -106,7 +151,8 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
     final String jobUuid = clientBundle.getUuid();
     ServerJob serverJob = null;
     boolean cancel = false;
-    lock.lock();
+    final Lock jobLock = getJobLock(jobUuid, sla);
+    jobLock.lock();
     try {
       if (sla.isBroadcastJob()) {
         if (debugEnabled) log.debug("before processing broadcast job {}", clientBundle.getJob());
@@ -136,11 +182,15 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
           }
         }
         if (added) {
-          if (!newJob) priorityMap.removeValue(sla.getPriority(), serverJob);
+          if (!newJob) {
+            priorityMap.removeValue(sla.getPriority(), serverJob);
+            criticalPathJobRemoved(serverJob);
+          }
           else cancel = (serverJob.getSLA().getDependencySpec().getId() != null) && dependenciesHandler.jobQueued(serverJob);
         } else return serverJob;
         if (!sla.isBroadcastJob() || serverJob.getBroadcastUUID() != null) {
           priorityMap.putValue(sla.getPriority(), serverJob);
+          criticalPathJobAdded();
           incrementSizeCount(getSize(serverJob));
         }
         updateLatestMaxSize();
@@ -154,7 +204,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
       }
       if (debugEnabled) log.debug("Maps size information: {}", formatSizeMapInfo("priorityMap", priorityMap));
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
     driver.getStatistics().addValue(JPPFStatisticsHelper.TASK_QUEUE_TOTAL, clientBundle.getTaskCount());
     driver.getStatistics().addValue(JPPFStatisticsHelper.TASK_QUEUE_COUNT, clientBundle.getTaskCount());
@@ -163,7 +213,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
   }
 
   /**
-   * Wait for the specified job to be removed from this queue.
+   * Wait for the specified job to be removed from this queue. This method must be called while holding the lock returned by {@link #getJobLock(ServerJob)}.
    * @param serverJob the job to remove.
    */
   void awaitJobRemoved(final ServerJob serverJob) {
@@ -174,7 +224,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
       ServerJob job = null;
       while (((job = jobMap.get(uuid)) != null) && job.hasCompleted()) {
         if (cond == null) {
-          cond = lock.newCondition();
+          cond = getJobLock(serverJob).newCondition();
           jobRemovalConditions.put(uuid, cond);
         }
         cond.await();
@@ -198,6 +248,8 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
     serverJob.setQueueEntryTime(System.currentTimeMillis());
     serverJob.setJobReceivedTime(serverJob.getQueueEntryTime());
     serverJob.addOnDone(new RemoveBundleAction(this, serverJob));
+    serverJob.setCriticalPathScheduling(criticalPathScheduling);
+    if (clientBundle.getSLA().getSpeculativeExecutionThreshold() > 0d) serverJob.setOnSpeculationCandidate(() -> speculationCandidates.add(serverJob));
     if (!clientBundle.getSLA().isBroadcastJob() || serverJob.getBroadcastUUID() != null) {
       if (debugEnabled) log.debug("adding bundle with {}", clientBundle);
       scheduleManager.handleStartJobSchedule(serverJob);
@@ -211,25 +263,33 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @param job the job to requeue.
    */
   void requeue(final ServerJob job) {
-    lock.lock();
+    final Lock jobLock = getJobLock(job);
+    jobLock.lock();
     try {
       if (!jobMap.containsKey(job.getUuid())) throw new IllegalStateException("Job " + job + " not managed");
       if (debugEnabled) log.debug("requeuing job {}", job);
       priorityMap.putValue(job.getSLA().getPriority(), job);
+      criticalPathJobAdded();
       incrementSizeCount(getSize(job));
       fireBundleAdded(new QueueEvent<>(this, job, true));
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
   }
 
   @Override
   public ServerTaskBundleNode nextBundle(final ServerJob serverJob, final int nbTasks, final ExecutorChannel<ServerTaskBundleNode> channel) {
     final ServerTaskBundleNode result;
-    lock.lock();
+    final Lock jobLock = getJobLock(serverJob);
+    jobLock.lock();
     try {
       final int taskCount = serverJob.getTaskCount();
       if (debugEnabled) log.debug("requesting bundle with {} tasks, next bundle has {} tasks", nbTasks, taskCount);
+      if (concurrent && (taskCount <= 0)) {
+        // the job was fully dispatched or cancelled by another thread since it was obtained from the queue
+        if (debugEnabled) log.debug("no task left to dispatch for {}", serverJob);
+        return null;
+      }
       final int size = getSize(serverJob);
       decrementSizeCount(size);
       int effectiveNbTasks = nbTasks;
@@ -245,12 +305,12 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
         result = serverJob.createNodeDispatch(effectiveNbTasks);
         incrementSizeCount(size);
         // to ensure that other jobs with same priority are also processed without waiting
-        priorityMap.moveToEndOfList(serverJob.getSLA().getPriority(), serverJob);
+        moveToEndOfPriority(serverJob);
       }
       updateLatestMaxSize();
       if (debugEnabled) log.debug("Maps size information: {}", formatSizeMapInfo("priorityMap", priorityMap));
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
     if (debugEnabled) log.debug("found {} tasks in the job, result={}", result.getTaskCount(), result);
     driver.getStatistics().addValue(JPPFStatisticsHelper.TASK_QUEUE_COUNT, -result.getTaskCount());
@@ -271,11 +331,13 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    */
   public ServerJob removeBundle(final ServerJob serverJob, final boolean removeFromJobMap) {
     if (serverJob == null) throw new IllegalArgumentException("serverJob is null");
-    lock.lock();
+    final Lock jobLock = getJobLock(serverJob);
+    jobLock.lock();
     try {
       if (removeFromJobMap) {
         final String uuid = serverJob.getUuid();
         if (jobMap.remove(uuid) != null) {
+          speculationCandidates.remove(serverJob);
           scheduleManager.clearSchedules(serverJob.getUuid());
           if (serverJob.getSLA().getDependencySpec().getId() != null) dependenciesHandler.jobEnded(serverJob);
           jobManager.jobEnded(serverJob);
@@ -285,6 +347,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
       }
       if (debugEnabled) log.debug("removing job from queue, jobName= {}, removeFromJobMap={}", serverJob.getName(), removeFromJobMap);
       if (priorityMap.removeValue(serverJob.getSLA().getPriority(), serverJob)) {
+        criticalPathJobRemoved(serverJob);
         for (final ServerTaskBundleClient clientBundle : serverJob.getCompletionBundles()) {
           if (debugEnabled) log.debug("adding completion bundle for job={} : {}", serverJob.getName(), clientBundle);
           addBundle(clientBundle);
@@ -292,42 +355,44 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
       }
       fireBundleRemoved(new QueueEvent<>(this, serverJob, false));
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
     return serverJob;
   }
 
   @Override
   public void updatePriority(final String jobUuid, final int newPriority) {
-    lock.lock();
+    final ServerJob job = getJob(jobUuid);
+    if (job == null) return;
+    final Lock jobLock = getJobLock(job);
+    jobLock.lock();
     try {
-      final ServerJob job = jobMap.get(jobUuid);
-      if (job == null) return;
+      if (jobMap.get(jobUuid) != job) return;
       final int oldPriority = job.getSLA().getPriority();
       if (oldPriority != newPriority) {
         job.getSLA().setPriority(newPriority);
         priorityMap.removeValue(oldPriority, job);
         priorityMap.putValue(newPriority, job);
+        criticalPathJobAdded();
         job.fireJobUpdated(true);
       }
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
   }
 
   @Override
   public boolean cancelJob(final String jobId) {
-    lock.lock();
+    final ServerJob job = getJob(jobId);
+    if (job == null) return false;
+    final Lock jobLock = getJobLock(job);
+    jobLock.lock();
     try {
-      final ServerJob job = jobMap.get(jobId);
-      boolean res = job != null;
-      if (res) {
-        decrementSizeCount(getSize(job));
-        res &= job.cancel(driver, false);
-      }
-      return res;
+      if (jobMap.get(jobId) != job) return false;
+      decrementSizeCount(getSize(job));
+      return job.cancel(driver, false);
     } finally {
-      lock.unlock();
+      jobLock.unlock();
     }
   }
 
@@ -342,10 +407,12 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
         queueListeners.clear();
       }
       priorityMap.clear();
+      criticalPathJobAdded();
       sizeMap.clear();
     } finally {
       lock.unlock();
     }
+    persistenceHandler.close();
   }
 
   /**
@@ -354,6 +421,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * @return a <code>ServerJob</code> instance.
    */
   public ServerJob getJob(final String jobId) {
+    if (concurrent) return jobMap.get(jobId);
     lock.lock();
     try {
       return jobMap.get(jobId);
@@ -393,6 +461,14 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
     }
   }
 
+  /**
+   * Get the jobs whose straggling tasks may be copied speculatively, that is, the jobs which have few enough tasks still executing.
+   * @return a weakly consistent view of the candidate jobs.
+   */
+  public Collection<ServerJob> getSpeculationCandidates() {
+    return speculationCandidates;
+  }
+
   /**
    * Get the set of all the jobs currently queued or executing.
    * @return a list of {@link ServerJob} instances.
@@ -427,6 +503,7 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
    * and can be modified without affecting this queue.
    */
   public List<ServerJob> getAllJobsFromPriorityMap() {
+    if (concurrent) return priorityMap.allValues();
     lock.lock();
     try {
       return priorityMap.allValues();
@@ -435,6 +512,158 @@ public class JPPFPriorityQueue extends AbstractJPPFQueue<ServerJob, ServerTaskBu
     }
   }
 
+  /**
+   * Get the jobs in the queue, ordered by priority, without copying them when possible.
+   * @return a weakly consistent, read-only view of the queued jobs if this queue is concurrent, otherwise the same as {@link #getAllJobsFromPriorityMap()}.
+   * A view may or may not reflect the changes made to the queue while iterating over it.
+   * <p>When critical path scheduling is enabled, the jobs which belong to a job dependency graph are further ordered, among the jobs
+   * of the same priority, by descending bottom level in the graph. This order is only recomputed after jobs are added to the queue or
+   * the bottom levels change, and an unmodifiable snapshot of it is returned.
+   */
+  public Iterable<ServerJob> getJobsByPriority() {
+    if (criticalPathScheduling) return getCriticalPathOrder();
+    if (concurrent) return priorityMap;
+    return getAllJobsFromPriorityMap();
+  }
+
+  /**
+   * Get the queued jobs in critical path order, computing it only if it was invalidated since the last call.
+   * @return an unmodifiable list of the queued jobs.
+   */
+  private List<ServerJob> getCriticalPathOrder() {
+    final long levelsVersion = dependenciesHandler.getGraph().getBottomLevelsVersion();
+    final long modCount;
+    synchronized(criticalPathLock) {
+      if ((criticalPathOrder != null) && (criticalPathLevelsVersion == levelsVersion)) return criticalPathOrder;
+      modCount = criticalPathModCount;
+    }
+    final List<ServerJob> order = Collections.unmodifiableList(sortByBottomLevel(getAllJobsFromPriorityMap()));
+    synchronized(criticalPathLock) {
+      // keep the new order only if the queue did not change while it was computed
+      if (criticalPathModCount == modCount) {
+        criticalPathOrder = order;
+        criticalPathLevelsVersion = levelsVersion;
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Invalidate the critical path order after one or more jobs were added to the queue.
+   */
+  void criticalPathJobAdded() {
+    if (!criticalPathScheduling) return;
+    synchronized(criticalPathLock) {
+      criticalPathModCount++;
+      criticalPathOrder = null;
+    }
+  }
+
+  /**
+   * Remove the specified job from the critical path order, which otherwise remains valid.
+   * @param job the job removed from the queue.
+   */
+  private void criticalPathJobRemoved(final ServerJob job) {
+    if (!criticalPathScheduling) return;
+    synchronized(criticalPathLock) {
+      criticalPathModCount++;
+      if ((criticalPathOrder == null) || !criticalPathOrder.contains(job)) return;
+      final List<ServerJob> order = new ArrayList<>(criticalPathOrder);
+      order.remove(job);
+      criticalPathOrder = Collections.unmodifiableList(order);
+    }
+  }
+
+  /**
+   * Move the specified job to the end of the jobs with the same priority, so they are also processed without waiting.
+   * With critical path scheduling, the jobs which belong to a job dependency graph are not moved, since they are ordered by bottom level,
+   * and the critical path order is updated in the same way as the queue.
+   * @param job the job to move.
+   */
+  private void moveToEndOfPriority(final ServerJob job) {
+    final int priority = job.getSLA().getPriority();
+    if (!criticalPathScheduling) {
+      priorityMap.moveToEndOfList(priority, job);
+      return;
+    }
+    if (job.getSLA().getDependencySpec().getId() != null) return;
+    priorityMap.moveToEndOfList(priority, job);
+    synchronized(criticalPathLock) {
+      criticalPathModCount++;
+      if ((criticalPathOrder == null) || !criticalPathOrder.contains(job)) return;
+      final List<ServerJob> order = new ArrayList<>(criticalPathOrder);
+      order.remove(job);
+      int idx = 0;
+      for (; (idx < order.size()) && (order.get(idx).getSLA().getPriority() != priority); idx++);
+      for (; (idx < order.size()) && (order.get(idx).getSLA().getPriority() == priority); idx++);
+      order.add(idx, job);
+      criticalPathOrder = Collections.unmodifiableList(order);
+    }
+  }
+
+  /**
+   * Within each group of jobs with the same priority, reorder the jobs that belong to a dependency graph by descending bottom level.
+   * The jobs which do not belong to a dependency graph keep their position in the list.
+   * @param jobs the jobs to sort, ordered by priority.
+   * @return the same list, sorted in place.
+   */
+  private List<ServerJob> sortByBottomLevel(final List<ServerJob> jobs) {
+    final MutableJobDependencyGraph graph = dependenciesHandler.getGraph();
+    final List<Integer> slots = new ArrayList<>();
+    final List<ServerJob> graphJobs = new ArrayList<>();
+    final Map<String, Double> levels = new HashMap<>();
+    final Comparator<ServerJob> comparator = (job1, job2) -> Double.compare(levels.get(job2.getUuid()), levels.get(job1.getUuid()));
+    int start = 0;
+    while (start < jobs.size()) {
+      final int priority = jobs.get(start).getSLA().getPriority();
+      int end = start;
+      for (; (end < jobs.size()) && (jobs.get(end).getSLA().getPriority() == priority); end++) {
+        final ServerJob job = jobs.get(end);
+        if (job.getSLA().getDependencySpec().getId() == null) continue;
+        slots.add(end);
+        graphJobs.add(job);
+        levels.put(job.getUuid(), graph.getBottomLevel(job.getUuid()));
+      }
+      if (graphJobs.size() > 1) {
+        graphJobs.sort(comparator);
+        for (int i=0; i<slots.size(); i++) jobs.set(slots.get(i), graphJobs.get(i));
+      }
+      slots.clear();
+      graphJobs.clear();
+      start = end;
+    }
+    return jobs;
+  }
+
+  /**
+   * Determine whether this queue uses concurrent data structures and lock stripes rather than a single lock.
+   * @return {@code true} if this queue is concurrent, {@code false} otherwise.
+   */
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+
+  /**
+   * Get the lock which guards the state changes of the specified job.
+   * @param job the job for which to get a lock.
+   * @return a {@link Lock} instance.
+   */
+  Lock getJobLock(final ServerJob job) {
+    return getJobLock(job.getUuid(), job.getSLA());
+  }
+
+  /**
+   * Get the lock which guards the state changes of the job with the specified uuid and SLA.
+   * @param jobUuid the uuid of the job.
+   * @param sla the job's SLA.
+   * @return the queue lock if this queue is not concurrent, or the job is a broadcast job or has dependencies, otherwise the stripe which the job uuid maps to.
+   */
+  private Lock getJobLock(final String jobUuid, final JobSLA sla) {
+    if (!concurrent || sla.isBroadcastJob() || (sla.getDependencySpec().getId() != null)) return lock;
+    final int hash = jobUuid.hashCode();
+    return lockStripes[((hash ^ (hash >>> 16)) & 0x7FFFFFFF) % lockStripes.length];
+  }
+
   @Override
   public void addJobListener(final JobManagerListener listener) {
     if (listener == null) throw new IllegalArgumentException("listener is null");
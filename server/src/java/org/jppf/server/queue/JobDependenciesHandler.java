@@ -66,6 +66,7 @@ public class JobDependenciesHandler {
     if (spec.getId() != null) {
       try {
         final JobDependencyNode node = graph.addNode(spec, job.getUuid());
+        graph.setJobCost(job.getUuid(), Math.max(1, job.getJob().getInitialTaskCount()));
         if (debugEnabled) log.debug("'{}' was queued and added to the dependency graph as {}", job.getName(), node);
         return node.isCancelled();
       } catch (final JPPFJobDependencyCycleException e) {
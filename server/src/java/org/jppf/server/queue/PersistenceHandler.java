@@ -192,7 +192,7 @@ public class PersistenceHandler {
         final ServerTask task = (ServerTask) IOHelper.unwrappedData(taskData);
         pendingTasks.add(task);
       }
-      return new ServerTaskBundleClient(pendingTasks, header, dataProvider);
+      return new ServerTaskBundleClient(pendingTasks, header, dataProvider, queue.driver.getSendResultsStrategyManager());
     } catch (final Exception e) {
       log.error(e.getMessage(), e);
     }
@@ -355,4 +355,18 @@ public class PersistenceHandler {
   public List<String> getPersistedJobUuids() throws JobPersistenceException {
     return isPersistenceReady() ? persistence.getPersistedJobUuids() : new ArrayList<>();
   }
+
+  /**
+   * Close the persistence service if it is {@link AutoCloseable}, to release the resources it holds. Called when the driver shuts down.
+   */
+  public void close() {
+    if (persistence instanceof AutoCloseable) {
+      if (debugEnabled) log.debug("closing the job persistence {}", persistence);
+      try {
+        ((AutoCloseable) persistence).close();
+      } catch (final Exception e) {
+        log.error("error closing the job persistence {}", persistence, e);
+      }
+    }
+  }
 }
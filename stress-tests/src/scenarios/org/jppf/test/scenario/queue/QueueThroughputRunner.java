@@ -0,0 +1,217 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jppf.test.scenario.queue;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.job.JPPFJobManager;
+import org.jppf.server.protocol.*;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.test.scenario.AbstractScenarioRunner;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.slf4j.*;
+
+/**
+ * Measures the throughput of the driver's job queue, with many producer threads which enqueue small jobs, as clients do,
+ * while dispatcher threads concurrently iterate over the queue and take bundles of tasks from the jobs, as the job scheduler does.
+ * Each run is performed with the default queue, then with the concurrent queue. The queues are used in-process, without any network I/O.
+ * @author Laurent Cohen
+ */
+public class QueueThroughputRunner extends AbstractScenarioRunner {
+  /**
+   * Logger for this class.
+   */
+  private static Logger log = LoggerFactory.getLogger(QueueThroughputRunner.class);
+  /**
+   * Holds the strategies used to send the results back to the client.
+   */
+  private static final SendResultsStrategyManager strategyManager = new SendResultsStrategyManager(new TypedProperties());
+
+  @Override
+  public void run() {
+    try {
+      final TypedProperties props = getConfiguration().getProperties();
+      final int nbProducers = props.getInt("nbProducers", 16);
+      final int nbDispatchers = props.getInt("nbDispatchers", 4);
+      final int nbJobs = props.getInt("nbJobsPerProducer", 2000);
+      final int nbTasks = props.getInt("nbTasksPerJob", 4);
+      final int bundleSize = props.getInt("bundleSize", 2);
+      final int nbPriorities = props.getInt("nbPriorities", 3);
+      final int nbIterations = props.getInt("nbIterations", 5);
+      final int nbStripes = props.getInt("nbStripes", JPPFProperties.SERVER_QUEUE_LOCK_STRIPES.getDefaultValue());
+      output(String.format("%d producers, %d dispatchers, %d jobs per producer, %d tasks per job, bundle size = %d, %d priorities, %d lock stripes",
+        nbProducers, nbDispatchers, nbJobs, nbTasks, bundleSize, nbPriorities, nbStripes));
+      for (final boolean concurrent: new boolean[] { false, true }) {
+        long totalTime = 0L, min = Long.MAX_VALUE, max = 0L;
+        for (int i=1; i<=nbIterations; i++) {
+          final JPPFPriorityQueue queue = createQueue(concurrent, nbStripes);
+          try {
+            final long elapsed = runIteration(queue, nbProducers, nbDispatchers, nbJobs, nbTasks, bundleSize, nbPriorities);
+            if (elapsed < min) min = elapsed;
+            if (elapsed > max) max = elapsed;
+            totalTime += elapsed;
+            output(String.format("concurrent=%b, iteration #%d performed in %s, throughput = %,.0f jobs/s", concurrent, i, StringUtils.toStringDuration(elapsed),
+              1000d * nbProducers * nbJobs / Math.max(1L, elapsed)));
+          } finally {
+            queue.close();
+          }
+        }
+        output(String.format("concurrent=%b: average time = %s, min = %s, max = %s, average throughput = %,.0f jobs/s", concurrent, StringUtils.toStringDuration(totalTime / nbIterations),
+          StringUtils.toStringDuration(min), StringUtils.toStringDuration(max), 1000d * nbProducers * nbJobs * nbIterations / Math.max(1L, totalTime)));
+      }
+    } catch (final Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Enqueue and dispatch all the jobs.
+   * @param queue the queue to test.
+   * @param nbProducers the number of threads that enqueue jobs.
+   * @param nbDispatchers the number of threads that dispatch the jobs.
+   * @param nbJobs the number of jobs enqueued by each producer.
+   * @param nbTasks the number of tasks in each job.
+   * @param bundleSize the maximum number of tasks dispatched at once from a job.
+   * @param nbPriorities the number of distinct job priorities.
+   * @return the elapsed time in milliseconds.
+   * @throws Exception if any error occurs.
+   */
+  private static long runIteration(final JPPFPriorityQueue queue, final int nbProducers, final int nbDispatchers, final int nbJobs, final int nbTasks, final int bundleSize,
+    final int nbPriorities) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(nbProducers + nbDispatchers);
+    try {
+      final AtomicLong dispatchedTasks = new AtomicLong(0L);
+      final CountDownLatch producersDone = new CountDownLatch(nbProducers);
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i=0; i<nbProducers; i++) {
+        futures.add(executor.submit(() -> {
+          try {
+            start.await();
+            for (int j=0; j<nbJobs; j++) queue.addBundle(createBundle(j % nbPriorities, nbTasks));
+          } finally {
+            producersDone.countDown();
+          }
+          return null;
+        }));
+      }
+      for (int i=0; i<nbDispatchers; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          while ((producersDone.getCount() > 0L) || !queue.isEmpty()) {
+            for (final ServerJob job: queue.getJobsByPriority()) {
+              final ServerTaskBundleNode bundle = nextBundle(queue, job, bundleSize);
+              if (bundle != null) {
+                dispatchedTasks.addAndGet(bundle.getTaskCount());
+                // simulates the completion of the dispatch
+                if (job.getTaskCount() <= 0) queue.removeBundle(job);
+              }
+            }
+          }
+          return null;
+        }));
+      }
+      final long startTime = System.nanoTime();
+      start.countDown();
+      for (final Future<?> future: futures) future.get();
+      final long elapsed = (System.nanoTime() - startTime) / 1_000_000L;
+      final long expected = (long) nbProducers * nbJobs * nbTasks;
+      if (dispatchedTasks.get() != expected) throw new IllegalStateException("dispatched " + dispatchedTasks.get() + " tasks, expected " + expected);
+      return elapsed;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Take the next bundle of tasks from the specified job.
+   * @param queue the queue from which to get the bundle.
+   * @param job the job to dispatch.
+   * @param bundleSize the maximum number of tasks to take.
+   * @return a bundle of tasks, or {@code null} if there is no task left to dispatch.
+   */
+  private static ServerTaskBundleNode nextBundle(final JPPFPriorityQueue queue, final ServerJob job, final int bundleSize) {
+    if (queue.isConcurrent()) return queue.nextBundle(job, bundleSize, null);
+    // the default queue requires the dispatches of a job to be serialized with the queue lock
+    queue.getLock().lock();
+    try {
+      return (job.getTaskCount() > 0) ? queue.nextBundle(job, bundleSize, null) : null;
+    } finally {
+      queue.getLock().unlock();
+    }
+  }
+
+  /**
+   * Create a driver queue that is not attached to a running driver.
+   * @param concurrent whether to create a concurrent queue.
+   * @param nbStripes the number of lock stripes of a concurrent queue.
+   * @return a new {@link JPPFPriorityQueue}.
+   * @throws Exception if any error occurs.
+   */
+  private static JPPFPriorityQueue createQueue(final boolean concurrent, final int nbStripes) throws Exception {
+    final TypedProperties config = new TypedProperties().set(JPPFProperties.SERVER_QUEUE_CONCURRENT, concurrent).set(JPPFProperties.SERVER_QUEUE_LOCK_STRIPES, nbStripes);
+    final JPPFDriver driver = new JPPFDriver(config);
+    final JPPFPriorityQueue queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+    final Field field = JPPFDriver.class.getSuperclass().getDeclaredField("taskQueue");
+    field.setAccessible(true);
+    field.set(driver, queue);
+    return queue;
+  }
+
+  /**
+   * Create a client bundle for a new job.
+   * @param priority the priority of the job.
+   * @param nbTasks the number of tasks in the job.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final int priority, final int nbTasks) {
+    final TaskBundle header = new JPPFTaskBundle();
+    final String uuid = JPPFUuid.normalUUID();
+    header.setName(uuid);
+    header.setUuid(uuid);
+    header.setTaskCount(nbTasks);
+    header.setSLA(new JobSLA());
+    header.setMetadata(new JPPFJobMetadata());
+    header.getSLA().setPriority(priority);
+    final int[] positions = new int[nbTasks];
+    final List<DataLocation> tasks = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) {
+      positions[i] = i;
+      tasks.add(new MultipleBuffersLocation(new byte[] { (byte) i }));
+    }
+    header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+    return new ServerTaskBundleClient(header, new MultipleBuffersLocation(new byte[0]), tasks, false, strategyManager);
+  }
+
+  /**
+   * Print a message to the console and/or log file.
+   * @param message the message to print.
+   */
+  private static void output(final String message) {
+    System.out.println(message);
+    log.info(message);
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.classloader;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.classloader.*;
+import org.jppf.utils.hooks.HookFactory;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the concurrent loading of classes by the node class loaders, and for the coalescing of concurrent remote lookups.
+ * @author Laurent Cohen
+ */
+public class TestParallelClassLoading extends BaseTest {
+  /**
+   * Test that a class loader can load a class while the remote lookup of another class is in progress.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testLookupDoesNotBlockOtherClasses() throws Exception {
+    final TestConnection connection = new TestConnection(SlowClass.class.getName());
+    final JPPFClassLoader cl = new JPPFClassLoader(connection, getClass().getClassLoader(), Arrays.asList("uuid"), HookFactory.newInstance());
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<Class<?>> slow = executor.submit(() -> cl.loadJPPFClass(SlowClass.class.getName()));
+      assertTrue(connection.slowLookupStarted.await(5000L, TimeUnit.MILLISECONDS));
+      final Future<Class<?>> fast = executor.submit(() -> cl.loadJPPFClass(FastClass.class.getName()));
+      final Class<?> fastClass = fast.get(5000L, TimeUnit.MILLISECONDS);
+      assertSame(cl, fastClass.getClassLoader());
+      assertFalse(slow.isDone());
+      connection.slowLookupGate.countDown();
+      assertSame(cl, slow.get(5000L, TimeUnit.MILLISECONDS).getClassLoader());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that concurrent loads of the same class result in a single class definition.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testConcurrentLoadsOfSameClass() throws Exception {
+    final int nbThreads = 8;
+    final TestConnection connection = new TestConnection(SlowClass.class.getName());
+    final JPPFClassLoader cl = new JPPFClassLoader(connection, getClass().getClassLoader(), Arrays.asList("uuid"), HookFactory.newInstance());
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try {
+      final List<Future<Class<?>>> futures = new ArrayList<>();
+      for (int i=0; i<nbThreads; i++) futures.add(executor.submit(() -> cl.loadJPPFClass(SlowClass.class.getName())));
+      assertTrue(connection.slowLookupStarted.await(5000L, TimeUnit.MILLISECONDS));
+      Thread.sleep(100L);
+      connection.slowLookupGate.countDown();
+      final Class<?> c = futures.get(0).get(5000L, TimeUnit.MILLISECONDS);
+      assertSame(cl, c.getClassLoader());
+      for (final Future<Class<?>> f: futures) assertSame(c, f.get(5000L, TimeUnit.MILLISECONDS));
+      assertEquals(1, connection.lookupCount.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that a request for a resource which is already being looked up remotely shares the future of the in-flight request.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testCoalescedRequests() throws Exception {
+    final CountDownLatch runStarted = new CountDownLatch(1);
+    final CountDownLatch runGate = new CountDownLatch(1);
+    final AtomicInteger runCount = new AtomicInteger(0);
+    final JPPFResourceWrapper[] current = new JPPFResourceWrapper[2];
+    // ResourceRequestRunner is package-private, hence the dynamic proxy
+    final Class<?> runnerClass = Class.forName("org.jppf.classloader.ResourceRequestRunner");
+    final Object runner = Proxy.newProxyInstance(runnerClass.getClassLoader(), new Class<?>[] { runnerClass }, (proxy, method, args) -> {
+      switch(method.getName()) {
+        case "setRequest":
+          current[0] = (JPPFResourceWrapper) args[0];
+          break;
+        case "run":
+          runCount.incrementAndGet();
+          runStarted.countDown();
+          runGate.await();
+          final CompositeResourceWrapper response = new CompositeResourceWrapper();
+          for (final JPPFResourceWrapper rw: current[0].getResources()) {
+            rw.setDefinition(new byte[] { 1 });
+            response.addOrReplaceResource(rw);
+          }
+          current[1] = response;
+          break;
+        case "getResponse":
+          return current[1];
+        case "reset":
+          current[0] = current[1] = null;
+          break;
+      }
+      return null;
+    });
+    final ClassLoaderRequestHandler handler = ClassLoaderRequestHandler.class.getConstructor(runnerClass).newInstance(runner);
+    try {
+      final Future<JPPFResourceWrapper> f1 = handler.addRequest(createResource("some/Resource.class"));
+      assertTrue(runStarted.await(5000L, TimeUnit.MILLISECONDS));
+      // the first request is now in flight, the second one must share its future
+      final Future<JPPFResourceWrapper> f2 = handler.addRequest(createResource("some/Resource.class"));
+      assertSame(f1, f2);
+      runGate.countDown();
+      assertArrayEquals(new byte[] { 1 }, f1.get().getDefinition());
+      assertEquals(1, runCount.get());
+      // once the response is received, a new request results in a new lookup
+      assertNotSame(f1, handler.addRequest(createResource("some/Resource.class")));
+    } finally {
+      handler.close();
+    }
+  }
+
+  /**
+   * Create a resource request.
+   * @param name the name of the resource.
+   * @return a new {@link JPPFResourceWrapper}.
+   */
+  private static JPPFResourceWrapper createResource(final String name) {
+    final JPPFResourceWrapper resource = new JPPFResourceWrapper();
+    resource.setState(JPPFResourceWrapper.State.NODE_REQUEST);
+    resource.setData(ResourceIdentifier.NAME, name);
+    return resource;
+  }
+
+  /**
+   * A class loader connection which serves class definitions from the local classpath, and can make the lookup of a given class wait for a signal.
+   */
+  private static class TestConnection implements ClassLoaderConnection<Object> {
+    /**
+     * Name of the class whose lookup waits for {@link #slowLookupGate}.
+     */
+    private final String slowClassName;
+    /**
+     * Released when the lookup of the slow class has started.
+     */
+    final CountDownLatch slowLookupStarted = new CountDownLatch(1);
+    /**
+     * The lookup of the slow class waits until this latch is released.
+     */
+    final CountDownLatch slowLookupGate = new CountDownLatch(1);
+    /**
+     * The number of lookups of the slow class.
+     */
+    final AtomicInteger lookupCount = new AtomicInteger(0);
+
+    /**
+     * @param slowClassName name of the class whose lookup waits for a signal.
+     */
+    TestConnection(final String slowClassName) {
+      this.slowClassName = slowClassName;
+    }
+
+    @Override
+    public JPPFResourceWrapper loadResource(final Map<ResourceIdentifier, Object> map, final boolean dynamic, final String requestUuid, final List<String> uuidPath) throws Exception {
+      final String resName = (String) map.get(ResourceIdentifier.NAME);
+      if (resName.equals(slowClassName.replace('.', '/') + ".class")) {
+        lookupCount.incrementAndGet();
+        slowLookupStarted.countDown();
+        slowLookupGate.await();
+      }
+      final JPPFResourceWrapper resource = new JPPFResourceWrapper();
+      resource.setState(JPPFResourceWrapper.State.NODE_RESPONSE);
+      try (final InputStream is = getClass().getClassLoader().getResourceAsStream(resName)) {
+        if (is != null) resource.setDefinition(StreamUtils.getInputStreamAsByte(is));
+      }
+      return resource;
+    }
+
+    @Override
+    public void init() throws Exception {
+    }
+
+    @Override
+    public void reset() throws Exception {
+    }
+
+    @Override
+    public void close() throws Exception {
+    }
+
+    @Override
+    public Object getChannel() {
+      return null;
+    }
+  }
+
+  /**
+   * A class whose remote lookup is slow.
+   */
+  public static class SlowClass {
+  }
+
+  /**
+   * A class whose remote lookup is fast.
+   */
+  public static class FastClass {
+  }
+}
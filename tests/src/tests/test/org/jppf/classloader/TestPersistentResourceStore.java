@@ -0,0 +1,201 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.classloader;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.classloader.*;
+import org.jppf.classloader.resource.PersistentResourceStore;
+import org.jppf.utils.FileUtils;
+import org.jppf.utils.hooks.HookFactory;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the {@link PersistentResourceStore} and its use by the node class loaders.
+ * @author Laurent Cohen
+ */
+public class TestPersistentResourceStore extends BaseTest {
+  /**
+   * The root folder of the store used in each test.
+   */
+  private File root;
+
+  /**
+   * Create the root folder of the store.
+   * @throws Exception if any error occurs.
+   */
+  @Before
+  public void setupStore() throws Exception {
+    root = Files.createTempDirectory("jppf-persistent-store").toFile();
+  }
+
+  /**
+   * Delete the root folder of the store.
+   * @throws Exception if any error occurs.
+   */
+  @After
+  public void cleanupStore() throws Exception {
+    FileUtils.deletePath(root);
+  }
+
+  /**
+   * Test storing and loading definitions, and that corrupted definitions are discarded.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testStoreAndLoad() throws Exception {
+    final PersistentResourceStore store = new PersistentResourceStore(root);
+    assertNull(store.getKnownHash("some/Resource.class"));
+    final byte[] def1 = { 1, 2, 3 }, def2 = { 4, 5, 6, 7 };
+    final String hash1 = store.store("some/Resource.class", def1);
+    assertEquals(JPPFResourceWrapper.computeDefinitionHash(def1), hash1);
+    assertEquals(hash1, store.getKnownHash("some/Resource.class"));
+    // the latest definition replaces the previous one in the name index, but both remain addressable by hash
+    final String hash2 = store.store("some/Resource.class", def2);
+    assertEquals(hash2, store.getKnownHash("some/Resource.class"));
+    assertArrayEquals(def1, store.load(hash1));
+    // a new store on the same root folder sees the same content
+    final PersistentResourceStore store2 = new PersistentResourceStore(root);
+    assertArrayEquals(def2, store2.load(hash2));
+    final File file = new File(new File(new File(root, "content"), hash2.substring(0, 2)), hash2);
+    assertTrue(file.exists());
+    Files.write(file.toPath(), new byte[] { 9 });
+    assertNull(store2.load(hash2));
+    assertFalse(file.exists());
+  }
+
+  /**
+   * Test that a class loader with a fresh store downloads the class definition and records it,
+   * and that a class loader using the same store after a restart defines the class without the definition being sent.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testClassLoadingWithStore() throws Exception {
+    final String name = SomeClass.class.getName();
+    final TestConnection connection = new TestConnection();
+    final Class<?> c1 = new StoreClassLoader(connection, new PersistentResourceStore(root)).loadJPPFClass(name);
+    assertEquals(name, c1.getName());
+    assertEquals(1, connection.definitionsSent.get());
+    assertEquals(0, connection.definitionsOmitted.get());
+    // new store instance on the same folder, as after a node restart
+    final Class<?> c2 = new StoreClassLoader(connection, new PersistentResourceStore(root)).loadJPPFClass(name);
+    assertEquals(name, c2.getName());
+    assertNotSame(c1, c2);
+    assertEquals(1, connection.definitionsSent.get());
+    assertEquals(1, connection.definitionsOmitted.get());
+  }
+
+  /**
+   * Test that a definition which can no longer be read from the store is downloaded again.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testMissingContentIsDownloadedAgain() throws Exception {
+    final String name = SomeClass.class.getName();
+    final TestConnection connection = new TestConnection();
+    final PersistentResourceStore store = new PersistentResourceStore(root);
+    new StoreClassLoader(connection, store).loadJPPFClass(name);
+    FileUtils.deletePath(new File(root, "content"));
+    final Class<?> c = new StoreClassLoader(connection, store).loadJPPFClass(name);
+    assertEquals(name, c.getName());
+    assertEquals(2, connection.definitionsSent.get());
+    assertEquals(1, connection.definitionsOmitted.get());
+    // the definition was stored again
+    assertNotNull(store.load(store.getKnownHash(name.replace('.', '/') + ".class")));
+  }
+
+  /**
+   * A class loader which uses a specific persistent store.
+   */
+  private static class StoreClassLoader extends JPPFClassLoader {
+    /**
+     * @param connection the connection to the server.
+     * @param store the persistent store to use.
+     */
+    StoreClassLoader(final ClassLoaderConnection<?> connection, final PersistentResourceStore store) {
+      super(connection, TestPersistentResourceStore.class.getClassLoader(), Arrays.asList("uuid"), HookFactory.newInstance());
+      this.persistentStore = store;
+    }
+  }
+
+  /**
+   * A class loader connection which serves class definitions from the local classpath and, like the driver,
+   * omits a definition whose hash is the same as the one sent with the request.
+   */
+  private static class TestConnection implements ClassLoaderConnection<Object> {
+    /**
+     * The number of responses which included a definition.
+     */
+    final AtomicInteger definitionsSent = new AtomicInteger(0);
+    /**
+     * The number of responses whose definition was omitted.
+     */
+    final AtomicInteger definitionsOmitted = new AtomicInteger(0);
+
+    @Override
+    public JPPFResourceWrapper loadResource(final Map<ResourceIdentifier, Object> map, final boolean dynamic, final String requestUuid, final List<String> uuidPath) throws Exception {
+      final JPPFResourceWrapper resource = new JPPFResourceWrapper();
+      for (final Map.Entry<ResourceIdentifier, Object> entry: map.entrySet()) resource.setData(entry.getKey(), entry.getValue());
+      resource.setState(JPPFResourceWrapper.State.NODE_RESPONSE);
+      try (final InputStream is = getClass().getClassLoader().getResourceAsStream(resource.getName())) {
+        if (is == null) return resource;
+        final byte[] definition = StreamUtils.getInputStreamAsByte(is);
+        if (JPPFResourceWrapper.computeDefinitionHash(definition).equals(map.get(ResourceIdentifier.KNOWN_HASH))) {
+          resource.setData(ResourceIdentifier.HASH_MATCH, Boolean.TRUE);
+          definitionsOmitted.incrementAndGet();
+        } else {
+          resource.setDefinition(definition);
+          definitionsSent.incrementAndGet();
+        }
+      }
+      return resource;
+    }
+
+    @Override
+    public void init() throws Exception {
+    }
+
+    @Override
+    public void reset() throws Exception {
+    }
+
+    @Override
+    public void close() throws Exception {
+    }
+
+    @Override
+    public Object getChannel() {
+      return null;
+    }
+  }
+
+  /**
+   * A class loaded through the persistent store.
+   */
+  public static class SomeClass {
+  }
+}
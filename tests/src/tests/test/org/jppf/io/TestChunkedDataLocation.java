@@ -0,0 +1,198 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.io;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.Random;
+
+import org.jppf.io.*;
+import org.jppf.nio.*;
+import org.jppf.serialization.SerializationUtils;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link ChunkedDataLocation} and the chunked framing of data locations.
+ * @author Laurent Cohen
+ */
+public class TestChunkedDataLocation extends BaseTest {
+  /**
+   * Size of the chunks used in these tests.
+   */
+  private static final int CHUNK_SIZE = 1024;
+
+  /**
+   * Test that data written to a {@link ChunkingOutputStream} is split into chunks of the expected size, in memory or in files.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testChunkingOutputStream() throws Exception {
+    final byte[] data = createData(10 * CHUNK_SIZE + 100);
+    for (final boolean toFile: new boolean[] { false, true }) {
+      final ChunkedDataLocation dl = createChunkedLocation(data, toFile);
+      assertEquals(11, dl.getChunks().size());
+      for (int i=0; i<10; i++) assertEquals(CHUNK_SIZE, dl.getChunks().get(i).getSize());
+      assertEquals(100, dl.getChunks().get(10).getSize());
+      final Class<?> expectedChunkClass = toFile ? FileDataLocation.class : MultipleBuffersLocation.class;
+      for (final DataLocation chunk: dl.getChunks()) assertEquals(expectedChunkClass, chunk.getClass());
+      assertEquals(data.length, dl.getLongSize());
+      assertEquals(data.length, dl.getSize());
+      try (final InputStream is = dl.getInputStream()) {
+        assertArrayEquals(data, StreamUtils.getInputStreamAsByte(is));
+      }
+    }
+  }
+
+  /**
+   * Test that the data which fits in a single chunk is not wrapped in a chunked data location.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testSingleChunk() throws Exception {
+    final byte[] data = createData(CHUNK_SIZE);
+    final ChunkedDataLocation dl = createChunkedLocation(data, false);
+    final DataLocation simplified = dl.simplify();
+    assertTrue(simplified instanceof MultipleBuffersLocation);
+    assertEquals(CHUNK_SIZE, simplified.getSize());
+    // plain data locations are sent with the legacy framing
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    IOHelper.writeData(simplified, new StreamOutputDestination(baos));
+    final byte[] bytes = baos.toByteArray();
+    assertEquals(4 + CHUNK_SIZE, bytes.length);
+    assertEquals(CHUNK_SIZE, SerializationUtils.readInt(bytes, 0));
+  }
+
+  /**
+   * Test the blocking chunked framing with {@link IOHelper#writeData(DataLocation, OutputDestination)} and {@link IOHelper#readData(InputSource)}.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testBlockingFraming() throws Exception {
+    final byte[] data = createData(5 * CHUNK_SIZE + 17);
+    final ChunkedDataLocation dl = createChunkedLocation(data, false);
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    IOHelper.writeData(dl, new StreamOutputDestination(baos));
+    final byte[] bytes = baos.toByteArray();
+    // marker + 6 * (length + chunk) + terminator
+    assertEquals(4 + 6 * 4 + data.length + 4, bytes.length);
+    assertEquals(ChunkedDataLocation.CHUNKED_MARKER, SerializationUtils.readInt(bytes, 0));
+    assertEquals(CHUNK_SIZE, SerializationUtils.readInt(bytes, 4));
+    assertEquals(0, SerializationUtils.readInt(bytes, bytes.length - 4));
+    final DataLocation result = IOHelper.readData(new StreamInputSource(new ByteArrayInputStream(bytes)));
+    assertTrue(result instanceof ChunkedDataLocation);
+    assertEquals(6, ((ChunkedDataLocation) result).getChunks().size());
+    assertEquals(data.length, result.getLongSize());
+    try (final InputStream is = result.getInputStream()) {
+      assertArrayEquals(data, StreamUtils.getInputStreamAsByte(is));
+    }
+  }
+
+  /**
+   * Test the non-blocking chunked framing of nio messages over a socket connection.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testNonBlockingFraming() throws Exception {
+    final byte[] data = createData(20 * CHUNK_SIZE + 333);
+    final ChunkedDataLocation dl = createChunkedLocation(data, false);
+    try (final ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress("localhost", 0));
+      try (final SocketChannel writeChannel = SocketChannel.open(server.getLocalAddress()); final SocketChannel readChannel = server.accept()) {
+        writeChannel.configureBlocking(false);
+        readChannel.configureBlocking(false);
+        final ClassLoaderNioMessage writeMessage = new ClassLoaderNioMessage(new TestContext(writeChannel));
+        writeMessage.addLocation(dl);
+        final ClassLoaderNioMessage readMessage = new ClassLoaderNioMessage(new TestContext(readChannel));
+        boolean written = false, read = false;
+        while (!written || !read) {
+          if (!written) written = writeMessage.write();
+          if (!read) read = readMessage.read();
+        }
+        assertEquals(1, readMessage.getLocations().size());
+        final DataLocation result = readMessage.getLocations().get(0);
+        assertTrue(result instanceof ChunkedDataLocation);
+        assertEquals(21, ((ChunkedDataLocation) result).getChunks().size());
+        try (final InputStream is = result.getInputStream()) {
+          assertArrayEquals(data, StreamUtils.getInputStreamAsByte(is));
+        }
+      }
+    }
+  }
+
+  /**
+   * Write the specified data into a chunked data location.
+   * @param data the data to write.
+   * @param toFile whether the chunks are stored in temporary files.
+   * @return a new {@link ChunkedDataLocation}.
+   * @throws Exception if any error occurs.
+   */
+  private static ChunkedDataLocation createChunkedLocation(final byte[] data, final boolean toFile) throws Exception {
+    final ChunkedDataLocation dl = new ChunkedDataLocation();
+    try (final OutputStream os = new ChunkingOutputStream(dl, CHUNK_SIZE, toFile)) {
+      // mix single-byte and bulk writes, with bulk writes that span chunk boundaries
+      os.write(data, 0, 10);
+      os.write(data[10]);
+      os.write(data, 11, data.length - 11);
+    }
+    return dl;
+  }
+
+  /**
+   * Create an array of random bytes.
+   * @param size the size of the array.
+   * @return an array of bytes.
+   */
+  private static byte[] createData(final int size) {
+    final byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  /**
+   * A minimal nio context wrapping a socket channel.
+   */
+  private static class TestContext extends AbstractNioContext {
+    /**
+     * @param channel the socket channel to wrap.
+     */
+    TestContext(final SocketChannel channel) {
+      this.socketChannel = channel;
+    }
+
+    @Override
+    public boolean readMessage() throws Exception {
+      return false;
+    }
+
+    @Override
+    public boolean writeMessage() throws Exception {
+      return false;
+    }
+
+    @Override
+    public void handleException(final Exception e) {
+    }
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.io;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Random;
+
+import org.jppf.io.*;
+import org.jppf.nio.*;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link OffHeapDataLocation} and {@link OffHeapMemoryPool}.
+ * @author Laurent Cohen
+ */
+public class TestOffHeapDataLocation extends BaseTest {
+  /**
+   * Size of the buffers in the pools used by these tests.
+   */
+  private static final int SEGMENT_SIZE = 1024;
+
+  /**
+   * Test that the pool does not exceed its budget and reuses the released buffers.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testPoolBudget() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(4L * SEGMENT_SIZE, SEGMENT_SIZE);
+    assertTrue(pool.isEnabled());
+    final ByteBuffer[] segments1 = pool.acquire(2 * SEGMENT_SIZE + 1);
+    assertNotNull(segments1);
+    assertEquals(3, segments1.length);
+    assertEquals(3L * SEGMENT_SIZE, pool.getUsedSize());
+    assertNull(pool.acquire(2 * SEGMENT_SIZE));
+    final ByteBuffer[] segments2 = pool.acquire(SEGMENT_SIZE);
+    assertNotNull(segments2);
+    assertEquals(4L * SEGMENT_SIZE, pool.getUsedSize());
+    pool.release(segments1);
+    assertEquals(SEGMENT_SIZE, pool.getUsedSize());
+    final ByteBuffer[] segments3 = pool.acquire(3 * SEGMENT_SIZE);
+    assertNotNull(segments3);
+    // the released buffers were reused, no new allocation took place
+    assertEquals(4L * SEGMENT_SIZE, pool.getAllocatedSize());
+    assertFalse(new OffHeapMemoryPool(0L, SEGMENT_SIZE).isEnabled());
+    assertNull(new OffHeapMemoryPool(0L, SEGMENT_SIZE).acquire(1));
+  }
+
+  /**
+   * Test blocking transfers from an input stream and to an output stream.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testBlockingTransfers() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(1024L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final byte[] data = createData(10 * SEGMENT_SIZE + 123);
+    final OffHeapDataLocation dl = OffHeapDataLocation.create(pool, data.length);
+    assertNotNull(dl);
+    assertEquals(data.length, dl.transferFrom(new StreamInputSource(new ByteArrayInputStream(data)), true));
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    assertEquals(data.length, dl.transferTo(new StreamOutputDestination(baos), true));
+    assertArrayEquals(data, baos.toByteArray());
+    // transfer a second time
+    baos.reset();
+    assertEquals(data.length, dl.transferTo(new StreamOutputDestination(baos), true));
+    assertArrayEquals(data, baos.toByteArray());
+  }
+
+  /**
+   * Test non-blocking transfers through channels.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testNonBlockingTransfers() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(1024L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final byte[] data = createData(5 * SEGMENT_SIZE);
+    final OffHeapDataLocation dl = OffHeapDataLocation.create(pool, data.length);
+    final InputSource source = new ChannelInputSource(Channels.newChannel(new ByteArrayInputStream(data)));
+    int count = 0;
+    while (count < data.length) {
+      final int n = dl.transferFrom(source, false);
+      assertTrue(n >= 0);
+      count += n;
+    }
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final OutputDestination dest = new ChannelOutputDestination(Channels.newChannel(baos));
+    count = 0;
+    while (count < data.length) {
+      final int n = dl.transferTo(dest, false);
+      assertTrue(n >= 0);
+      count += n;
+    }
+    assertArrayEquals(data, baos.toByteArray());
+  }
+
+  /**
+   * Test the input and output streams, along with copies of a data location.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testStreamsAndCopies() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(1024L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final byte[] data = createData(3 * SEGMENT_SIZE - 7);
+    final OffHeapDataLocation dl = OffHeapDataLocation.create(pool, data.length);
+    try (final OutputStream os = dl.getOutputStream()) {
+      os.write(data, 0, 10);
+      os.write(data[10]);
+      os.write(data, 11, data.length - 11);
+    }
+    final DataLocation copy = dl.copy();
+    assertEquals(data.length, copy.getSize());
+    try (final InputStream is1 = dl.getInputStream(); final InputStream is2 = copy.getInputStream()) {
+      assertEquals(data[0] & 0xff, is1.read());
+      assertArrayEquals(data, StreamUtils.getInputStreamAsByte(is2));
+      final byte[] rest = StreamUtils.getInputStreamAsByte(is1);
+      assertEquals(data.length - 1, rest.length);
+      assertEquals(-1, is1.read());
+    }
+    try (final OutputStream os = dl.getOutputStream()) {
+      os.write(data);
+      os.write(0);
+      fail("writing beyond the capacity should raise an exception");
+    } catch (@SuppressWarnings("unused") final EOFException expected) {
+    }
+  }
+
+  /**
+   * Test that a non-blocking transfer to a gathering channel writes all the buffers in a single call.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testGatheringWrite() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(1024L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final byte[] data = createData(4 * SEGMENT_SIZE + 10);
+    final OffHeapDataLocation dl = OffHeapDataLocation.create(pool, data.length);
+    dl.transferFrom(new StreamInputSource(new ByteArrayInputStream(data)), true);
+    final GatheringChannel channel = new GatheringChannel();
+    assertEquals(data.length, dl.transferTo(new ChannelOutputDestination(channel), false));
+    assertEquals(1, channel.gatheringWrites);
+    assertArrayEquals(data, channel.baos.toByteArray());
+  }
+
+  /**
+   * Test that the buffers are given back to the pool once all the copies of a data location are released, and that a copy is only released once.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testRelease() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(1024L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final OffHeapDataLocation dl = OffHeapDataLocation.create(pool, 3 * SEGMENT_SIZE);
+    assertEquals(3L * SEGMENT_SIZE, pool.getUsedSize());
+    final DataLocation copy1 = dl.copy(), copy2 = dl.copy();
+    copy1.release();
+    copy1.release();
+    dl.release();
+    assertEquals(3L * SEGMENT_SIZE, pool.getUsedSize());
+    copy2.release();
+    assertEquals(0L, pool.getUsedSize());
+  }
+
+  /**
+   * Test that sending the same data location in several nio messages only uses the memory of the original data location,
+   * since the copies made for each write are released once they are written.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testNioWritesShareBuffers() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(1024L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final byte[] data = createData(20 * SEGMENT_SIZE + 5);
+    final OffHeapDataLocation dl = OffHeapDataLocation.create(pool, data.length);
+    dl.transferFrom(new StreamInputSource(new ByteArrayInputStream(data)), true);
+    final long used = pool.getUsedSize();
+    try (final ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress("localhost", 0));
+      try (final SocketChannel writeChannel = SocketChannel.open(server.getLocalAddress()); final SocketChannel readChannel = server.accept()) {
+        writeChannel.configureBlocking(false);
+        readChannel.configureBlocking(false);
+        for (int i=0; i<3; i++) {
+          final ClassLoaderNioMessage writeMessage = new ClassLoaderNioMessage(new TestContext(writeChannel));
+          writeMessage.addLocation(dl);
+          final ClassLoaderNioMessage readMessage = new ClassLoaderNioMessage(new TestContext(readChannel));
+          boolean written = false, read = false;
+          while (!written || !read) {
+            if (!written) written = writeMessage.write();
+            if (!read) read = readMessage.read();
+          }
+          try (final InputStream is = readMessage.getLocations().get(0).getInputStream()) {
+            assertArrayEquals(data, StreamUtils.getInputStreamAsByte(is));
+          }
+          assertEquals(used, pool.getUsedSize());
+        }
+      }
+    }
+    dl.release();
+    assertEquals(0L, pool.getUsedSize());
+  }
+
+  /**
+   * Create an array of random bytes.
+   * @param size the size of the array.
+   * @return an array of bytes.
+   */
+  private static byte[] createData(final int size) {
+    final byte[] data = new byte[size];
+    new Random(size).nextBytes(data);
+    return data;
+  }
+
+  /**
+   * A gathering channel which writes to a byte array and counts the gathering writes.
+   */
+  private static class GatheringChannel implements GatheringByteChannel {
+    /**
+     * Holds the written data.
+     */
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    /**
+     * The number of calls to a gathering write method.
+     */
+    int gatheringWrites;
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+      final int n = src.remaining();
+      while (src.hasRemaining()) baos.write(src.get());
+      return n;
+    }
+
+    @Override
+    public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+      gatheringWrites++;
+      long n = 0L;
+      for (int i=offset; i<offset + length; i++) n += write(srcs[i]);
+      return n;
+    }
+
+    @Override
+    public long write(final ByteBuffer[] srcs) throws IOException {
+      return write(srcs, 0, srcs.length);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+  }
+
+  /**
+   * A minimal nio context wrapping a socket channel.
+   */
+  private static class TestContext extends AbstractNioContext {
+    /**
+     * @param channel the socket channel to wrap.
+     */
+    TestContext(final SocketChannel channel) {
+      this.socketChannel = channel;
+    }
+
+    @Override
+    public boolean readMessage() throws Exception {
+      return false;
+    }
+
+    @Override
+    public boolean writeMessage() throws Exception {
+      return false;
+    }
+
+    @Override
+    public void handleException(final Exception e) {
+    }
+  }
+}
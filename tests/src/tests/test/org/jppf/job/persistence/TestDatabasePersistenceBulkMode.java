@@ -0,0 +1,173 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.job.persistence;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.util.*;
+
+import org.jppf.io.MultipleBuffersLocation;
+import org.jppf.job.persistence.*;
+import org.jppf.job.persistence.impl.DefaultDatabasePersistence;
+import org.jppf.persistence.JPPFDatasourceFactory;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the bulk mode of {@link DefaultDatabasePersistence}, against an embedded H2 database.
+ * @author Laurent Cohen
+ */
+public class TestDatabasePersistenceBulkMode extends BaseTest {
+  /**
+   * Name of the datasource.
+   */
+  private static final String DATASOURCE = "bulkModeDS";
+  /**
+   * The job uuid.
+   */
+  private static final String UUID = "bulk-mode-job";
+  /**
+   * The persistence to test.
+   */
+  private static DefaultDatabasePersistence persistence;
+
+  /**
+   * Create the datasource and the persistence.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty("name", DATASOURCE);
+    props.setProperty("driverClassName", "org.h2.Driver");
+    props.setProperty("jdbcUrl", "jdbc:h2:mem:jppf_bulk_mode;DB_CLOSE_DELAY=-1");
+    props.setProperty("username", "sa");
+    props.setProperty("password", "");
+    JPPFDatasourceFactory.getInstance().createDataSource(DATASOURCE, props);
+    persistence = new DefaultDatabasePersistence("BULK_MODE", DATASOURCE);
+  }
+
+  /**
+   * Remove the datasource.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    JPPFDatasourceFactory.getInstance().removeDataSource(DATASOURCE);
+  }
+
+  /**
+   * Delete the persisted job.
+   * @throws Exception if any error occurs.
+   */
+  @After
+  public void deleteJob() throws Exception {
+    persistence.deleteJob(UUID);
+  }
+
+  /**
+   * Test storing a mix of new and existing elements, then loading a subset of them in a specific order.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testStoreAndLoad() throws Exception {
+    final List<PersistenceInfo> infos = new ArrayList<>();
+    infos.add(createInfo(PersistenceObjectType.JOB_HEADER, -1, "header"));
+    for (int i=0; i<100; i++) infos.add(createInfo(PersistenceObjectType.TASK, i, "task-" + i));
+    persistence.store(infos);
+    assertTrue(persistence.isJobPersisted(UUID));
+    // update tasks 50 to 99 and insert tasks 100 to 149
+    infos.clear();
+    for (int i=50; i<150; i++) infos.add(createInfo(PersistenceObjectType.TASK, i, "updated-" + i));
+    persistence.store(infos);
+    final int[] positions = persistence.getTaskPositions(UUID);
+    assertEquals(150, positions.length);
+    // the position 1000 does not exist and is skipped
+    final int[] requested = { 120, 3, 1000, 49, 50, 7 };
+    infos.clear();
+    for (final int pos: requested) infos.add(createInfo(PersistenceObjectType.TASK, pos, null));
+    infos.add(createInfo(PersistenceObjectType.JOB_HEADER, -1, null));
+    final List<String> loaded = load(infos);
+    assertEquals(Arrays.asList("updated-120", "task-3", "task-49", "updated-50", "task-7", "header"), loaded);
+  }
+
+  /**
+   * Test loading separate runs of contiguous positions, with duplicate requests, in descending order.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testLoadRuns() throws Exception {
+    final List<PersistenceInfo> infos = new ArrayList<>();
+    for (int i=0; i<100; i++) infos.add(createInfo(PersistenceObjectType.TASK, i, "task-" + i));
+    persistence.store(infos);
+    infos.clear();
+    final List<String> expected = new ArrayList<>();
+    for (final int start: new int[] { 90, 40, 10 }) {
+      for (int i=start+4; i>=start; i--) {
+        infos.add(createInfo(PersistenceObjectType.TASK, i, null));
+        expected.add("task-" + i);
+      }
+    }
+    infos.add(createInfo(PersistenceObjectType.TASK, 42, null));
+    expected.add("task-42");
+    assertEquals(expected, load(infos));
+  }
+
+  /**
+   * Test that storing the same element twice in the same call falls back to storing the elements one at a time, the last one winning.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testDuplicateElements() throws Exception {
+    final List<PersistenceInfo> infos = new ArrayList<>();
+    infos.add(createInfo(PersistenceObjectType.TASK, 1, "first"));
+    infos.add(createInfo(PersistenceObjectType.TASK, 2, "other"));
+    infos.add(createInfo(PersistenceObjectType.TASK, 1, "second"));
+    persistence.store(infos);
+    assertArrayEquals(new int[] { 1, 2 }, persistence.getTaskPositions(UUID));
+    final List<String> loaded = load(Arrays.asList(createInfo(PersistenceObjectType.TASK, 1, null), createInfo(PersistenceObjectType.TASK, 2, null)));
+    assertEquals(Arrays.asList("second", "other"), loaded);
+  }
+
+  /**
+   * Create a persistence info.
+   * @param type the type of object.
+   * @param position the position of the object.
+   * @param content the content of the object, may be {@code null} when the info is only used to load it.
+   * @return a new {@link PersistenceInfo}.
+   */
+  private static PersistenceInfo createInfo(final PersistenceObjectType type, final int position, final String content) {
+    return new PersistenceInfoImpl(UUID, null, type, position, (content == null) ? null : new MultipleBuffersLocation(content.getBytes()));
+  }
+
+  /**
+   * Load the specified elements.
+   * @param infos the elements to load.
+   * @return the content of the loaded elements.
+   * @throws Exception if any error occurs.
+   */
+  private static List<String> load(final List<PersistenceInfo> infos) throws Exception {
+    final List<String> result = new ArrayList<>();
+    for (final InputStream is: persistence.load(infos)) result.add(new String(StreamUtils.getInputStreamAsByte(is)));
+    return result;
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.job.persistence;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.io.MultipleBuffersLocation;
+import org.jppf.job.persistence.*;
+import org.jppf.job.persistence.impl.*;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.job.JPPFJobManager;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the segment files of {@link LogStructuredPersistence}: recovery, truncation of incomplete records and compaction.
+ * @author Laurent Cohen
+ */
+public class TestLogStructuredPersistenceSegments extends BaseTest {
+  /**
+   * The root directory of the persistence.
+   */
+  private static final Path ROOT = Paths.get("persistence_log_test");
+
+  /**
+   * Delete the root directory.
+   * @throws Exception if any error occurs.
+   */
+  @Before
+  @After
+  public void cleanup() throws Exception {
+    if (Files.exists(ROOT)) Files.walkFileTree(ROOT, new DeleteFileVisitor());
+  }
+
+  /**
+   * Test that the persisted job elements are recovered after a restart, and that an incomplete record at the end of the log is discarded.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testRecovery() throws Exception {
+    final String uuid = "recovery-job";
+    LogStructuredPersistence persistence = new LogStructuredPersistence(ROOT.toString());
+    persistence.store(Arrays.asList(info(uuid, PersistenceObjectType.JOB_HEADER, -1, "header"),
+      info(uuid, PersistenceObjectType.TASK, 0, "task-0"), info(uuid, PersistenceObjectType.TASK, 1, "task-1"), info(uuid, PersistenceObjectType.TASK, 2, "task-2")));
+    persistence.store(Arrays.asList(info(uuid, PersistenceObjectType.TASK, 1, "task-1-updated"), info(uuid, PersistenceObjectType.TASK_RESULT, 1, "result-1")));
+    persistence.close();
+    final Path segment = getSegments().get(0);
+    final long size = Files.size(segment);
+    // simulate a record whose write was interrupted
+    Files.write(segment, new byte[] { 0, 0, 1, 0, 42, 42 }, StandardOpenOption.APPEND);
+    persistence = new LogStructuredPersistence(ROOT.toString());
+    try {
+      assertEquals(size, Files.size(segment));
+      assertTrue(persistence.isJobPersisted(uuid));
+      assertEquals(Arrays.asList(uuid), persistence.getPersistedJobUuids());
+      assertArrayEquals(new int[] { 0, 1, 2 }, persistence.getTaskPositions(uuid));
+      assertArrayEquals(new int[] { 1 }, persistence.getTaskResultPositions(uuid));
+      assertEquals(Arrays.asList("header", "task-0", "task-1-updated", "task-2", "result-1"), load(persistence, uuid, "JOB_HEADER:-1", "TASK:0", "TASK:1", "TASK:2", "TASK_RESULT:1"));
+      persistence.store(Arrays.asList(info(uuid, PersistenceObjectType.TASK_RESULT, 2, "result-2")));
+      assertEquals(Arrays.asList("result-2"), load(persistence, uuid, "TASK_RESULT:2"));
+    } finally {
+      persistence.close();
+    }
+  }
+
+  /**
+   * Test that the segments holding the elements of a deleted job are compacted, and that the deleted job is not recovered after a restart.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testDeleteAndCompaction() throws Exception {
+    final String deleted = "deleted-job", kept = "kept-job";
+    final TypedProperties config = JPPFConfiguration.getProperties();
+    config.set(JPPFProperties.JOB_PERSISTENCE_LOG_SEGMENT_SIZE, 1024L);
+    LogStructuredPersistence persistence = null;
+    try {
+      persistence = new LogStructuredPersistence(ROOT.toString());
+      persistence.store(Arrays.asList(info(kept, PersistenceObjectType.JOB_HEADER, -1, "kept-header")));
+      final char[] chars = new char[300];
+      Arrays.fill(chars, 'x');
+      final String content = new String(chars);
+      for (int i=0; i<10; i++) persistence.store(Arrays.asList(info(deleted, PersistenceObjectType.TASK, i, content)));
+      final int nbSegments = getSegments().size();
+      assertTrue(nbSegments > 2);
+      persistence.deleteJob(deleted);
+      assertFalse(persistence.isJobPersisted(deleted));
+      assertEquals(0, persistence.getTaskPositions(deleted).length);
+      while (getSegments().size() > 2) Thread.sleep(10L);
+      persistence.close();
+      persistence = new LogStructuredPersistence(ROOT.toString());
+      assertEquals(Arrays.asList(kept), persistence.getPersistedJobUuids());
+      assertEquals(0, persistence.getTaskPositions(deleted).length);
+      assertEquals(Arrays.asList("kept-header"), load(persistence, kept, "JOB_HEADER:-1"));
+    } finally {
+      if (persistence != null) persistence.close();
+      config.remove(JPPFProperties.JOB_PERSISTENCE_LOG_SEGMENT_SIZE);
+    }
+  }
+
+  /**
+   * Test that the persistence is closed, directly or through the persistence wrappers, when the driver's job queue is closed upon shutdown.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testClosedByDriverShutdown() throws Exception {
+    final String[][] configs = {
+      { ClosingPersistence.class.getName(), ROOT.toString() },
+      { CacheablePersistence.class.getName(), AsynchronousPersistence.class.getName(), ClosingPersistence.class.getName(), ROOT.toString() }
+    };
+    for (final String[] config: configs) {
+      ClosingPersistence.closeCount.set(0);
+      final JPPFDriver driver = new JPPFDriver(new TypedProperties().set(JPPFProperties.JOB_PERSISTENCE, config));
+      final JPPFPriorityQueue queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+      final LogStructuredPersistence persistence = ClosingPersistence.instance;
+      persistence.store(Arrays.asList(info("job", PersistenceObjectType.JOB_HEADER, -1, "header")));
+      assertEquals(0, ClosingPersistence.closeCount.get());
+      queue.close();
+      assertEquals(Arrays.toString(config), 1, ClosingPersistence.closeCount.get());
+      try {
+        persistence.store(Arrays.asList(info("job", PersistenceObjectType.TASK, 0, "task-0")));
+        fail("the segment files should be closed");
+      } catch (@SuppressWarnings("unused") final JobPersistenceException e) {
+      }
+      cleanup();
+    }
+  }
+
+  /**
+   * @return the paths of the segment files, sorted by name.
+   * @throws Exception if any error occurs.
+   */
+  private static List<Path> getSegments() throws Exception {
+    final List<Path> result = new ArrayList<>();
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(ROOT, "segment-*.log")) {
+      for (final Path path: ds) result.add(path);
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * Create a job element with the specified content.
+   * @param uuid the job uuid.
+   * @param type the type of job element.
+   * @param position the position of the element.
+   * @param content the content of the element.
+   * @return a new {@link PersistenceInfo}.
+   */
+  private static PersistenceInfo info(final String uuid, final PersistenceObjectType type, final int position, final String content) {
+    return new PersistenceInfoImpl(uuid, null, type, position, new MultipleBuffersLocation(content.getBytes()));
+  }
+
+  /**
+   * Load the specified elements of a job.
+   * @param persistence the persistence to load from.
+   * @param uuid the job uuid.
+   * @param keys the elements to load, in the form <code><i>type</i>:<i>position</i></code>.
+   * @return the content of the loaded elements.
+   * @throws Exception if any error occurs.
+   */
+  private static List<String> load(final JobPersistence persistence, final String uuid, final String...keys) throws Exception {
+    final List<PersistenceInfo> infos = new ArrayList<>(keys.length);
+    for (final String key: keys) {
+      final String[] parts = key.split(":");
+      infos.add(new PersistenceInfoImpl(uuid, null, PersistenceObjectType.valueOf(parts[0]), Integer.valueOf(parts[1]), null));
+    }
+    final List<String> result = new ArrayList<>(keys.length);
+    for (final InputStream is: persistence.load(infos)) result.add(new String(StreamUtils.getInputStreamAsByte(is)));
+    return result;
+  }
+
+  /**
+   * A log-structured persistence which records the calls to {@link #close()}.
+   */
+  public static class ClosingPersistence extends LogStructuredPersistence {
+    /**
+     * The number of calls to {@link #close()}.
+     */
+    static final AtomicInteger closeCount = new AtomicInteger();
+    /**
+     * The last created instance.
+     */
+    static ClosingPersistence instance;
+
+    /**
+     * Initialize this persistence with the specified paths.
+     * @param paths the root directory of the persistence.
+     * @throws JobPersistenceException if any error occurs.
+     */
+    public ClosingPersistence(final String... paths) throws JobPersistenceException {
+      super(paths);
+      instance = this;
+    }
+
+    @Override
+    public void close() {
+      closeCount.incrementAndGet();
+      super.close();
+    }
+  }
+}
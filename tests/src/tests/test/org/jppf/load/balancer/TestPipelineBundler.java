@@ -0,0 +1,162 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package test.org.jppf.load.balancer;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+
+import org.jppf.load.balancer.DispatchTimings;
+import org.jppf.load.balancer.impl.*;
+import org.jppf.node.protocol.JPPFDistributedJob;
+import org.jppf.serialization.JPPFSerializationHelper;
+import org.jppf.utils.TypedProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the {@link PipelineBundler}.
+ * @author Laurent Cohen
+ */
+public class TestPipelineBundler extends BaseTest {
+  /**
+   * Nanoseconds in a millisecond.
+   */
+  private static final long MS = 1_000_000L;
+
+  /**
+   * Test that with short tasks and a low latency, the bundle size only depends on the idle time of the node at the end of each bundle,
+   * and that it increases when the task times are more heterogeneous.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testTaskTimesVariability() throws Exception {
+    final PipelineBundler bundler = createBundler();
+    // 10 ms per task, 1 ms of transfer time
+    feedback(bundler, 10, 1d * MS, 0d, 10 * MS, 10 * MS);
+    feedback(bundler, 20, 1d * MS, 0d, 10 * MS, 10 * MS);
+    // (1 + cv) / (2 * maxOverhead) with cv = 0
+    assertEquals(5, bundler.getBundleSize());
+    final PipelineBundler heterogeneous = createBundler();
+    // mean task time of 10 ms with a standard deviation of 9 ms
+    feedback(heterogeneous, 10, 1d * MS, 0d, 1 * MS, 19 * MS);
+    feedback(heterogeneous, 20, 1d * MS, 0d, 1 * MS, 19 * MS);
+    assertEquals(10, heterogeneous.getBundleSize());
+  }
+
+  /**
+   * Test that the bundle size amortizes a high latency, and is capped by the size of the job.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testLatency() throws Exception {
+    final PipelineBundler bundler = createBundler();
+    // 10 ms per task, 100 ms of latency, 0.1 ms per task transfer time
+    for (int i=0; i<5; i++) {
+      feedback(bundler, 10, (100d + 10 * 0.1d) * MS, 0d, 10 * MS, 10 * MS);
+      feedback(bundler, 20, (100d + 20 * 0.1d) * MS, 0d, 10 * MS, 10 * MS);
+    }
+    // latency / (maxOverhead * (task time + transfer time per task)) ~= 100 / (0.1 * 10.1) = 99.01
+    assertEquals(100, bundler.getBundleSize());
+    bundler.setJob(createJob(60));
+    assertEquals(30, bundler.getBundleSize());
+  }
+
+  /**
+   * Test that a node which spends more time receiving the tasks than executing them gets bundles that amortize the latency,
+   * while a node which deserializes the tasks fast enough gets bundles that hide the transfer of the next bundle.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testPipeline() throws Exception {
+    // 10 ms per task, 20 ms of latency, 6 ms of deserialization per task
+    final PipelineBundler bundler = createBundler();
+    for (int i=0; i<5; i++) {
+      feedback(bundler, 10, 20d * MS, 60d * MS, 10 * MS, 10 * MS);
+      feedback(bundler, 20, 20d * MS, 120d * MS, 10 * MS, 10 * MS);
+    }
+    // safety * latency / (task time - safety * deserialization time) = 1.5 * 20 / (10 - 1.5 * 6) = 30,
+    // greater than latency / (maxOverhead * (task time + deserialization time)) = 20 / (0.1 * 16) = 12.5
+    assertEquals(30, bundler.getBundleSize());
+    // 20 ms of deserialization per task: the node is always waiting for the next tasks
+    final PipelineBundler ioBound = createBundler();
+    for (int i=0; i<5; i++) {
+      feedback(ioBound, 10, 20d * MS, 200d * MS, 10 * MS, 10 * MS);
+      feedback(ioBound, 20, 20d * MS, 400d * MS, 10 * MS, 10 * MS);
+    }
+    // latency / (maxOverhead * (task time + deserialization time)) = 20 / (0.1 * 30) = 6.67
+    assertEquals(7, ioBound.getBundleSize());
+  }
+
+  /**
+   * Test that the state of a bundler can be persisted and restored.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testStatePersistence() throws Exception {
+    final PipelineBundler bundler = createBundler();
+    feedback(bundler, 10, 100d * MS, 0d, 10 * MS, 10 * MS);
+    feedback(bundler, 20, 100d * MS, 0d, 10 * MS, 10 * MS);
+    final byte[] bytes = JPPFSerializationHelper.serializeToBytes(bundler.getState());
+    final Object state = JPPFSerializationHelper.deserializeFromBytes(bytes, 0, bytes.length);
+    final PipelineBundler copy = createBundler();
+    copy.setState(state);
+    assertEquals(bundler.getBundleSize(), copy.getBundleSize());
+    feedback(bundler, 30, 100d * MS, 0d, 10 * MS, 10 * MS);
+    feedback(copy, 30, 100d * MS, 0d, 10 * MS, 10 * MS);
+    assertEquals(bundler.getBundleSize(), copy.getBundleSize());
+  }
+
+  /**
+   * Feed the specified bundler with the timings of a dispatch whose task times alternate between 2 values.
+   * @param bundler the bundler to update.
+   * @param nbTasks the number of tasks in the dispatch.
+   * @param transferTime the transfer time.
+   * @param deserializationTime the deserialization time.
+   * @param time1 the time of the tasks at an even position.
+   * @param time2 the time of the tasks at an odd position.
+   */
+  private static void feedback(final PipelineBundler bundler, final int nbTasks, final double transferTime, final double deserializationTime, final long time1, final long time2) {
+    final long[] times = new long[nbTasks];
+    double executionTime = 0d;
+    for (int i=0; i<nbTasks; i++) executionTime += times[i] = (i % 2 == 0) ? time1 : time2;
+    // the node has a single processing thread
+    final double nodeTime = deserializationTime + executionTime;
+    bundler.feedback(new DispatchTimings(nbTasks, nodeTime + transferTime, nodeTime, deserializationTime, 0d, times, null));
+  }
+
+  /**
+   * @return a bundler with the default parameters.
+   */
+  private static PipelineBundler createBundler() {
+    return new PipelineBundler(new PipelineProfile(new TypedProperties()));
+  }
+
+  /**
+   * Create a job with the specified number of tasks.
+   * @param nbTasks the number of tasks in the job.
+   * @return a {@link JPPFDistributedJob} instance.
+   */
+  private static JPPFDistributedJob createJob(final int nbTasks) {
+    return (JPPFDistributedJob) Proxy.newProxyInstance(TestPipelineBundler.class.getClassLoader(), new Class<?>[] { JPPFDistributedJob.class },
+      (proxy, method, args) -> "getTaskCount".equals(method.getName()) ? nbTasks : null);
+  }
+}
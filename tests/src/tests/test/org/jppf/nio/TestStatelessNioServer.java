@@ -0,0 +1,272 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.nio;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+
+import org.jppf.nio.*;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link StatelessNioServer} with multiple selector threads.
+ * @author Laurent Cohen
+ */
+public class TestStatelessNioServer extends BaseTest {
+  /**
+   * The number of selector threads.
+   */
+  private static final int NB_SELECTORS = 3;
+  /**
+   * The number of channels registered with the server.
+   */
+  private static final int NB_CHANNELS = 2 * NB_SELECTORS;
+
+  /**
+   * Test the registration of channels, the interest ops updates, the reads and writes and the removal of all the connections
+   * when the channels are spread over multiple selectors.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=15000L)
+  public void testMultipleSelectors() throws Exception {
+    final TestServer server = new TestServer(new TypedProperties().set(JPPFProperties.NIO_NODE_SELECTOR_THREADS, NB_SELECTORS));
+    final List<SocketChannel> clients = new ArrayList<>(NB_CHANNELS);
+    final List<TestContext> contexts = new ArrayList<>(NB_CHANNELS);
+    try (final ServerSocketChannel acceptor = ServerSocketChannel.open()) {
+      acceptor.bind(new InetSocketAddress("localhost", 0));
+      server.start();
+      assertEquals(NB_SELECTORS, server.getNbSelectors());
+      for (int i=0; i<NB_CHANNELS; i++) {
+        clients.add(SocketChannel.open(acceptor.getLocalAddress()));
+        final SocketChannel channel = acceptor.accept();
+        channel.configureBlocking(false);
+        final TestContext context = new TestContext(channel, "context-" + i);
+        contexts.add(context);
+        server.registerChannel(context, channel);
+      }
+      // round-robin assignment of the channels to the selectors, starting with the server's own selector
+      final Set<Selector> selectors = new HashSet<>();
+      for (int i=0; i<NB_CHANNELS; i++) {
+        final SelectionKey key = contexts.get(i).getSelectionKey();
+        assertSame(contexts.get(i % NB_SELECTORS).getSelectionKey().selector(), key.selector());
+        assertSame(key, server.keyFor(contexts.get(i).getSocketChannel()));
+        assertEquals(SelectionKey.OP_READ, key.interestOps());
+        selectors.add(key.selector());
+      }
+      assertEquals(NB_SELECTORS, selectors.size());
+      assertSame(server.getSelector(), contexts.get(0).getSelectionKey().selector());
+      assertEquals(NB_CHANNELS, server.getAllContexts().size());
+      for (int i=0; i<NB_CHANNELS; i++) {
+        // reads
+        final byte[] request = ("request " + i).getBytes("UTF-8");
+        clients.get(i).write(ByteBuffer.wrap(request));
+        final TestContext context = contexts.get(i);
+        while (context.received.size() < request.length) Thread.sleep(10L);
+        assertArrayEquals(request, context.received.toByteArray());
+        // writes, triggered by an update of the interest ops
+        final byte[] response = ("response " + i).getBytes("UTF-8");
+        context.toSend = ByteBuffer.wrap(response);
+        final SelectionKey key = context.getSelectionKey();
+        server.updateInterestOps(key, SelectionKey.OP_WRITE, true);
+        final ByteBuffer buffer = ByteBuffer.allocate(response.length);
+        while (buffer.hasRemaining()) {
+          if (clients.get(i).read(buffer) < 0) fail("unexpected end of stream for " + context);
+        }
+        assertArrayEquals(response, buffer.array());
+        // the write handler removes OP_WRITE once everything is written
+        while (key.interestOps() != SelectionKey.OP_READ) Thread.sleep(10L);
+        assertEquals(SelectionKey.OP_READ, context.getInterestOps());
+      }
+      server.shutdown();
+      for (final TestContext context: contexts) {
+        assertFalse(context.getSocketChannel().isOpen());
+        assertFalse(context.getSelectionKey().selector().isOpen());
+      }
+      for (final SocketChannel client: clients) assertTrue(client.read(ByteBuffer.allocate(1)) < 0);
+      for (int i=1; i<NB_SELECTORS; i++) {
+        final String name = server.getName() + "-selector-" + i;
+        while (isThreadAlive(name)) Thread.sleep(10L);
+      }
+      server.join(5000L);
+      assertFalse(server.isAlive());
+      assertTrue(server.exceptions.toString(), server.exceptions.isEmpty());
+    } finally {
+      server.shutdown();
+      for (final SocketChannel client: clients) client.close();
+    }
+  }
+
+  /**
+   * Determine whether a thread with the specified name is alive.
+   * @param name the name of the thread to lookup.
+   * @return {@code true} if the thread exists and is alive, {@code false} otherwise.
+   */
+  private static boolean isThreadAlive(final String name) {
+    for (final Thread thread: Thread.getAllStackTraces().keySet()) {
+      if (name.equals(thread.getName()) && thread.isAlive()) return true;
+    }
+    return false;
+  }
+
+  /**
+   * A server which reads and writes raw bytes.
+   */
+  private static class TestServer extends StatelessNioServer<TestContext> {
+    /**
+     * The exceptions raised while processing the selected keys.
+     */
+    final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+
+    /**
+     * Initialize this server with the specified configuration.
+     * @param configuration the configuration to use.
+     * @throws Exception if any error occurs.
+     */
+    TestServer(final TypedProperties configuration) throws Exception {
+      super("TestNioServer", JPPFIdentifiers.NODE_JOB_DATA_CHANNEL, false, configuration);
+    }
+
+    @Override
+    protected JPPFProperty<Integer> getSelectorThreadsProperty() {
+      return JPPFProperties.NIO_NODE_SELECTOR_THREADS;
+    }
+
+    @Override
+    protected void initReaderAndWriter() {
+      messageReader = new TestReader(this);
+      messageWriter = new TestWriter(this);
+    }
+
+    @Override
+    protected void handleSelectionException(final SelectionKey key, final Exception e) {
+      exceptions.add(e);
+    }
+
+    @Override
+    public void accept(final ServerSocketChannel serverSocketChannel, final SocketChannel channel, final SSLHandler sslHandler, final boolean ssl,
+      final boolean peer, final Object... params) throws Exception {
+    }
+
+    @Override
+    public NioContext createNioContext(final Object... params) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads all the available bytes from a channel.
+   */
+  private static class TestReader extends NioMessageReader<TestContext> {
+    /**
+     * Initialize this reader.
+     * @param server the nio server.
+     */
+    TestReader(final StatelessNioServer<TestContext> server) {
+      super(server);
+    }
+
+    @Override
+    protected void read(final TestContext context) throws Exception {
+      final ByteBuffer buffer = ByteBuffer.allocate(64);
+      int n;
+      while ((n = context.getSocketChannel().read(buffer)) > 0) {
+        context.received.write(buffer.array(), 0, n);
+        buffer.clear();
+      }
+      if (n < 0) context.getSelectionKey().cancel();
+    }
+
+    @Override
+    protected MessageHandler<TestContext> createMessageHandler() {
+      return (context, message) -> { };
+    }
+  }
+
+  /**
+   * Writes the pending bytes of a context.
+   */
+  private static class TestWriter extends NioMessageWriter<TestContext> {
+    /**
+     * Initialize this writer.
+     * @param server the nio server.
+     */
+    TestWriter(final StatelessNioServer<TestContext> server) {
+      super(server);
+    }
+
+    @Override
+    protected boolean doWrite(final TestContext context) throws Exception {
+      final ByteBuffer buffer = context.toSend;
+      if (buffer == null) return false;
+      context.getSocketChannel().write(buffer);
+      return buffer.hasRemaining();
+    }
+
+    @Override
+    protected void postWrite(final TestContext context, final NioMessage data) throws Exception {
+    }
+  }
+
+  /**
+   * A context which holds the bytes received from, and to send to, its channel.
+   */
+  private static class TestContext extends AbstractNioContext {
+    /**
+     * The bytes received from the channel.
+     */
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    /**
+     * The bytes to send to the channel.
+     */
+    volatile ByteBuffer toSend;
+
+    /**
+     * Initialize this context.
+     * @param channel the associated socket channel.
+     * @param uuid the uuid of this context.
+     */
+    TestContext(final SocketChannel channel, final String uuid) {
+      this.socketChannel = channel;
+      this.uuid = uuid;
+    }
+
+    @Override
+    public boolean readMessage() throws Exception {
+      return false;
+    }
+
+    @Override
+    public boolean writeMessage() throws Exception {
+      return false;
+    }
+
+    @Override
+    public void handleException(final Exception e) {
+    }
+  }
+}
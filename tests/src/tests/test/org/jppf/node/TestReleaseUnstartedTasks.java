@@ -0,0 +1,220 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.node;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.execute.async.*;
+import org.jppf.node.protocol.*;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the release of the tasks that a node has not started yet, so they can be executed by other nodes.
+ * @author Laurent Cohen
+ */
+public class TestReleaseUnstartedTasks extends BaseTest {
+  /**
+   * The execution manager to test.
+   */
+  private TestExecutionManager manager;
+  /**
+   * Records the notifications from the execution manager.
+   */
+  private TestListener listener;
+
+  /**
+   * Create the execution manager.
+   */
+  @Before
+  public void setupManager() {
+    manager = new TestExecutionManager();
+    listener = new TestListener();
+    manager.addExecutionManagerListener(listener);
+  }
+
+  /**
+   * Shutdown the execution manager.
+   */
+  @After
+  public void shutdownManager() {
+    manager.shutdown();
+  }
+
+  /**
+   * Test that only the tasks which have not started are released, and that the bundle completes as soon as the started tasks are done.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testReleaseUnstartedTasks() throws Exception {
+    final int nbTasks = 5;
+    final TaskBundle bundle = createBundle("release", nbTasks);
+    final CountDownLatch started = new CountDownLatch(1), gate = new CountDownLatch(1);
+    final List<Task<?>> tasks = new ArrayList<>();
+    for (int i=0; i<nbTasks; i++) tasks.add(createTask(bundle, i));
+    ((MyTask) tasks.get(0)).started = started;
+    ((MyTask) tasks.get(0)).gate = gate;
+    manager.execute(new BundleWithTasks(bundle, tasks));
+    // the execution manager has a single thread, which is now blocked by the first task
+    assertTrue(started.await(5000L, TimeUnit.MILLISECONDS));
+    final int[] released = manager.releaseUnstartedTasks(bundle.getUuid());
+    Arrays.sort(released);
+    assertArrayEquals(new int[] { 1, 2, 3, 4 }, released);
+    assertNull(listener.finishedTasks);
+    gate.countDown();
+    assertTrue(listener.finishedLatch.await(5000L, TimeUnit.MILLISECONDS));
+    assertEquals(tasks, listener.finishedTasks);
+    assertEquals(1, listener.executedCount.get());
+    assertEquals("success", tasks.get(0).getResult());
+    for (int i=1; i<nbTasks; i++) assertNull(tasks.get(i).getResult());
+    final int[] positions = bundle.getParameter(BundleParameter.RELEASED_TASK_POSITIONS);
+    Arrays.sort(positions);
+    assertArrayEquals(released, positions);
+    assertEquals(0, manager.releaseUnstartedTasks(bundle.getUuid()).length);
+  }
+
+  /**
+   * Test that releasing the tasks of an unknown job has no effect.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testReleaseUnknownJob() throws Exception {
+    assertEquals(0, manager.releaseUnstartedTasks("unknown-uuid").length);
+  }
+
+  /**
+   * Create a bundle with the specified name.
+   * @param name the name of the bundle.
+   * @param nbTasks the number of tasks in the bundle.
+   * @return a new {@link TaskBundle}.
+   */
+  private static TaskBundle createBundle(final String name, final int nbTasks) {
+    final TaskBundle bundle = new JPPFTaskBundle();
+    bundle.setName(name);
+    bundle.setUuid(name + "-uuid");
+    bundle.setTaskCount(nbTasks);
+    bundle.setBundleId(1L);
+    return bundle;
+  }
+
+  /**
+   * Create a task.
+   * @param bundle the bundle the task is a part of.
+   * @param position the position of the task in its job.
+   * @return a new {@link MyTask}.
+   */
+  private static MyTask createTask(final TaskBundle bundle, final int position) {
+    final MyTask task = new MyTask();
+    task.setPosition(position);
+    task.setInNode(true).setJob(bundle);
+    return task;
+  }
+
+  /**
+   * A simple task which can signal its start and wait for a signal before completing.
+   */
+  public static class MyTask extends AbstractTask<String> {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * If not null, released when the task starts.
+     */
+    transient CountDownLatch started;
+    /**
+     * If not null, the task waits for this latch to reach 0 before completing.
+     */
+    transient CountDownLatch gate;
+
+    @Override
+    public void run() {
+      try {
+        if (started != null) started.countDown();
+        if (gate != null) gate.await();
+        setResult("success");
+      } catch (final Exception e) {
+        setThrowable(e);
+      }
+    }
+  }
+
+  /**
+   * Records the notifications from the execution manager.
+   */
+  private static class TestListener implements ExecutionManagerListener {
+    /**
+     * The number of executed tasks.
+     */
+    final AtomicInteger executedCount = new AtomicInteger(0);
+    /**
+     * Released when the bundle is finished.
+     */
+    final CountDownLatch finishedLatch = new CountDownLatch(1);
+    /**
+     * The tasks passed to {@link #bundleExecuted(TaskBundle, List, Throwable)}.
+     */
+    volatile List<Task<?>> finishedTasks;
+
+    @Override
+    public void bundleExecuted(final TaskBundle bundle, final List<Task<?>> tasks, final Throwable t) {
+      finishedTasks = tasks;
+      finishedLatch.countDown();
+    }
+
+    @Override
+    public void taskExecuted(final TaskBundle bundle, final Task<?> task) {
+      executedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * A minimal execution manager with a single processing thread.
+   */
+  private static class TestExecutionManager extends AbstractAsyncExecutionManager {
+    /**
+     * Initialize with 1 processing thread.
+     */
+    TestExecutionManager() {
+      super(new TypedProperties().set(JPPFProperties.PROCESSING_THREADS, 1), JPPFProperties.PROCESSING_THREADS);
+    }
+
+    @Override
+    protected JobProcessingEntry setup(final BundleWithTasks bundleWithTasks, final DataProvider dataProvider) {
+      final JobProcessingEntry jobEntry = new JobProcessingEntry();
+      jobEntry.bundle = bundleWithTasks.getBundle();
+      jobEntry.taskList = bundleWithTasks.getTasks();
+      jobEntry.taskWrapperList = new ArrayList<>();
+      jobEntry.dataProvider = dataProvider;
+      return jobEntry;
+    }
+
+    @Override
+    protected void cleanup(final JobProcessingEntry jobEntry) {
+      jobEntry.taskWrapperList = null;
+    }
+  }
+}
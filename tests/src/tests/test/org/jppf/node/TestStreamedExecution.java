@@ -0,0 +1,265 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.node;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.execute.async.*;
+import org.jppf.node.protocol.*;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the streamed execution of tasks, where tasks are submitted to the execution manager as soon as they are deserialized.
+ * @author Laurent Cohen
+ */
+public class TestStreamedExecution extends BaseTest {
+  /**
+   * The execution manager to test.
+   */
+  private TestExecutionManager manager;
+  /**
+   * Records the notifications from the execution manager.
+   */
+  private TestListener listener;
+
+  /**
+   * Create the execution manager.
+   */
+  @Before
+  public void setupManager() {
+    manager = new TestExecutionManager();
+    listener = new TestListener();
+    manager.addExecutionManagerListener(listener);
+  }
+
+  /**
+   * Shutdown the execution manager.
+   */
+  @After
+  public void shutdownManager() {
+    manager.shutdown();
+  }
+
+  /**
+   * Test that the tasks are executed as soon as they are submitted, and that the job only completes once the streaming has ended.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testStreamedTasksExecuteBeforeEndOfStreaming() throws Exception {
+    final int nbTasks = 10;
+    final TaskBundle bundle = createBundle("streamed", nbTasks);
+    final JobProcessingEntry entry = manager.startStreaming(bundle, null);
+    final List<Task<?>> tasks = new ArrayList<>();
+    for (int i=0; i<nbTasks; i++) {
+      final Task<?> task = createTask(bundle, i);
+      tasks.add(task);
+      manager.submitStreamedTask(entry, task);
+    }
+    assertTrue(listener.executedLatch.await(5000L, TimeUnit.MILLISECONDS));
+    // all tasks were executed, but the job must not complete before the end of the streaming
+    Thread.sleep(50L);
+    assertNull(listener.finishedTasks);
+    assertEquals(1, manager.getNbBundles(bundle.getUuid()));
+    manager.endStreaming(entry, tasks, null);
+    assertTrue(listener.finishedLatch.await(5000L, TimeUnit.MILLISECONDS));
+    assertEquals(tasks, listener.finishedTasks);
+    assertEquals(nbTasks, listener.executedCount.get());
+    for (final Task<?> task: tasks) assertEquals("success", task.getResult());
+    assertEquals(0, manager.getNbBundles(bundle.getUuid()));
+  }
+
+  /**
+   * Test that the job completes when the streaming ends while tasks are still executing.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testEndOfStreamingBeforeTasksComplete() throws Exception {
+    final int nbTasks = 5;
+    final TaskBundle bundle = createBundle("slow", nbTasks);
+    final CountDownLatch gate = new CountDownLatch(1);
+    final JobProcessingEntry entry = manager.startStreaming(bundle, null);
+    final List<Task<?>> tasks = new ArrayList<>();
+    for (int i=0; i<nbTasks; i++) {
+      final MyTask task = createTask(bundle, i);
+      task.gate = gate;
+      tasks.add(task);
+      manager.submitStreamedTask(entry, task);
+    }
+    manager.endStreaming(entry, tasks, null);
+    assertNull(listener.finishedTasks);
+    gate.countDown();
+    assertTrue(listener.finishedLatch.await(5000L, TimeUnit.MILLISECONDS));
+    assertEquals(tasks, listener.finishedTasks);
+  }
+
+  /**
+   * Test that a streamed job without any executable task completes at the end of the streaming.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testNoTaskSubmitted() throws Exception {
+    final TaskBundle bundle = createBundle("empty", 0);
+    final JobProcessingEntry entry = manager.startStreaming(bundle, null);
+    manager.endStreaming(entry, new ArrayList<Task<?>>(), null);
+    assertTrue(listener.finishedLatch.await(5000L, TimeUnit.MILLISECONDS));
+    assertTrue(listener.finishedTasks.isEmpty());
+  }
+
+  /**
+   * Test that a streamed job ended with an error cancels its pending tasks and does not notify the listeners.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testStreamingError() throws Exception {
+    final TaskBundle bundle = createBundle("error", 2);
+    final CountDownLatch gate = new CountDownLatch(1);
+    final JobProcessingEntry entry = manager.startStreaming(bundle, null);
+    final MyTask task = createTask(bundle, 0);
+    task.gate = gate;
+    manager.submitStreamedTask(entry, task);
+    manager.endStreaming(entry, Arrays.<Task<?>>asList(task), new Exception("deserialization error"));
+    gate.countDown();
+    Thread.sleep(100L);
+    // a task submitted after the error is ignored
+    manager.submitStreamedTask(entry, createTask(bundle, 1));
+    Thread.sleep(100L);
+    assertNull(listener.finishedTasks);
+    assertEquals(0, manager.getNbBundles(bundle.getUuid()));
+  }
+
+  /**
+   * Create a bundle with the specified name.
+   * @param name the name of the bundle.
+   * @param nbTasks the number of tasks in the bundle.
+   * @return a new {@link TaskBundle}.
+   */
+  private static TaskBundle createBundle(final String name, final int nbTasks) {
+    final TaskBundle bundle = new JPPFTaskBundle();
+    bundle.setName(name);
+    bundle.setUuid(name + "-uuid");
+    bundle.setTaskCount(nbTasks);
+    return bundle;
+  }
+
+  /**
+   * Create a task.
+   * @param bundle the bundle the task is a part of.
+   * @param position the position of the task in its job.
+   * @return a new {@link MyTask}.
+   */
+  private static MyTask createTask(final TaskBundle bundle, final int position) {
+    final MyTask task = new MyTask();
+    task.setPosition(position);
+    task.setInNode(true).setJob(bundle);
+    return task;
+  }
+
+  /**
+   * A simple task which can wait for a signal before completing.
+   */
+  public static class MyTask extends AbstractTask<String> {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * If not null, the task waits for this latch to reach 0 before completing.
+     */
+    transient CountDownLatch gate;
+
+    @Override
+    public void run() {
+      try {
+        if (gate != null) gate.await();
+        setResult("success");
+      } catch (final Exception e) {
+        setThrowable(e);
+      }
+    }
+  }
+
+  /**
+   * Records the notifications from the execution manager.
+   */
+  private static class TestListener implements ExecutionManagerListener {
+    /**
+     * Released when all the tasks of the first bundle have been executed.
+     */
+    final CountDownLatch executedLatch = new CountDownLatch(10);
+    /**
+     * The number of executed tasks.
+     */
+    final AtomicInteger executedCount = new AtomicInteger(0);
+    /**
+     * Released when the bundle is finished.
+     */
+    final CountDownLatch finishedLatch = new CountDownLatch(1);
+    /**
+     * The tasks passed to {@link #bundleExecuted(TaskBundle, List, Throwable)}.
+     */
+    volatile List<Task<?>> finishedTasks;
+
+    @Override
+    public void bundleExecuted(final TaskBundle bundle, final List<Task<?>> tasks, final Throwable t) {
+      finishedTasks = tasks;
+      finishedLatch.countDown();
+    }
+
+    @Override
+    public void taskExecuted(final TaskBundle bundle, final Task<?> task) {
+      executedCount.incrementAndGet();
+      executedLatch.countDown();
+    }
+  }
+
+  /**
+   * A minimal execution manager, without node-specific setup and cleanup.
+   */
+  private static class TestExecutionManager extends AbstractAsyncExecutionManager {
+    /**
+     * Initialize with 2 processing threads.
+     */
+    TestExecutionManager() {
+      super(new TypedProperties().set(JPPFProperties.PROCESSING_THREADS, 2), JPPFProperties.PROCESSING_THREADS);
+    }
+
+    @Override
+    protected JobProcessingEntry setup(final BundleWithTasks bundleWithTasks, final DataProvider dataProvider) {
+      final JobProcessingEntry jobEntry = new JobProcessingEntry();
+      jobEntry.bundle = bundleWithTasks.getBundle();
+      jobEntry.taskList = bundleWithTasks.getTasks();
+      jobEntry.taskWrapperList = new ArrayList<>();
+      jobEntry.dataProvider = dataProvider;
+      return jobEntry;
+    }
+
+    @Override
+    protected void cleanup(final JobProcessingEntry jobEntry) {
+      jobEntry.taskWrapperList = null;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.node.policy;
+
+import static org.junit.Assert.*;
+
+import org.jppf.node.policy.*;
+import org.jppf.utils.TypedProperties;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CompiledPolicy} class.
+ * @author Laurent Cohen
+ */
+public class TestCompiledPolicy extends AbstractTestExecutionPolicy {
+  /** @throws Exception if any error occurs. */
+  @Test(timeout=5000)
+  public void testLogicalRules() throws Exception {
+    checkCompiled(truePolicy1.and(truePolicy2).and(truePolicy3), true);
+    checkCompiled(truePolicy1.and(truePolicy2).and(falsePolicy3), false);
+    checkCompiled(falsePolicy1.or(falsePolicy2).or(truePolicy3), true);
+    checkCompiled(falsePolicy1.or(falsePolicy2).or(falsePolicy3), false);
+    checkCompiled(truePolicy1.xor(falsePolicy2), true);
+    checkCompiled(truePolicy1.xor(truePolicy2), false);
+    checkCompiled(truePolicy1.not(), false);
+    checkCompiled(new AcceptAll(falsePolicy1), true);
+    checkCompiled(new RejectAll(truePolicy1), false);
+  }
+
+  /** @throws Exception if any error occurs. */
+  @Test(timeout=5000)
+  public void testNumericRules() throws Exception {
+    checkCompiled(new AtLeast("int.2", 2), true);
+    checkCompiled(new AtMost("int.2", 1), false);
+    checkCompiled(new MoreThan("int.10", 3).and(new LessThan("int.1", 2)), true);
+    checkCompiled(new BetweenII("int.2", 2, 3), true);
+    checkCompiled(new BetweenEE("int.2", 2, 3), false);
+    checkCompiled(new BetweenIE("int.3", 2, 3), false);
+    checkCompiled(new BetweenEI("int.3", 2, 3), true);
+    checkCompiled(new OneOf("int.10", 1, 5, 10), true);
+    checkCompiled(new NotEqual("int.3", 3), false);
+    // non-numeric or missing values make the rules evaluate to false
+    checkCompiled(new AtLeast("string.1", 1), false);
+    checkCompiled(new AtLeast("missing.property", 1), false);
+    checkCompiled(new NotEqual("missing.property", 1), false);
+    checkCompiled(new AtLeast("missing.property", 1).not(), true);
+  }
+
+  /** @throws Exception if any error occurs. */
+  @Test(timeout=5000)
+  public void testStringRules() throws Exception {
+    checkCompiled(new Equal("string.4a", true, "STRING4"), true);
+    checkCompiled(new Equal("string.4a", false, "STRING4"), false);
+    checkCompiled(new NotEqual("missing.property", false, "string4"), true);
+    checkCompiled(new Contains("string.5", true, "G1-STR"), true);
+    checkCompiled(new Contains("string.5", false, "G1-STR"), false);
+    checkCompiled(new RegExp("string.5", "string\\d-.*"), true);
+    checkCompiled(new RegExp("missing.property", ".*"), false);
+    checkCompiled(new OneOf("string.4b", true, "string1", "string4"), true);
+    checkCompiled(new OneOf("string.4b", false, "string1", "string4"), false);
+  }
+
+  /** @throws Exception if any error occurs. */
+  @Test(timeout=5000)
+  public void testBooleanRules() throws Exception {
+    checkCompiled(new Equal("boolean.1", true), true);
+    checkCompiled(new Equal("boolean.2", true), false);
+    checkCompiled(new IsMasterNode(), true);
+    checkCompiled(new IsSlaveNode(), false);
+  }
+
+  /** @throws Exception if any error occurs. */
+  @Test(timeout=5000)
+  public void testSlotsAreShared() throws Exception {
+    final ExecutionPolicy policy = new AtLeast("int.2", 1).and(new AtMost("int.2", 5), new OneOf("int.2", 2, 3), new NotEqual("int.3", 4));
+    final CompiledPolicy compiled = checkCompiled(policy, true);
+    assertEquals(2, compiled.getNbSlots());
+  }
+
+  /**
+   * Test that the rules that are not compiled, such as rules with non-literal expressions and custom policies, are evaluated by the original policy.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000)
+  public void testFallback() throws Exception {
+    checkCompiled(new AtLeast("int.10", "${int.3}").and(new Equal("int.1", 1)), true);
+    checkCompiled(new MoreThan("int.10", "${int.3}"), true);
+    checkCompiled(new Equal("string.4a", true, "${string.4b}"), true);
+    checkCompiled(new Preference(falsePolicy1, truePolicy2), true);
+    checkCompiled(new TestCustomPolicy().or(truePolicy1), true);
+    checkCompiled(new TestCustomPolicy().and(truePolicy1), false);
+  }
+
+  /**
+   * Test that a compiled policy reflects the changes in the properties it is evaluated against.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000)
+  public void testDifferentProperties() throws Exception {
+    final CompiledPolicy compiled = CompiledPolicy.compile(new AtLeast("compiled.threads", 4).and(new Contains("compiled.os", true, "linux")));
+    systemInfo.addProperties("compiled", new TypedProperties().setInt("compiled.threads", 8).setString("compiled.os", "Linux"));
+    assertTrue(compiled.evaluate(systemInfo));
+    systemInfo.addProperties("compiled", new TypedProperties().setInt("compiled.threads", 2).setString("compiled.os", "Linux"));
+    assertFalse(compiled.evaluate(systemInfo));
+    systemInfo.addProperties("compiled", new TypedProperties().setInt("compiled.threads", 4).setString("compiled.os", "Windows 10"));
+    assertFalse(compiled.evaluate(systemInfo));
+  }
+
+  /**
+   * Check that the specified execution policy, its compiled form, and the compiled form of the policy parsed from its XML representation
+   * all return the expected result.
+   * @param policy the policy to evaluate.
+   * @param expected the policy's expected return value.
+   * @return the compiled policy.
+   * @throws Exception if any error occurs.
+   */
+  static CompiledPolicy checkCompiled(final ExecutionPolicy policy, final boolean expected) throws Exception {
+    assertEquals(expected, policy.evaluate(systemInfo));
+    final CompiledPolicy compiled = CompiledPolicy.compile(policy);
+    assertSame(policy, compiled.getSource());
+    assertEquals(expected, compiled.evaluate(systemInfo));
+    final ExecutionPolicy[] children = policy.getChildren();
+    if ((children != null) && (children.length > 0) && (children[0] instanceof CustomPolicy)) return compiled;
+    if (!(policy instanceof CustomPolicy)) {
+      final String xml = new StringBuilder("<jppf:ExecutionPolicy xmlns:jppf='http://www.jppf.org/schemas/ExecutionPolicy.xsd'>\n")
+        .append(policy.toString()).append("</jppf:ExecutionPolicy>\n").toString();
+      final ExecutionPolicy parsed = PolicyParser.parsePolicy(xml);
+      assertEquals(expected, CompiledPolicy.compile(parsed).evaluate(systemInfo));
+    }
+    return compiled;
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package test.org.jppf.node.protocol.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.jppf.node.protocol.JobDependencySpec;
+import org.jppf.node.protocol.graph.*;
+import org.jppf.node.protocol.graph.TaskGraph.Node;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Test the computation of bottom levels in task graphs and job dependency graphs, and the selection of the tasks on the critical path.
+ * @author Laurent Cohen
+ */
+public class TestCriticalPath extends BaseTest {
+  /**
+   * Test that the available tasks are selected by decreasing bottom level, and that the bottom levels are updated when a cost hint changes.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testCriticalNodesSelection() throws Exception {
+    // chain 0 <- 1 <- 2 <- 3 with costs 1, task 4 with cost 3, task 6 with cost 2.5 depending on task 5 with cost 2
+    final List<Node> nodes = new ArrayList<>();
+    for (int i=0; i<4; i++) nodes.add(createNode(i, 1d, (i == 0) ? null : nodes.get(i - 1)));
+    nodes.add(createNode(4, 3d, null));
+    nodes.add(createNode(5, 2d, null));
+    nodes.add(createNode(6, 2.5d, nodes.get(5)));
+    final TaskGraph graph = new TaskGraph(nodes);
+    assertEquals(4d, graph.getBottomLevel(0), 0d);
+    assertEquals(3d, graph.getBottomLevel(1), 0d);
+    assertEquals(3d, graph.getBottomLevel(4), 0d);
+    assertEquals(4.5d, graph.getBottomLevel(5), 0d);
+    checkSelection(graph, 3, null, 5, 0, 4);
+    checkSelection(graph, 2, null, 5, 0);
+    checkSelection(graph, 3, Collections.singleton(5), 0, 4);
+    // the increased cost of the last task in the chain propagates to its dependencies
+    graph.setCostHint(3, 5d);
+    assertEquals(8d, graph.getBottomLevel(0), 0d);
+    assertEquals(7d, graph.getBottomLevel(1), 0d);
+    assertEquals(4.5d, graph.getBottomLevel(5), 0d);
+    checkSelection(graph, 3, null, 0, 5, 4);
+    graph.nodeDone(0);
+    checkSelection(graph, 3, null, 1, 5, 4);
+    final TaskGraph copy = roundTrip(graph);
+    for (int pos=0; pos<nodes.size(); pos++) assertEquals(graph.getBottomLevel(pos), copy.getBottomLevel(pos), 0d);
+    checkSelection(copy, 3, null, 1, 5, 4);
+  }
+
+  /**
+   * Test that the measured durations of the tasks calibrate the cost of the tasks without cost hint, relatively to those with a cost hint.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testDurationCalibration() throws Exception {
+    // task 0 with cost 1, chain 1 <- 2 without cost hint, task 3 with cost 1 and task 4 without cost hint
+    final List<Node> nodes = new ArrayList<>();
+    nodes.add(createNode(0, 1d, null));
+    nodes.add(createNode(1, 0d, null));
+    nodes.add(createNode(2, 0d, nodes.get(1)));
+    nodes.add(createNode(3, 1d, null));
+    nodes.add(createNode(4, 0d, null));
+    final TaskGraph graph = new TaskGraph(nodes);
+    // without measured durations, the tasks without hint are assigned the mean cost hint
+    assertEquals(1d, graph.getBottomLevel(0), 0d);
+    assertEquals(2d, graph.getBottomLevel(1), 0d);
+    graph.nodeDone(3, 1_000L);
+    graph.nodeDone(4, 10_000L);
+    // a task without hint now takes as long as 10 units of cost
+    assertEquals(1d, graph.getBottomLevel(0), 0d);
+    assertEquals(20d, graph.getBottomLevel(1), 0d);
+    assertEquals(10d, graph.getBottomLevel(2), 0d);
+    checkSelection(graph, 2, null, 1, 0);
+  }
+
+  /**
+   * Test that when no task has a cost hint, the cost of the tasks is their average measured duration.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testDurationWithoutCostHints() throws Exception {
+    // chain 0 <- 1 and tasks 2 and 3, none of which has a cost hint
+    final List<Node> nodes = new ArrayList<>();
+    nodes.add(createNode(0, 0d, null));
+    nodes.add(createNode(1, 0d, nodes.get(0)));
+    nodes.add(createNode(2, 0d, null));
+    nodes.add(createNode(3, 0d, null));
+    final TaskGraph graph = new TaskGraph(nodes);
+    assertEquals(2d, graph.getBottomLevel(0), 0d);
+    assertEquals(1d, graph.getBottomLevel(2), 0d);
+    graph.nodeDone(3, 5_000L);
+    assertEquals(10_000d, graph.getBottomLevel(0), 0d);
+    assertEquals(5_000d, graph.getBottomLevel(2), 0d);
+    checkSelection(graph, 2, null, 0, 2);
+  }
+
+  /**
+   * Test that the bottom levels of a job dependency graph are updated as jobs are added and their costs are set.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testJobDependencyGraphBottomLevels() throws Exception {
+    final MutableJobDependencyGraph graph = new MutableJobDependencyGraph();
+    graph.addNode(new JobDependencySpec().setId("A").addDependencies("B", "C"), "uuidA");
+    assertEquals(1d, graph.getBottomLevel("uuidA"), 0d);
+    assertEquals(2d, graph.getNode("B").getBottomLevel(), 0d);
+    graph.setJobCost("uuidA", 5d);
+    assertEquals(5d, graph.getBottomLevel("uuidA"), 0d);
+    assertEquals(6d, graph.getNode("B").getBottomLevel(), 0d);
+    assertEquals(6d, graph.getNode("C").getBottomLevel(), 0d);
+    graph.addNode(new JobDependencySpec().setId("B").addDependencies("D"), "uuidB");
+    graph.setJobCost("uuidB", 10d);
+    assertEquals(15d, graph.getBottomLevel("uuidB"), 0d);
+    assertEquals(16d, graph.getNode("D").getBottomLevel(), 0d);
+    assertEquals(6d, graph.getNode("C").getBottomLevel(), 0d);
+    assertEquals(0d, graph.getBottomLevel("unknown-uuid"), 0d);
+    final long version = graph.getBottomLevelsVersion();
+    graph.removeNode("A");
+    assertTrue(graph.getBottomLevelsVersion() != version);
+    assertEquals(0d, graph.getBottomLevel("uuidA"), 0d);
+  }
+
+  /**
+   * Create a node with the specified cost.
+   * @param position the position of the node.
+   * @param cost the cost hint of the node.
+   * @param dependency the only dependency of the node, if any.
+   * @return a new {@link Node}.
+   */
+  private static Node createNode(final int position, final double cost, final Node dependency) {
+    final Node node = new Node(position, false, (dependency == null) ? null : Arrays.asList(dependency));
+    node.setCost(cost);
+    return node;
+  }
+
+  /**
+   * Check the tasks selected for dispatch.
+   * @param graph the graph to select from.
+   * @param max the maximum number of tasks to select.
+   * @param excluded the positions of the tasks to exclude, if any.
+   * @param expected the expected positions, in the expected order.
+   */
+  private static void checkSelection(final TaskGraph graph, final int max, final Set<Integer> excluded, final int...expected) {
+    final int[] selected = new int[max];
+    final int n = graph.selectCriticalNodes(selected, max, (excluded == null) ? null : excluded::contains);
+    assertArrayEquals(expected, Arrays.copyOf(selected, n));
+  }
+
+  /**
+   * Serialize then deserialize the specified graph.
+   * @param graph the graph to copy.
+   * @return a deserialized copy of the graph.
+   * @throws Exception if any error occurs.
+   */
+  private static TaskGraph roundTrip(final TaskGraph graph) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    graph.serialize(out);
+    final TaskGraph copy = new TaskGraph();
+    copy.deserialize(new ByteArrayInputStream(out.toByteArray()));
+    return copy;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.node.protocol.graph;
+
+import static org.junit.Assert.*;
+import static test.org.jppf.test.setup.common.TaskDependenciesHelper.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.jppf.node.protocol.graph.*;
+import org.jppf.node.protocol.graph.TaskGraph.Node;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Test the array-based internals of {@link TaskGraph}: ready set updates, lookup of sparse positions and compact serialization.
+ * @author Laurent Cohen
+ */
+public class TestTaskGraph extends BaseTest {
+  /**
+   * Test the execution of a layered graph, where the tasks in each layer only become available once all the tasks in the next layer are done.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testLayeredGraphExecution() throws Exception {
+    final int nbLayers = 5, tasksPerLayer = 10;
+    final TaskGraph graph = TaskGraphHelper.graphOf(Arrays.asList(createLayeredTasks(nbLayers, tasksPerLayer)));
+    for (int layer=nbLayers-1; layer>=0; layer--) {
+      assertFalse(graph.isDone());
+      assertEquals(tasksPerLayer, graph.getAvailableNodeCount());
+      final Set<Integer> expected = new HashSet<>();
+      for (int i=0; i<tasksPerLayer; i++) expected.add(layer * tasksPerLayer + i);
+      assertEquals(expected, new HashSet<>(graph.getAvailableNodes()));
+      for (final int pos: expected) assertTrue(graph.getAvailableNodes().contains(pos));
+      for (int i=0; i<tasksPerLayer; i++) {
+        final int pos = layer * tasksPerLayer + i;
+        assertEquals(layer > 0, graph.isDependendOn(pos));
+        graph.nodeDone(pos);
+        assertFalse(graph.getAvailableNodes().contains(pos));
+        // the previous layer is only available when the whole layer is done
+        assertEquals((i < tasksPerLayer - 1) ? tasksPerLayer - i - 1 : ((layer > 0) ? tasksPerLayer : 0), graph.getAvailableNodeCount());
+      }
+    }
+    assertTrue(graph.isDone());
+    assertEquals(nbLayers * tasksPerLayer, graph.getDoneCount());
+    // a task that is done more than once is only counted once
+    graph.nodeDone(0);
+    assertEquals(nbLayers * tasksPerLayer, graph.getDoneCount());
+    assertTrue(graph.getAvailableNodes().isEmpty());
+  }
+
+  /**
+   * Test graphs whose positions do not start at 0, or are too sparse to be looked up in a direct index table.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testNonContiguousPositions() throws Exception {
+    for (final int[] positions: new int[][] { { 10, 11, 12, 13 }, { 3, 1_000, 1_000_000, Integer.MAX_VALUE } }) {
+      final TaskGraph graph = createChainGraph(positions);
+      assertNull(graph.nodeAt(0));
+      assertNull(graph.getDependencyPositions(0));
+      assertFalse(graph.isDependendOn(0));
+      for (int i=0; i<positions.length; i++) {
+        final Node node = graph.nodeAt(positions[i]);
+        assertNotNull(node);
+        assertEquals(positions[i], node.getPosition());
+        assertArrayEquals((i == 0) ? new int[0] : new int[] { positions[i - 1] }, graph.getDependencyPositions(positions[i]));
+      }
+      for (int i=0; i<positions.length; i++) {
+        assertEquals(1, graph.getAvailableNodeCount());
+        assertEquals(positions[i], graph.getAvailableNodeAt(0));
+        graph.nodeDone(positions[i]);
+        assertTrue(graph.nodeAt(positions[i]).isDone());
+      }
+      assertTrue(graph.isDone());
+    }
+  }
+
+  /**
+   * Test that a partially executed graph has the same state after serialization and deserialization,
+   * and that the nodes of the deserialized graph resolve their dependencies.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout = 10000L)
+  public void testSerializationOfPartiallyExecutedGraph() throws Exception {
+    final int nbLayers = 4, tasksPerLayer = 8;
+    final TaskGraph graph = TaskGraphHelper.graphOf(Arrays.asList(createLayeredTasks(nbLayers, tasksPerLayer)));
+    final int firstDone = (nbLayers - 1) * tasksPerLayer;
+    for (int i=0; i<tasksPerLayer + 3; i++) graph.nodeDone(firstDone - 3 + i);
+    TaskGraph copy = roundTrip(graph);
+    checkSameState(graph, copy);
+    for (int pos=0; pos<nbLayers * tasksPerLayer; pos++) {
+      final List<Node> deps = copy.nodeAt(pos).getDependencies();
+      final int[] depPositions = new int[deps.size()];
+      for (int i=0; i<depPositions.length; i++) depPositions[i] = deps.get(i).getPosition();
+      assertArrayEquals(graph.getDependencyPositions(pos), depPositions);
+    }
+    assertEquals(graph.topologicalSortDFS(), copy.topologicalSortDFS());
+    copy = roundTrip(new TaskGraph(new ArrayList<Node>()));
+    assertTrue(copy.isDone());
+    assertEquals(0, copy.getAvailableNodeCount());
+  }
+
+  /**
+   * Create a graph where each task depends on the previous one.
+   * @param positions the positions of the tasks.
+   * @return a new {@link TaskGraph}.
+   */
+  private static TaskGraph createChainGraph(final int[] positions) {
+    final List<Node> nodes = new ArrayList<>(positions.length);
+    for (int i=0; i<positions.length; i++) nodes.add(new Node(positions[i], false, (i == 0) ? null : Arrays.asList(nodes.get(i - 1))));
+    return new TaskGraph(nodes);
+  }
+
+  /**
+   * Serialize then deserialize the specified graph.
+   * @param graph the graph to copy.
+   * @return a deserialized copy of the graph.
+   * @throws Exception if any error occurs.
+   */
+  private static TaskGraph roundTrip(final TaskGraph graph) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    graph.serialize(out);
+    final TaskGraph copy = new TaskGraph();
+    copy.deserialize(new ByteArrayInputStream(out.toByteArray()));
+    return copy;
+  }
+
+  /**
+   * Check that the specified graphs have the same state.
+   * @param expected the expected graph.
+   * @param actual the graph to check.
+   */
+  private static void checkSameState(final TaskGraph expected, final TaskGraph actual) {
+    assertEquals(expected.toString(), actual.toString());
+    assertEquals(expected.getDoneCount(), actual.getDoneCount());
+    assertEquals(expected.isDone(), actual.isDone());
+    assertEquals(new HashSet<>(expected.getAvailableNodes()), new HashSet<>(actual.getAvailableNodes()));
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.serialization;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.jppf.serialization.*;
+import org.jppf.utils.JPPFConfiguration;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the class signature dictionary of the JPPF serialization.
+ * @author Laurent Cohen
+ */
+public class TestClassSignatureDictionary extends BaseTest {
+  /**
+   * Test that a graph with many instances of the same classes is preserved by a round trip with the dictionary,
+   * that the output is smaller than without it, and that the stream can be read regardless of the reader's configuration.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testRoundTrip() throws Exception {
+    final List<Item> source = new ArrayList<>();
+    for (int i=0; i<100; i++) source.add(new Item(i, new Item(-i, null)));
+    final byte[] plain = serialize(source, false);
+    final byte[] compact = serialize(source, true);
+    print(false, false, "size without dictionary = %,d, with dictionary = %,d", plain.length, compact.length);
+    assertTrue(compact.length < plain.length);
+    for (final byte[] data: new byte[][] { plain, compact }) {
+      final List<Item> copy = deserialize(data);
+      assertEquals(source.size(), copy.size());
+      for (int i=0; i<source.size(); i++) {
+        assertEquals(i, copy.get(i).value);
+        assertEquals(-i, copy.get(i).next.value);
+        assertSame(TestEnum.TWO, copy.get(i).enumValue);
+        assertSame(Item.class, copy.get(i).type);
+      }
+    }
+  }
+
+  /**
+   * Test that a stream written with a different dictionary is rejected.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testDictionaryMismatch() throws Exception {
+    final byte[] data = serialize(new Item(1, null), true);
+    // corrupt the first byte of the dictionary checksum, which follows the 4 bytes of the header and the varint length byte
+    data[5] ^= 0xFF;
+    try {
+      deserialize(data);
+      fail("a stream with a different dictionary checksum should be rejected");
+    } catch (final IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("dictionary mismatch"));
+    }
+  }
+
+  /**
+   * Serialize the specified object.
+   * @param object the object to serialize.
+   * @param useDictionary whether to use the class signature dictionary.
+   * @return the serialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static byte[] serialize(final Object object, final boolean useDictionary) throws Exception {
+    JPPFConfiguration.set(JPPFProperties.SERIALIZATION_DICTIONARY_ENABLED, useDictionary);
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (final JPPFObjectOutputStream os = new JPPFObjectOutputStream(baos)) {
+      os.writeObject(object);
+    } finally {
+      JPPFConfiguration.remove(JPPFProperties.SERIALIZATION_DICTIONARY_ENABLED);
+    }
+    return baos.toByteArray();
+  }
+
+  /**
+   * Deserialize an object.
+   * @param <T> the type of the object.
+   * @param data the serialized object.
+   * @return the deserialized object.
+   * @throws Exception if any error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T deserialize(final byte[] data) throws Exception {
+    try (final JPPFObjectInputStream is = new JPPFObjectInputStream(new ByteArrayInputStream(data))) {
+      return (T) is.readObject();
+    }
+  }
+
+  /**
+   * An enum used as a field type.
+   */
+  public enum TestEnum {
+    /** First value. */
+    ONE,
+    /** Second value. */
+    TWO
+  }
+
+  /**
+   * A class which references other instances of itself.
+   */
+  public static class Item implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * An int value.
+     */
+    final int value;
+    /**
+     * The next item.
+     */
+    final Item next;
+    /**
+     * An enum value.
+     */
+    final TestEnum enumValue = TestEnum.TWO;
+    /**
+     * A class object.
+     */
+    final Class<?> type = Item.class;
+
+    /**
+     * @param value an int value.
+     * @param next the next item.
+     */
+    public Item(final int value, final Item next) {
+      this.value = value;
+      this.next = next;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.serialization;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.util.*;
+
+import org.jppf.serialization.*;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.stats.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link CompressionSerialization}.
+ * @author Laurent Cohen
+ */
+public class TestCompressionSerialization extends BaseTest {
+  /**
+   * Test that objects are serialized with the configured codec above the size threshold, and without compression below it.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testFixedCodecs() throws Exception {
+    final String small = "small", large = createCompressibleString(100_000);
+    for (final CompressionCodec codec: CompressionCodec.values()) {
+      final CompressionSerialization serialization = create(new TypedProperties()
+        .set(JPPFProperties.COMPRESSION_CODEC, codec.name().toLowerCase())
+        .set(JPPFProperties.COMPRESSION_THRESHOLD, 1024));
+      final JPPFStatistics stats = CompressionSerialization.getStatistics();
+      final double none = count(stats, CompressionCodec.NONE), used = count(stats, codec);
+      assertEquals(small, roundTrip(serialization, small));
+      assertEquals(none + 1d, count(stats, CompressionCodec.NONE), 0d);
+      final byte[] data = serialize(serialization, large);
+      assertEquals(large, deserialize(serialization, data));
+      // with no compression, the small object was counted too
+      assertEquals(used + ((codec == CompressionCodec.NONE) ? 2d : 1d), count(stats, codec), 0d);
+      if (codec != CompressionCodec.NONE) assertTrue(codec + " : " + data.length, data.length < large.length() / 2);
+      // without compression, only the codec id and the raw length precede the raw data
+      else assertEquals(1 + 4 + serialize(serialization.getDelegate(), large).length, data.length);
+      assertEquals(codec, serialization.getCurrentCodec());
+    }
+  }
+
+  /**
+   * Test that the adaptive mode compresses over a slow link and does not compress over a very fast link.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testAdaptiveCodec() throws Exception {
+    final String large = createCompressibleString(100_000);
+    final CompressionSerialization slow = create(new TypedProperties().set(JPPFProperties.COMPRESSION_ADAPTIVE_BANDWIDTH, 1));
+    final CompressionSerialization fast = create(new TypedProperties().set(JPPFProperties.COMPRESSION_ADAPTIVE_BANDWIDTH, Integer.MAX_VALUE));
+    for (int i=0; i<10; i++) {
+      assertEquals(large, roundTrip(slow, large));
+      assertEquals(large, roundTrip(fast, large));
+    }
+    print(false, false, "slow link codec = %s, fast link codec = %s", slow.getCurrentCodec(), fast.getCurrentCodec());
+    assertNotEquals(CompressionCodec.NONE, slow.getCurrentCodec());
+    assertEquals(CompressionCodec.NONE, fast.getCurrentCodec());
+  }
+
+  /**
+   * Create a compression serialization which delegates to the standard Java serialization.
+   * @param config the configuration to use.
+   * @return a new {@link CompressionSerialization}.
+   * @throws Exception if any error occurs.
+   */
+  private static CompressionSerialization create(final TypedProperties config) throws Exception {
+    final CompressionSerialization serialization = new CompressionSerialization(config);
+    final Method m = JPPFCompositeSerialization.class.getDeclaredMethod("delegateTo", JPPFSerialization.class);
+    m.setAccessible(true);
+    m.invoke(serialization, new DefaultJavaSerialization());
+    return serialization;
+  }
+
+  /**
+   * Create a string which compresses well.
+   * @param length the length of the string.
+   * @return the created string.
+   */
+  private static String createCompressibleString(final int length) {
+    final Random rand = new Random(1L);
+    final String[] words = { "job", "task", "node", "driver", "client", "grid", "serialization", "compression" };
+    final StringBuilder sb = new StringBuilder(length + 16);
+    while (sb.length() < length) sb.append(words[rand.nextInt(words.length)]).append(' ');
+    return sb.toString();
+  }
+
+  /**
+   * Get the number of objects serialized with the specified codec.
+   * @param stats the statistics to lookup.
+   * @param codec the codec to lookup.
+   * @return the number of objects.
+   */
+  private static double count(final JPPFStatistics stats, final CompressionCodec codec) {
+    return stats.getSnapshot(codec.getStatisticsLabel()).getTotal();
+  }
+
+  /**
+   * Serialize then deserialize the specified object.
+   * @param serialization the serialization to use.
+   * @param object the object to copy.
+   * @return a copy of the object.
+   * @throws Exception if any error occurs.
+   */
+  private static Object roundTrip(final JPPFSerialization serialization, final Object object) throws Exception {
+    return deserialize(serialization, serialize(serialization, object));
+  }
+
+  /**
+   * Serialize the specified object.
+   * @param serialization the serialization to use.
+   * @param object the object to serialize.
+   * @return the serialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static byte[] serialize(final JPPFSerialization serialization, final Object object) throws Exception {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    serialization.serialize(object, baos);
+    return baos.toByteArray();
+  }
+
+  /**
+   * Deserialize an object.
+   * @param serialization the serialization to use.
+   * @param data the serialized object.
+   * @return the deserialized object.
+   * @throws Exception if any error occurs.
+   */
+  private static Object deserialize(final JPPFSerialization serialization, final byte[] data) throws Exception {
+    return serialization.deserialize(new ByteArrayInputStream(data));
+  }
+}
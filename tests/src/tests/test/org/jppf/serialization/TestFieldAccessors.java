@@ -0,0 +1,169 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package test.org.jppf.serialization;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jppf.serialization.DefaultJPPFSerialization;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the serialization and deserialization of object fields by {@link DefaultJPPFSerialization}.
+ * @author Laurent Cohen
+ */
+public class TestFieldAccessors extends BaseTest {
+  /**
+   * Test that the fields of all kinds, including those of the superclasses, are preserved by a serialization round trip.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testAllFieldTypes() throws Exception {
+    final AllTypes source = new AllTypes(7);
+    source.b = -3;
+    source.s = 1234;
+    source.i = Integer.MIN_VALUE;
+    source.l = Long.MAX_VALUE;
+    source.f = 3.5f;
+    source.d = -0.125d;
+    source.c = '€';
+    source.z = true;
+    source.unit = TimeUnit.SECONDS;
+    source.str = "some string";
+    source.list = new ArrayList<>(Arrays.asList(1, 2, 3));
+    source.ints = new int[] { 4, 5, 6 };
+    source.baseValue = 42L;
+    source.self = source;
+    source.transientValue = "not serialized";
+    final AllTypes copy = roundTrip(source);
+    assertNotSame(source, copy);
+    assertEquals(source.b, copy.b);
+    assertEquals(source.s, copy.s);
+    assertEquals(source.i, copy.i);
+    assertEquals(source.l, copy.l);
+    assertEquals(source.f, copy.f, 0f);
+    assertEquals(source.d, copy.d, 0d);
+    assertEquals(source.c, copy.c);
+    assertEquals(source.z, copy.z);
+    assertSame(TimeUnit.SECONDS, copy.unit);
+    assertEquals(source.str, copy.str);
+    assertEquals(source.list, copy.list);
+    assertArrayEquals(source.ints, copy.ints);
+    assertEquals(7, copy.finalValue);
+    assertEquals(42L, copy.baseValue);
+    assertSame(copy, copy.self);
+    assertNull(copy.transientValue);
+  }
+
+  /**
+   * Test that null values of object and enum fields are preserved by a serialization round trip.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testNullFields() throws Exception {
+    final AllTypes copy = roundTrip(new AllTypes(0));
+    assertNull(copy.unit);
+    assertNull(copy.str);
+    assertNull(copy.list);
+    assertNull(copy.ints);
+    assertNull(copy.self);
+  }
+
+  /**
+   * Serialize then deserialize the specified object.
+   * @param <T> the type of the object.
+   * @param object the object to copy.
+   * @return a copy of the object.
+   * @throws Exception if any error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T roundTrip(final T object) throws Exception {
+    final DefaultJPPFSerialization serialization = new DefaultJPPFSerialization();
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    serialization.serialize(object, baos);
+    return (T) serialization.deserialize(new ByteArrayInputStream(baos.toByteArray()));
+  }
+
+  /**
+   * A superclass with its own fields.
+   */
+  public static class Base implements Serializable {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * A field declared in the superclass.
+     */
+    long baseValue;
+  }
+
+  /**
+   * A class with fields of all kinds.
+   */
+  public static class AllTypes extends Base {
+    /**
+     * Explicit serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+    /** A byte field. */
+    byte b;
+    /** A short field. */
+    short s;
+    /** An int field. */
+    int i;
+    /** A long field. */
+    long l;
+    /** A float field. */
+    float f;
+    /** A double field. */
+    double d;
+    /** A char field. */
+    char c;
+    /** A boolean field. */
+    boolean z;
+    /** An enum field. */
+    TimeUnit unit;
+    /** A string field. */
+    String str;
+    /** A collection field. */
+    List<Integer> list;
+    /** An array field. */
+    int[] ints;
+    /** A final field. */
+    private final int finalValue;
+    /** A reference to this object. */
+    AllTypes self;
+    /** A field which is not serialized. */
+    transient String transientValue;
+
+    /**
+     * @param finalValue the value of the final field.
+     */
+    public AllTypes(final int finalValue) {
+      this.finalValue = finalValue;
+    }
+  }
+}
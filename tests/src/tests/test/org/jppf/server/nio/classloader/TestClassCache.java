@@ -0,0 +1,133 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.nio.classloader;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.management.ClassCacheStatistics;
+import org.jppf.server.nio.classloader.ClassCache;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the driver's {@link ClassCache}.
+ * @author Laurent Cohen
+ */
+public class TestClassCache extends BaseTest {
+  /**
+   * Test that the least recently used entries are evicted when the maximum size is exceeded.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testLRUEviction() throws Exception {
+    final ClassCache cache = new ClassCache(300L, 1);
+    cache.setCacheContent("uuid", "r1", new byte[100]);
+    cache.setCacheContent("uuid", "r2", new byte[100]);
+    cache.setCacheContent("uuid", "r3", new byte[100]);
+    // r1 becomes the most recently used entry, r2 is now the eldest
+    assertNotNull(cache.getCacheContent("uuid", "r1"));
+    cache.setCacheContent("uuid", "r4", new byte[100]);
+    assertNull(cache.getCacheContent("uuid", "r2"));
+    for (final String name: new String[] { "r1", "r3", "r4" }) assertNotNull(cache.getCacheContent("uuid", name));
+    final ClassCacheStatistics stats = cache.getStatistics();
+    assertEquals(1L, stats.getEvictions());
+    assertEquals(3, stats.getEntries());
+    assertEquals(300L, stats.getSize());
+    assertEquals(5L, stats.getLookups());
+    assertEquals(4L, stats.getHits());
+    assertEquals(1L, stats.getMisses());
+    // an entry larger than the cache is not cached
+    cache.setCacheContent("uuid", "big", new byte[301]);
+    assertNull(cache.getCacheContent("uuid", "big"));
+    // an oversized replacement removes the existing entry, which would otherwise be stale
+    cache.setCacheContent("uuid", "r4", new byte[301]);
+    assertNull(cache.getCacheContent("uuid", "r4"));
+    cache.resetStatistics();
+    final ClassCacheStatistics stats2 = cache.getStatistics();
+    assertEquals(0L, stats2.getLookups());
+    assertEquals(0L, stats2.getEvictions());
+    assertEquals(200L, stats2.getSize());
+    assertEquals(2, stats2.getEntries());
+  }
+
+  /**
+   * Test the accounting of the cached size per resource provider uuid, including when entries are replaced or evicted.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testSizePerUuid() throws Exception {
+    final ClassCache cache = new ClassCache(1000L, 1);
+    cache.setCacheContent("uuid1", "r1", new byte[100]);
+    cache.setCacheContent("uuid1", "r2", new byte[200]);
+    cache.setCacheContent("uuid2", "r1", new byte[300]);
+    Map<String, Long> sizes = cache.getStatistics().getSizePerUuid();
+    assertEquals(300L, sizes.get("uuid1").longValue());
+    assertEquals(300L, sizes.get("uuid2").longValue());
+    cache.setCacheContent("uuid1", "r2", new byte[50]);
+    assertEquals(150L, cache.getStatistics().getSizePerUuid().get("uuid1").longValue());
+    // the replaced entry is now the most recently used, so [uuid1, r1] and [uuid2, r1] are evicted
+    cache.setCacheContent("uuid2", "r2", new byte[700]);
+    sizes = cache.getStatistics().getSizePerUuid();
+    assertEquals(50L, sizes.get("uuid1").longValue());
+    assertEquals(700L, sizes.get("uuid2").longValue());
+    assertEquals(2L, cache.getStatistics().getEvictions());
+    // evicts the last entry of uuid1, which is then no longer accounted for
+    cache.setCacheContent("uuid2", "r3", new byte[300]);
+    assertFalse(cache.getStatistics().getSizePerUuid().containsKey("uuid1"));
+  }
+
+  /**
+   * Test that concurrent updates and lookups keep the cache within its bound and its accounting consistent.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=15000L)
+  public void testConcurrentAccess() throws Exception {
+    final long maxSize = 16L * 10_000L;
+    final ClassCache cache = new ClassCache(maxSize, 16);
+    final int nbThreads = 8, nbOps = 20_000;
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i=0; i<nbThreads; i++) {
+        final String uuid = "uuid" + (i % 3);
+        futures.add(executor.submit(() -> {
+          final Random rand = new Random(uuid.hashCode());
+          for (int j=0; j<nbOps; j++) {
+            final String name = "r" + rand.nextInt(500);
+            if (cache.getCacheContent(uuid, name) == null) cache.setCacheContent(uuid, name, new byte[100 + rand.nextInt(900)]);
+          }
+        }));
+      }
+      for (final Future<?> f: futures) f.get();
+    } finally {
+      executor.shutdownNow();
+    }
+    final ClassCacheStatistics stats = cache.getStatistics();
+    assertEquals((long) nbThreads * nbOps, stats.getLookups());
+    assertTrue(stats.getSize() <= maxSize);
+    assertTrue(stats.getEvictions() > 0L);
+    long total = 0L;
+    for (final long size: stats.getSizePerUuid().values()) total += size;
+    assertEquals(stats.getSize(), total);
+  }
+}
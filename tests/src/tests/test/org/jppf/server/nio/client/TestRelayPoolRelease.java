@@ -0,0 +1,150 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.nio.client;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.nio.client.JobEntry;
+import org.jppf.server.protocol.*;
+import org.jppf.utils.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Test that the pooled buffers into which the driver reads the tasks and data provider of a client job are given back to the pool when the job ends.
+ * @author Laurent Cohen
+ */
+public class TestRelayPoolRelease extends BaseTest {
+  /**
+   * Holds the strategies used to send the results back to the client.
+   */
+  private static final SendResultsStrategyManager strategyManager = new SendResultsStrategyManager(new TypedProperties());
+  /**
+   * Size of the buffers in the pools used by these tests.
+   */
+  private static final int SEGMENT_SIZE = 1024;
+
+  /**
+   * Test that all the pooled buffers are released once the results of a completed job are sent to the client.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testJobCompletion() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(64L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final ServerTaskBundleClient bundle = createBundle(pool, 10);
+    assertEquals(11L * SEGMENT_SIZE, pool.getUsedSize());
+    // simulate the dispatch to a node: each write works on its own copy, which it releases when done
+    final List<DataLocation> written = new ArrayList<>();
+    written.add(bundle.getDataProvider().copy());
+    for (final ServerTask task: bundle.getTaskList()) written.add(task.getInitialTask().copy());
+    for (final DataLocation location: written) location.release();
+    assertEquals(11L * SEGMENT_SIZE, pool.getUsedSize());
+    for (final ServerTask task: bundle.getTaskList()) task.resultReceived(new MultipleBuffersLocation(new byte[] { (byte) task.getPosition() }));
+    bundle.resultReceived(new ArrayList<>(bundle.getTaskList()));
+    assertTrue(bundle.isDone());
+    jobEnded(bundle);
+    assertEquals(0L, pool.getUsedSize());
+    // the job's data cannot be relayed anymore
+    try {
+      bundle.getDataProvider().copy();
+      fail("a released data location should not be copied");
+    } catch (@SuppressWarnings("unused") final IllegalStateException ignore) {
+    }
+  }
+
+  /**
+   * Test that all the pooled buffers are released after a job is cancelled, once the copies still being written to the nodes are released.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testJobCancellation() throws Exception {
+    final OffHeapMemoryPool pool = new OffHeapMemoryPool(64L * SEGMENT_SIZE, SEGMENT_SIZE);
+    final ServerTaskBundleClient bundle = createBundle(pool, 10);
+    final DataLocation inFlight = bundle.getTaskList().get(0).getInitialTask().copy();
+    bundle.cancel();
+    assertTrue(bundle.isCancelled());
+    // the cancelled tasks are sent back to the client as they were received
+    jobEnded(bundle);
+    assertEquals(SEGMENT_SIZE, pool.getUsedSize());
+    inFlight.release();
+    assertEquals(0L, pool.getUsedSize());
+  }
+
+  /**
+   * Notify that all the results of the specified bundle were sent to the client.
+   * @param bundle the bundle received from the client.
+   * @throws Exception if any error occurs.
+   */
+  private static void jobEnded(final ServerTaskBundleClient bundle) throws Exception {
+    final Constructor<JobEntry> constructor = JobEntry.class.getDeclaredConstructor(ServerTaskBundleClient.class);
+    constructor.setAccessible(true);
+    final JobEntry entry = constructor.newInstance(bundle);
+    final Method method = JobEntry.class.getDeclaredMethod("jobEnded");
+    method.setAccessible(true);
+    method.invoke(entry);
+  }
+
+  /**
+   * Create a client bundle whose data provider and tasks are held in buffers from the specified pool.
+   * @param pool the pool from which to acquire the buffers.
+   * @param nbTasks the number of tasks in the job.
+   * @return a new {@link ServerTaskBundleClient}.
+   * @throws Exception if any error occurs.
+   */
+  private static ServerTaskBundleClient createBundle(final OffHeapMemoryPool pool, final int nbTasks) throws Exception {
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setName("relay");
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setTaskCount(nbTasks);
+    header.setInitialTaskCount(nbTasks);
+    header.setSLA(new JobSLA());
+    header.setMetadata(new JPPFJobMetadata());
+    final int[] positions = new int[nbTasks];
+    final List<DataLocation> tasks = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) {
+      positions[i] = i;
+      tasks.add(createLocation(pool, 100 + i));
+    }
+    header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+    return new ServerTaskBundleClient(header, createLocation(pool, 10), tasks, false, strategyManager);
+  }
+
+  /**
+   * Create a data location of the specified size, backed by buffers from the specified pool.
+   * @param pool the pool from which to acquire the buffers.
+   * @param size the size of the data.
+   * @return a new {@link DataLocation}.
+   * @throws Exception if any error occurs.
+   */
+  private static DataLocation createLocation(final OffHeapMemoryPool pool, final int size) throws Exception {
+    final DataLocation location = OffHeapDataLocation.create(pool, size);
+    assertNotNull(location);
+    try (final OutputStream os = location.getOutputStream()) {
+      os.write(new byte[size]);
+    }
+    return location;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.nio.nodeserver;
+
+import static org.junit.Assert.*;
+
+import org.jppf.node.protocol.*;
+import org.jppf.server.nio.nodeserver.*;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link NodeAffinity} and {@link AffinityNodeChannelSelector}.
+ * @author Laurent Cohen
+ */
+public class TestAffinityNodeChannelSelector extends BaseTest {
+  /**
+   * Test that the warm clients of a node follow the eviction policy of the node's class loader cache.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testWarmClients() throws Exception {
+    final NodeAffinity affinity = new NodeAffinity();
+    affinity.setClassLoaderCacheSize(2);
+    assertFalse(affinity.isWarm("client1"));
+    assertFalse(affinity.isWarm(null));
+    affinity.jobDispatched("client1");
+    affinity.jobDispatched("client2");
+    assertTrue(affinity.isWarm("client1"));
+    assertTrue(affinity.isWarm("client2"));
+    // client1 becomes the most recently used
+    affinity.jobDispatched("client1");
+    affinity.jobDispatched("client3");
+    assertTrue(affinity.isWarm("client1"));
+    assertFalse(affinity.isWarm("client2"));
+    assertTrue(affinity.isWarm("client3"));
+    affinity.setClassLoaderCacheSize(1);
+    assertFalse(affinity.isWarm("client1"));
+    assertTrue(affinity.isWarm("client3"));
+  }
+
+  /**
+   * Test the computation of the time per task of a job on a node.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testTimePerTask() throws Exception {
+    final NodeAffinity affinity = new NodeAffinity();
+    assertTrue(affinity.getTimePerTask("job1") < 0d);
+    affinity.resultsReceived("job1", 10, 1000L);
+    assertEquals(100d, affinity.getTimePerTask("job1"), 1e-9);
+    affinity.resultsReceived("job1", 10, 2000L);
+    final double time = affinity.getTimePerTask("job1");
+    assertTrue(time > 100d);
+    assertTrue(time < 200d);
+    // invalid samples are ignored
+    affinity.resultsReceived("job1", 0, 2000L);
+    assertEquals(time, affinity.getTimePerTask("job1"), 1e-9);
+    assertTrue(affinity.getTimePerTask("job2") < 0d);
+  }
+
+  /**
+   * Test the scores of nodes which differ by a single criterion.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testScores() throws Exception {
+    final AffinityNodeChannelSelector selector = new AffinityNodeChannelSelector(1d, 1d, 0.5d);
+    final NodeAffinity cold = new NodeAffinity(), warm = new NodeAffinity();
+    warm.jobDispatched("client");
+    assertTrue(selector.score(warm, "client", "job", -1d, 0, 1) > selector.score(cold, "client", "job", -1d, 0, 1));
+    // a node that is warm for another client has no advantage
+    assertEquals(selector.score(cold, "client", "job", -1d, 0, 1), selector.score(warm, "other", "job", -1d, 0, 1), 1e-9);
+    final NodeAffinity fast = new NodeAffinity(), slow = new NodeAffinity();
+    fast.resultsReceived("job", 10, 1000L);
+    slow.resultsReceived("job", 10, 4000L);
+    final double best = fast.getTimePerTask("job");
+    assertTrue(selector.score(fast, "client", "job", best, 0, 1) > selector.score(slow, "client", "job", best, 0, 1));
+    // a node on which the job never ran scores between the fastest and the slowest nodes
+    final double unknown = selector.score(cold, "client", "job", best, 0, 1);
+    assertTrue(unknown < selector.score(fast, "client", "job", best, 0, 1));
+    assertTrue(unknown > selector.score(slow, "client", "job", best, 0, 1));
+    // the more jobs a node is executing, the lower its score
+    assertTrue(selector.score(cold, "client", "job", -1d, 0, 4) > selector.score(cold, "client", "job", -1d, 3, 4));
+  }
+
+  /**
+   * Test the uuid of the client is the first element in the uuid path of the job.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=5000L)
+  public void testClientUuid() throws Exception {
+    final TaskBundle header = new JPPFTaskBundle();
+    assertNull(AffinityNodeChannelSelector.getClientUuid(header));
+    header.getUuidPath().add("client");
+    header.getUuidPath().add("driver");
+    assertEquals("client", AffinityNodeChannelSelector.getClientUuid(header));
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package test.org.jppf.server.nio.nodeserver;
+
+import static org.junit.Assert.*;
+
+import org.jppf.load.balancer.impl.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.nio.nodeserver.JobBundlerCache;
+import org.jppf.utils.TypedProperties;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for {@link JobBundlerCache}.
+ * @author Laurent Cohen
+ */
+public class TestJobBundlerCache extends BaseTest {
+  /**
+   * Test the computation of the job signatures from the job names and metadata.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testSignature() throws Exception {
+    JobBundlerCache cache = new JobBundlerCache(new TypedProperties());
+    assertEquals("my job 1", cache.getSignature(createJob("my job 1", null)));
+    assertNull(cache.getSignature(null));
+    cache = new JobBundlerCache(new TypedProperties().set(JPPFProperties.LOAD_BALANCING_JOB_SIGNATURE, "(.*)-\\d+"));
+    assertEquals("render", cache.getSignature(createJob("render-1", null)));
+    assertEquals("render", cache.getSignature(createJob("render-22", null)));
+    assertEquals("encode", cache.getSignature(createJob("encode-3", null)));
+    assertNull(cache.getSignature(createJob("no match", null)));
+    assertEquals("explicit", cache.getSignature(createJob("no match", "explicit")));
+    cache = new JobBundlerCache(new TypedProperties().set(JPPFProperties.LOAD_BALANCING_JOB_SIGNATURE, "[a-z]+"));
+    assertEquals("render", cache.getSignature(createJob("render", null)));
+  }
+
+  /**
+   * Test that the least recently used bundler is evicted and disposed when the cache is full.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testEviction() throws Exception {
+    final JobBundlerCache cache = new JobBundlerCache(new TypedProperties().set(JPPFProperties.LOAD_BALANCING_JOB_MAX_STATES, 2));
+    final MyBundler b1 = new MyBundler(), b2 = new MyBundler(), b3 = new MyBundler();
+    cache.put("a", new JobBundlerCache.JobBundlerEntry(null, "manual", b1));
+    cache.put("b", new JobBundlerCache.JobBundlerEntry(null, "manual", b2));
+    // "a" becomes the most recently used
+    assertSame(b1, cache.get("a").getBundler());
+    cache.put("c", new JobBundlerCache.JobBundlerEntry(null, "manual", b3));
+    assertEquals(2, cache.size());
+    assertNull(cache.get("b"));
+    assertTrue(b2.disposed);
+    assertFalse(b1.disposed);
+    assertSame(b1, cache.get("a").getBundler());
+    assertSame(b3, cache.get("c").getBundler());
+    // replacing a bundler disposes the previous one
+    final MyBundler b4 = new MyBundler();
+    cache.put("a", new JobBundlerCache.JobBundlerEntry(null, "manual", b4));
+    assertTrue(b1.disposed);
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertTrue(b3.disposed);
+    assertTrue(b4.disposed);
+  }
+
+  /**
+   * Create a job header with the specified name.
+   * @param name the name of the job.
+   * @param signature the explicit signature of the job, if any.
+   * @return a {@link TaskBundle} instance.
+   */
+  private static TaskBundle createJob(final String name, final String signature) {
+    final TaskBundle job = new JPPFTaskBundle();
+    job.setName(name);
+    final JobMetadata metadata = new JPPFJobMetadata();
+    if (signature != null) metadata.setParameter(JobBundlerCache.SIGNATURE_METADATA, signature);
+    job.setMetadata(metadata);
+    return job;
+  }
+
+  /**
+   * A bundler which records whether it was disposed.
+   */
+  private static class MyBundler extends FixedSizeBundler {
+    /**
+     * Whether this bundler was disposed.
+     */
+    boolean disposed;
+
+    /**
+     * Initialize with a bundle size of 1.
+     */
+    MyBundler() {
+      super(new FixedSizeProfile(new TypedProperties()));
+    }
+
+    @Override
+    public void dispose() {
+      disposed = true;
+    }
+  }
+}
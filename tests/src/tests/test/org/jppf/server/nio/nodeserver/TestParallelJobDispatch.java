@@ -0,0 +1,225 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.nio.nodeserver;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.execute.ExecutorStatus;
+import org.jppf.io.*;
+import org.jppf.management.JPPFSystemInformation;
+import org.jppf.node.protocol.*;
+import org.jppf.server.*;
+import org.jppf.server.job.JPPFJobManager;
+import org.jppf.server.nio.nodeserver.*;
+import org.jppf.server.nio.nodeserver.async.*;
+import org.jppf.server.protocol.*;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the dispatch of jobs to the nodes by multiple threads.
+ * @author Laurent Cohen
+ */
+public class TestParallelJobDispatch extends BaseTest {
+  /**
+   * The number of nodes.
+   */
+  private static final int NB_NODES = 4;
+  /**
+   * The maximum number of concurrent jobs for each node.
+   */
+  private static final int MAX_JOBS = 3;
+  /**
+   * The driver, which is not started.
+   */
+  private static JPPFDriver driver;
+  /**
+   * The queue which holds the jobs.
+   */
+  private static JPPFPriorityQueue queue;
+  /**
+   * The node server which holds the job scheduler.
+   */
+  private static AsyncNodeNioServer server;
+
+  /**
+   * Create the driver components needed by the job scheduler.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    final TypedProperties config = new TypedProperties()
+      .set(JPPFProperties.JOB_SCHEDULER_THREADS, 4)
+      .set(JPPFProperties.LOCAL_NODE_BIAS, false)
+      .set(JPPFProperties.LOAD_BALANCING_ALGORITHM, "manual");
+    // the node selector hook is looked up in the global configuration
+    JPPFConfiguration.set(JPPFProperties.JOB_SCHEDULER_NODE_SELECTOR, SlowNodeSelector.class.getName());
+    driver = new JPPFDriver(config);
+    queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+    // the driver is not started, so its components must be set explicitly
+    setField("taskQueue", queue);
+    setField("initializer", new DriverInitializer(driver, config));
+    setField("systemInformation", new JPPFSystemInformation(config, driver.getUuid(), false, true, driver.getStatistics()));
+    server = new AsyncNodeNioServer(driver, JPPFIdentifiers.NODE_JOB_DATA_CHANNEL, false);
+    // the scheduler's own thread is stopped, so only this test dispatches the jobs
+    server.getJobScheduler().setStopped(true);
+    server.getJobScheduler().wakeUp();
+  }
+
+  /**
+   * Close the queue and reset the configuration.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    if (server != null) server.shutdown();
+    if (queue != null) queue.close();
+    JPPFConfiguration.remove(JPPFProperties.JOB_SCHEDULER_NODE_SELECTOR);
+  }
+
+  /**
+   * Test that concurrent dispatching threads never dispatch more jobs to a node than its maximum number of concurrent jobs.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=15000L)
+  public void testMaxJobsPerNode() throws Exception {
+    final AsyncJobScheduler scheduler = server.getJobScheduler();
+    final List<TestNodeContext> nodes = new ArrayList<>(NB_NODES);
+    for (int i=0; i<NB_NODES; i++) {
+      final TestNodeContext node = new TestNodeContext(server, "node-" + i, MAX_JOBS);
+      nodes.add(node);
+      scheduler.addIdleChannel(node);
+    }
+    while (scheduler.getIdleChannels().size() < NB_NODES) Thread.sleep(10L);
+    // twice as many jobs as the total capacity of the nodes
+    final int nbJobs = 2 * NB_NODES * MAX_JOBS;
+    final List<ServerJob> jobs = new ArrayList<>(nbJobs);
+    for (int i=0; i<nbJobs; i++) jobs.add(queue.addBundle(createBundle("job-" + i)));
+    final Method dispatch = scheduler.getClass().getDeclaredMethod("dispatch");
+    dispatch.setAccessible(true);
+    while ((Boolean) dispatch.invoke(scheduler));
+    int total = 0;
+    for (final TestNodeContext node: nodes) {
+      assertTrue(node + " : " + node.maxObservedJobs.get(), node.maxObservedJobs.get() <= MAX_JOBS);
+      assertEquals(MAX_JOBS, node.getCurrentNbJobs());
+      total += node.getCurrentNbJobs();
+    }
+    assertEquals(NB_NODES * MAX_JOBS, total);
+    int dispatched = 0;
+    for (final ServerJob job: jobs) {
+      if (job.getTaskCount() == 0) dispatched++;
+      queue.removeBundle(job);
+    }
+    assertEquals(NB_NODES * MAX_JOBS, dispatched);
+  }
+
+  /**
+   * Set the value of a field of the driver.
+   * @param name the name of the field.
+   * @param value the value to set.
+   * @throws Exception if any error occurs.
+   */
+  private static void setField(final String name, final Object value) throws Exception {
+    final Field field = JPPFDriver.class.getSuperclass().getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(driver, value);
+  }
+
+  /**
+   * Create a client bundle for a new job with a single task.
+   * @param name the name of the job.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name) {
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setName(name);
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setTaskCount(1);
+    header.setInitialTaskCount(1);
+    header.setSLA(new JobSLA());
+    header.setMetadata(new JPPFJobMetadata());
+    header.setParameter(BundleParameter.TASK_POSITIONS, new int[] { 0 });
+    final List<DataLocation> tasks = Collections.<DataLocation>singletonList(new MultipleBuffersLocation(new byte[] { 0 }));
+    return new ServerTaskBundleClient(header, new MultipleBuffersLocation(new byte[0]), tasks, false, driver.getSendResultsStrategyManager());
+  }
+
+  /**
+   * A node channel which records the dispatched jobs without sending them.
+   */
+  private static class TestNodeContext extends AsyncNodeContext {
+    /**
+     * The highest number of concurrent jobs observed on this node.
+     */
+    final AtomicInteger maxObservedJobs = new AtomicInteger();
+
+    /**
+     * Initialize this channel.
+     * @param server the server that handles this channel.
+     * @param uuid the node uuid.
+     * @param maxJobs the maximum number of concurrent jobs for this channel.
+     */
+    TestNodeContext(final AsyncNodeNioServer server, final String uuid, final int maxJobs) {
+      super(server, null, true);
+      setUuid(uuid);
+      setMaxJobs(maxJobs);
+      setNodeInfo(new JPPFSystemInformation(new TypedProperties(), uuid, true, false), false);
+      setExecutionStatus(ExecutorStatus.ACTIVE);
+    }
+
+    @Override
+    public Future<?> submit(final ServerTaskBundleNode nodeBundle) throws Exception {
+      addJobEntry(nodeBundle);
+      nodeBundle.setChannel(this);
+      final int nbJobs = getCurrentNbJobs();
+      maxObservedJobs.accumulateAndGet(nbJobs, Math::max);
+      return new CompletableFuture<>();
+    }
+  }
+
+  /**
+   * Always selects the node with the lowest uuid, so that all dispatching threads compete for the same node,
+   * and waits for a varying time before returning, so that a thread may claim the node after another thread has dispatched to it.
+   */
+  public static class SlowNodeSelector implements NodeChannelSelector {
+    /**
+     * Used to vary the time to wait.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public BaseNodeContext select(final ServerJob job, final List<BaseNodeContext> candidates) {
+      final BaseNodeContext node = Collections.min(candidates, Comparator.comparing(BaseNodeContext::getUuid));
+      try {
+        Thread.sleep(5L * (count.incrementAndGet() % 4));
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return node;
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.nio.nodeserver;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.execute.ExecutorStatus;
+import org.jppf.io.*;
+import org.jppf.management.JPPFSystemInformation;
+import org.jppf.node.policy.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.*;
+import org.jppf.server.job.JPPFJobManager;
+import org.jppf.server.nio.nodeserver.async.*;
+import org.jppf.server.protocol.*;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.jppf.utils.stats.*;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the cache of execution policy results in the job scheduler.
+ * @author Laurent Cohen
+ */
+public class TestPolicyResultCache extends BaseTest {
+  /**
+   * The driver, which is not started.
+   */
+  private static JPPFDriver driver;
+  /**
+   * The queue which holds the jobs.
+   */
+  private static JPPFPriorityQueue queue;
+  /**
+   * The node server which holds the job scheduler.
+   */
+  private static AsyncNodeNioServer server;
+  /**
+   * The job scheduler.
+   */
+  private static AsyncJobScheduler scheduler;
+  /**
+   * The cache of execution policy results.
+   */
+  private static Object policyCache;
+
+  /**
+   * Create the driver components needed by the job scheduler.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    final TypedProperties config = new TypedProperties()
+      .set(JPPFProperties.LOCAL_NODE_BIAS, false)
+      .set(JPPFProperties.LOAD_BALANCING_ALGORITHM, "manual");
+    driver = new JPPFDriver(config);
+    queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+    // the driver is not started, so its components must be set explicitly
+    setField("taskQueue", queue);
+    setField("initializer", new DriverInitializer(driver, config));
+    setField("systemInformation", new JPPFSystemInformation(config, driver.getUuid(), false, true, driver.getStatistics()));
+    server = new AsyncNodeNioServer(driver, JPPFIdentifiers.NODE_JOB_DATA_CHANNEL, false);
+    scheduler = server.getJobScheduler();
+    // the scheduler's own thread is stopped, so only this test dispatches the jobs
+    scheduler.setStopped(true);
+    scheduler.wakeUp();
+    policyCache = invoke(scheduler, scheduler.getClass().getSuperclass().getDeclaredMethod("getPolicyCache"));
+  }
+
+  /**
+   * Close the queue.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    if (server != null) server.shutdown();
+    if (queue != null) queue.close();
+  }
+
+  /**
+   * Test that the cached policy results of a node are still used after a job was dispatched to the node and returned.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=15000L)
+  public void testCachedResultsSurviveDispatchCycle() throws Exception {
+    final TestNodeContext node = new TestNodeContext(server, "node-1");
+    scheduler.addIdleChannel(node);
+    waitForIdleChannels(1);
+    updateStatistics();
+    final ServerJob job1 = queue.addBundle(createBundle("job-1", new Equal("jppf.channel.local", true)));
+    assertTrue(dispatch());
+    assertEquals(1, node.getCurrentNbJobs());
+    // what the node server does when the node becomes busy, then when the job returns
+    scheduler.removeIdleChannelAsync(node);
+    waitForIdleChannels(0);
+    node.removeJobEntry(job1.getUuid(), node.bundle.getId());
+    scheduler.addIdleChannel(node);
+    waitForIdleChannels(1);
+    // an identical policy in another job has the same fingerprint
+    final ServerJob job2 = queue.addBundle(createBundle("job-2", new Equal("jppf.channel.local", true)));
+    assertTrue(dispatch());
+    assertEquals(1, node.getCurrentNbJobs());
+    assertEquals(job2.getUuid(), node.bundle.getJob().getUuid());
+    final JPPFStatistics stats = updateStatistics();
+    assertEquals(1d, stats.getSnapshot(JPPFStatisticsHelper.POLICY_CACHE_MISSES).getTotal(), 0d);
+    assertEquals(1d, stats.getSnapshot(JPPFStatisticsHelper.POLICY_CACHE_HITS).getTotal(), 0d);
+    scheduler.removeIdleChannelAsync(node);
+    waitForIdleChannels(0);
+    queue.removeBundle(job1);
+    queue.removeBundle(job2);
+  }
+
+  /**
+   * Test that the result of a policy which references the {@code jppf.node.idle} property follows the idle state of the node.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=15000L)
+  public void testIdleDependentPolicy() throws Exception {
+    final Method evaluate = policyCache.getClass().getDeclaredMethod("evaluate", ExecutionPolicy.class, ServerJob.class, String.class, JPPFSystemInformation.class, int.class);
+    final JPPFSystemInformation info = new JPPFSystemInformation(new TypedProperties(), "node-2", true, false);
+    final ExecutionPolicy policy = new Equal(JPPFProperties.NODE_IDLE.getName(), true);
+    updateStatistics();
+    info.getJppf().set(JPPFProperties.NODE_IDLE, true);
+    assertTrue((Boolean) invoke(policyCache, evaluate, policy, null, "node-2", info, 0));
+    info.getJppf().set(JPPFProperties.NODE_IDLE, false);
+    assertFalse((Boolean) invoke(policyCache, evaluate, policy, null, "node-2", info, 0));
+    info.getJppf().set(JPPFProperties.NODE_IDLE, true);
+    assertTrue((Boolean) invoke(policyCache, evaluate, policy, null, "node-2", info, 0));
+    final JPPFStatistics stats = updateStatistics();
+    assertEquals(2d, stats.getSnapshot(JPPFStatisticsHelper.POLICY_CACHE_MISSES).getTotal(), 0d);
+    assertEquals(1d, stats.getSnapshot(JPPFStatisticsHelper.POLICY_CACHE_HITS).getTotal(), 0d);
+  }
+
+  /**
+   * Invoke the scheduler's dispatch method.
+   * @return whether a job was dispatched.
+   * @throws Exception if any error occurs.
+   */
+  private static boolean dispatch() throws Exception {
+    return (Boolean) invoke(scheduler, scheduler.getClass().getDeclaredMethod("dispatch"));
+  }
+
+  /**
+   * Wait until the scheduler has the specified number of idle channels.
+   * @param nbChannels the expected number of idle channels.
+   * @throws Exception if any error occurs.
+   */
+  private static void waitForIdleChannels(final int nbChannels) throws Exception {
+    while (scheduler.getIdleChannels().size() != nbChannels) Thread.sleep(10L);
+  }
+
+  /**
+   * Reset the driver statistics, then add the hits and misses accumulated by the policy cache since the last call.
+   * @return the driver statistics.
+   * @throws Exception if any error occurs.
+   */
+  private static JPPFStatistics updateStatistics() throws Exception {
+    final JPPFStatistics stats = driver.getStatistics();
+    stats.reset();
+    invoke(policyCache, policyCache.getClass().getDeclaredMethod("updateStatistics", JPPFStatistics.class), stats);
+    return stats;
+  }
+
+  /**
+   * Invoke a non-public method.
+   * @param target the object on which to invoke the method.
+   * @param method the method to invoke.
+   * @param args the arguments of the method.
+   * @return the value returned by the method.
+   * @throws Exception if any error occurs.
+   */
+  private static Object invoke(final Object target, final Method method, final Object...args) throws Exception {
+    method.setAccessible(true);
+    return method.invoke(target, args);
+  }
+
+  /**
+   * Set the value of a field of the driver.
+   * @param name the name of the field.
+   * @param value the value to set.
+   * @throws Exception if any error occurs.
+   */
+  private static void setField(final String name, final Object value) throws Exception {
+    final Field field = JPPFDriver.class.getSuperclass().getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(driver, value);
+  }
+
+  /**
+   * Create a client bundle for a new job with a single task.
+   * @param name the name of the job.
+   * @param policy the job's execution policy.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name, final ExecutionPolicy policy) {
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setName(name);
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setTaskCount(1);
+    header.setInitialTaskCount(1);
+    header.setSLA(new JobSLA().setExecutionPolicy(policy));
+    header.setMetadata(new JPPFJobMetadata());
+    header.setParameter(BundleParameter.TASK_POSITIONS, new int[] { 0 });
+    final List<DataLocation> tasks = Collections.<DataLocation>singletonList(new MultipleBuffersLocation(new byte[] { 0 }));
+    return new ServerTaskBundleClient(header, new MultipleBuffersLocation(new byte[0]), tasks, false, driver.getSendResultsStrategyManager());
+  }
+
+  /**
+   * A node channel which records the dispatched jobs without sending them.
+   */
+  private static class TestNodeContext extends AsyncNodeContext {
+    /**
+     * The last bundle dispatched to this node.
+     */
+    ServerTaskBundleNode bundle;
+
+    /**
+     * Initialize this channel.
+     * @param server the server that handles this channel.
+     * @param uuid the node uuid.
+     */
+    TestNodeContext(final AsyncNodeNioServer server, final String uuid) {
+      super(server, null, true);
+      setUuid(uuid);
+      setMaxJobs(1);
+      setNodeInfo(new JPPFSystemInformation(new TypedProperties(), uuid, true, false), false);
+      setExecutionStatus(ExecutorStatus.ACTIVE);
+    }
+
+    @Override
+    public Future<?> submit(final ServerTaskBundleNode nodeBundle) throws Exception {
+      addJobEntry(nodeBundle);
+      nodeBundle.setChannel(this);
+      bundle = nodeBundle;
+      return new CompletableFuture<>();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package test.org.jppf.server.protocol;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.protocol.*;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.Test;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the strategy which coalesces the results received from multiple nodes into a single message to the client.
+ * @author Laurent Cohen
+ */
+public class TestBatchedResults extends BaseTest {
+  /**
+   * Holds the strategies used to send the results back to the client.
+   */
+  private static final SendResultsStrategyManager strategyManager = new SendResultsStrategyManager(new TypedProperties());
+
+  /**
+   * Test that the results received within the latency window are sent in a single notification which holds the size of each batch,
+   * and that the last results are sent as soon as the job is complete.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testBatchedResults() throws Exception {
+    final ResultsCollector collector = new ResultsCollector();
+    final ServerTaskBundleClient bundle = createBundle("batched", 8, SendResultsStrategyConstants.BATCHED_RESULTS, collector);
+    final List<ServerTask> tasks = bundle.getTaskList();
+    for (int i=0; i<3; i++) receiveResults(bundle, tasks.subList(2 * i, 2 * i + 2));
+    assertEquals(6, bundle.getResultsToSendCount());
+    // the results are sent by the timer thread when the default latency of 50 ms expires
+    final ServerTaskBundleClient first = collector.notifications.poll(5000L, TimeUnit.MILLISECONDS);
+    assertNotNull(first);
+    assertEquals(6, first.getTaskCount());
+    assertArrayEquals(new int[] { 2, 2, 2 }, first.getJob().getParameter(BundleParameter.RESULTS_BATCH_SIZES));
+    assertEquals(0, bundle.getResultsToSendCount());
+    receiveResults(bundle, tasks.subList(6, 8));
+    final ServerTaskBundleClient last = collector.notifications.poll(0L, TimeUnit.MILLISECONDS);
+    assertNotNull(last);
+    assertEquals(2, last.getTaskCount());
+    assertNull(last.getJob().getParameter(BundleParameter.RESULTS_BATCH_SIZES));
+    assertTrue(bundle.isDone());
+    Thread.sleep(100L);
+    assertTrue(collector.notifications.isEmpty());
+  }
+
+  /**
+   * Test that the maximum number of results in a batch is read from the configuration of the driver.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testMaxTasksFromConfiguration() throws Exception {
+    final TypedProperties config = new TypedProperties().set(JPPFProperties.RESULTS_BATCH_MAX_LATENCY, 60_000L).set(JPPFProperties.RESULTS_BATCH_MAX_TASKS, 4);
+    final ResultsCollector collector = new ResultsCollector();
+    final ServerTaskBundleClient bundle = createBundle("max-tasks", 8, SendResultsStrategyConstants.BATCHED_RESULTS, collector, new SendResultsStrategyManager(config));
+    final List<ServerTask> tasks = bundle.getTaskList();
+    receiveResults(bundle, tasks.subList(0, 2));
+    assertTrue(collector.notifications.isEmpty());
+    // the maximum number of results is reached well before the latency expires
+    receiveResults(bundle, tasks.subList(2, 4));
+    final ServerTaskBundleClient first = collector.notifications.poll(0L, TimeUnit.MILLISECONDS);
+    assertNotNull(first);
+    assertEquals(4, first.getTaskCount());
+    assertArrayEquals(new int[] { 2, 2 }, first.getJob().getParameter(BundleParameter.RESULTS_BATCH_SIZES));
+    receiveResults(bundle, tasks.subList(4, 8));
+    assertEquals(4, collector.notifications.poll(0L, TimeUnit.MILLISECONDS).getTaskCount());
+    assertTrue(bundle.isDone());
+  }
+
+  /**
+   * Test that the node results strategy sends the results of each node as soon as they are received.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testNodeResults() throws Exception {
+    final ResultsCollector collector = new ResultsCollector();
+    final ServerTaskBundleClient bundle = createBundle("node", 4, SendResultsStrategyConstants.NODE_RESULTS, collector);
+    final List<ServerTask> tasks = bundle.getTaskList();
+    receiveResults(bundle, tasks.subList(0, 2));
+    receiveResults(bundle, tasks.subList(2, 4));
+    assertEquals(2, collector.notifications.size());
+    for (final ServerTaskBundleClient notification: collector.notifications) {
+      assertEquals(2, notification.getTaskCount());
+      assertNull(notification.getJob().getParameter(BundleParameter.RESULTS_BATCH_SIZES));
+    }
+  }
+
+  /**
+   * Simulate the reception of the results of the specified tasks from a node.
+   * @param bundle the client bundle the tasks belong to.
+   * @param tasks the tasks whose results are received.
+   */
+  private static void receiveResults(final ServerTaskBundleClient bundle, final List<ServerTask> tasks) {
+    for (final ServerTask task: tasks) task.resultReceived(new MultipleBuffersLocation(new byte[] { (byte) task.getPosition() }));
+    bundle.resultReceived(new ArrayList<>(tasks));
+  }
+
+  /**
+   * Create a client bundle for a new job.
+   * @param name the name of the job.
+   * @param nbTasks the number of tasks in the job.
+   * @param strategy the name of the strategy used to send the results.
+   * @param listener receives the results sent back to the client.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name, final int nbTasks, final String strategy, final ServerTaskBundleClient.CompletionListener listener) {
+    return createBundle(name, nbTasks, strategy, listener, strategyManager);
+  }
+
+  /**
+   * Create a client bundle for a new job.
+   * @param name the name of the job.
+   * @param nbTasks the number of tasks in the job.
+   * @param strategy the name of the strategy used to send the results.
+   * @param listener receives the results sent back to the client.
+   * @param manager holds the strategies used to send the results back to the client.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name, final int nbTasks, final String strategy, final ServerTaskBundleClient.CompletionListener listener,
+    final SendResultsStrategyManager manager) {
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setName(name);
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setTaskCount(nbTasks);
+    header.setInitialTaskCount(nbTasks);
+    header.setSLA(new JobSLA().setResultsStrategy(strategy));
+    header.setMetadata(new JPPFJobMetadata());
+    final int[] positions = new int[nbTasks];
+    final List<DataLocation> tasks = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) {
+      positions[i] = i;
+      tasks.add(new MultipleBuffersLocation(new byte[] { (byte) i }));
+    }
+    header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+    final ServerTaskBundleClient bundle = new ServerTaskBundleClient(header, new MultipleBuffersLocation(new byte[0]), tasks, false, manager);
+    bundle.addCompletionListener(listener);
+    return bundle;
+  }
+
+  /**
+   * Collects the notifications of results sent back to the client.
+   */
+  private static class ResultsCollector implements ServerTaskBundleClient.CompletionListener {
+    /**
+     * The bundles sent to the client.
+     */
+    final BlockingQueue<ServerTaskBundleClient> notifications = new LinkedBlockingQueue<>();
+
+    @Override
+    public void taskCompleted(final ServerTaskBundleClient bundle, final List<ServerTask> results) {
+      notifications.offer(bundle);
+    }
+
+    @Override
+    public void bundleEnded(final ServerTaskBundleClient bundle) {
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.protocol;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import org.jppf.execute.ExecutorChannel;
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.job.JPPFJobManager;
+import org.jppf.server.protocol.*;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.utils.*;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the requeue of the tasks a node released before starting them, upon the node's acknowledgement of the release.
+ * @author Laurent Cohen
+ */
+public class TestReleasedTasksRequeue extends BaseTest {
+  /**
+   * Holds the strategies used to send the results back to the client.
+   */
+  private static final SendResultsStrategyManager strategyManager = new SendResultsStrategyManager(new TypedProperties());
+  /**
+   * The queue which holds the jobs.
+   */
+  private static JPPFPriorityQueue queue;
+
+  /**
+   * Create the queue.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    final JPPFDriver driver = new JPPFDriver(new TypedProperties());
+    queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+    // the driver is not started, so its queue must be set explicitly
+    final Field field = JPPFDriver.class.getSuperclass().getDeclaredField("taskQueue");
+    field.setAccessible(true);
+    field.set(driver, queue);
+  }
+
+  /**
+   * Close the queue.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    queue.close();
+  }
+
+  /**
+   * Test that the released tasks are requeued as soon as the release is acknowledged, and that their results from the releasing node are ignored.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testRequeueUponAcknowledgement() throws Exception {
+    final ResultsCollector collector = new ResultsCollector();
+    final ServerJob job = queue.addBundle(createBundle("released-tasks", 6, collector));
+    final ServerTaskBundleNode victim = dispatch(job, 6, "node1");
+    assertEquals(0, job.getTaskCount());
+    // a node other than the one executing the dispatch cannot release its tasks
+    assertEquals(0, job.tasksReleased(createChannel("node3"), new int[] { 3, 4, 5 }));
+    assertEquals(3, job.tasksReleased(victim.getChannel(), new int[] { 3, 4, 5 }));
+    assertEquals(3, job.getTaskCount());
+    assertEquals(3, victim.getTaskList().size());
+    // the same tasks are only requeued once
+    assertEquals(0, job.tasksReleased(victim.getChannel(), new int[] { 3, 4, 5 }));
+    final ServerTaskBundleNode thief = dispatch(job, 3, "node2");
+    final int[] thiefPositions = new int[thief.getTaskCount()];
+    for (int i=0; i<thiefPositions.length; i++) thiefPositions[i] = thief.getTaskList().get(i).getPosition();
+    thief.resultsReceived(createResults("node2", thiefPositions));
+    assertEquals(3, collector.results.size());
+    // the node sends back the results of all the dispatched tasks, including the released ones
+    final List<DataLocation> results = victim.dispatchReturned(createResults("node1", 0, 1, 2, 3, 4, 5));
+    assertEquals(3, results.size());
+    assertEquals(0, job.tasksReleased(victim.getChannel(), new int[] { 0 }));
+    victim.resultsReceived(results);
+    assertEquals(6, collector.results.size());
+    assertEquals(6, collector.nbReceived);
+    for (final Map.Entry<Integer, String> entry: collector.results.entrySet()) {
+      assertEquals(((entry.getKey() < 3) ? "node1-" : "node2-") + entry.getKey(), entry.getValue());
+    }
+    queue.removeBundle(job);
+  }
+
+  /**
+   * Get the next bundle of the specified job and dispatch it to a new channel.
+   * @param job the job to dispatch.
+   * @param nbTasks the number of tasks to dispatch.
+   * @param nodeUuid the uuid of the node to dispatch to.
+   * @return the dispatched bundle.
+   */
+  private static ServerTaskBundleNode dispatch(final ServerJob job, final int nbTasks, final String nodeUuid) {
+    final ServerTaskBundleNode bundle = queue.nextBundle(job, nbTasks, null);
+    bundle.jobDispatched(createChannel(nodeUuid), new CompletableFuture<>());
+    return bundle;
+  }
+
+  /**
+   * Create the serialized results of a dispatch, each holding the specified prefix followed by the position of its task.
+   * @param prefix the prefix of each result.
+   * @param positions the positions of the tasks, in the order in which they were dispatched.
+   * @return a list of {@link DataLocation}s.
+   */
+  private static List<DataLocation> createResults(final String prefix, final int...positions) {
+    final List<DataLocation> results = new ArrayList<>(positions.length);
+    for (final int position: positions) results.add(new MultipleBuffersLocation((prefix + "-" + position).getBytes()));
+    return results;
+  }
+
+  /**
+   * Create a client bundle for a new job.
+   * @param name the name of the job.
+   * @param nbTasks the number of tasks in the job.
+   * @param listener receives the results sent back to the client.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name, final int nbTasks, final ServerTaskBundleClient.CompletionListener listener) {
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setName(name);
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setTaskCount(nbTasks);
+    header.setInitialTaskCount(nbTasks);
+    header.setSLA(new JobSLA());
+    header.setMetadata(new JPPFJobMetadata());
+    final int[] positions = new int[nbTasks];
+    final List<DataLocation> tasks = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) {
+      positions[i] = i;
+      tasks.add(new MultipleBuffersLocation(new byte[] { (byte) i }));
+    }
+    header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+    final ServerTaskBundleClient bundle = new ServerTaskBundleClient(header, new MultipleBuffersLocation(new byte[0]), tasks, false, strategyManager);
+    bundle.addCompletionListener(listener);
+    return bundle;
+  }
+
+  /**
+   * Create a channel which does nothing but identify a node.
+   * @param uuid the uuid of the node.
+   * @return an {@link ExecutorChannel} instance.
+   */
+  private static ExecutorChannel<?> createChannel(final String uuid) {
+    final InvocationHandler handler = (proxy, method, args) -> {
+      switch(method.getName()) {
+        case "getUuid":
+        case "getConnectionUuid":
+        case "toString":
+          return uuid;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "getMonitor":
+          return proxy;
+        case "isActive":
+        case "isLocal":
+          return false;
+        case "getCurrentNbJobs":
+          return 0;
+        default:
+          return null;
+      }
+    };
+    return (ExecutorChannel<?>) Proxy.newProxyInstance(TestReleasedTasksRequeue.class.getClassLoader(), new Class<?>[] { ExecutorChannel.class }, handler);
+  }
+
+  /**
+   * Collects the results sent back to the client, by task position.
+   */
+  private static class ResultsCollector implements ServerTaskBundleClient.CompletionListener {
+    /**
+     * Mapping of task positions to the content of their result.
+     */
+    final Map<Integer, String> results = new HashMap<>();
+    /**
+     * The total number of results received.
+     */
+    int nbReceived;
+
+    @Override
+    public synchronized void taskCompleted(final ServerTaskBundleClient bundle, final List<ServerTask> tasks) {
+      for (final ServerTask task: tasks) {
+        try {
+          results.put(task.getPosition(), new String(StreamUtils.getInputStreamAsByte(task.getResult().getInputStream())));
+          nbReceived++;
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+
+    @Override
+    public void bundleEnded(final ServerTaskBundleClient bundle) {
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.protocol;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import org.jppf.execute.ExecutorChannel;
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.job.JPPFJobManager;
+import org.jppf.server.protocol.*;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.utils.*;
+import org.jppf.utils.streams.StreamUtils;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the speculative execution of the straggling tasks of a job.
+ * @author Laurent Cohen
+ */
+public class TestSpeculativeExecution extends BaseTest {
+  /**
+   * Holds the strategies used to send the results back to the client.
+   */
+  private static final SendResultsStrategyManager strategyManager = new SendResultsStrategyManager(new TypedProperties());
+  /**
+   * The queue which holds the jobs.
+   */
+  private static JPPFPriorityQueue queue;
+
+  /**
+   * Create the queue.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    final JPPFDriver driver = new JPPFDriver(new TypedProperties());
+    queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+    // the driver is not started, so its queue must be set explicitly
+    final Field field = JPPFDriver.class.getSuperclass().getDeclaredField("taskQueue");
+    field.setAccessible(true);
+    field.set(driver, queue);
+  }
+
+  /**
+   * Close the queue.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    queue.close();
+  }
+
+  /**
+   * Test that a speculative copy is only created below the threshold, and that the copy's result is sent to the client when it arrives first.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testSpeculativeCopyWins() throws Exception {
+    final ResultsCollector collector = new ResultsCollector();
+    final ServerJob job = queue.addBundle(createBundle("copy-wins", 4, 0.5d, collector));
+    final ServerTaskBundleNode straggler = dispatch(job, 2, "node1");
+    final ServerTaskBundleNode other = dispatch(job, 2, "node2");
+    // 4 tasks still executing, above the threshold of 2 tasks
+    assertFalse(queue.getSpeculationCandidates().contains(job));
+    assertNull(job.createSpeculativeDispatch(createChannel("node3")));
+    other.resultsReceived(createResults("original", other.getTaskCount()));
+    assertEquals(2, collector.results.size());
+    assertTrue(queue.getSpeculationCandidates().contains(job));
+    final ExecutorChannel<?> idleChannel = createChannel("node3");
+    final ServerTaskBundleNode copy = job.createSpeculativeDispatch(idleChannel);
+    assertNotNull(copy);
+    assertTrue(copy.isSpeculative());
+    assertSame(straggler, copy.getSpeculativePeer());
+    assertSame(copy, straggler.getSpeculativePeer());
+    assertEquals(straggler.getTaskCount(), copy.getTaskCount());
+    // a dispatch is only copied once
+    assertNull(job.createSpeculativeDispatch(createChannel("node4")));
+    copy.jobDispatched(idleChannel, new CompletableFuture<>());
+    copy.resultsReceived(createResults("copy", copy.getTaskCount()));
+    assertSame(straggler, job.getSpeculativeLoser(copy));
+    straggler.resultsReceived(createResults("original", straggler.getTaskCount()));
+    assertEquals(4, collector.results.size());
+    for (final ServerTask task: straggler.getTaskList()) assertEquals("copy", collector.results.get(task.getPosition()));
+    for (final ServerTask task: other.getTaskList()) assertEquals("original", collector.results.get(task.getPosition()));
+    assertEquals(2, job.getSpeculativeCopies());
+    assertEquals(2, job.getSpeculativeWins());
+    queue.removeBundle(job);
+    assertFalse(queue.getSpeculationCandidates().contains(job));
+  }
+
+  /**
+   * Test that a resubmitted speculative copy is discarded while the original task carries on alone.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testResubmittedCopy() throws Exception {
+    final ResultsCollector collector = new ResultsCollector();
+    final ServerJob job = queue.addBundle(createBundle("resubmitted-copy", 4, 1d, collector));
+    final ServerTaskBundleNode straggler = dispatch(job, 4, "node1");
+    // the node executing the straggler is not eligible for its copy
+    assertNull(job.createSpeculativeDispatch(straggler.getChannel()));
+    final ExecutorChannel<?> idleChannel = createChannel("node2");
+    final ServerTaskBundleNode copy = job.createSpeculativeDispatch(idleChannel);
+    assertNotNull(copy);
+    copy.jobDispatched(idleChannel, new CompletableFuture<>());
+    final ServerTask resubmitted = copy.getTaskList().get(0);
+    resubmitted.resubmit();
+    copy.resultsReceived(createResults("copy", copy.getTaskCount()));
+    assertEquals(3, collector.results.size());
+    assertEquals(3, job.getSpeculativeWins());
+    // the original of the resubmitted copy has yet to return
+    assertNull(job.getSpeculativeLoser(copy));
+    assertEquals(0, job.getTaskCount());
+    straggler.resultsReceived(createResults("original", straggler.getTaskCount()));
+    assertEquals(4, collector.results.size());
+    assertEquals(4, collector.nbReceived);
+    for (final Map.Entry<Integer, String> entry: collector.results.entrySet()) {
+      assertEquals((entry.getKey() == resubmitted.getPosition()) ? "original" : "copy", entry.getValue());
+    }
+    assertEquals(4, job.getSpeculativeCopies());
+    assertEquals(3, job.getSpeculativeWins());
+    queue.removeBundle(job);
+  }
+
+  /**
+   * Get the next bundle of the specified job and dispatch it to a new channel.
+   * @param job the job to dispatch.
+   * @param nbTasks the number of tasks to dispatch.
+   * @param nodeUuid the uuid of the node to dispatch to.
+   * @return the dispatched bundle.
+   */
+  private static ServerTaskBundleNode dispatch(final ServerJob job, final int nbTasks, final String nodeUuid) {
+    final ServerTaskBundleNode bundle = queue.nextBundle(job, nbTasks, null);
+    bundle.jobDispatched(createChannel(nodeUuid), new CompletableFuture<>());
+    return bundle;
+  }
+
+  /**
+   * Create the serialized results of a dispatch.
+   * @param content the content of each result.
+   * @param nbTasks the number of results to create.
+   * @return a list of {@link DataLocation}s.
+   */
+  private static List<DataLocation> createResults(final String content, final int nbTasks) {
+    final List<DataLocation> results = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) results.add(new MultipleBuffersLocation(content.getBytes()));
+    return results;
+  }
+
+  /**
+   * Create a client bundle for a new job.
+   * @param name the name of the job.
+   * @param nbTasks the number of tasks in the job.
+   * @param threshold the speculative execution threshold of the job.
+   * @param listener receives the results sent back to the client.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name, final int nbTasks, final double threshold, final ServerTaskBundleClient.CompletionListener listener) {
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setName(name);
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setTaskCount(nbTasks);
+    header.setInitialTaskCount(nbTasks);
+    header.setSLA(new JobSLA().setSpeculativeExecutionThreshold(threshold));
+    header.setMetadata(new JPPFJobMetadata());
+    final int[] positions = new int[nbTasks];
+    final List<DataLocation> tasks = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) {
+      positions[i] = i;
+      tasks.add(new MultipleBuffersLocation(new byte[] { (byte) i }));
+    }
+    header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+    final ServerTaskBundleClient bundle = new ServerTaskBundleClient(header, new MultipleBuffersLocation(new byte[0]), tasks, false, strategyManager);
+    bundle.addCompletionListener(listener);
+    return bundle;
+  }
+
+  /**
+   * Create a channel which does nothing but identify a node.
+   * @param uuid the uuid of the node.
+   * @return an {@link ExecutorChannel} instance.
+   */
+  private static ExecutorChannel<?> createChannel(final String uuid) {
+    final InvocationHandler handler = (proxy, method, args) -> {
+      switch(method.getName()) {
+        case "getUuid":
+        case "getConnectionUuid":
+        case "toString":
+          return uuid;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "getMonitor":
+          return proxy;
+        case "isActive":
+        case "isLocal":
+          return false;
+        case "getCurrentNbJobs":
+          return 0;
+        default:
+          return null;
+      }
+    };
+    return (ExecutorChannel<?>) Proxy.newProxyInstance(TestSpeculativeExecution.class.getClassLoader(), new Class<?>[] { ExecutorChannel.class }, handler);
+  }
+
+  /**
+   * Collects the results sent back to the client, by task position.
+   */
+  private static class ResultsCollector implements ServerTaskBundleClient.CompletionListener {
+    /**
+     * Mapping of task positions to the content of their result.
+     */
+    final Map<Integer, String> results = new HashMap<>();
+    /**
+     * The total number of results received.
+     */
+    int nbReceived;
+
+    @Override
+    public synchronized void taskCompleted(final ServerTaskBundleClient bundle, final List<ServerTask> tasks) {
+      for (final ServerTask task: tasks) {
+        try {
+          results.put(task.getPosition(), new String(StreamUtils.getInputStreamAsByte(task.getResult().getInputStream())));
+          nbReceived++;
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+
+    @Override
+    public void bundleEnded(final ServerTaskBundleClient bundle) {
+    }
+  }
+}
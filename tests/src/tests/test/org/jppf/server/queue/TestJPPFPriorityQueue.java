@@ -0,0 +1,258 @@
+/*
+ * JPPF.
+ * Copyright (C) 2005-2019 JPPF Team.
+ * http://www.jppf.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.org.jppf.server.queue;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jppf.io.*;
+import org.jppf.node.protocol.*;
+import org.jppf.node.protocol.graph.MutableJobDependencyGraph;
+import org.jppf.server.JPPFDriver;
+import org.jppf.server.job.JPPFJobManager;
+import org.jppf.server.protocol.*;
+import org.jppf.server.queue.JPPFPriorityQueue;
+import org.jppf.utils.*;
+import org.jppf.utils.configuration.JPPFProperties;
+import org.junit.*;
+
+import test.org.jppf.test.setup.BaseTest;
+
+/**
+ * Unit tests for the default and concurrent implementations of the driver's {@link JPPFPriorityQueue}.
+ * @author Laurent Cohen
+ */
+public class TestJPPFPriorityQueue extends BaseTest {
+  /**
+   * Holds the strategies used to send the results back to the client.
+   */
+  private static final SendResultsStrategyManager strategyManager = new SendResultsStrategyManager(new TypedProperties());
+  /**
+   * The queues to test, one default and one concurrent.
+   */
+  private static final List<JPPFPriorityQueue> queues = new ArrayList<>();
+
+  /**
+   * Create the queues.
+   * @throws Exception if any error occurs.
+   */
+  @BeforeClass
+  public static void setup() throws Exception {
+    for (final boolean concurrent: new boolean[] { false, true }) {
+      final TypedProperties config = new TypedProperties().set(JPPFProperties.SERVER_QUEUE_CONCURRENT, concurrent).set(JPPFProperties.SERVER_QUEUE_LOCK_STRIPES, 8);
+      final JPPFDriver driver = new JPPFDriver(config);
+      final JPPFPriorityQueue queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+      // the driver is not started, so its queue must be set explicitly for the job updates
+      final Field field = JPPFDriver.class.getSuperclass().getDeclaredField("taskQueue");
+      field.setAccessible(true);
+      field.set(driver, queue);
+      queues.add(queue);
+    }
+  }
+
+  /**
+   * Close the queues.
+   * @throws Exception if any error occurs.
+   */
+  @AfterClass
+  public static void teardown() throws Exception {
+    for (final JPPFPriorityQueue queue: queues) queue.close();
+    queues.clear();
+  }
+
+  /**
+   * Test that the jobs are iterated in the order of their priority, including after a priority change.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testPriorityOrder() throws Exception {
+    for (final JPPFPriorityQueue queue: queues) {
+      final int[] priorities = { 0, 5, -3, 5, 10 };
+      final List<ServerJob> jobs = new ArrayList<>();
+      for (int i=0; i<priorities.length; i++) jobs.add(queue.addBundle(createBundle("job-" + i, priorities[i], 2)));
+      assertEquals(Arrays.asList(jobs.get(4), jobs.get(1), jobs.get(3), jobs.get(0), jobs.get(2)), toList(queue.getJobsByPriority()));
+      assertEquals(toList(queue.getJobsByPriority()), queue.getAllJobsFromPriorityMap());
+      queue.updatePriority(jobs.get(2).getUuid(), 7);
+      assertEquals(Arrays.asList(jobs.get(4), jobs.get(2), jobs.get(1), jobs.get(3), jobs.get(0)), toList(queue.getJobsByPriority()));
+      assertSame(jobs.get(3), queue.getJob(jobs.get(3).getUuid()));
+      assertEquals(5, queue.getQueueSize());
+      // a partial dispatch moves the job at the end of the jobs with the same priority
+      final ServerTaskBundleNode bundle = queue.nextBundle(jobs.get(1), 1, null);
+      assertEquals(1, bundle.getTaskCount());
+      assertEquals(Arrays.asList(jobs.get(4), jobs.get(2), jobs.get(3), jobs.get(1), jobs.get(0)), toList(queue.getJobsByPriority()));
+      for (final ServerJob job: jobs) queue.nextBundle(job, Integer.MAX_VALUE, null);
+      assertTrue("concurrent=" + queue.isConcurrent(), queue.isEmpty());
+      for (final ServerJob job: jobs) queue.removeBundle(job);
+      assertTrue(queue.getAllJobIds().isEmpty());
+    }
+  }
+
+  /**
+   * Test that the tasks of jobs enqueued concurrently by multiple threads are all dispatched exactly once by concurrent dispatcher threads.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=30000L)
+  public void testConcurrentEnqueueAndDispatch() throws Exception {
+    final int nbProducers = 4, nbConsumers = 4, nbJobsPerProducer = 250, nbTasks = 5;
+    for (final JPPFPriorityQueue queue: queues) {
+      final ExecutorService executor = Executors.newFixedThreadPool(nbProducers + nbConsumers);
+      try {
+        final AtomicInteger dispatchedTasks = new AtomicInteger(0);
+        final CountDownLatch producersDone = new CountDownLatch(nbProducers);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i=0; i<nbProducers; i++) {
+          final int producer = i;
+          futures.add(executor.submit(() -> {
+            try {
+              for (int j=0; j<nbJobsPerProducer; j++) queue.addBundle(createBundle("job-" + producer + "-" + j, j % 3, nbTasks));
+            } finally {
+              producersDone.countDown();
+            }
+          }));
+        }
+        for (int i=0; i<nbConsumers; i++) {
+          futures.add(executor.submit(() -> {
+            while ((producersDone.getCount() > 0L) || !queue.isEmpty()) {
+              for (final ServerJob job: queue.getJobsByPriority()) {
+                final ServerTaskBundleNode bundle = nextBundle(queue, job);
+                if (bundle != null) dispatchedTasks.addAndGet(bundle.getTaskCount());
+              }
+            }
+            return null;
+          }));
+        }
+        for (final Future<?> future: futures) future.get();
+        assertEquals("concurrent=" + queue.isConcurrent(), nbProducers * nbJobsPerProducer * nbTasks, dispatchedTasks.get());
+        assertEquals(nbProducers * nbJobsPerProducer, queue.getAllJobIds().size());
+        for (final ServerJob job: queue.getAllJobs()) {
+          assertEquals(0, job.getTaskCount());
+          queue.removeBundle(job);
+        }
+        assertTrue(queue.getAllJobIds().isEmpty());
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Test that with critical path scheduling, the jobs of a job dependency graph are ordered by descending bottom level,
+   * and that the order is only recomputed when jobs are added or the bottom levels change.
+   * @throws Exception if any error occurs.
+   */
+  @Test(timeout=10000L)
+  public void testCriticalPathOrder() throws Exception {
+    for (final boolean concurrent: new boolean[] { false, true }) {
+      final TypedProperties config = new TypedProperties().set(JPPFProperties.SERVER_QUEUE_CONCURRENT, concurrent).set(JPPFProperties.JOB_SCHEDULER_CRITICAL_PATH, true);
+      final JPPFDriver driver = new JPPFDriver(config);
+      final JPPFPriorityQueue queue = new JPPFPriorityQueue(driver, new JPPFJobManager(driver));
+      try {
+        final MutableJobDependencyGraph graph = queue.getDependenciesHandler().getGraph();
+        final ServerJob jobB = queue.addBundle(createBundle("B", 0, 2, new JobDependencySpec().setId("B")));
+        final ServerJob plain = queue.addBundle(createBundle("plain", 0, 2));
+        final ServerJob jobC = queue.addBundle(createBundle("C", 0, 2, new JobDependencySpec().setId("C")));
+        assertEquals(Arrays.asList(jobB, plain, jobC), toList(queue.getJobsByPriority()));
+        assertSame(queue.getJobsByPriority(), queue.getJobsByPriority());
+        // A depends on C, which is now on the critical path
+        final ServerJob jobA = queue.addBundle(createBundle("A", 0, 2, new JobDependencySpec().setId("A").addDependencies("C").setGraphRoot(true)));
+        graph.setJobCost(jobA.getUuid(), 10d);
+        assertEquals(Arrays.asList(jobC, plain, jobA, jobB), toList(queue.getJobsByPriority()));
+        // a partial dispatch moves the job which does not belong to the graph at the end of the jobs with the same priority
+        queue.nextBundle(plain, 1, null);
+        assertEquals(Arrays.asList(jobC, jobA, jobB, plain), toList(queue.getJobsByPriority()));
+        queue.nextBundle(jobA, Integer.MAX_VALUE, null);
+        assertEquals(Arrays.asList(jobC, jobB, plain), toList(queue.getJobsByPriority()));
+        graph.setJobCost(jobB.getUuid(), 100d);
+        assertEquals(Arrays.asList(jobB, jobC, plain), toList(queue.getJobsByPriority()));
+      } finally {
+        queue.close();
+      }
+    }
+  }
+
+  /**
+   * Get the next bundle of at most 2 tasks for the specified job, as the job scheduler does.
+   * @param queue the queue from which to get the bundle.
+   * @param job the job to dispatch.
+   * @return a bundle of tasks, or {@code null} if there is no task left to dispatch.
+   */
+  private static ServerTaskBundleNode nextBundle(final JPPFPriorityQueue queue, final ServerJob job) {
+    if (queue.isConcurrent()) return queue.nextBundle(job, 2, null);
+    // the default queue requires dispatches of the same job to be serialized, which the job scheduler does with its single thread
+    queue.getLock().lock();
+    try {
+      return (job.getTaskCount() > 0) ? queue.nextBundle(job, 2, null) : null;
+    } finally {
+      queue.getLock().unlock();
+    }
+  }
+
+  /**
+   * Create a client bundle for a new job.
+   * @param name the name of the job.
+   * @param priority the priority of the job.
+   * @param nbTasks the number of tasks in the job.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name, final int priority, final int nbTasks) {
+    return createBundle(name, priority, nbTasks, null);
+  }
+
+  /**
+   * Create a client bundle for a new job.
+   * @param name the name of the job.
+   * @param priority the priority of the job.
+   * @param nbTasks the number of tasks in the job.
+   * @param spec the dependency specification of the job, if any.
+   * @return a new {@link ServerTaskBundleClient}.
+   */
+  private static ServerTaskBundleClient createBundle(final String name, final int priority, final int nbTasks, final JobDependencySpec spec) {
+    final TaskBundle header = new JPPFTaskBundle();
+    header.setName(name);
+    header.setUuid(JPPFUuid.normalUUID());
+    header.setTaskCount(nbTasks);
+    header.setSLA(new JobSLA());
+    header.setMetadata(new JPPFJobMetadata());
+    header.getSLA().setPriority(priority);
+    if (spec != null) header.getSLA().getDependencySpec().setId(spec.getId()).addDependencies(spec.getDependencies()).setGraphRoot(spec.isGraphRoot());
+    final int[] positions = new int[nbTasks];
+    final List<DataLocation> tasks = new ArrayList<>(nbTasks);
+    for (int i=0; i<nbTasks; i++) {
+      positions[i] = i;
+      tasks.add(new MultipleBuffersLocation(new byte[] { (byte) i }));
+    }
+    header.setParameter(BundleParameter.TASK_POSITIONS, positions);
+    return new ServerTaskBundleClient(header, new MultipleBuffersLocation(new byte[0]), tasks, false, strategyManager);
+  }
+
+  /**
+   * Copy the specified jobs into a list.
+   * @param jobs the jobs to copy.
+   * @return a list of jobs.
+   */
+  private static List<ServerJob> toList(final Iterable<ServerJob> jobs) {
+    final List<ServerJob> list = new ArrayList<>();
+    for (final ServerJob job: jobs) list.add(job);
+    return list;
+  }
+}